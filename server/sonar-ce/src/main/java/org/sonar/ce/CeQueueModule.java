@@ -24,6 +24,7 @@ import org.sonar.server.computation.monitoring.CEQueueStatusImpl;
 import org.sonar.server.computation.monitoring.CeTasksMBeanImpl;
 import org.sonar.server.computation.queue.CeQueueCleaner;
 import org.sonar.server.computation.queue.CeQueueInitializer;
+import org.sonar.server.computation.queue.CeQueueSubmissionWatcher;
 import org.sonar.server.computation.queue.InternalCeQueueImpl;
 
 public class CeQueueModule extends Module {
@@ -32,6 +33,7 @@ public class CeQueueModule extends Module {
     add(
       // queue state
       InternalCeQueueImpl.class,
+      CeQueueSubmissionWatcher.class,
 
       // queue monitoring
       CEQueueStatusImpl.class,
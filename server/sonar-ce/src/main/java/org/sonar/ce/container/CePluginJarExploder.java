@@ -20,24 +20,25 @@
 package org.sonar.ce.container;
 
 import java.io.File;
-import org.apache.commons.io.FileUtils;
-import org.sonar.server.platform.ServerFileSystem;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.core.platform.ExplodedPlugin;
 import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.PluginJarExploder;
+import org.sonar.server.platform.ServerFileSystem;
+import org.sonar.server.plugins.ExplodedPluginCache;
 
 /**
  * Explodes the plugin JARs of extensions/plugins/ into a temporary directory
- * dedicated to compute engine.
+ * dedicated to compute engine. Files are taken from {@link ExplodedPluginCache}.
  */
 public class CePluginJarExploder extends PluginJarExploder {
 
   private static final String TEMP_RELATIVE_PATH = "ce-exploded-plugins";
   private final ServerFileSystem fs;
+  private final ExplodedPluginCache cache;
 
   public CePluginJarExploder(ServerFileSystem fs) {
     this.fs = fs;
+    this.cache = new ExplodedPluginCache(fs);
   }
 
   @Override
@@ -47,10 +48,7 @@ public class CePluginJarExploder extends PluginJarExploder {
     try {
       org.sonar.core.util.FileUtils.cleanDirectory(toDir);
 
-      File jarSource = pluginInfo.getNonNullJarFile();
-      File jarTarget = new File(toDir, jarSource.getName());
-      FileUtils.copyFile(jarSource, jarTarget);
-      ZipUtils.unzip(jarSource, toDir, newLibFilter());
+      File jarTarget = cache.install(pluginInfo, toDir, newLibFilter());
       return explodeFromUnzippedDir(pluginInfo.getKey(), jarTarget, toDir);
     } catch (Exception e) {
       throw new IllegalStateException(String.format(
@@ -39,6 +39,9 @@ import org.sonar.api.utils.Durations;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.UriReader;
 import org.sonar.api.utils.Version;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.api.utils.log.Profiler;
 import org.sonar.ce.CeConfigurationModule;
 import org.sonar.ce.CeHttpModule;
 import org.sonar.ce.CeQueueModule;
@@ -136,6 +139,7 @@ import org.sonar.server.startup.LogServerId;
 import org.sonar.server.test.index.TestIndexer;
 import org.sonar.server.user.DefaultUserFinder;
 import org.sonar.server.user.DeprecatedUserFinder;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.index.UserIndex;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.view.index.ViewIndex;
@@ -144,6 +148,8 @@ import org.sonarqube.ws.Rules;
 
 public class ComputeEngineContainerImpl implements ComputeEngineContainer {
 
+  private static final Logger LOG = Loggers.get(ComputeEngineContainerImpl.class);
+
   @CheckForNull
   private ComponentContainer level1;
   @CheckForNull
@@ -151,6 +157,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
 
   @Override
   public ComputeEngineContainer start(Props props) {
+    Profiler profiler = Profiler.create(LOG).start();
     this.level1 = new ComponentContainer();
     this.level1
       .add(props.rawProperties())
@@ -159,25 +166,34 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       .add(toArray(ClusterProperties.definitions()));
     configureFromModules(this.level1);
     this.level1.startComponents();
+    profiler.stopInfo("level1 started");
 
+    profiler.start();
     ComponentContainer level2 = this.level1.createChild();
     level2.add(level2Components());
     configureFromModules(level2);
     level2.startComponents();
+    profiler.stopInfo("level2 started");
 
+    profiler.start();
     ComponentContainer level3 = level2.createChild();
     level3.add(level3Components());
     configureFromModules(level3);
     level3.startComponents();
+    profiler.stopInfo("level3 started");
 
+    profiler.start();
     this.level4 = level3.createChild();
     this.level4.add(level4Components());
     configureFromModules(this.level4);
     ServerExtensionInstaller extensionInstaller = this.level4.getComponentByType(ServerExtensionInstaller.class);
     extensionInstaller.installExtensions(this.level4);
     this.level4.startComponents();
+    profiler.stopInfo("level4 started");
 
+    profiler.start();
     startupTasks();
+    profiler.stopInfo("startup tasks executed");
 
     return this;
   }
@@ -324,6 +340,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       PermissionUpdater.class,
       UserPermissionChanger.class,
       GroupPermissionChanger.class,
+      UserPermissionCache.class, // used by PermissionUpdater and PermissionService
 
 
       // components
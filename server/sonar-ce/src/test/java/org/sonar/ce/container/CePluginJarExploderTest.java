@@ -92,6 +92,7 @@ public class CePluginJarExploderTest {
   private class DumbFileSystem implements ServerFileSystem {
     private final TemporaryFolder temp;
     private File tempDir;
+    private File dataDir;
 
     public DumbFileSystem(TemporaryFolder temp) {
       this.temp = temp;
@@ -99,7 +100,14 @@ public class CePluginJarExploderTest {
 
     @Override
     public File getDataDir() {
-      throw new UnsupportedOperationException();
+      if (dataDir == null) {
+        try {
+          this.dataDir = temp.newFolder();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return dataDir;
     }
 
     @Override
@@ -88,11 +88,11 @@ public class ComputeEngineContainerImplTest {
     assertThat(picoContainer.getComponentAdapters())
       .hasSize(
         CONTAINER_ITSELF
-          + 78 // level 4
+          + 79 // level 4
           + 4 // content of CeConfigurationModule
           + 3 // content of CeHttpModule
-          + 5 // content of CeQueueModule
-          + 4 // content of ProjectAnalysisTaskModule
+          + 6 // content of CeQueueModule
+          + 7 // content of ProjectAnalysisTaskModule
           + 4 // content of CeTaskProcessorModule
     );
     assertThat(picoContainer.getParent().getComponentAdapters()).hasSize(
@@ -19,6 +19,8 @@
  */
 package org.sonar.ce.monitoring;
 
+import java.util.Map;
+
 public interface CEQueueStatus {
 
   /**
@@ -85,4 +87,45 @@ public interface CEQueueStatus {
    * Time spent processing batch reports since startup, in milliseconds.
    */
   long getProcessingTime();
+
+  /**
+   * Adds the specified time to the processing time counter of the computation step with the specified description.
+   *
+   * @param stepDescription description of the step, as returned by {@code ComputationStep#getDescription()}
+   * @param processingTime duration of the execution of the step in ms
+   *
+   * @throws IllegalArgumentException if processingTime is < 0
+   */
+  void addStepProcessingTime(String stepDescription, long processingTime);
+
+  /**
+   * Time spent executing each computation step since startup, in milliseconds, by step description.
+   */
+  Map<String, Long> getStepsProcessingTime();
+
+  /**
+   * Adds the specified time to the counter of time spent by tasks waiting in queue before being processed.
+   *
+   * @param waitingTime duration between the submission of a task and the start of its processing, in ms
+   *
+   * @throws IllegalArgumentException if waitingTime is < 0
+   */
+  void addWaitingTime(long waitingTime);
+
+  /**
+   * Time spent by tasks waiting in queue before being processed since startup, in milliseconds.
+   */
+  long getWaitingTime();
+
+  /**
+   * Sets the number of workers currently polling the queue or processing a task.
+   *
+   * @throws IllegalArgumentException if activeWorkerCount is < 0
+   */
+  void setActiveWorkerCount(int activeWorkerCount);
+
+  /**
+   * Number of workers currently polling the queue or processing a task.
+   */
+  int getActiveWorkerCount();
 }
@@ -31,12 +31,14 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.UuidFactory;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeQueueDto;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.server.property.InternalProperties;
 
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Predicates.notNull;
@@ -72,6 +74,7 @@ public class CeQueueImpl implements CeQueue {
       CeQueueDto dto = new CeTaskSubmitToInsertedCeQueueDto(dbSession, dbClient).apply(submission);
       CeTask task = loadTask(dbSession, dto);
       dbSession.commit();
+      notifySubmission(dbSession, task.getUuid());
       return task;
 
     } finally {
@@ -93,6 +96,7 @@ public class CeQueueImpl implements CeQueue {
         .toList();
       List<CeTask> tasks = loadTasks(dbSession, ceQueueDtos);
       dbSession.commit();
+      notifySubmission(dbSession, tasks.get(tasks.size() - 1).getUuid());
       return tasks;
 
     } finally {
@@ -100,6 +104,24 @@ public class CeQueueImpl implements CeQueue {
     }
   }
 
+  /**
+   * Notifies the Compute Engine, which may run in another process, that tasks have been submitted, so that its idle
+   * workers peek the queue without waiting for their next polling. The notification is committed after the tasks, so
+   * that the tasks are in the queue when it is received.
+   * <p>
+   * The property is created by the Compute Engine at startup, it is only updated here. Failing to notify does not fail
+   * the submission, the tasks are then processed at the next polling of the queue.
+   * </p>
+   */
+  private void notifySubmission(DbSession dbSession, String lastTaskUuid) {
+    try {
+      dbClient.internalPropertiesDao().update(dbSession, InternalProperties.CE_QUEUE_LAST_SUBMISSION, lastTaskUuid);
+      dbSession.commit();
+    } catch (Exception e) {
+      Loggers.get(CeQueueImpl.class).warn("Failed to notify Compute Engine of submission of task " + lastTaskUuid, e);
+    }
+  }
+
   protected CeTask loadTask(DbSession dbSession, CeQueueDto dto) {
     if (dto.getComponentUuid() == null) {
       return new CeQueueDtoToCeTask().apply(dto);
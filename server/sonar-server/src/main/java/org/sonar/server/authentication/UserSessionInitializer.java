@@ -32,6 +32,7 @@ import org.sonar.db.user.UserDto;
 import org.sonar.server.exceptions.UnauthorizedException;
 import org.sonar.server.user.ServerUserSession;
 import org.sonar.server.user.ThreadLocalUserSession;
+import org.sonar.server.user.UserPermissionCache;
 
 import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
 import static org.sonar.api.CoreProperties.CORE_FORCE_AUTHENTICATION_PROPERTY;
@@ -73,14 +74,16 @@ public class UserSessionInitializer {
   private final JwtHttpHandler jwtHttpHandler;
   private final BasicAuthenticator basicAuthenticator;
   private final ThreadLocalUserSession threadLocalSession;
+  private final UserPermissionCache userPermissionCache;
 
   public UserSessionInitializer(DbClient dbClient, Settings settings, JwtHttpHandler jwtHttpHandler, BasicAuthenticator basicAuthenticator,
-                                ThreadLocalUserSession threadLocalSession) {
+                                ThreadLocalUserSession threadLocalSession, UserPermissionCache userPermissionCache) {
     this.dbClient = dbClient;
     this.settings = settings;
     this.jwtHttpHandler = jwtHttpHandler;
     this.basicAuthenticator = basicAuthenticator;
     this.threadLocalSession = threadLocalSession;
+    this.userPermissionCache = userPermissionCache;
   }
 
   public boolean initUserSession(HttpServletRequest request, HttpServletResponse response) {
@@ -105,14 +108,14 @@ public class UserSessionInitializer {
   private void setUserSession(HttpServletRequest request, HttpServletResponse response) {
     Optional<UserDto> user = authenticate(request, response);
     if (user.isPresent()) {
-      ServerUserSession session = createForUser(dbClient, user.get());
+      ServerUserSession session = createForUser(dbClient, userPermissionCache, user.get());
       threadLocalSession.set(session);
       request.setAttribute(ACCESS_LOG_LOGIN, session.getLogin());
     } else {
       if (settings.getBoolean(CORE_FORCE_AUTHENTICATION_PROPERTY)) {
         throw new UnauthorizedException("User must be authenticated");
       }
-      threadLocalSession.set(createForAnonymous(dbClient));
+      threadLocalSession.set(createForAnonymous(dbClient, userPermissionCache));
       request.setAttribute(ACCESS_LOG_LOGIN, "-");
     }
   }
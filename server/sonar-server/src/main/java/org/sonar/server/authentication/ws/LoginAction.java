@@ -36,6 +36,7 @@ import org.sonar.server.authentication.JwtHttpHandler;
 import org.sonar.server.exceptions.UnauthorizedException;
 import org.sonar.server.user.ServerUserSession;
 import org.sonar.server.user.ThreadLocalUserSession;
+import org.sonar.server.user.UserPermissionCache;
 
 import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static org.elasticsearch.common.Strings.isNullOrEmpty;
@@ -50,12 +51,15 @@ public class LoginAction extends ServletFilter {
   private final CredentialsAuthenticator credentialsAuthenticator;
   private final JwtHttpHandler jwtHttpHandler;
   private final ThreadLocalUserSession threadLocalUserSession;
+  private final UserPermissionCache userPermissionCache;
 
-  public LoginAction(DbClient dbClient, CredentialsAuthenticator credentialsAuthenticator, JwtHttpHandler jwtHttpHandler, ThreadLocalUserSession threadLocalUserSession) {
+  public LoginAction(DbClient dbClient, CredentialsAuthenticator credentialsAuthenticator, JwtHttpHandler jwtHttpHandler, ThreadLocalUserSession threadLocalUserSession,
+    UserPermissionCache userPermissionCache) {
     this.dbClient = dbClient;
     this.credentialsAuthenticator = credentialsAuthenticator;
     this.jwtHttpHandler = jwtHttpHandler;
     this.threadLocalUserSession = threadLocalUserSession;
+    this.userPermissionCache = userPermissionCache;
   }
 
   @Override
@@ -75,7 +79,7 @@ public class LoginAction extends ServletFilter {
     try {
       UserDto userDto = authenticate(request);
       jwtHttpHandler.generateToken(userDto, request, response);
-      threadLocalUserSession.set(ServerUserSession.createForUser(dbClient, userDto));
+      threadLocalUserSession.set(ServerUserSession.createForUser(dbClient, userPermissionCache, userDto));
       // TODO add chain.doFilter when Rack filter will not be executed after this filter (or use a Servlet)
     } catch (UnauthorizedException e) {
       response.setStatus(e.httpCode());
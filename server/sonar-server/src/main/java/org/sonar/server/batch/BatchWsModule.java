@@ -29,6 +29,7 @@ public class BatchWsModule extends Module {
       GlobalAction.class,
       ProjectAction.class,
       ProjectDataLoader.class,
+      ProjectRepositoriesCache.class,
       IssuesAction.class,
       UsersAction.class,
       BatchWs.class);
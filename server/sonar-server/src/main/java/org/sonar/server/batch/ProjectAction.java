@@ -19,6 +19,9 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.net.HttpHeaders;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -27,6 +30,8 @@ import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
 import org.sonar.scanner.protocol.input.FileData;
 import org.sonar.scanner.protocol.input.ProjectRepositories;
+import org.sonar.server.batch.ProjectRepositoriesCache.SerializedProjectRepositories;
+import org.sonarqube.ws.MediaTypes;
 import org.sonarqube.ws.WsBatch.WsProjectResponse;
 import org.sonarqube.ws.WsBatch.WsProjectResponse.FileData.Builder;
 
@@ -48,7 +53,9 @@ public class ProjectAction implements BatchWsAction {
   @Override
   public void define(WebService.NewController controller) {
     WebService.NewAction action = controller.createAction("project")
-      .setDescription("Return project repository")
+      .setDescription("Return project repository.<br/>" +
+        "Protobuf responses have an ETag header. Response is empty with the status 304 (Not Modified) when the header If-None-Match " +
+        "of the request equals the ETag of the current project repository.")
       .setResponseExample(getClass().getResource("project-example.json"))
       .setSince("4.5")
       .setInternal(true)
@@ -74,13 +81,25 @@ public class ProjectAction implements BatchWsAction {
 
   @Override
   public void handle(Request wsRequest, Response wsResponse) throws Exception {
-    ProjectRepositories data = projectDataLoader.load(ProjectDataQuery.create()
+    SerializedProjectRepositories data = projectDataLoader.loadSerialized(ProjectDataQuery.create()
       .setModuleKey(wsRequest.mandatoryParam(PARAM_KEY))
       .setProfileName(wsRequest.param(PARAM_PROFILE))
-      .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE)));
+      .setIssuesMode(wsRequest.mandatoryParamAsBoolean(PARAM_ISSUES_MODE)),
+      repositories -> buildResponse(repositories).toByteArray());
 
-    WsProjectResponse projectResponse = buildResponse(data);
-    writeProtobuf(projectResponse, wsRequest, wsResponse);
+    if (!wsRequest.getMediaType().equals(MediaTypes.PROTOBUF)) {
+      writeProtobuf(WsProjectResponse.parseFrom(data.getBytes()), wsRequest, wsResponse);
+      return;
+    }
+    wsResponse.setHeader(HttpHeaders.ETAG, data.getEtag());
+    if (data.getEtag().equals(wsRequest.header(HttpHeaders.IF_NONE_MATCH).orElse(null))) {
+      wsResponse.stream().setStatus(HttpURLConnection.HTTP_NOT_MODIFIED).output().close();
+      return;
+    }
+    // the serialized response is streamed as-is, without being parsed
+    try (OutputStream output = wsResponse.stream().setMediaType(MediaTypes.PROTOBUF).output()) {
+      output.write(data.getBytes());
+    }
   }
 
   private static WsProjectResponse buildResponse(ProjectRepositories data) {
@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ServerSide;
@@ -34,9 +35,11 @@ import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.FilePathWithHashDto;
+import org.sonar.db.component.SnapshotDto;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.scanner.protocol.input.FileData;
 import org.sonar.scanner.protocol.input.ProjectRepositories;
+import org.sonar.server.batch.ProjectRepositoriesCache.SerializedProjectRepositories;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.user.UserSession;
@@ -53,50 +56,87 @@ public class ProjectDataLoader {
 
   private final DbClient dbClient;
   private final UserSession userSession;
+  private final ProjectRepositoriesCache cache;
 
-  public ProjectDataLoader(DbClient dbClient, UserSession userSession) {
+  public ProjectDataLoader(DbClient dbClient, UserSession userSession, ProjectRepositoriesCache cache) {
     this.dbClient = dbClient;
     this.userSession = userSession;
+    this.cache = cache;
   }
 
   public ProjectRepositories load(ProjectDataQuery query) {
     DbSession session = dbClient.openSession(false);
     try {
-      ProjectRepositories data = new ProjectRepositories();
-      ComponentDto module = checkFoundWithOptional(dbClient.componentDao().selectByKey(session, query.getModuleKey()),
-        "Project or module with key '%s' is not found", query.getModuleKey());
-      if (!isProjectOrModule(module)) {
-        throw new BadRequestException(format("Key '%s' belongs to a component which is not a Project", query.getModuleKey()));
-      }
+      ComponentDto module = selectModule(session, query);
+      boolean hasScanPerm = checkPermission(query, module);
+      return load(session, query, module, hasScanPerm);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
 
-      boolean hasScanPerm = userSession.hasComponentUuidPermission(SCAN_EXECUTION, module.projectUuid());
-      boolean hasBrowsePerm = userSession.hasComponentUuidPermission(USER, module.projectUuid());
-      checkPermission(query.isIssuesMode(), hasScanPerm, hasBrowsePerm);
+  /**
+   * Same as {@link #load(ProjectDataQuery)}, except that the serialization of the project repositories is shared
+   * by requests until a new analysis of the project is processed or until its settings are changed. Permissions
+   * of user are verified on each call.
+   */
+  public SerializedProjectRepositories loadSerialized(ProjectDataQuery query, Function<ProjectRepositories, byte[]> serializer) {
+    DbSession session = dbClient.openSession(false);
+    try {
+      ComponentDto module = selectModule(session, query);
+      boolean hasScanPerm = checkPermission(query, module);
+      String lastAnalysisUuid = dbClient.snapshotDao().selectLastAnalysisByRootComponentUuid(session, module.projectUuid())
+        .map(SnapshotDto::getUuid)
+        .orElse(null);
+      return cache.get(module.projectUuid(), module.getKey(), hasScanPerm, lastAnalysisUuid,
+        () -> serializer.apply(load(session, query, module, hasScanPerm)));
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
 
-      ComponentDto project = getProject(module, session);
-      if (!project.key().equals(module.key())) {
-        addSettings(data, module.getKey(), getSettingsFromParents(module, hasScanPerm, session));
-      }
+  private ComponentDto selectModule(DbSession session, ProjectDataQuery query) {
+    ComponentDto module = checkFoundWithOptional(dbClient.componentDao().selectByKey(session, query.getModuleKey()),
+      "Project or module with key '%s' is not found", query.getModuleKey());
+    if (!isProjectOrModule(module)) {
+      throw new BadRequestException(format("Key '%s' belongs to a component which is not a Project", query.getModuleKey()));
+    }
+    return module;
+  }
+
+  /**
+   * @return whether user has the permission to scan the project
+   */
+  private boolean checkPermission(ProjectDataQuery query, ComponentDto module) {
+    boolean hasScanPerm = userSession.hasComponentUuidPermission(SCAN_EXECUTION, module.projectUuid());
+    boolean hasBrowsePerm = userSession.hasComponentUuidPermission(USER, module.projectUuid());
+    checkPermission(query.isIssuesMode(), hasScanPerm, hasBrowsePerm);
+    return hasScanPerm;
+  }
 
-      List<ComponentDto> modulesTree = dbClient.componentDao().selectEnabledDescendantModules(session, module.uuid());
-      Map<String, String> moduleUuidsByKey = moduleUuidsByKey(modulesTree);
-      Map<String, Long> moduleIdsByKey = moduleIdsByKey(modulesTree);
+  private ProjectRepositories load(DbSession session, ProjectDataQuery query, ComponentDto module, boolean hasScanPerm) {
+    ProjectRepositories data = new ProjectRepositories();
+    ComponentDto project = getProject(module, session);
+    if (!project.key().equals(module.key())) {
+      addSettings(data, module.getKey(), getSettingsFromParents(module, hasScanPerm, session));
+    }
 
-      List<PropertyDto> modulesTreeSettings = dbClient.propertiesDao().selectEnabledDescendantModuleProperties(module.uuid(), session);
-      TreeModuleSettings treeModuleSettings = new TreeModuleSettings(moduleUuidsByKey, moduleIdsByKey, modulesTree, modulesTreeSettings);
+    List<ComponentDto> modulesTree = dbClient.componentDao().selectEnabledDescendantModules(session, module.uuid());
+    Map<String, String> moduleUuidsByKey = moduleUuidsByKey(modulesTree);
+    Map<String, Long> moduleIdsByKey = moduleIdsByKey(modulesTree);
 
-      addSettingsToChildrenModules(data, query.getModuleKey(), Maps.<String, String>newHashMap(), treeModuleSettings, hasScanPerm);
-      List<FilePathWithHashDto> files = searchFilesWithHashAndRevision(session, module);
-      addFileData(data, modulesTree, files);
+    List<PropertyDto> modulesTreeSettings = dbClient.propertiesDao().selectEnabledDescendantModuleProperties(module.uuid(), session);
+    TreeModuleSettings treeModuleSettings = new TreeModuleSettings(moduleUuidsByKey, moduleIdsByKey, modulesTree, modulesTreeSettings);
 
-      // FIXME need real value but actually only used to know if there is a previous analysis in local issue tracking mode so any value is
-      // ok
-      data.setLastAnalysisDate(new Date());
+    addSettingsToChildrenModules(data, query.getModuleKey(), Maps.<String, String>newHashMap(), treeModuleSettings, hasScanPerm);
+    List<FilePathWithHashDto> files = searchFilesWithHashAndRevision(session, module);
+    addFileData(data, modulesTree, files);
 
-      return data;
-    } finally {
-      MyBatis.closeQuietly(session);
-    }
+    // FIXME need real value but actually only used to know if there is a previous analysis in local issue tracking mode so any value is
+    // ok
+    data.setLastAnalysisDate(new Date());
+
+    return data;
   }
 
   private static boolean isProjectOrModule(ComponentDto module) {
@@ -0,0 +1,157 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.server.ServerSide;
+
+/**
+ * Serialized project repositories returned to scanners by api/batch/project, shared by all the requests
+ * on the same project or module.
+ * <ul>
+ *   <li>an entry is versioned by the last analysis of the project, so it is recomputed as soon as the processing
+ *   of a new analysis is completed by the Compute Engine</li>
+ *   <li>entries of a project are dropped by the web server when its settings are changed through web services. Changes
+ *   done by Ruby on Rails are visible once the entries expire</li>
+ * </ul>
+ */
+@ServerSide
+public class ProjectRepositoriesCache {
+
+  static final long MAX_BYTES = 64L * 1024 * 1024;
+  static final long EXPIRATION_SECONDS = 60L;
+
+  private final Cache<Key, SerializedProjectRepositories> cache = CacheBuilder.newBuilder()
+    .maximumWeight(MAX_BYTES)
+    .weigher((Key key, SerializedProjectRepositories value) -> value.getBytes().length)
+    .expireAfterWrite(EXPIRATION_SECONDS, TimeUnit.SECONDS)
+    .recordStats()
+    .build();
+
+  /**
+   * @param withSecuredSettings whether the values of the {@code .secured} settings are included
+   * @param analysisUuid the last analysis of the project, {@code null} if the project has never been analyzed
+   * @param loader called when the entry is missing or when its version is outdated
+   */
+  SerializedProjectRepositories get(String projectUuid, String moduleKey, boolean withSecuredSettings, @Nullable String analysisUuid,
+    Supplier<byte[]> loader) {
+    Key key = new Key(projectUuid, moduleKey, withSecuredSettings);
+    SerializedProjectRepositories cached = cache.getIfPresent(key);
+    if (cached != null && !Objects.equals(cached.getAnalysisUuid(), analysisUuid)) {
+      cache.asMap().remove(key, cached);
+    }
+    try {
+      // concurrent requests on the same module wait for a single load
+      return cache.get(key, () -> new SerializedProjectRepositories(analysisUuid, loader.get()));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * To be called when the settings of the project or of one of its modules are changed
+   */
+  public void invalidateProject(String projectUuid) {
+    cache.asMap().keySet().removeIf(key -> key.projectUuid.equals(projectUuid));
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public static class SerializedProjectRepositories {
+    private final String analysisUuid;
+    private final byte[] bytes;
+    private final String etag;
+
+    SerializedProjectRepositories(@Nullable String analysisUuid, byte[] bytes) {
+      this.analysisUuid = analysisUuid;
+      this.bytes = bytes;
+      this.etag = "\"" + Hashing.sha1().hashBytes(bytes) + "\"";
+    }
+
+    @CheckForNull
+    public String getAnalysisUuid() {
+      return analysisUuid;
+    }
+
+    /**
+     * The protobuf serialization of {@link org.sonarqube.ws.WsBatch.WsProjectResponse}. Must not be modified.
+     */
+    public byte[] getBytes() {
+      return bytes;
+    }
+
+    /**
+     * Quoted strong validator of the bytes, as expected by the HTTP headers ETag and If-None-Match
+     */
+    public String getEtag() {
+      return etag;
+    }
+  }
+
+  private static class Key {
+    private final String projectUuid;
+    private final String moduleKey;
+    private final boolean withSecuredSettings;
+
+    private Key(String projectUuid, String moduleKey, boolean withSecuredSettings) {
+      this.projectUuid = projectUuid;
+      this.moduleKey = moduleKey;
+      this.withSecuredSettings = withSecuredSettings;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return withSecuredSettings == key.withSecuredSettings && projectUuid.equals(key.projectUuid) && moduleKey.equals(key.moduleKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(projectUuid, moduleKey, withSecuredSettings);
+    }
+  }
+}
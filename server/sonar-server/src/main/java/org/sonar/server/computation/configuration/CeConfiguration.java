@@ -22,13 +22,30 @@ package org.sonar.server.computation.configuration;
 public interface CeConfiguration {
 
   /**
-   * The number of workers to process CeTasks concurrently.
+   * The maximum number of workers to process CeTasks concurrently.
    */
   int getWorkerCount();
 
   /**
-   * The delay in milliseconds before calling another {@link org.sonar.server.computation.taskprocessor.CeWorkerCallable}
-   * when previous one had nothing to do.
+   * The number of workers which are always active. Additional workers, up to {@link #getWorkerCount()}, are started
+   * when tasks are submitted and stopped when the queue is empty.
+   */
+  int getMinWorkerCount();
+
+  /**
+   * The delay in milliseconds before polling the queue again when no submission of task has been notified since the
+   * previous {@link org.sonar.server.computation.taskprocessor.CeWorkerCallable} had nothing to do.
    */
   long getQueuePollingDelay();
+
+  /**
+   * The maximum number of {@link org.sonar.server.computation.task.step.ConcurrentComputationStep}s executed
+   * concurrently while processing a single CeTask.
+   */
+  int getStepsConcurrency();
+
+  /**
+   * Whether the reports of the next pending tasks are extracted in background while the current tasks are processed.
+   */
+  boolean isReportPrefetchEnabled();
 }
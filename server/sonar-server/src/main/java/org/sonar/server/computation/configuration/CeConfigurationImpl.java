@@ -30,48 +30,72 @@ import static java.lang.String.format;
 
 /**
  * Immutable implementation of {@link CeConfiguration} which takes value returned by
- * {@link CeConfiguration#getWorkerCount()} from property {@link CeConfigurationImpl#CE_WORKERS_COUNT_PROPERTY} and
- * always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when {@link CeConfiguration#getQueuePollingDelay()} is called.
+ * {@link CeConfiguration#getWorkerCount()} from property {@link CeConfigurationImpl#CE_WORKERS_COUNT_PROPERTY}, the value
+ * returned by {@link CeConfiguration#getMinWorkerCount()} from property {@link CeConfigurationImpl#CE_MIN_WORKERS_COUNT_PROPERTY},
+ * the value returned by {@link CeConfiguration#getStepsConcurrency()} from property
+ * {@link CeConfigurationImpl#CE_STEPS_CONCURRENCY_PROPERTY}, the value returned by
+ * {@link CeConfiguration#isReportPrefetchEnabled()} from property {@link CeConfigurationImpl#CE_REPORT_PREFETCH_PROPERTY} and always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when
+ * {@link CeConfiguration#getQueuePollingDelay()} is called.
  */
 public class CeConfigurationImpl implements CeConfiguration, Startable {
   public static final String CE_WORKERS_COUNT_PROPERTY = "sonar.ce.workerCount";
+  public static final String CE_MIN_WORKERS_COUNT_PROPERTY = "sonar.ce.minWorkerCount";
+  public static final String CE_STEPS_CONCURRENCY_PROPERTY = "sonar.ce.stepsConcurrency";
+  public static final String CE_REPORT_PREFETCH_PROPERTY = "sonar.ce.reportPrefetch";
 
   private static final Logger LOG = Loggers.get(CeConfigurationImpl.class);
 
   @VisibleForTesting
   protected static final int DEFAULT_WORKER_COUNT = 1;
+  @VisibleForTesting
+  protected static final int DEFAULT_STEPS_CONCURRENCY = 1;
   // 2 seconds
   @VisibleForTesting
   protected static final long DEFAULT_QUEUE_POLLING_DELAY = 2 * 1000L;
 
   private final int workerCount;
+  private final int minWorkerCount;
+  private final int stepsConcurrency;
+  private final boolean reportPrefetchEnabled;
 
   public CeConfigurationImpl(Settings settings) {
-    String workerCountAsStr = settings.getString(CE_WORKERS_COUNT_PROPERTY);
-    if (workerCountAsStr == null || workerCountAsStr.isEmpty()) {
-      this.workerCount = DEFAULT_WORKER_COUNT;
-    } else {
-      this.workerCount = parseStringValue(workerCountAsStr);
+    this.workerCount = readPositiveInt(settings, CE_WORKERS_COUNT_PROPERTY, DEFAULT_WORKER_COUNT);
+    // by default, all workers are always active
+    this.minWorkerCount = readPositiveInt(settings, CE_MIN_WORKERS_COUNT_PROPERTY, workerCount);
+    if (minWorkerCount > workerCount) {
+      throw MessageException.of(format(
+        "value '%s' of property %s is invalid. It must not be greater than the value of property %s (%s).",
+        minWorkerCount, CE_MIN_WORKERS_COUNT_PROPERTY, CE_WORKERS_COUNT_PROPERTY, workerCount));
+    }
+    this.stepsConcurrency = readPositiveInt(settings, CE_STEPS_CONCURRENCY_PROPERTY, DEFAULT_STEPS_CONCURRENCY);
+    this.reportPrefetchEnabled = settings.getBoolean(CE_REPORT_PREFETCH_PROPERTY);
+  }
+
+  private static int readPositiveInt(Settings settings, String propertyKey, int defaultValue) {
+    String valueAsStr = settings.getString(propertyKey);
+    if (valueAsStr == null || valueAsStr.isEmpty()) {
+      return defaultValue;
     }
+    return parseStringValue(propertyKey, valueAsStr);
   }
 
-  private static int parseStringValue(String workerCountAsStr) {
+  private static int parseStringValue(String propertyKey, String valueAsStr) {
     try {
-      int value = Integer.parseInt(workerCountAsStr);
+      int value = Integer.parseInt(valueAsStr);
       if (value < 1) {
-        throw parsingError(workerCountAsStr);
+        throw parsingError(propertyKey, valueAsStr);
       }
       return value;
     } catch (NumberFormatException e) {
-      throw parsingError(workerCountAsStr);
+      throw parsingError(propertyKey, valueAsStr);
     }
   }
 
-  private static MessageException parsingError(String workerCountAsStr) {
+  private static MessageException parsingError(String propertyKey, String valueAsStr) {
     return MessageException.of(format(
       "value '%s' of property %s is invalid. It must an integer strictly greater than 0.",
-      workerCountAsStr,
-      CE_WORKERS_COUNT_PROPERTY)
+      valueAsStr,
+      propertyKey)
       );
   }
 
@@ -80,6 +104,15 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     if (this.workerCount > 1) {
       LOG.info("Compute Engine will use {} concurrent workers to process tasks", this.workerCount);
     }
+    if (this.minWorkerCount < this.workerCount) {
+      LOG.info("Compute Engine will keep {} workers always active and start the others when tasks are pending", this.minWorkerCount);
+    }
+    if (this.stepsConcurrency > 1) {
+      LOG.info("Compute Engine will execute up to {} independent steps concurrently", this.stepsConcurrency);
+    }
+    if (this.reportPrefetchEnabled) {
+      LOG.info("Compute Engine will extract reports of pending tasks in background");
+    }
   }
 
   @Override
@@ -92,8 +125,23 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     return workerCount;
   }
 
+  @Override
+  public int getMinWorkerCount() {
+    return minWorkerCount;
+  }
+
   @Override
   public long getQueuePollingDelay() {
     return DEFAULT_QUEUE_POLLING_DELAY;
   }
+
+  @Override
+  public int getStepsConcurrency() {
+    return stepsConcurrency;
+  }
+
+  @Override
+  public boolean isReportPrefetchEnabled() {
+    return reportPrefetchEnabled;
+  }
 }
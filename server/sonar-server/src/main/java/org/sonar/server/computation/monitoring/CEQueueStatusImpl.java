@@ -19,6 +19,11 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.db.DbClient;
@@ -34,6 +39,9 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   private final AtomicLong error = new AtomicLong(0);
   private final AtomicLong success = new AtomicLong(0);
   private final AtomicLong processingTime = new AtomicLong(0);
+  private final ConcurrentMap<String, AtomicLong> stepsProcessingTime = new ConcurrentHashMap<>();
+  private final AtomicLong waitingTime = new AtomicLong(0);
+  private final AtomicInteger activeWorkerCount = new AtomicInteger(0);
 
   public CEQueueStatusImpl(DbClient dbClient) {
     this.dbClient = dbClient;
@@ -63,6 +71,24 @@ public class CEQueueStatusImpl implements CEQueueStatus {
     processingTime.addAndGet(ms);
   }
 
+  @Override
+  public void addStepProcessingTime(String stepDescription, long processingTimeInMs) {
+    checkArgument(processingTimeInMs >= 0, "Processing time can not be < 0");
+    stepsProcessingTime.computeIfAbsent(stepDescription, k -> new AtomicLong(0)).addAndGet(processingTimeInMs);
+  }
+
+  @Override
+  public void addWaitingTime(long waitingTimeInMs) {
+    checkArgument(waitingTimeInMs >= 0, "Waiting time can not be < 0");
+    waitingTime.addAndGet(waitingTimeInMs);
+  }
+
+  @Override
+  public void setActiveWorkerCount(int count) {
+    checkArgument(count >= 0, "Active worker count can not be < 0");
+    activeWorkerCount.set(count);
+  }
+
   @Override
   public long getPendingCount() {
     try (DbSession dbSession = dbClient.openSession(false)) {
@@ -89,4 +115,21 @@ public class CEQueueStatusImpl implements CEQueueStatus {
   public long getProcessingTime() {
     return processingTime.get();
   }
+
+  @Override
+  public Map<String, Long> getStepsProcessingTime() {
+    Map<String, Long> res = new TreeMap<>();
+    stepsProcessingTime.forEach((step, time) -> res.put(step, time.get()));
+    return res;
+  }
+
+  @Override
+  public long getWaitingTime() {
+    return waitingTime.get();
+  }
+
+  @Override
+  public int getActiveWorkerCount() {
+    return activeWorkerCount.get();
+  }
 }
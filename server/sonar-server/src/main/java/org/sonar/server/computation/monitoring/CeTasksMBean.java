@@ -19,6 +19,8 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import java.util.Map;
+
 public interface CeTasksMBean {
 
   String OBJECT_NAME = "SonarQube:name=ComputeEngineTasks";
@@ -48,8 +50,29 @@ public interface CeTasksMBean {
    */
   long getProcessingTime();
 
+  /**
+   * Time spent executing each computation step since startup, in milliseconds, by step description.
+   */
+  Map<String, Long> getStepsProcessingTime();
+
   /**
    * Configured number of Workers.
    */
   int getWorkerCount();
+
+  /**
+   * Time spent by tasks waiting in queue before being processed since startup, in milliseconds.
+   */
+  long getWaitingTime();
+
+  /**
+   * Number of Workers currently polling the queue or processing a task, between the configured minimum and
+   * {@link #getWorkerCount()}.
+   */
+  int getActiveWorkerCount();
+
+  /**
+   * Percentage of active Workers currently processing a task.
+   */
+  int getWorkerUtilization();
 }
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import java.util.Map;
 import org.picocontainer.Startable;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.process.Jmx;
@@ -73,11 +74,35 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
     return queueStatus.getProcessingTime();
   }
 
+  @Override
+  public Map<String, Long> getStepsProcessingTime() {
+    return queueStatus.getStepsProcessingTime();
+  }
+
   @Override
   public int getWorkerCount() {
     return ceConfiguration.getWorkerCount();
   }
 
+  @Override
+  public long getWaitingTime() {
+    return queueStatus.getWaitingTime();
+  }
+
+  @Override
+  public int getActiveWorkerCount() {
+    return queueStatus.getActiveWorkerCount();
+  }
+
+  @Override
+  public int getWorkerUtilization() {
+    int activeWorkerCount = queueStatus.getActiveWorkerCount();
+    if (activeWorkerCount == 0) {
+      return 0;
+    }
+    return (int) Math.min(100L, queueStatus.getInProgressCount() * 100L / activeWorkerCount);
+  }
+
   @Override
   public ProtobufSystemInfo.Section toProtobuf() {
     ProtobufSystemInfo.Section.Builder builder = ProtobufSystemInfo.Section.newBuilder();
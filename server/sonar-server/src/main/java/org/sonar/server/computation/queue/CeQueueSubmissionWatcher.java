@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+
+import static org.sonar.server.property.InternalProperties.CE_QUEUE_LAST_SUBMISSION;
+
+/**
+ * Detects the submission of tasks to the queue, whatever the process which submitted them, by reading the internal
+ * property {@link org.sonar.server.property.InternalProperties#CE_QUEUE_LAST_SUBMISSION} updated by
+ * {@link org.sonar.ce.queue.CeQueueImpl}. Reading this single row is much cheaper than peeking the queue.
+ * <p>
+ * The property is created at startup if it does not exist yet, so that submitters only have to update it.
+ * </p>
+ */
+@ComputeEngineSide
+public class CeQueueSubmissionWatcher implements Startable {
+
+  private final DbClient dbClient;
+  @CheckForNull
+  private String lastSubmission;
+
+  public CeQueueSubmissionWatcher(DbClient dbClient) {
+    this.dbClient = dbClient;
+  }
+
+  @Override
+  public void start() {
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      Optional<String> value = dbClient.internalPropertiesDao().selectByKey(dbSession, CE_QUEUE_LAST_SUBMISSION);
+      if (value.isPresent()) {
+        lastSubmission = value.get();
+      } else {
+        dbClient.internalPropertiesDao().saveAsEmpty(dbSession, CE_QUEUE_LAST_SUBMISSION);
+        dbSession.commit();
+        lastSubmission = "";
+      }
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+  }
+
+  @Override
+  public void stop() {
+    // nothing to do
+  }
+
+  /**
+   * @return {@code true} if tasks have been submitted since the previous call
+   */
+  public synchronized boolean hasNewSubmissions() {
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      String submission = dbClient.internalPropertiesDao().selectByKey(dbSession, CE_QUEUE_LAST_SUBMISSION).orElse(null);
+      if (Objects.equals(submission, lastSubmission)) {
+        return false;
+      }
+      lastSubmission = submission;
+      return true;
+    } finally {
+      dbClient.closeSession(dbSession);
+    }
+  }
+}
@@ -22,6 +22,9 @@ package org.sonar.server.computation.task.projectanalysis;
 import org.sonar.server.computation.queue.ReportSubmitter;
 import org.sonar.core.platform.Module;
 import org.sonar.server.computation.task.projectanalysis.container.ContainerFactoryImpl;
+import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationIndex;
+import org.sonar.server.computation.task.projectanalysis.issue.IssueIndexRecovery;
+import org.sonar.server.computation.task.projectanalysis.taskprocessor.ReportPrefetcher;
 import org.sonar.server.computation.task.projectanalysis.taskprocessor.ReportTaskProcessor;
 import org.sonar.server.computation.task.step.ComputationStepExecutor;
 
@@ -33,6 +36,13 @@ public class ProjectAnalysisTaskModule extends Module {
       ContainerFactoryImpl.class,
       ComputationStepExecutor.class,
       ReportTaskProcessor.class,
-      ReportSubmitter.class);
+      ReportPrefetcher.class,
+      ReportSubmitter.class,
+
+      // cross project duplications
+      CrossProjectDuplicationIndex.class,
+
+      // issues indexing
+      IssueIndexRecovery.class);
   }
 }
@@ -50,6 +50,12 @@ public interface BatchReportReader {
 
   CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef);
 
+  /**
+   * MD5 digest of the raw data of the coverage, syntax highlighting and symbols of the specified file. This data is
+   * not decoded, which makes the digest much cheaper than reading it.
+   */
+  String readFileDataDigest(int fileRef);
+
   /**
    * Reads file source line by line. Return an absent optional if the file doest not exist
    */
@@ -21,41 +21,69 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Longs;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Parser;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.CheckForNull;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
+import org.picocontainer.Startable;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.LineReaderIterator;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
-public class BatchReportReaderImpl implements BatchReportReader {
+public class BatchReportReaderImpl implements BatchReportReader, Startable {
+  private static final List<FileStructure.Domain> FILE_DATA_DOMAINS = ImmutableList.of(
+    FileStructure.Domain.COVERAGES, FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, FileStructure.Domain.SYMBOLS);
 
   private final BatchReportDirectoryHolder batchReportDirectoryHolder;
   private org.sonar.scanner.protocol.output.ScannerReportReader delegate;
   // caching of metadata which are read often
   private ScannerReport.Metadata metadata;
+  // caching of components which are read by several steps, possibly concurrently
+  private final Map<Integer, ScannerReport.Component> components = new ConcurrentHashMap<>();
 
   public BatchReportReaderImpl(BatchReportDirectoryHolder batchReportDirectoryHolder) {
     this.batchReportDirectoryHolder = batchReportDirectoryHolder;
   }
 
-  private void ensureInitialized() {
+  @Override
+  public void start() {
+    // report is opened when first read
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (this.delegate != null) {
+      // releases the packed component data of the report
+      this.delegate.close();
+      this.delegate = null;
+    }
+  }
+
+  private synchronized void ensureInitialized() {
     if (this.delegate == null) {
       this.delegate = new org.sonar.scanner.protocol.output.ScannerReportReader(batchReportDirectoryHolder.getDirectory());
     }
   }
 
   @Override
-  public ScannerReport.Metadata readMetadata() {
+  public synchronized ScannerReport.Metadata readMetadata() {
     ensureInitialized();
     if (this.metadata == null) {
       this.metadata = delegate.readMetadata();
@@ -100,7 +128,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public ScannerReport.Component readComponent(int componentRef) {
     ensureInitialized();
-    return delegate.readComponent(componentRef);
+    return components.computeIfAbsent(componentRef, delegate::readComponent);
   }
 
   @Override
@@ -139,18 +167,43 @@ public class BatchReportReaderImpl implements BatchReportReader {
     return delegate.readComponentCoverage(fileRef);
   }
 
+  @Override
+  public String readFileDataDigest(int fileRef) {
+    ensureInitialized();
+    MessageDigest digest = DigestUtils.getMd5Digest();
+    for (FileStructure.Domain domain : FILE_DATA_DOMAINS) {
+      byte[] data = readComponentData(domain, fileRef);
+      // size of each domain is part of the digest so that data can not move from a domain to another unnoticed
+      digest.update(Longs.toByteArray(data == null ? -1L : data.length));
+      if (data != null) {
+        digest.update(data);
+      }
+    }
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  @CheckForNull
+  private byte[] readComponentData(FileStructure.Domain domain, int componentRef) {
+    try (InputStream input = delegate.openComponentData(domain, componentRef)) {
+      return input == null ? null : IOUtils.toByteArray(input);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to compute digest of " + domain + " of component #" + componentRef, e);
+    }
+  }
+
   @Override
   public Optional<CloseableIterator<String>> readFileSource(int fileRef) {
     ensureInitialized();
-    File file = delegate.readFileSource(fileRef);
-    if (file == null) {
+    InputStream input = delegate.openComponentData(FileStructure.Domain.SOURCE, fileRef);
+    if (input == null) {
       return Optional.absent();
     }
 
     try {
-      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(FileUtils.openInputStream(file), StandardCharsets.UTF_8)));
+      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(input, StandardCharsets.UTF_8)));
     } catch (IOException e) {
-      throw new IllegalStateException("Fail to traverse file: " + file, e);
+      IOUtils.closeQuietly(input);
+      throw new IllegalStateException("Fail to traverse source of component #" + fileRef, e);
     }
   }
 
@@ -186,35 +239,21 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public CloseableIterator<ScannerReport.Test> readTests(int testFileRef) {
     ensureInitialized();
-    File file = delegate.readTests(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.Test.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
+    InputStream input = delegate.openComponentData(FileStructure.Domain.TESTS, testFileRef);
+    if (input == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
+    return new ParserCloseableIterator<>(ScannerReport.Test.parser(), input);
   }
 
   @Override
   public CloseableIterator<ScannerReport.CoverageDetail> readCoverageDetails(int testFileRef) {
     ensureInitialized();
-    File file = delegate.readCoverageDetails(testFileRef);
-    if (file == null) {
-      return CloseableIterator.emptyCloseableIterator();
-    }
-
-    try {
-      return new ParserCloseableIterator<>(ScannerReport.CoverageDetail.parser(), FileUtils.openInputStream(file));
-    } catch (IOException e) {
-      Throwables.propagate(e);
-      // actually never reached
+    InputStream input = delegate.openComponentData(FileStructure.Domain.COVERAGE_DETAILS, testFileRef);
+    if (input == null) {
       return CloseableIterator.emptyCloseableIterator();
     }
+    return new ParserCloseableIterator<>(ScannerReport.CoverageDetail.parser(), input);
   }
 
   @Override
@@ -225,17 +264,17 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
   private static class ParserCloseableIterator<T> extends CloseableIterator<T> {
     private final Parser<T> parser;
-    private final FileInputStream fileInputStream;
+    private final InputStream inputStream;
 
-    public ParserCloseableIterator(Parser<T> parser, FileInputStream fileInputStream) {
+    public ParserCloseableIterator(Parser<T> parser, InputStream inputStream) {
       this.parser = parser;
-      this.fileInputStream = fileInputStream;
+      this.inputStream = inputStream;
     }
 
     @Override
     protected T doNext() {
       try {
-        return parser.parseDelimitedFrom(fileInputStream);
+        return parser.parseDelimitedFrom(inputStream);
       } catch (InvalidProtocolBufferException e) {
         Throwables.propagate(e);
         // actually never reached
@@ -245,7 +284,7 @@ public class BatchReportReaderImpl implements BatchReportReader {
 
     @Override
     protected void doClose() throws Exception {
-      fileInputStream.close();
+      inputStream.close();
     }
   }
 }
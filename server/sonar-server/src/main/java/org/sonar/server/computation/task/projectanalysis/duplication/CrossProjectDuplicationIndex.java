@@ -0,0 +1,291 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.duplication;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+
+/**
+ * Hashes of the cross project duplication blocks of the last analyses, kept in memory of the Compute Engine.
+ * It tells which blocks of a file may be duplicated in other projects, so that table DUPLICATIONS_INDEX is queried
+ * only for the files which have such blocks.
+ * <p>
+ * The index of a language is loaded from database when first used and reloaded every {@link #RELOAD_PERIOD_MS}.
+ * Blocks of new analyses are added by {@link #add(String, String, Collection)}. Blocks of previous analyses, deleted
+ * projects and disabled files are not removed in the meantime, they can only lead to useless queries.
+ * </p>
+ * <p>
+ * Languages are loaded independently: loading the index of a language only blocks the first lookups of this
+ * language. While an expired index is reloaded, lookups of its language keep using it.
+ * </p>
+ */
+@ComputeEngineSide
+public class CrossProjectDuplicationIndex {
+
+  static final long RELOAD_PERIOD_MS = TimeUnit.HOURS.toMillis(24);
+
+  private static final Logger LOG = Loggers.get(CrossProjectDuplicationIndex.class);
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private final DbClient dbClient;
+  private final System2 system2;
+  private final ConcurrentMap<String, LanguageIndexLoader> loaderByLanguage = new ConcurrentHashMap<>();
+
+  public CrossProjectDuplicationIndex(DbClient dbClient, System2 system2) {
+    this.dbClient = dbClient;
+    this.system2 = system2;
+  }
+
+  /**
+   * Hashes which may be found in the last analysis of other projects, in files of the same language.
+   *
+   * @param analysisUuid the base analysis of the project, which blocks are not candidates
+   */
+  public List<String> filterCandidates(@Nullable String language, @Nullable String analysisUuid, Collection<String> hashes) {
+    List<String> candidates = new ArrayList<>();
+    if (language == null) {
+      return candidates;
+    }
+    LanguageIndex index = loaderByLanguage.computeIfAbsent(language, LanguageIndexLoader::new).get();
+    for (String hash : hashes) {
+      if (index.mayBeDuplicatedOutside(fingerprint(hash), analysisUuid)) {
+        candidates.add(hash);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Adds the blocks persisted by an analysis. Must be called once they are committed.
+   */
+  public void add(@Nullable String language, String analysisUuid, Collection<String> hashes) {
+    if (language == null) {
+      return;
+    }
+    LanguageIndexLoader loader = loaderByLanguage.get(language);
+    if (loader == null) {
+      // blocks will be loaded from database with the others when the index of the language is first used
+      return;
+    }
+    long[] fingerprints = new long[hashes.size()];
+    int i = 0;
+    for (String hash : hashes) {
+      fingerprints[i] = fingerprint(hash);
+      i++;
+    }
+    loader.add(analysisUuid, fingerprints);
+  }
+
+  public void clear() {
+    loaderByLanguage.clear();
+  }
+
+  private LanguageIndex load(String language) {
+    long start = system2.now();
+    LanguageIndex index = new LanguageIndex(start);
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbClient.duplicationDao().scrollHashesOfLastAnalyses(dbSession, language,
+        dto -> index.put(fingerprint(dto.getHash()), dto.getAnalysisUuid()));
+    }
+    LOG.debug("Cross project duplication index of language {} loaded in {}ms ({} hashes)", language, system2.now() - start, index.size);
+    return index;
+  }
+
+  private static long fingerprint(String hash) {
+    return HASH_FUNCTION.hashString(hash, StandardCharsets.UTF_8).asLong();
+  }
+
+  /**
+   * Loads and reloads the index of a language. Blocks added while the index is loaded are added to both the current
+   * and the loaded index, because the database query may have started before they were committed.
+   */
+  private class LanguageIndexLoader {
+    private final String language;
+    private final Lock loadingLock = new ReentrantLock();
+    @CheckForNull
+    private volatile LanguageIndex index;
+    // guarded by this
+    @CheckForNull
+    private Map<String, List<long[]>> additionsWhileLoading;
+
+    private LanguageIndexLoader(String language) {
+      this.language = language;
+    }
+
+    LanguageIndex get() {
+      LanguageIndex current = index;
+      if (current == null) {
+        // the first lookups of the language wait for the index to be loaded
+        loadingLock.lock();
+        try {
+          if (index == null) {
+            reload();
+          }
+          return index;
+        } finally {
+          loadingLock.unlock();
+        }
+      }
+      if (system2.now() - current.loadedAt >= RELOAD_PERIOD_MS && loadingLock.tryLock()) {
+        // the other lookups keep using the expired index in the meantime
+        try {
+          if (index == current) {
+            reload();
+          }
+        } finally {
+          loadingLock.unlock();
+        }
+      }
+      return index;
+    }
+
+    private void reload() {
+      synchronized (this) {
+        additionsWhileLoading = new HashMap<>();
+      }
+      LanguageIndex loaded = null;
+      try {
+        loaded = load(language);
+      } finally {
+        synchronized (this) {
+          if (loaded != null) {
+            for (Map.Entry<String, List<long[]>> addition : additionsWhileLoading.entrySet()) {
+              for (long[] fingerprints : addition.getValue()) {
+                loaded.putAll(fingerprints, addition.getKey());
+              }
+            }
+            index = loaded;
+          }
+          additionsWhileLoading = null;
+        }
+      }
+    }
+
+    synchronized void add(String analysisUuid, long[] fingerprints) {
+      LanguageIndex current = index;
+      if (current != null) {
+        current.putAll(fingerprints, analysisUuid);
+      }
+      if (additionsWhileLoading != null) {
+        additionsWhileLoading.computeIfAbsent(analysisUuid, uuid -> new ArrayList<>()).add(fingerprints);
+      }
+    }
+  }
+
+  /**
+   * Open-addressing hash table of primitive fingerprints of hashes, associated to the analysis which contains the
+   * hash, or to {@link #SEVERAL_ANALYSES}.
+   */
+  private static class LanguageIndex {
+    private static final long FREE = 0L;
+    private static final int SEVERAL_ANALYSES = -1;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private final long loadedAt;
+    private final Map<String, Integer> analysisIds = new HashMap<>();
+    private long[] fingerprints = new long[INITIAL_CAPACITY];
+    private int[] owners = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private LanguageIndex(long loadedAt) {
+      this.loadedAt = loadedAt;
+    }
+
+    synchronized boolean mayBeDuplicatedOutside(long fingerprint, @Nullable String analysisUuid) {
+      int slot = slotOf(fingerprints, nonFree(fingerprint));
+      if (fingerprints[slot] == FREE) {
+        return false;
+      }
+      Integer analysisId = analysisUuid == null ? null : analysisIds.get(analysisUuid);
+      return analysisId == null || owners[slot] != analysisId;
+    }
+
+    synchronized void putAll(long[] fingerprints, String analysisUuid) {
+      for (long fingerprint : fingerprints) {
+        put(fingerprint, analysisUuid);
+      }
+    }
+
+    synchronized void put(long fingerprint, String analysisUuid) {
+      int analysisId = analysisIds.computeIfAbsent(analysisUuid, uuid -> analysisIds.size());
+      long key = nonFree(fingerprint);
+      int slot = slotOf(fingerprints, key);
+      if (fingerprints[slot] == FREE) {
+        fingerprints[slot] = key;
+        owners[slot] = analysisId;
+        size++;
+        if (size > fingerprints.length * 3 / 4) {
+          grow();
+        }
+      } else if (owners[slot] != analysisId) {
+        owners[slot] = SEVERAL_ANALYSES;
+      }
+    }
+
+    private void grow() {
+      long[] oldFingerprints = fingerprints;
+      int[] oldOwners = owners;
+      fingerprints = new long[oldFingerprints.length * 2];
+      owners = new int[oldOwners.length * 2];
+      for (int i = 0; i < oldFingerprints.length; i++) {
+        if (oldFingerprints[i] != FREE) {
+          int slot = slotOf(fingerprints, oldFingerprints[i]);
+          fingerprints[slot] = oldFingerprints[i];
+          owners[slot] = oldOwners[i];
+        }
+      }
+    }
+
+    /**
+     * Slot containing the fingerprint, or the free slot where it should be inserted (linear probing)
+     */
+    private static int slotOf(long[] table, long key) {
+      int mask = table.length - 1;
+      int slot = (int) (key ^ (key >>> 32)) & mask;
+      while (table[slot] != FREE && table[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private static long nonFree(long fingerprint) {
+      return fingerprint == FREE ? 1L : fingerprint;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity.File;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.sonar.server.computation.task.projectanalysis.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
+
+/**
+ * Inverted index of the line hashes of the files added in the report, used to select the files which may be similar
+ * enough to a removed file to be considered as a move.
+ * <p>
+ * The similarity computed by {@link SourceSimilarityImpl} is based on the Levenshtein distance between the lists of
+ * line hashes, which is at least the size of the biggest list minus the number of line hashes the two lists have in
+ * common. Counting the common line hashes is cheap with this index, so that the costly distance is computed only for
+ * the pairs of files which can reach {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE}. No plausible move is missed.
+ * </p>
+ * This class is thread-safe once built.
+ */
+final class AddedFilesIndex {
+  private final String[] keys;
+  private final int[] sizes;
+  private final Map<String, Postings> postingsByLineHash = new HashMap<>();
+
+  AddedFilesIndex(Map<String, File> addedFilesByKey) {
+    this.keys = new String[addedFilesByKey.size()];
+    this.sizes = new int[addedFilesByKey.size()];
+    int fileIndex = 0;
+    for (Map.Entry<String, File> entry : addedFilesByKey.entrySet()) {
+      keys[fileIndex] = entry.getKey();
+      List<String> lineHashes = entry.getValue().getLineHashes();
+      if (lineHashes != null) {
+        sizes[fileIndex] = lineHashes.size();
+        for (Map.Entry<String, Integer> occurrences : countOccurrences(lineHashes).entrySet()) {
+          postingsByLineHash.computeIfAbsent(occurrences.getKey(), k -> new Postings()).add(fileIndex, occurrences.getValue());
+        }
+      }
+      fileIndex++;
+    }
+  }
+
+  /**
+   * Keys of the added files which may have a score greater or equal to {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE}
+   * with a removed file with the specified line hashes, in the iteration order of the map the index was built from.
+   */
+  List<String> selectCandidates(List<String> lineHashes) {
+    if (lineHashes.isEmpty() || keys.length == 0) {
+      return Collections.emptyList();
+    }
+
+    int[] commonLines = new int[keys.length];
+    for (Map.Entry<String, Integer> occurrences : countOccurrences(lineHashes).entrySet()) {
+      Postings postings = postingsByLineHash.get(occurrences.getKey());
+      if (postings != null) {
+        postings.addCommonLines(occurrences.getValue(), commonLines);
+      }
+    }
+
+    List<String> res = new ArrayList<>();
+    for (int fileIndex = 0; fileIndex < keys.length; fileIndex++) {
+      if (canReachMinRequiredScore(commonLines[fileIndex], max(lineHashes.size(), sizes[fileIndex]))) {
+        res.add(keys[fileIndex]);
+      }
+    }
+    return res;
+  }
+
+  private static boolean canReachMinRequiredScore(int commonLines, int maxLines) {
+    // one point of slack absorbs the floating point rounding of the score
+    return commonLines > 0 && 100L * commonLines >= (long) (MIN_REQUIRED_SCORE - 1) * maxLines;
+  }
+
+  private static Map<String, Integer> countOccurrences(List<String> lineHashes) {
+    Map<String, Integer> res = new HashMap<>();
+    for (String lineHash : lineHashes) {
+      res.merge(lineHash, 1, Integer::sum);
+    }
+    return res;
+  }
+
+  /**
+   * Pairs of file index and number of occurrences of a line hash in this file.
+   */
+  private static final class Postings {
+    private int[] values = new int[2];
+    private int size = 0;
+
+    private void add(int fileIndex, int occurrences) {
+      if (size == values.length) {
+        int[] newValues = new int[values.length * 2];
+        System.arraycopy(values, 0, newValues, 0, size);
+        values = newValues;
+      }
+      values[size] = fileIndex;
+      values[size + 1] = occurrences;
+      size += 2;
+    }
+
+    private void addCommonLines(int occurrences, int[] commonLines) {
+      for (int i = 0; i < size; i += 2) {
+        commonLines[values[i]] += min(occurrences, values[i + 1]);
+      }
+    }
+  }
+}
@@ -25,13 +25,19 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import javax.annotation.CheckForNull;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.concurrent.Immutable;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.log.Logger;
@@ -58,6 +64,7 @@ import static com.google.common.base.Splitter.on;
 import static com.google.common.collect.FluentIterable.from;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static org.sonar.core.util.stream.Collectors.uniqueIndex;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
 
 public class FileMoveDetectionStep implements ComputationStep {
@@ -199,44 +206,27 @@ public class FileMoveDetectionStep implements ComputationStep {
   }
 
   private ScoreMatrix computeScoreMatrix(Map<String, DbComponent> dtosByKey, Set<String> dbFileKeys, Map<String, File> reportFileSourcesByKey) {
-    int[][] scoreMatrix = new int[dbFileKeys.size()][reportFileSourcesByKey.size()];
-    int maxScore = 0;
+    Map<String, DbComponent> dbFilesByUuid = dbFileKeys.stream()
+      .map(dtosByKey::get)
+      // files without path can not be moved
+      .filter(dbComponent -> dbComponent.getPath() != null)
+      .collect(uniqueIndex(DbComponent::getUuid));
 
+    ScoresComputation scoresComputation = new ScoresComputation(new AddedFilesIndex(reportFileSourcesByKey), reportFileSourcesByKey);
     try (DbSession dbSession = dbClient.openSession(false)) {
-      int dbFileIndex = 0;
-      for (String removedFileKey : dbFileKeys) {
-        File fileInDb = getFile(dbSession, dtosByKey.get(removedFileKey));
-        if (fileInDb == null) {
-          continue;
+      // line hashes of removed files are streamed and scored as they are read, they are not all kept in memory
+      dbClient.fileSourceDao().scrollLineHashes(dbSession, dbFilesByUuid.keySet(), context -> {
+        FileSourceDto fileSourceDto = (FileSourceDto) context.getResultObject();
+        if (fileSourceDto.getLineHashes() != null) {
+          DbComponent dbComponent = dbFilesByUuid.get(fileSourceDto.getFileUuid());
+          scoresComputation.submit(dbComponent.getKey(),
+            new File(dbComponent.getPath(), fileSourceDto.getSrcHash(), LINES_HASHES_SPLITTER.splitToList(fileSourceDto.getLineHashes())));
         }
-
-        int reportFileIndex = 0;
-        for (Map.Entry<String, File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-          File unmatchedFile = reportFileSourceAndKey.getValue();
-          int score = fileSimilarity.score(fileInDb, unmatchedFile);
-          scoreMatrix[dbFileIndex][reportFileIndex] = score;
-          if (score > maxScore) {
-            maxScore = score;
-          }
-          reportFileIndex++;
-        }
-        dbFileIndex++;
-      }
-    }
-
-    return new ScoreMatrix(dbFileKeys, reportFileSourcesByKey, scoreMatrix, maxScore);
-  }
-
-  @CheckForNull
-  private File getFile(DbSession dbSession, DbComponent dbComponent) {
-    if (dbComponent.getPath() == null) {
-      return null;
-    }
-    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(dbSession, dbComponent.getUuid());
-    if (fileSourceDto == null) {
-      return null;
+      });
+      return new ScoreMatrix(scoresComputation.await());
+    } finally {
+      scoresComputation.shutdown();
     }
-    return new File(dbComponent.getPath(), fileSourceDto.getSrcHash(), LINES_HASHES_SPLITTER.splitToList(fileSourceDto.getLineHashes()));
   }
 
   private static void printIfDebug(ScoreMatrix scoreMatrix) {
@@ -284,6 +274,72 @@ public class FileMoveDetectionStep implements ComputationStep {
     return new MovedFilesRepository.OriginalFile(dbComponent.getId(), dbComponent.getUuid(), dbComponent.getKey());
   }
 
+  /**
+   * Computes, on a pool of threads, the scores of removed files against the added files selected by {@link AddedFilesIndex}.
+   * The number of pending removed files is bounded so that their line hashes are not all loaded in memory.
+   */
+  private final class ScoresComputation {
+    private static final int PENDING_PER_THREAD = 4;
+
+    private final AddedFilesIndex addedFilesIndex;
+    private final Map<String, File> reportFileSourcesByKey;
+    private final int maxPending;
+    private final ExecutorService executorService;
+    private final Deque<Future<List<ScoreMatrix.Score>>> pending = new ArrayDeque<>();
+    private final List<ScoreMatrix.Score> scores = new ArrayList<>();
+
+    private ScoresComputation(AddedFilesIndex addedFilesIndex, Map<String, File> reportFileSourcesByKey) {
+      this.addedFilesIndex = addedFilesIndex;
+      this.reportFileSourcesByKey = reportFileSourcesByKey;
+      int threads = Runtime.getRuntime().availableProcessors();
+      this.maxPending = threads * PENDING_PER_THREAD;
+      this.executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+        .setNameFormat("file-move-detection-%d")
+        .setDaemon(true)
+        .build());
+    }
+
+    private void submit(String dbFileKey, File fileInDb) {
+      if (pending.size() >= maxPending) {
+        scores.addAll(get(pending.poll()));
+      }
+      pending.add(executorService.submit(() -> score(dbFileKey, fileInDb)));
+    }
+
+    private List<ScoreMatrix.Score> score(String dbFileKey, File fileInDb) {
+      List<ScoreMatrix.Score> res = new ArrayList<>();
+      for (String reportFileKey : addedFilesIndex.selectCandidates(fileInDb.getLineHashes())) {
+        int score = fileSimilarity.score(fileInDb, reportFileSourcesByKey.get(reportFileKey));
+        if (score >= MIN_REQUIRED_SCORE) {
+          res.add(new ScoreMatrix.Score(dbFileKey, reportFileKey, score));
+        }
+      }
+      return res;
+    }
+
+    private List<ScoreMatrix.Score> await() {
+      while (!pending.isEmpty()) {
+        scores.addAll(get(pending.poll()));
+      }
+      return scores;
+    }
+
+    private void shutdown() {
+      executorService.shutdownNow();
+    }
+
+    private List<ScoreMatrix.Score> get(Future<List<ScoreMatrix.Score>> future) {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while computing scores of moved files", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Fail to compute scores of moved files", e.getCause());
+      }
+    }
+  }
+
   @Immutable
   private static final class DbComponent {
     private final long id;
@@ -19,56 +19,50 @@
  */
 package org.sonar.server.computation.task.projectanalysis.filemove;
 
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.concurrent.Immutable;
 
+import static java.util.Objects.requireNonNull;
+import static org.sonar.server.computation.task.projectanalysis.filemove.FileMoveDetectionStep.MIN_REQUIRED_SCORE;
+
+/**
+ * Sparse matrix of the scores of the pairs of removed files and added files.
+ * <p>
+ * Only scores greater or equal to {@link FileMoveDetectionStep#MIN_REQUIRED_SCORE} are kept: memory depends on the
+ * number of plausible moves, not on the product of the number of removed files by the number of added files.
+ * </p>
+ */
 final class ScoreMatrix {
-  private final Set<String> dbFileKeys;
-  private final Map<String, FileSimilarity.File> reportFileSourcesByKey;
-  private final int[][] scores;
+  private final List<Score> scores;
   private final int maxScore;
 
-  public ScoreMatrix(Set<String> dbFileKeys, Map<String, FileSimilarity.File> reportFileSourcesByKey, int[][] scores, int maxScore) {
-    this.dbFileKeys = dbFileKeys;
-    this.reportFileSourcesByKey = reportFileSourcesByKey;
-    this.scores = scores;
-    this.maxScore = maxScore;
+  public ScoreMatrix(Collection<Score> scores) {
+    this.scores = new ArrayList<>(scores.size());
+    int max = 0;
+    for (Score score : scores) {
+      if (score.getScore() >= MIN_REQUIRED_SCORE) {
+        this.scores.add(score);
+        max = Math.max(max, score.getScore());
+      }
+    }
+    this.maxScore = max;
   }
 
   public void accept(ScoreMatrixVisitor visitor) {
-    int dbFileIndex = 0;
-    for (String dbFileKey : dbFileKeys) {
-      int reportFileIndex = 0;
-      for (Map.Entry<String, FileSimilarity.File> reportFileSourceAndKey : reportFileSourcesByKey.entrySet()) {
-        int score = scores[dbFileIndex][reportFileIndex];
-        visitor.visit(dbFileKey, reportFileSourceAndKey.getKey(), score);
-        reportFileIndex++;
-      }
-      dbFileIndex++;
+    for (Score score : scores) {
+      visitor.visit(score.getDbFileKey(), score.getReportFileKey(), score.getScore());
     }
   }
 
   public String toCsv(char separator) {
     StringBuilder res = new StringBuilder();
-    // first row: empty column, then one column for each report file (its key)
-    res.append(separator);
-    for (Map.Entry<String, FileSimilarity.File> reportEntry : reportFileSourcesByKey.entrySet()) {
-      res.append(reportEntry.getKey()).append(separator);
-    }
-    // rows with data: column with db file (its key), then one column for each value
-    accept(new ScoreMatrixVisitor() {
-      private String previousDbFileKey = null;
-
-      @Override
-      public void visit(String dbFileKey, String reportFileKey, int score) {
-        if (!Objects.equals(previousDbFileKey, dbFileKey)) {
-          res.append('\n').append(dbFileKey).append(separator);
-          previousDbFileKey = dbFileKey;
-        }
-        res.append(score).append(separator);
-      }
-    });
+    res.append("dbFileKey").append(separator).append("reportFileKey").append(separator).append("score");
+    accept((dbFileKey, reportFileKey, score) -> res.append('\n')
+      .append(dbFileKey).append(separator)
+      .append(reportFileKey).append(separator)
+      .append(score));
     return res.toString();
   }
 
@@ -80,4 +74,34 @@ final class ScoreMatrix {
   public int getMaxScore() {
     return maxScore;
   }
+
+  @Immutable
+  static final class Score {
+    private final String dbFileKey;
+    private final String reportFileKey;
+    private final int score;
+
+    Score(String dbFileKey, String reportFileKey, int score) {
+      this.dbFileKey = requireNonNull(dbFileKey);
+      this.reportFileKey = requireNonNull(reportFileKey);
+      this.score = score;
+    }
+
+    String getDbFileKey() {
+      return dbFileKey;
+    }
+
+    String getReportFileKey() {
+      return reportFileKey;
+    }
+
+    int getScore() {
+      return score;
+    }
+
+    @Override
+    public String toString() {
+      return "{" + dbFileKey + "=>" + reportFileKey + ":" + score + '}';
+    }
+  }
 }
@@ -32,7 +32,22 @@ public class SourceSimilarityImpl implements SourceSimilarity {
     return (int) (100 * (1.0 - ((double) distance) / (max(left.size(), right.size()))));
   }
 
-  <T extends Object> int levenshteinDistance(List<T> left, List<T> right) {
+  <T extends Object> int levenshteinDistance(List<T> fullLeft, List<T> fullRight) {
+    // common prefix and suffix do not change the distance, ignoring them saves most of the computation when
+    // files are almost the same, which is the common case of a move
+    int prefix = 0;
+    int maxPrefix = min(fullLeft.size(), fullRight.size());
+    while (prefix < maxPrefix && fullLeft.get(prefix).equals(fullRight.get(prefix))) {
+      prefix++;
+    }
+    int suffix = 0;
+    int maxSuffix = maxPrefix - prefix;
+    while (suffix < maxSuffix && fullLeft.get(fullLeft.size() - 1 - suffix).equals(fullRight.get(fullRight.size() - 1 - suffix))) {
+      suffix++;
+    }
+    List<T> left = fullLeft.subList(prefix, fullLeft.size() - suffix);
+    List<T> right = fullRight.subList(prefix, fullRight.size() - suffix);
+
     int len0 = left.size() + 1;
     int len1 = right.size() + 1;
 
@@ -19,18 +19,40 @@
  */
 package org.sonar.server.computation.task.projectanalysis.issue;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
 import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.lang.SerializationUtils;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.TempFolder;
+import org.sonar.ce.protobuf.CeIssueCache;
 import org.sonar.core.issue.DefaultIssue;
-import org.sonar.server.util.cache.DiskCache;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.ProtobufDiskCache;
 
 /**
  * Cache of all the issues involved in the analysis. Their state is as it will be
  * persisted in database (after issue tracking, auto-assignment, ...)
  */
-public class IssueCache extends DiskCache<DefaultIssue> {
+public class IssueCache extends ProtobufDiskCache<DefaultIssue, CeIssueCache.Issue> {
 
   // this constructor is used by picocontainer
   public IssueCache(TempFolder tempFolder, System2 system2) throws IOException {
@@ -40,4 +62,294 @@ public class IssueCache extends DiskCache<DefaultIssue> {
   public IssueCache(File file, System2 system2) {
     super(file, system2);
   }
+
+  @Override
+  protected Parser<CeIssueCache.Issue> parser() {
+    return CeIssueCache.Issue.parser();
+  }
+
+  @Override
+  protected CeIssueCache.Issue toProtobuf(DefaultIssue issue) {
+    CeIssueCache.Issue.Builder builder = CeIssueCache.Issue.newBuilder();
+    setIfNotNull(issue.key(), builder::setKey);
+    if (issue.type() != null) {
+      builder.setRuleType(issue.type().getDbConstant());
+    }
+    setIfNotNull(issue.componentUuid(), builder::setComponentUuid);
+    setIfNotNull(issue.componentKey(), builder::setComponentKey);
+    setIfNotNull(issue.moduleUuid(), builder::setModuleUuid);
+    setIfNotNull(issue.moduleUuidPath(), builder::setModuleUuidPath);
+    setIfNotNull(issue.projectUuid(), builder::setProjectUuid);
+    setIfNotNull(issue.projectKey(), builder::setProjectKey);
+    if (issue.ruleKey() != null) {
+      builder.setRuleKey(issue.ruleKey().toString());
+    }
+    setIfNotNull(issue.language(), builder::setLanguage);
+    setIfNotNull(issue.severity(), builder::setSeverity);
+    builder.setManualSeverity(issue.manualSeverity());
+    setIfNotNull(issue.message(), builder::setMessage);
+    setIfNotNull(issue.line(), builder::setLine);
+    setIfNotNull(issue.gap(), builder::setGap);
+    setIfNotNull(issue.effortInMinutes(), builder::setEffort);
+    setIfNotNull(issue.status(), builder::setStatus);
+    setIfNotNull(issue.resolution(), builder::setResolution);
+    setIfNotNull(issue.assignee(), builder::setAssignee);
+    setIfNotNull(issue.checksum(), builder::setChecksum);
+    if (!issue.attributes().isEmpty()) {
+      CeIssueCache.Attributes.Builder attributes = builder.getAttributesBuilder();
+      for (Map.Entry<String, String> entry : issue.attributes().entrySet()) {
+        attributes.addEntryBuilder().setKey(entry.getKey()).setValue(entry.getValue());
+      }
+    }
+    setIfNotNull(issue.authorLogin(), builder::setAuthorLogin);
+    for (IssueComment comment : issue.comments()) {
+      builder.addComment(toProtobuf((DefaultIssueComment) comment));
+    }
+    if (!issue.tags().isEmpty()) {
+      builder.getTagsBuilder().addAllTag(issue.tags());
+    }
+    DbIssues.Locations locations = issue.getLocations();
+    if (locations != null) {
+      builder.setLocations(locations.toByteString());
+    }
+    setIfNotNull(toTime(issue.creationDate()), builder::setCreationDate);
+    setIfNotNull(toTime(issue.updateDate()), builder::setUpdateDate);
+    setIfNotNull(toTime(issue.closeDate()), builder::setCloseDate);
+    writeChanges(issue, builder);
+    builder.setIsNew(issue.isNew());
+    builder.setBeingClosed(issue.isBeingClosed());
+    builder.setOnDisabledRule(issue.isOnDisabledRule());
+    builder.setIsChanged(issue.isChanged());
+    builder.setSendNotifications(issue.mustSendNotifications());
+    setIfNotNull(issue.selectedAt(), builder::setSelectedAt);
+    return builder.build();
+  }
+
+  /**
+   * The same {@link FieldDiffs} instance can be referenced several times by {@link DefaultIssue#changes()}
+   * and by {@link DefaultIssue#currentChange()}. Each instance is written once and referenced by its index.
+   */
+  private static void writeChanges(DefaultIssue issue, CeIssueCache.Issue.Builder builder) {
+    Map<FieldDiffs, Integer> indexes = new IdentityHashMap<>();
+    for (FieldDiffs change : issue.changes()) {
+      builder.addChange(indexOf(change, indexes, builder));
+    }
+    FieldDiffs currentChange = issue.currentChange();
+    if (currentChange != null) {
+      builder.setCurrentChange(indexOf(currentChange, indexes, builder));
+    }
+  }
+
+  private static int indexOf(FieldDiffs fieldDiffs, Map<FieldDiffs, Integer> indexes, CeIssueCache.Issue.Builder builder) {
+    Integer index = indexes.get(fieldDiffs);
+    if (index == null) {
+      index = indexes.size();
+      indexes.put(fieldDiffs, index);
+      builder.addFieldDiffs(toProtobuf(fieldDiffs));
+    }
+    return index;
+  }
+
+  private static CeIssueCache.Comment toProtobuf(DefaultIssueComment comment) {
+    CeIssueCache.Comment.Builder builder = CeIssueCache.Comment.newBuilder();
+    setIfNotNull(comment.key(), builder::setKey);
+    setIfNotNull(comment.issueKey(), builder::setIssueKey);
+    setIfNotNull(comment.userLogin(), builder::setUserLogin);
+    setIfNotNull(comment.markdownText(), builder::setMarkdownText);
+    setIfNotNull(toTime(comment.createdAt()), builder::setCreatedAt);
+    setIfNotNull(toTime(comment.updatedAt()), builder::setUpdatedAt);
+    builder.setIsNew(comment.isNew());
+    return builder.build();
+  }
+
+  private static CeIssueCache.FieldDiffs toProtobuf(FieldDiffs fieldDiffs) {
+    CeIssueCache.FieldDiffs.Builder builder = CeIssueCache.FieldDiffs.newBuilder();
+    setIfNotNull(fieldDiffs.issueKey(), builder::setIssueKey);
+    setIfNotNull(fieldDiffs.userLogin(), builder::setUserLogin);
+    setIfNotNull(toTime(fieldDiffs.creationDate()), builder::setCreationDate);
+    for (Map.Entry<String, FieldDiffs.Diff> entry : fieldDiffs.diffs().entrySet()) {
+      CeIssueCache.Diff.Builder diff = builder.addDiffBuilder().setField(entry.getKey());
+      Serializable oldValue = entry.getValue().oldValue();
+      if (oldValue != null) {
+        diff.setOldValue(toProtobuf(oldValue));
+      }
+      Serializable newValue = entry.getValue().newValue();
+      if (newValue != null) {
+        diff.setNewValue(toProtobuf(newValue));
+      }
+    }
+    return builder.build();
+  }
+
+  private static CeIssueCache.DiffValue toProtobuf(Serializable value) {
+    CeIssueCache.DiffValue.Builder builder = CeIssueCache.DiffValue.newBuilder();
+    if (value instanceof String) {
+      builder.setStringValue((String) value);
+    } else if (value instanceof Long) {
+      builder.setLongValue((Long) value);
+    } else if (value instanceof RuleType) {
+      builder.setRuleType(((RuleType) value).getDbConstant());
+    } else {
+      builder.setSerializedValue(ByteString.copyFrom(SerializationUtils.serialize(value)));
+    }
+    return builder.build();
+  }
+
+  @Override
+  protected DefaultIssue fromProtobuf(CeIssueCache.Issue message) {
+    DefaultIssue issue = new DefaultIssue();
+    if (message.hasKey()) {
+      issue.setKey(message.getKey());
+    }
+    if (message.hasRuleType()) {
+      issue.setType(RuleType.valueOf(message.getRuleType()));
+    }
+    issue.setComponentUuid(message.hasComponentUuid() ? message.getComponentUuid() : null);
+    if (message.hasComponentKey()) {
+      issue.setComponentKey(message.getComponentKey());
+    }
+    issue.setModuleUuid(message.hasModuleUuid() ? message.getModuleUuid() : null);
+    issue.setModuleUuidPath(message.hasModuleUuidPath() ? message.getModuleUuidPath() : null);
+    issue.setProjectUuid(message.hasProjectUuid() ? message.getProjectUuid() : null);
+    if (message.hasProjectKey()) {
+      issue.setProjectKey(message.getProjectKey());
+    }
+    if (message.hasRuleKey()) {
+      issue.setRuleKey(RuleKey.parse(message.getRuleKey()));
+    }
+    if (message.hasLanguage()) {
+      issue.setLanguage(message.getLanguage());
+    }
+    issue.setSeverity(message.hasSeverity() ? message.getSeverity() : null);
+    issue.setManualSeverity(message.getManualSeverity());
+    issue.setMessage(message.hasMessage() ? message.getMessage() : null);
+    issue.setLine(message.hasLine() ? message.getLine() : null);
+    issue.setGap(message.hasGap() ? message.getGap() : null);
+    issue.setEffort(message.hasEffort() ? Duration.create(message.getEffort()) : null);
+    if (message.hasStatus()) {
+      issue.setStatus(message.getStatus());
+    }
+    issue.setResolution(message.hasResolution() ? message.getResolution() : null);
+    issue.setAssignee(message.hasAssignee() ? message.getAssignee() : null);
+    issue.setChecksum(message.hasChecksum() ? message.getChecksum() : null);
+    if (message.hasAttributes()) {
+      Map<String, String> attributes = new HashMap<>();
+      for (CeIssueCache.StringEntry entry : message.getAttributes().getEntryList()) {
+        attributes.put(entry.getKey(), entry.getValue());
+      }
+      issue.setAttributes(attributes);
+    }
+    issue.setAuthorLogin(message.hasAuthorLogin() ? message.getAuthorLogin() : null);
+    for (CeIssueCache.Comment comment : message.getCommentList()) {
+      issue.addComment(fromProtobuf(comment));
+    }
+    if (message.hasTags()) {
+      issue.setTags(message.getTags().getTagList());
+    }
+    if (message.hasLocations()) {
+      issue.setLocations(parseLocations(message.getLocations()));
+    }
+    if (message.hasCreationDate()) {
+      issue.setCreationDate(new Date(message.getCreationDate()));
+    }
+    issue.setUpdateDate(message.hasUpdateDate() ? new Date(message.getUpdateDate()) : null);
+    issue.setCloseDate(message.hasCloseDate() ? new Date(message.getCloseDate()) : null);
+    readChanges(message, issue);
+    issue.setNew(message.getIsNew());
+    issue.setBeingClosed(message.getBeingClosed());
+    issue.setOnDisabledRule(message.getOnDisabledRule());
+    issue.setChanged(message.getIsChanged());
+    issue.setSendNotifications(message.getSendNotifications());
+    issue.setSelectedAt(message.hasSelectedAt() ? message.getSelectedAt() : null);
+    return issue;
+  }
+
+  private static void readChanges(CeIssueCache.Issue message, DefaultIssue issue) {
+    List<FieldDiffs> fieldDiffs = new ArrayList<>(message.getFieldDiffsCount());
+    for (CeIssueCache.FieldDiffs protobuf : message.getFieldDiffsList()) {
+      fieldDiffs.add(fromProtobuf(protobuf));
+    }
+    if (message.hasCurrentChange()) {
+      // also adds the change to the list of changes, which is replaced right below
+      issue.setCurrentChange(fieldDiffs.get(message.getCurrentChange()));
+    }
+    if (message.getChangeCount() > 0) {
+      List<FieldDiffs> changes = new ArrayList<>(message.getChangeCount());
+      for (Integer index : message.getChangeList()) {
+        changes.add(fieldDiffs.get(index));
+      }
+      issue.setChanges(changes);
+    } else if (message.hasCurrentChange()) {
+      issue.setChanges(new ArrayList<>());
+    }
+  }
+
+  private static DefaultIssueComment fromProtobuf(CeIssueCache.Comment message) {
+    DefaultIssueComment comment = new DefaultIssueComment();
+    if (message.hasKey()) {
+      comment.setKey(message.getKey());
+    }
+    if (message.hasIssueKey()) {
+      comment.setIssueKey(message.getIssueKey());
+    }
+    comment.setUserLogin(message.hasUserLogin() ? message.getUserLogin() : null);
+    if (message.hasMarkdownText()) {
+      comment.setMarkdownText(message.getMarkdownText());
+    }
+    if (message.hasCreatedAt()) {
+      comment.setCreatedAt(new Date(message.getCreatedAt()));
+    }
+    comment.setUpdatedAt(message.hasUpdatedAt() ? new Date(message.getUpdatedAt()) : null);
+    comment.setNew(message.getIsNew());
+    return comment;
+  }
+
+  private static FieldDiffs fromProtobuf(CeIssueCache.FieldDiffs message) {
+    FieldDiffs fieldDiffs = new FieldDiffs();
+    if (message.hasIssueKey()) {
+      fieldDiffs.setIssueKey(message.getIssueKey());
+    }
+    fieldDiffs.setUserLogin(message.hasUserLogin() ? message.getUserLogin() : null);
+    if (message.hasCreationDate()) {
+      fieldDiffs.setCreationDate(new Date(message.getCreationDate()));
+    }
+    for (CeIssueCache.Diff diff : message.getDiffList()) {
+      fieldDiffs.setDiff(diff.getField(),
+        diff.hasOldValue() ? fromProtobuf(diff.getOldValue()) : null,
+        diff.hasNewValue() ? fromProtobuf(diff.getNewValue()) : null);
+    }
+    return fieldDiffs;
+  }
+
+  private static Serializable fromProtobuf(CeIssueCache.DiffValue message) {
+    if (message.hasStringValue()) {
+      return message.getStringValue();
+    }
+    if (message.hasLongValue()) {
+      return message.getLongValue();
+    }
+    if (message.hasRuleType()) {
+      return RuleType.valueOf(message.getRuleType());
+    }
+    return (Serializable) SerializationUtils.deserialize(message.getSerializedValue().toByteArray());
+  }
+
+  private static DbIssues.Locations parseLocations(ByteString bytes) {
+    try {
+      return DbIssues.Locations.parseFrom(bytes);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException("Fail to read locations of issue from cache", e);
+    }
+  }
+
+  @CheckForNull
+  private static Long toTime(@Nullable Date date) {
+    return date == null ? null : date.getTime();
+  }
+
+  private static <T> void setIfNotNull(@Nullable T value, Consumer<T> setter) {
+    if (value != null) {
+      setter.accept(value);
+    }
+  }
 }
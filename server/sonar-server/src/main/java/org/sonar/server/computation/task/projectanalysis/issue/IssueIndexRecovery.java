@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.server.property.InternalProperties;
+
+import static org.sonar.server.property.InternalProperties.PROJECTS_WITH_STALE_ISSUES;
+
+/**
+ * Keeps track of the projects which issues failed to be indexed, so that all their issues are indexed again at their
+ * next analysis instead of only the issues changed by that analysis.
+ * <p>
+ * The projects are persisted in the internal property {@link InternalProperties#PROJECTS_WITH_STALE_ISSUES} so that
+ * they survive a restart. Workers analyze different projects concurrently, so the property is read and written under
+ * the monitor of this component.
+ * </p>
+ */
+@ComputeEngineSide
+public class IssueIndexRecovery {
+  private static final char SEPARATOR = '\n';
+
+  private final InternalProperties internalProperties;
+
+  public IssueIndexRecovery(InternalProperties internalProperties) {
+    this.internalProperties = internalProperties;
+  }
+
+  public synchronized boolean isRequired(String projectUuid) {
+    return read().contains(projectUuid);
+  }
+
+  public synchronized void require(String projectUuid) {
+    Set<String> projectUuids = read();
+    if (projectUuids.add(projectUuid)) {
+      write(projectUuids);
+    }
+  }
+
+  public synchronized void done(String projectUuid) {
+    Set<String> projectUuids = read();
+    if (projectUuids.remove(projectUuid)) {
+      write(projectUuids);
+    }
+  }
+
+  private Set<String> read() {
+    String value = internalProperties.read(PROJECTS_WITH_STALE_ISSUES).orElse("");
+    return new LinkedHashSet<>(Splitter.on(SEPARATOR).omitEmptyStrings().splitToList(value));
+  }
+
+  private void write(Set<String> projectUuids) {
+    internalProperties.write(PROJECTS_WITH_STALE_ISSUES, Joiner.on(SEPARATOR).join(projectUuids));
+  }
+}
@@ -0,0 +1,372 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.checkValueTypeConsistency;
+import static org.sonar.server.computation.task.projectanalysis.measure.StringArena.NO_REF;
+
+/**
+ * Implementation of MeasureRepository which supports only raw measures and which does not keep instances of
+ * {@link Measure}: measures are stored in primitive arrays indexed by metric and by the ref of the component in the
+ * report, and are recreated each time they are read.
+ * <p>
+ * For each metric, the arrays are split into pages of {@link #PAGE_SIZE} components which are allocated on first use.
+ * Values (including {@link Measure.Level}) are stored as longs, the raw bits of doubles for
+ * {@link Measure.ValueType#DOUBLE}, and variations as doubles. Data, descriptions and QualityGate statuses are
+ * stored as UTF-8 bytes, in a {@link StringArena}. Measures associated to a developer are delegated to
+ * a {@link MapBasedRawMeasureRepository}.
+ * </p>
+ * Intended to be used as a delegate of other MeasureRepository implementations (hence the final keyword).
+ */
+public final class ColumnarRawMeasureRepository implements MeasureRepository {
+  private static final int PAGE_BITS = 10;
+  static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+  private static final int VARIATION_COUNT = 5;
+  private static final Measure.ValueType[] VALUE_TYPES = Measure.ValueType.values();
+  private static final Measure.Level[] LEVELS = Measure.Level.values();
+
+  private final Function<Component, Integer> componentToRef;
+  private final MapBasedRawMeasureRepository<Integer> developerMeasures;
+  private final Map<String, Column> columnsByMetricKey = new LinkedHashMap<>();
+  private final StringArena arena = new StringArena();
+
+  public ColumnarRawMeasureRepository(Function<Component, Integer> componentToRef) {
+    this.componentToRef = requireNonNull(componentToRef);
+    this.developerMeasures = new MapBasedRawMeasureRepository<>(componentToRef);
+  }
+
+  /**
+   * @throws UnsupportedOperationException all the time, not supported
+   */
+  @Override
+  public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+    throw new UnsupportedOperationException("This implementation of MeasureRepository supports only raw measures");
+  }
+
+  @Override
+  public Optional<Measure> getRawMeasure(Component component, Metric metric) {
+    // fail fast
+    requireNonNull(component);
+    requireNonNull(metric);
+
+    return Optional.fromNullable(read(columnsByMetricKey.get(metric.getKey()), toRef(component)));
+  }
+
+  @Override
+  public void add(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+    if (measure.getDeveloper() != null) {
+      developerMeasures.add(component, metric, measure);
+      return;
+    }
+
+    int ref = toRef(component);
+    if (contains(metric, ref)) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be set only once for a specific Component (key=%s), Metric (key=%s). Use update method",
+          component.getKey(),
+          metric.getKey()));
+    }
+    write(metric, ref, measure);
+  }
+
+  @Override
+  public void update(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+    if (measure.getDeveloper() != null) {
+      developerMeasures.update(component, metric, measure);
+      return;
+    }
+
+    int ref = toRef(component);
+    if (!contains(metric, ref)) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be updated only if one already exists for a specific Component (key=%s), Metric (key=%s). Use add method",
+          component.getKey(),
+          metric.getKey()));
+    }
+    write(metric, ref, measure);
+  }
+
+  public void add(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
+    requireNonNull(component);
+    requireNonNull(measure);
+    requireNonNull(overridePolicy);
+    if (measure.getDeveloper() != null) {
+      developerMeasures.add(component, metric, measure, overridePolicy);
+      return;
+    }
+
+    int ref = toRef(component);
+    if (!contains(metric, ref) || overridePolicy == OverridePolicy.OVERRIDE) {
+      write(metric, ref, measure);
+    }
+  }
+
+  @Override
+  public Set<Measure> getRawMeasures(Component component, Metric metric) {
+    requireNonNull(metric);
+    requireNonNull(component);
+    Measure measure = read(columnsByMetricKey.get(metric.getKey()), toRef(component));
+    Set<Measure> measuresOfDevelopers = developerMeasures.getRawMeasures(component, metric);
+    if (measure == null) {
+      return measuresOfDevelopers;
+    }
+    return ImmutableSet.<Measure>builder().add(measure).addAll(measuresOfDevelopers).build();
+  }
+
+  @Override
+  public SetMultimap<String, Measure> getRawMeasures(Component component) {
+    int ref = toRef(component);
+    ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
+    for (Map.Entry<String, Column> entry : columnsByMetricKey.entrySet()) {
+      Measure measure = read(entry.getValue(), ref);
+      if (measure != null) {
+        builder.put(entry.getKey(), measure);
+      }
+    }
+    builder.putAll(developerMeasures.getRawMeasures(component));
+    return builder.build();
+  }
+
+  /**
+   * Size of the memory used to store data, descriptions and QualityGate statuses, in bytes.
+   */
+  long getStringsSize() {
+    return arena.getAllocatedBytes();
+  }
+
+  private int toRef(Component component) {
+    int ref = componentToRef.apply(component);
+    checkArgument(ref >= 0, "Component ref must be >= 0 (got %s)", ref);
+    return ref;
+  }
+
+  private boolean contains(Metric metric, int ref) {
+    Column column = columnsByMetricKey.get(metric.getKey());
+    if (column == null) {
+      return false;
+    }
+    Page page = column.getPage(ref);
+    return page != null && page.valueTypes[ref & PAGE_MASK] != 0;
+  }
+
+  private void write(Metric metric, int ref, Measure measure) {
+    Column column = columnsByMetricKey.get(metric.getKey());
+    if (column == null) {
+      column = new Column();
+      columnsByMetricKey.put(metric.getKey(), column);
+    }
+    Page page = column.getOrCreatePage(ref);
+    int slot = ref & PAGE_MASK;
+
+    page.valueTypes[slot] = (byte) (measure.getValueType().ordinal() + 1);
+    writeValue(page, slot, measure);
+    writeStrings(page, slot, measure);
+    writeVariations(page, slot, measure);
+  }
+
+  private static void writeValue(Page page, int slot, Measure measure) {
+    long value;
+    switch (measure.getValueType()) {
+      case BOOLEAN:
+        value = measure.getBooleanValue() ? 1L : 0L;
+        break;
+      case INT:
+        value = measure.getIntValue();
+        break;
+      case LONG:
+        value = measure.getLongValue();
+        break;
+      case DOUBLE:
+        value = Double.doubleToRawLongBits(measure.getDoubleValue());
+        break;
+      case LEVEL:
+        value = measure.getLevelValue().ordinal();
+        break;
+      default:
+        // STRING value is stored as data, NO_VALUE has no value
+        return;
+    }
+    if (page.values == null) {
+      page.values = new long[PAGE_SIZE];
+    }
+    page.values[slot] = value;
+  }
+
+  private void writeStrings(Page page, int slot, Measure measure) {
+    long stringsRef = NO_REF;
+    String data = measure.getData();
+    String description = measure.getDescription();
+    if (data != null || description != null || measure.hasQualityGateStatus()) {
+      QualityGateStatus qualityGateStatus = measure.hasQualityGateStatus() ? measure.getQualityGateStatus() : null;
+      stringsRef = arena.add(
+        data,
+        description,
+        qualityGateStatus == null ? null : qualityGateStatus.getStatus().name(),
+        qualityGateStatus == null ? null : qualityGateStatus.getText());
+    }
+    if (stringsRef == NO_REF && page.stringsRefs == null) {
+      return;
+    }
+    if (page.stringsRefs == null) {
+      page.stringsRefs = new long[PAGE_SIZE];
+      Arrays.fill(page.stringsRefs, NO_REF);
+    }
+    page.stringsRefs[slot] = stringsRef;
+  }
+
+  private static void writeVariations(Page page, int slot, Measure measure) {
+    if (!measure.hasVariations() && page.variations == null) {
+      return;
+    }
+    if (page.variations == null) {
+      page.variations = new double[PAGE_SIZE * VARIATION_COUNT];
+      // NaN is not allowed as a variation value, it is used to flag variations which are not set
+      Arrays.fill(page.variations, Double.NaN);
+    }
+    int offset = slot * VARIATION_COUNT;
+    for (int i = 0; i < VARIATION_COUNT; i++) {
+      page.variations[offset + i] = measure.hasVariations() && measure.getVariations().hasVariation(i + 1)
+        ? measure.getVariations().getVariation(i + 1)
+        : Double.NaN;
+    }
+  }
+
+  @CheckForNull
+  private Measure read(@CheckForNull Column column, int ref) {
+    if (column == null) {
+      return null;
+    }
+    Page page = column.getPage(ref);
+    int slot = ref & PAGE_MASK;
+    if (page == null || page.valueTypes[slot] == 0) {
+      return null;
+    }
+
+    Measure.ValueType valueType = VALUE_TYPES[page.valueTypes[slot] - 1];
+    Double value = null;
+    Measure.Level level = null;
+    if (valueType == Measure.ValueType.LEVEL) {
+      level = LEVELS[(int) page.values[slot]];
+    } else if (valueType == Measure.ValueType.DOUBLE) {
+      value = Double.longBitsToDouble(page.values[slot]);
+    } else if (valueType != Measure.ValueType.STRING && valueType != Measure.ValueType.NO_VALUE) {
+      value = (double) page.values[slot];
+    }
+
+    String data = null;
+    String description = null;
+    QualityGateStatus qualityGateStatus = null;
+    if (page.stringsRefs != null && page.stringsRefs[slot] != NO_REF) {
+      String[] strings = arena.get(page.stringsRefs[slot]);
+      data = strings[0];
+      description = strings[1];
+      if (strings[2] != null) {
+        qualityGateStatus = new QualityGateStatus(Measure.Level.valueOf(strings[2]), strings[3]);
+      }
+    }
+
+    return Measure.restore(valueType, value, data, level, description, qualityGateStatus, readVariations(page, slot));
+  }
+
+  @CheckForNull
+  private static MeasureVariations readVariations(Page page, int slot) {
+    if (page.variations == null) {
+      return null;
+    }
+    Double[] variations = new Double[VARIATION_COUNT];
+    boolean hasVariation = false;
+    int offset = slot * VARIATION_COUNT;
+    for (int i = 0; i < VARIATION_COUNT; i++) {
+      double variation = page.variations[offset + i];
+      if (!Double.isNaN(variation)) {
+        variations[i] = variation;
+        hasVariation = true;
+      }
+    }
+    return hasVariation ? new MeasureVariations(variations) : null;
+  }
+
+  /**
+   * Measures of a single metric.
+   */
+  private static final class Column {
+    private Page[] pages = new Page[0];
+
+    @CheckForNull
+    private Page getPage(int ref) {
+      int pageIndex = ref >>> PAGE_BITS;
+      return pageIndex < pages.length ? pages[pageIndex] : null;
+    }
+
+    private Page getOrCreatePage(int ref) {
+      int pageIndex = ref >>> PAGE_BITS;
+      if (pageIndex >= pages.length) {
+        pages = Arrays.copyOf(pages, pageIndex + 1);
+      }
+      Page page = pages[pageIndex];
+      if (page == null) {
+        page = new Page();
+        pages[pageIndex] = page;
+      }
+      return page;
+    }
+  }
+
+  /**
+   * Measures of a single metric for {@link #PAGE_SIZE} consecutive component refs. Arrays other than
+   * {@link #valueTypes} are allocated only when a measure requires them.
+   */
+  private static final class Page {
+    /**
+     * 0 if there is no measure, ordinal of {@link Measure.ValueType} + 1 otherwise
+     */
+    private final byte[] valueTypes = new byte[PAGE_SIZE];
+    @CheckForNull
+    private long[] values;
+    @CheckForNull
+    private long[] stringsRefs;
+    @CheckForNull
+    private double[] variations;
+  }
+}
@@ -95,6 +95,15 @@ public final class Measure {
     this.variations = variations;
   }
 
+  /**
+   * Recreates a measure which is not associated to a developer from values read from an existing measure, without
+   * any validation nor rounding. Intended to be used by stores which do not keep instances of {@link Measure}.
+   */
+  static Measure restore(ValueType valueType, @Nullable Double value, @Nullable String data, @Nullable Level dataLevel,
+    @Nullable String description, @Nullable QualityGateStatus qualityGateStatus, @Nullable MeasureVariations variations) {
+    return new Measure(valueType, null, value, data, dataLevel, description, qualityGateStatus, variations);
+  }
+
   public static NewMeasureBuilder newMeasureBuilder() {
     return new NewMeasureBuilder();
   }
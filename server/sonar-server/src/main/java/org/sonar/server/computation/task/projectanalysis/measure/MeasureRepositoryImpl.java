@@ -40,7 +40,7 @@ import static java.util.Objects.requireNonNull;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentFunctions.toReportRef;
 
 public class MeasureRepositoryImpl implements MeasureRepository {
-  private final MapBasedRawMeasureRepository<Integer> delegate = new MapBasedRawMeasureRepository<>(toReportRef());
+  private final ColumnarRawMeasureRepository delegate = new ColumnarRawMeasureRepository(toReportRef());
   private final DbClient dbClient;
   private final BatchReportReader reportReader;
   private final BatchMeasureToMeasure batchMeasureToMeasure;
@@ -0,0 +1,109 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Append-only storage of groups of nullable Strings, encoded in UTF-8 into chunks of 1MB of heap memory, so that
+ * no {@link String} instance is kept.
+ * <p>
+ * Each call to {@link #add(String...)} returns a reference which must be provided to {@link #get(long)} to read the
+ * Strings back. Chunks are heap buffers, so memory is released with the arena, at the end of the task.
+ * </p>
+ */
+final class StringArena {
+  static final long NO_REF = -1L;
+
+  private static final int CHUNK_SIZE = 1 << 20;
+  private static final int NULL_LENGTH = -1;
+
+  private final List<ByteBuffer> chunks = new ArrayList<>();
+  @CheckForNull
+  private ByteBuffer current;
+
+  long add(@Nullable String... strings) {
+    checkArgument(strings.length <= Byte.MAX_VALUE, "Can not store more than %s strings at once", Byte.MAX_VALUE);
+    byte[][] encoded = new byte[strings.length][];
+    int size = 1;
+    for (int i = 0; i < strings.length; i++) {
+      size += 4;
+      if (strings[i] != null) {
+        encoded[i] = strings[i].getBytes(UTF_8);
+        size += encoded[i].length;
+      }
+    }
+
+    ByteBuffer buffer = bufferFor(size);
+    long ref = ((long) (chunks.size() - 1) << 32) | buffer.position();
+    buffer.put((byte) strings.length);
+    for (byte[] bytes : encoded) {
+      if (bytes == null) {
+        buffer.putInt(NULL_LENGTH);
+      } else {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+      }
+    }
+    return ref;
+  }
+
+  String[] get(long ref) {
+    checkArgument(ref >= 0, "Invalid reference %s", ref);
+    ByteBuffer buffer = chunks.get((int) (ref >>> 32)).duplicate();
+    buffer.position((int) ref);
+    String[] strings = new String[buffer.get()];
+    for (int i = 0; i < strings.length; i++) {
+      int length = buffer.getInt();
+      if (length != NULL_LENGTH) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        strings[i] = new String(bytes, UTF_8);
+      }
+    }
+    return strings;
+  }
+
+  /**
+   * Size of the memory allocated by this arena, in bytes.
+   */
+  long getAllocatedBytes() {
+    long res = 0;
+    for (ByteBuffer chunk : chunks) {
+      res += chunk.capacity();
+    }
+    return res;
+  }
+
+  private ByteBuffer bufferFor(int size) {
+    if (current == null || current.remaining() < size) {
+      current = ByteBuffer.allocate(Math.max(CHUNK_SIZE, size));
+      chunks.add(current);
+    }
+    return current;
+  }
+}
@@ -23,6 +23,8 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Optional;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
@@ -32,11 +34,16 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeTaskInputDao;
 import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchReportDirectoryHolder;
+import org.sonar.server.computation.task.projectanalysis.taskprocessor.ReportPrefetcher;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 /**
  * Extracts the content zip file of the {@link CeTask} to a temp directory and adds a {@link File}
  * representing that temp directory to the {@link MutableBatchReportDirectoryHolder}.
+ * <p>
+ * If the report has already been extracted by {@link ReportPrefetcher}, the extracted directory is moved to the temp
+ * directory of the task instead.
+ * </p>
  */
 public class ExtractReportStep implements ComputationStep {
 
@@ -44,17 +51,38 @@ public class ExtractReportStep implements ComputationStep {
   private final CeTask task;
   private final TempFolder tempFolder;
   private final MutableBatchReportDirectoryHolder reportDirectoryHolder;
+  private final ReportPrefetcher reportPrefetcher;
 
   public ExtractReportStep(DbClient dbClient, CeTask task, TempFolder tempFolder,
-    MutableBatchReportDirectoryHolder reportDirectoryHolder) {
+    MutableBatchReportDirectoryHolder reportDirectoryHolder, ReportPrefetcher reportPrefetcher) {
     this.dbClient = dbClient;
     this.task = task;
     this.tempFolder = tempFolder;
     this.reportDirectoryHolder = reportDirectoryHolder;
+    this.reportPrefetcher = reportPrefetcher;
   }
 
   @Override
   public void execute() {
+    Optional<File> prefetchedDir = reportPrefetcher.take(task.getUuid());
+    if (prefetchedDir.isPresent()) {
+      reportDirectoryHolder.setDirectory(moveToTaskTempDir(prefetchedDir.get()));
+    } else {
+      extractFromDatabase();
+    }
+  }
+
+  private File moveToTaskTempDir(File prefetchedDir) {
+    File unzippedDir = tempFolder.newDir();
+    try {
+      Files.move(prefetchedDir.toPath(), unzippedDir.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return unzippedDir;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to move prefetched report of task " + task.getUuid() + " to " + unzippedDir, e);
+    }
+  }
+
+  private void extractFromDatabase() {
     try (DbSession dbSession = dbClient.openSession(false)) {
       Optional<CeTaskInputDao.DataStream> opt = dbClient.ceTaskInputDao().selectData(dbSession, task.getUuid());
       if (opt.isPresent()) {
@@ -19,23 +19,72 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import java.util.Iterator;
+import java.util.Set;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.util.CloseableIterator;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
+import org.sonar.server.computation.task.projectanalysis.issue.IssueIndexRecovery;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 import org.sonar.server.issue.index.IssueIndexer;
 
-public class IndexIssuesStep implements ComputationStep {
+/**
+ * Indexes only the issues created or updated by {@link PersistIssuesStep}, instead of
+ * all the issues of the project updated since last indexing.
+ * <p>
+ * When indexing fails, the project is recorded in {@link IssueIndexRecovery} and all its issues are indexed
+ * at its next analysis.
+ * </p>
+ */
+public class IndexIssuesStep implements ConcurrentComputationStep {
 
   private final IssueIndexer indexer;
   private final TreeRootHolder treeRootHolder;
+  private final IssueCache issueCache;
+  private final IssueIndexRecovery indexRecovery;
 
-  public IndexIssuesStep(IssueIndexer indexer, TreeRootHolder treeRootHolder) {
+  public IndexIssuesStep(IssueIndexer indexer, TreeRootHolder treeRootHolder, IssueCache issueCache, IssueIndexRecovery indexRecovery) {
     this.indexer = indexer;
     this.treeRootHolder = treeRootHolder;
+    this.issueCache = issueCache;
+    this.indexRecovery = indexRecovery;
   }
 
   @Override
   public void execute() {
-    indexer.index(treeRootHolder.getRoot().getUuid());
+    String projectUuid = treeRootHolder.getRoot().getUuid();
+    boolean recovery = indexRecovery.isRequired(projectUuid);
+    boolean indexed = false;
+    try {
+      indexed = recovery ? indexer.indexAllOfProject(projectUuid) : indexChangedIssues(projectUuid);
+    } finally {
+      if (indexed && recovery) {
+        indexRecovery.done(projectUuid);
+      } else if (!indexed && !recovery) {
+        indexRecovery.require(projectUuid);
+      }
+    }
+  }
+
+  private boolean indexChangedIssues(String projectUuid) {
+    try (CloseableIterator<DefaultIssue> issues = issueCache.traverse()) {
+      // same condition as PersistIssuesStep
+      Iterator<DefaultIssue> persistedIssues = Iterators.filter(issues, issue -> issue.isNew() || issue.isChanged());
+      return indexer.indexByKeys(projectUuid, Iterators.transform(persistedIssues, DefaultIssue::key));
+    }
+  }
+
+  @Override
+  public Set<Class<?>> readHolders() {
+    return ImmutableSet.of(TreeRootHolder.class, IssueCache.class);
+  }
+
+  @Override
+  public Set<Class<?>> writtenHolders() {
+    return ImmutableSet.of();
   }
 
   @Override
@@ -19,11 +19,13 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
-import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.server.component.es.ProjectMeasuresIndexer;
+import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
-public class IndexProjectMeasuresStep implements ComputationStep {
+public class IndexProjectMeasuresStep implements ConcurrentComputationStep {
 
   private final ProjectMeasuresIndexer indexer;
   private final TreeRootHolder treeRootHolder;
@@ -38,6 +40,16 @@ public class IndexProjectMeasuresStep implements ComputationStep {
     indexer.index(treeRootHolder.getRoot().getUuid());
   }
 
+  @Override
+  public Set<Class<?>> readHolders() {
+    return ImmutableSet.of(TreeRootHolder.class);
+  }
+
+  @Override
+  public Set<Class<?>> writtenHolders() {
+    return ImmutableSet.of();
+  }
+
   @Override
   public String getDescription() {
     return "Index project measures";
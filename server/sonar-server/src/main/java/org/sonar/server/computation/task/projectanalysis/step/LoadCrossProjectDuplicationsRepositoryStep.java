@@ -21,6 +21,7 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Function;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nonnull;
 import org.sonar.api.utils.log.Logger;
@@ -38,6 +39,7 @@ import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthL
 import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationIndex;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
 import org.sonar.server.computation.task.projectanalysis.duplication.IntegrateCrossProjectDuplications;
 import org.sonar.server.computation.task.projectanalysis.analysis.Analysis;
@@ -63,16 +65,18 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final IntegrateCrossProjectDuplications integrateCrossProjectDuplications;
   private final CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder;
+  private final CrossProjectDuplicationIndex crossProjectDuplicationIndex;
   private final DbClient dbClient;
 
   public LoadCrossProjectDuplicationsRepositoryStep(TreeRootHolder treeRootHolder, BatchReportReader reportReader,
     AnalysisMetadataHolder analysisMetadataHolder, CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder,
-    IntegrateCrossProjectDuplications integrateCrossProjectDuplications, DbClient dbClient) {
+    IntegrateCrossProjectDuplications integrateCrossProjectDuplications, CrossProjectDuplicationIndex crossProjectDuplicationIndex, DbClient dbClient) {
     this.treeRootHolder = treeRootHolder;
     this.reportReader = reportReader;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.integrateCrossProjectDuplications = integrateCrossProjectDuplications;
     this.crossProjectDuplicationStatusHolder = crossProjectDuplicationStatusHolder;
+    this.crossProjectDuplicationIndex = crossProjectDuplicationIndex;
     this.dbClient = dbClient;
   }
 
@@ -116,11 +120,17 @@ public class LoadCrossProjectDuplicationsRepositoryStep implements ComputationSt
     }
 
     private List<DuplicationUnitDto> selectDuplicates(Component file, Collection<String> hashes) {
+      Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
+      String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
+      String language = file.getFileAttributes().getLanguageKey();
+      // most files have no block in common with other projects, they do not need to be queried
+      List<String> candidateHashes = crossProjectDuplicationIndex.filterCandidates(language, analysisUuid, hashes);
+      if (candidateHashes.isEmpty()) {
+        return Collections.emptyList();
+      }
       DbSession dbSession = dbClient.openSession(false);
       try {
-        Analysis projectAnalysis = analysisMetadataHolder.getBaseAnalysis();
-        String analysisUuid = projectAnalysis == null ? null : projectAnalysis.getUuid();
-        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, file.getFileAttributes().getLanguageKey(), hashes);
+        return dbClient.duplicationDao().selectCandidates(dbSession, analysisUuid, language, candidateHashes);
       } finally {
         dbClient.closeSession(dbSession);
       }
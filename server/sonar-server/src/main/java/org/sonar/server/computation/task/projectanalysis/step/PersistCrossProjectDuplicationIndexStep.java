@@ -19,6 +19,12 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -31,30 +37,33 @@ import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthL
 import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationIndex;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 /**
  * Persist cross project duplications text blocks into DUPLICATIONS_INDEX table
  */
-public class PersistCrossProjectDuplicationIndexStep implements ComputationStep {
+public class PersistCrossProjectDuplicationIndexStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final BatchReportReader reportReader;
   private final CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder;
+  private final CrossProjectDuplicationIndex crossProjectDuplicationIndex;
 
   public PersistCrossProjectDuplicationIndexStep(CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder, DbClient dbClient,
     TreeRootHolder treeRootHolder, AnalysisMetadataHolder analysisMetadataHolder,
-    BatchReportReader reportReader) {
+    BatchReportReader reportReader, CrossProjectDuplicationIndex crossProjectDuplicationIndex) {
     this.dbClient = dbClient;
     this.treeRootHolder = treeRootHolder;
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.reportReader = reportReader;
     this.crossProjectDuplicationStatusHolder = crossProjectDuplicationStatusHolder;
+    this.crossProjectDuplicationIndex = crossProjectDuplicationIndex;
   }
 
   @Override
@@ -63,20 +72,27 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
       return;
     }
 
+    String analysisUuid = analysisMetadataHolder.getUuid();
+    DuplicationVisitor visitor;
     DbSession session = dbClient.openSession(true);
     try {
       Component project = treeRootHolder.getRoot();
-      new DepthTraversalTypeAwareCrawler(new DuplicationVisitor(session, analysisMetadataHolder.getUuid())).visit(project);
+      visitor = new DuplicationVisitor(session, analysisUuid);
+      new DepthTraversalTypeAwareCrawler(visitor).visit(project);
       session.commit();
     } finally {
       dbClient.closeSession(session);
     }
+    for (Map.Entry<String, Collection<String>> hashesOfLanguage : visitor.hashesByLanguage.asMap().entrySet()) {
+      crossProjectDuplicationIndex.add(hashesOfLanguage.getKey(), analysisUuid, hashesOfLanguage.getValue());
+    }
   }
 
   private class DuplicationVisitor extends TypeAwareVisitorAdapter {
 
     private final DbSession session;
     private final String analysisUuid;
+    private final SetMultimap<String, String> hashesByLanguage = HashMultimap.create();
 
     private DuplicationVisitor(DbSession session, String analysisUuid) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
@@ -90,6 +106,7 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
     }
 
     private void visitComponent(Component component) {
+      String language = component.getFileAttributes().getLanguageKey();
       int indexInFile = 0;
       CloseableIterator<ScannerReport.CpdTextBlock> blocks = reportReader.readCpdTextBlocks(component.getReportAttributes().getRef());
       try {
@@ -104,6 +121,9 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
               .setIndexInFile(indexInFile)
               .setAnalysisUuid(analysisUuid)
               .setComponentUuid(component.getUuid()));
+          if (language != null) {
+            hashesByLanguage.put(language, block.getHash());
+          }
           indexInFile++;
         }
       } finally {
@@ -112,6 +132,16 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
     }
   }
 
+  @Override
+  public Set<Class<?>> readHolders() {
+    return ImmutableSet.of(TreeRootHolder.class, AnalysisMetadataHolder.class, BatchReportReader.class, CrossProjectDuplicationStatusHolder.class);
+  }
+
+  @Override
+  public Set<Class<?>> writtenHolders() {
+    return ImmutableSet.of();
+  }
+
   @Override
   public String getDescription() {
     return "Persist cross project duplications index";
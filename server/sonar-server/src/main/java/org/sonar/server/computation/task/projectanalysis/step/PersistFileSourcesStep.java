@@ -21,12 +21,18 @@ package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.ibatis.session.ResultContext;
@@ -46,7 +52,11 @@ import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthL
 import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.Duplication;
 import org.sonar.server.computation.task.projectanalysis.duplication.DuplicationRepository;
+import org.sonar.server.computation.task.projectanalysis.duplication.InnerDuplicate;
+import org.sonar.server.computation.task.projectanalysis.duplication.TextBlock;
 import org.sonar.server.computation.task.projectanalysis.scm.Changeset;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfo;
 import org.sonar.server.computation.task.projectanalysis.scm.ScmInfoRepository;
@@ -59,11 +69,22 @@ import org.sonar.server.computation.task.projectanalysis.source.RangeOffsetConve
 import org.sonar.server.computation.task.projectanalysis.source.ScmLineReader;
 import org.sonar.server.computation.task.projectanalysis.source.SourceLinesRepository;
 import org.sonar.server.computation.task.projectanalysis.source.SymbolsLineReader;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
-public class PersistFileSourcesStep implements ComputationStep {
+public class PersistFileSourcesStep implements ConcurrentComputationStep {
+
+  /**
+   * Version of the computation of the sources from the report. Must be incremented when this computation changes, so
+   * that sources of files whose report inputs did not change are computed again.
+   */
+  private static final String INPUTS_HASH_VERSION = "2";
+  /**
+   * Inserts and updates are sent in JDBC batches, which keep the binary data of all their rows in memory. Batches are
+   * flushed as soon as this size is reached, so that big files can not produce an OOM.
+   */
+  private static final long MAX_BATCH_DATA_SIZE = 10L * 1024 * 1024;
 
   private final DbClient dbClient;
   private final System2 system2;
@@ -86,11 +107,11 @@ public class PersistFileSourcesStep implements ComputationStep {
 
   @Override
   public void execute() {
-    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
-    DbSession session = dbClient.openSession(false);
+    DbSession session = dbClient.openSession(true);
     try {
       new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(session))
         .visit(treeRootHolder.getRoot());
+      session.commit();
     } finally {
       MyBatis.closeQuietly(session);
     }
@@ -102,6 +123,7 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
     private String projectUuid;
+    private long batchDataSize = 0;
 
     private FileSourceVisitor(DbSession session) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
@@ -123,23 +145,92 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     @Override
     public void visitFile(Component file) {
+      try {
+        persistSourceIfChanged(file);
+      } catch (Exception e) {
+        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
+      }
+    }
+
+    private void persistSourceIfChanged(Component file) {
       int fileRef = file.getReportAttributes().getRef();
       ScannerReport.Component component = reportReader.readComponent(fileRef);
+      String inputsHash = computeInputsHash(file, component.getLines());
+      FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+      if (previousDto != null && inputsHash.equals(previousDto.getInputsHash())) {
+        // sources are computed from the same data as the previous analysis: they did not change
+        return;
+      }
+
       CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file);
       LineReaders lineReaders = new LineReaders(reportReader, scmInfoRepository, duplicationRepository, file);
       try {
         ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), component.getLines());
         ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file.getUuid(), lineReaders.getLatestChange());
-      } catch (Exception e) {
-        throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
+        persistSource(fileSourceData, file.getUuid(), inputsHash, lineReaders.getLatestChange());
       } finally {
         linesIterator.close();
         lineReaders.close();
       }
     }
 
-    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, @Nullable Changeset latestChange) {
+    /**
+     * Hash of all the data sources of the file are computed from, much cheaper to compute than the sources themselves
+     * as the data of the report is not decoded.
+     */
+    private String computeInputsHash(Component file, int lineCount) {
+      MessageDigest digest = DigestUtils.getMd5Digest();
+      updateDigest(digest, INPUTS_HASH_VERSION);
+      updateDigest(digest, String.valueOf(lineCount));
+      try (CloseableIterator<String> linesIterator = sourceLinesRepository.readLines(file)) {
+        while (linesIterator.hasNext()) {
+          updateDigest(digest, linesIterator.next());
+        }
+      }
+      updateDigest(digest, reportReader.readFileDataDigest(file.getReportAttributes().getRef()));
+      Optional<ScmInfo> scmInfo = scmInfoRepository.getScmInfo(file);
+      if (scmInfo.isPresent()) {
+        for (Changeset changeset : scmInfo.get().getAllChangesets()) {
+          updateDigest(digest, changeset.getRevision());
+          updateDigest(digest, changeset.getAuthor());
+          updateDigest(digest, String.valueOf(changeset.getDate()));
+        }
+      }
+      for (TextBlock duplicatedTextBlock : getDuplicatedTextBlocks(file)) {
+        updateDigest(digest, String.valueOf(duplicatedTextBlock.getStart()));
+        updateDigest(digest, String.valueOf(duplicatedTextBlock.getEnd()));
+      }
+      return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * Sorted text blocks of the file which are persisted by {@link DuplicationLineReader}
+     */
+    private List<TextBlock> getDuplicatedTextBlocks(Component file) {
+      List<TextBlock> res = new ArrayList<>();
+      for (Duplication duplication : duplicationRepository.getDuplications(file)) {
+        res.add(duplication.getOriginal());
+        for (Duplicate duplicate : duplication.getDuplicates()) {
+          if (duplicate instanceof InnerDuplicate) {
+            res.add(duplicate.getTextBlock());
+          }
+        }
+      }
+      Collections.sort(res);
+      return res;
+    }
+
+    private void updateDigest(MessageDigest digest, @Nullable String value) {
+      if (value == null) {
+        // differs from the empty string
+        digest.update((byte) 0);
+      } else {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+      }
+      digest.update((byte) '\n');
+    }
+
+    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid, String inputsHash, @Nullable Changeset latestChange) {
       DbFileSources.Data fileData = fileSourceData.getFileSourceData();
 
       byte[] data = FileSourceDto.encodeSourceData(fileData);
@@ -156,29 +247,39 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setBinaryData(data)
           .setSrcHash(srcHash)
           .setDataHash(dataHash)
+          .setInputsHash(inputsHash)
           .setLineHashes(lineHashes)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now())
           .setRevision(computeRevision(latestChange));
         dbClient.fileSourceDao().insert(session, dto);
-        session.commit();
       } else {
-        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
+        // Inputs hash has changed or is missing (progressive migration). Update date is changed only if data_hash has
+        // changed or if src_hash is missing or revision is missing (progressive migration)
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
         boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
         String revision = computeRevision(latestChange);
         boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
+        previousDto
+          .setBinaryData(data)
+          .setDataHash(dataHash)
+          .setSrcHash(srcHash)
+          .setInputsHash(inputsHash)
+          .setLineHashes(lineHashes)
+          .setRevision(revision);
         if (binaryDataUpdated || srcHashUpdated || revisionUpdated) {
-          previousDto
-            .setBinaryData(data)
-            .setDataHash(dataHash)
-            .setSrcHash(srcHash)
-            .setLineHashes(lineHashes)
-            .setRevision(revision)
-            .setUpdatedAt(system2.now());
-          dbClient.fileSourceDao().update(session, previousDto);
-          session.commit();
+          previousDto.setUpdatedAt(system2.now());
         }
+        dbClient.fileSourceDao().update(session, previousDto);
+      }
+      commitIfBatchIsFull(data.length);
+    }
+
+    private void commitIfBatchIsFull(int dataSize) {
+      batchDataSize += dataSize;
+      if (batchDataSize >= MAX_BATCH_DATA_SIZE) {
+        session.commit();
+        batchDataSize = 0;
       }
     }
 
@@ -242,6 +343,16 @@ public class PersistFileSourcesStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<Class<?>> readHolders() {
+    return ImmutableSet.of(TreeRootHolder.class, BatchReportReader.class, SourceLinesRepository.class, ScmInfoRepository.class, DuplicationRepository.class);
+  }
+
+  @Override
+  public Set<Class<?>> writtenHolders() {
+    return ImmutableSet.of();
+  }
+
   @Override
   public String getDescription() {
     return "Persist sources";
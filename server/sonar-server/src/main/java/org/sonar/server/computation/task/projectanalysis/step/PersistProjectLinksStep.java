@@ -20,6 +20,7 @@
 package org.sonar.server.computation.task.projectanalysis.step;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -38,7 +39,7 @@ import org.sonar.server.computation.task.projectanalysis.component.CrawlerDepthL
 import org.sonar.server.computation.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.server.computation.task.projectanalysis.component.TypeAwareVisitorAdapter;
-import org.sonar.server.computation.task.step.ComputationStep;
+import org.sonar.server.computation.task.step.ConcurrentComputationStep;
 
 import static com.google.common.collect.Sets.newHashSet;
 import static org.sonar.server.computation.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
@@ -46,7 +47,7 @@ import static org.sonar.server.computation.task.projectanalysis.component.Compon
 /**
  * Persist project and module links
  */
-public class PersistProjectLinksStep implements ComputationStep {
+public class PersistProjectLinksStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final I18n i18n;
@@ -151,6 +152,16 @@ public class PersistProjectLinksStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<Class<?>> readHolders() {
+    return ImmutableSet.of(TreeRootHolder.class, BatchReportReader.class);
+  }
+
+  @Override
+  public Set<Class<?>> writtenHolders() {
+    return ImmutableSet.of();
+  }
+
   @Override
   public String getDescription() {
     return "Persist project links";
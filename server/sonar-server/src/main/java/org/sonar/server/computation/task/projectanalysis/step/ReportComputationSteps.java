@@ -92,8 +92,9 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     PersistDevelopersStep.class,
     PersistMeasuresStep.class,
     PersistIssuesStep.class,
-    PersistProjectLinksStep.class,
     PersistEventsStep.class,
+    // independent steps, executed concurrently when enabled
+    PersistProjectLinksStep.class,
     PersistFileSourcesStep.class,
     PersistTestsStep.class,
     PersistCrossProjectDuplicationIndexStep.class,
@@ -104,7 +105,7 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     PurgeDatastoresStep.class,
     ApplyPermissionsStep.class,
 
-    // ES indexing is done after all db changes
+    // ES indexing is done after all db changes, indexing steps are independent
     IndexIssuesStep.class,
     IndexTestsStep.class,
     IndexProjectMeasuresStep.class,
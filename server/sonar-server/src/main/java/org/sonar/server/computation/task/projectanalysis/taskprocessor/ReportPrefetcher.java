@@ -0,0 +1,223 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.taskprocessor;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.FileUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.ZipUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskInputDao;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.configuration.CeConfiguration;
+
+/**
+ * Extracts, in a background thread, the reports of the oldest pending {@link CeTaskTypes#REPORT} tasks so that
+ * {@link org.sonar.server.computation.task.projectanalysis.step.ExtractReportStep} can start on already extracted
+ * data instead of reading and unzipping the report from the database.
+ * <p>
+ * Prefetch is disabled unless {@link CeConfiguration#isReportPrefetchEnabled()} returns {@code true}. At most
+ * {@link CeConfiguration#getWorkerCount()} reports are kept extracted at a time.
+ * </p>
+ */
+public class ReportPrefetcher implements Startable {
+
+  private static final Logger LOG = Loggers.get(ReportPrefetcher.class);
+
+  private final DbClient dbClient;
+  private final TempFolder tempFolder;
+  private final boolean enabled;
+  private final int capacity;
+  private final AtomicBoolean refreshScheduled = new AtomicBoolean(false);
+  // guarded by this
+  private final Map<String, CompletableFuture<File>> extractedByTaskUuid = new LinkedHashMap<>();
+  @CheckForNull
+  private ExecutorService executorService;
+
+  public ReportPrefetcher(DbClient dbClient, TempFolder tempFolder, CeConfiguration ceConfiguration) {
+    this.dbClient = dbClient;
+    this.tempFolder = tempFolder;
+    this.enabled = ceConfiguration.isReportPrefetchEnabled();
+    this.capacity = ceConfiguration.getWorkerCount();
+  }
+
+  @Override
+  public void start() {
+    if (enabled) {
+      this.executorService = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder()
+          .setNameFormat("CE_report_prefetcher-%d")
+          .setPriority(Thread.MIN_PRIORITY)
+          .setDaemon(true)
+          .build());
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+      executorService = null;
+    }
+    synchronized (this) {
+      extractedByTaskUuid.values().forEach(future -> deleteQuietly(future.getNow(null)));
+      extractedByTaskUuid.clear();
+    }
+  }
+
+  /**
+   * Asks for the reports of the next pending tasks to be extracted in background. Does nothing if prefetch is disabled
+   * or if a refresh is already scheduled.
+   */
+  public void prefetchNext() {
+    ExecutorService executor = this.executorService;
+    if (executor == null || !refreshScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    executor.submit(() -> {
+      refreshScheduled.set(false);
+      try {
+        refresh();
+      } catch (Exception e) {
+        LOG.warn("Failed to prefetch reports of pending tasks", e);
+      }
+    });
+  }
+
+  /**
+   * Hands over the directory of the prefetched report of the specified task, if any, waiting for its extraction to
+   * complete if it is still in progress. The caller becomes responsible of the returned directory.
+   */
+  public Optional<File> take(String taskUuid) {
+    CompletableFuture<File> future;
+    synchronized (this) {
+      future = extractedByTaskUuid.remove(taskUuid);
+    }
+    if (future == null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.ofNullable(future.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Optional.empty();
+    } catch (ExecutionException e) {
+      LOG.warn("Failed to prefetch report of task " + taskUuid, e.getCause());
+      return Optional.empty();
+    }
+  }
+
+  @VisibleForTesting
+  void refresh() {
+    List<String> pendingReportUuids = new ArrayList<>();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      evictRemovedTasks(dbSession);
+      for (CeQueueDto dto : dbClient.ceQueueDao().selectPendingInAscOrder(dbSession, capacity)) {
+        if (CeTaskTypes.REPORT.equals(dto.getTaskType())) {
+          pendingReportUuids.add(dto.getUuid());
+        }
+      }
+    }
+    for (String taskUuid : pendingReportUuids) {
+      CompletableFuture<File> future = new CompletableFuture<>();
+      synchronized (this) {
+        if (extractedByTaskUuid.containsKey(taskUuid) || extractedByTaskUuid.size() >= capacity) {
+          continue;
+        }
+        extractedByTaskUuid.put(taskUuid, future);
+      }
+      extract(taskUuid, future);
+    }
+  }
+
+  /**
+   * Deletes the reports of the tasks which do not exist in queue anymore (eg. canceled or processed without calling
+   * {@link #take(String)}). Tasks which are in progress are kept as they are about to be taken.
+   */
+  private void evictRemovedTasks(DbSession dbSession) {
+    Set<String> taskUuids;
+    synchronized (this) {
+      taskUuids = new HashSet<>(extractedByTaskUuid.keySet());
+    }
+    taskUuids.removeIf(taskUuid -> dbClient.ceQueueDao().selectByUuid(dbSession, taskUuid).isPresent());
+    synchronized (this) {
+      Iterator<Map.Entry<String, CompletableFuture<File>>> it = extractedByTaskUuid.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, CompletableFuture<File>> entry = it.next();
+        if (taskUuids.contains(entry.getKey())) {
+          deleteQuietly(entry.getValue().getNow(null));
+          it.remove();
+        }
+      }
+    }
+  }
+
+  private void extract(String taskUuid, CompletableFuture<File> future) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Optional<CeTaskInputDao.DataStream> opt = dbClient.ceTaskInputDao().selectData(dbSession, taskUuid);
+      if (!opt.isPresent()) {
+        // let ExtractReportStep fail with the usual message
+        future.complete(null);
+        return;
+      }
+      File unzippedDir = tempFolder.newDir();
+      try (CeTaskInputDao.DataStream reportStream = opt.get();
+        InputStream zipStream = new BufferedInputStream(reportStream.getInputStream())) {
+        ZipUtils.unzip(zipStream, unzippedDir);
+        future.complete(unzippedDir);
+      } catch (IOException | RuntimeException e) {
+        deleteQuietly(unzippedDir);
+        future.completeExceptionally(e);
+      }
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+  }
+
+  private static void deleteQuietly(@CheckForNull File dir) {
+    if (dir != null) {
+      FileUtils.deleteQuietly(dir);
+    }
+  }
+}
@@ -19,11 +19,26 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.slf4j.MDC;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.core.util.logs.Profiler;
+import org.sonar.server.computation.configuration.CeConfiguration;
+
+import static java.util.Collections.disjoint;
 
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
@@ -31,6 +46,9 @@ public final class ComputationStepExecutor {
   private final ComputationSteps steps;
   @CheckForNull
   private final Listener listener;
+  @CheckForNull
+  private final CEQueueStatus queueStatus;
+  private final int stepsConcurrency;
 
   /**
    * Used when no {@link ComputationStepExecutor.Listener} is available in pico
@@ -43,13 +61,25 @@ public final class ComputationStepExecutor {
   public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener) {
     this.steps = steps;
     this.listener = listener;
+    this.queueStatus = null;
+    this.stepsConcurrency = 1;
+  }
+
+  public ComputationStepExecutor(ComputationSteps steps, @Nullable Listener listener, CEQueueStatus queueStatus, CeConfiguration ceConfiguration) {
+    this.steps = steps;
+    this.listener = listener;
+    this.queueStatus = queueStatus;
+    this.stepsConcurrency = ceConfiguration.getStepsConcurrency();
   }
 
   public void execute() {
-    Profiler stepProfiler = Profiler.create(LOGGER);
     boolean allStepsExecuted = false;
     try {
-      executeSteps(stepProfiler);
+      if (stepsConcurrency > 1) {
+        executeStepsConcurrently();
+      } else {
+        executeSteps(Profiler.create(LOGGER));
+      }
       allStepsExecuted = true;
     } finally {
       if (listener != null) {
@@ -60,9 +90,113 @@ public final class ComputationStepExecutor {
 
   private void executeSteps(Profiler stepProfiler) {
     for (ComputationStep step : steps.instances()) {
-      stepProfiler.start();
-      step.execute();
-      stepProfiler.stopDebug(step.getDescription());
+      executeStep(stepProfiler, step);
+    }
+  }
+
+  private void executeStep(Profiler stepProfiler, ComputationStep step) {
+    stepProfiler.start();
+    step.execute();
+    String description = step.getDescription();
+    long duration = stepProfiler.stopDebug(description);
+    if (queueStatus != null) {
+      queueStatus.addStepProcessingTime(description, duration);
+    }
+  }
+
+  /**
+   * Steps are started in the order returned by {@link ComputationSteps#instances()}. A {@link ConcurrentComputationStep}
+   * is started as soon as the preceding steps it conflicts with are completed, any other step is started once all
+   * preceding steps are completed.
+   */
+  private void executeStepsConcurrently() {
+    // logback MDC is not inherited by child threads, it is copied to each step thread
+    Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+    ExecutorService executorService = Executors.newFixedThreadPool(stepsConcurrency,
+      new ThreadFactoryBuilder()
+        .setNameFormat(Thread.currentThread().getName() + "-step-%d")
+        .setPriority(Thread.currentThread().getPriority())
+        .build());
+    List<RunningStep> runningSteps = new ArrayList<>();
+    try {
+      for (ComputationStep step : steps.instances()) {
+        if (step instanceof ConcurrentComputationStep) {
+          ConcurrentComputationStep concurrentStep = (ConcurrentComputationStep) step;
+          awaitConflicting(runningSteps, concurrentStep);
+          runningSteps.add(new RunningStep(concurrentStep, executorService.submit(() -> executeStepWithMdc(mdcContext, concurrentStep))));
+        } else {
+          awaitAll(runningSteps);
+          executeStep(Profiler.create(LOGGER), step);
+        }
+      }
+      awaitAll(runningSteps);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private void executeStepWithMdc(@Nullable Map<String, String> mdcContext, ComputationStep step) {
+    if (mdcContext != null) {
+      MDC.setContextMap(mdcContext);
+    }
+    try {
+      executeStep(Profiler.create(LOGGER), step);
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  private static void awaitConflicting(List<RunningStep> runningSteps, ConcurrentComputationStep step) {
+    Iterator<RunningStep> it = runningSteps.iterator();
+    while (it.hasNext()) {
+      RunningStep runningStep = it.next();
+      if (runningStep.conflictsWith(step)) {
+        runningStep.await();
+        it.remove();
+      }
+    }
+  }
+
+  private static void awaitAll(List<RunningStep> runningSteps) {
+    for (RunningStep runningStep : runningSteps) {
+      runningStep.await();
+    }
+    runningSteps.clear();
+  }
+
+  private static final class RunningStep {
+    private final ConcurrentComputationStep step;
+    private final Future<?> future;
+
+    private RunningStep(ConcurrentComputationStep step, Future<?> future) {
+      this.step = step;
+      this.future = future;
+    }
+
+    private boolean conflictsWith(ConcurrentComputationStep other) {
+      Set<Class<?>> writtenHolders = step.writtenHolders();
+      Set<Class<?>> otherWrittenHolders = other.writtenHolders();
+      return !disjoint(writtenHolders, other.readHolders())
+        || !disjoint(writtenHolders, otherWrittenHolders)
+        || !disjoint(otherWrittenHolders, step.readHolders());
+    }
+
+    private void await() {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for step to complete", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+      }
     }
   }
 
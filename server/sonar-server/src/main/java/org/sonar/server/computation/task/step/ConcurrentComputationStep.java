@@ -0,0 +1,48 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.step;
+
+import java.util.Set;
+
+/**
+ * A {@link ComputationStep} which declares the holders it reads from and writes to, so that
+ * {@link ComputationStepExecutor} can execute it concurrently with the other {@link ConcurrentComputationStep}s it
+ * does not conflict with.
+ * <p>
+ * Two steps conflict when one of them writes to a holder the other one reads from or writes to. A step which does not
+ * implement this interface conflicts with every other step: it waits for all the preceding steps to be completed and
+ * no subsequent step starts before it is completed.
+ * </p>
+ * <p>
+ * Implementations must not write to database rows or Elasticsearch documents written by any other step.
+ * </p>
+ */
+public interface ConcurrentComputationStep extends ComputationStep {
+
+  /**
+   * Types of the holders (eg. {@code TreeRootHolder}) this step reads from.
+   */
+  Set<Class<?>> readHolders();
+
+  /**
+   * Types of the holders this step populates or modifies.
+   */
+  Set<Class<?>> writtenHolders();
+}
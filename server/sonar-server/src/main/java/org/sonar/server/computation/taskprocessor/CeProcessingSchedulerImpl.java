@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.taskprocessor;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -30,33 +31,69 @@ import javax.annotation.Nullable;
 import org.picocontainer.Startable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.server.computation.configuration.CeConfiguration;
+import org.sonar.server.computation.queue.CeQueueSubmissionWatcher;
 
-import static com.google.common.util.concurrent.Futures.addCallback;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Schedules the execution of {@link CeWorkerCallable} by up to {@link CeConfiguration#getWorkerCount()} workers.
+ * <p>
+ * Workers which find the queue empty do not poll it anymore. A single watcher checks every
+ * {@link #SUBMISSION_CHECK_DELAY} ms with {@link CeQueueSubmissionWatcher} whether tasks have been submitted, by the
+ * Web Server or by the Compute Engine, and wakes up the idle workers when they have. As a safety net for submissions
+ * which could not be notified, it also wakes up one idle worker at every {@link CeConfiguration#getQueuePollingDelay()}.
+ * </p>
+ * <p>
+ * {@link CeConfiguration#getMinWorkerCount()} workers are always active. The additional workers are stopped when
+ * the queue is empty and are woken up only if the JVM has enough heap available.
+ * </p>
+ */
 public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startable {
   private static final Logger LOG = Loggers.get(CeProcessingSchedulerImpl.class);
+  /**
+   * Delay in ms between two checks of the submission of tasks.
+   */
+  @VisibleForTesting
+  static final long SUBMISSION_CHECK_DELAY = 250L;
+  /**
+   * Additional workers are started only if at least this ratio of the max heap size is available.
+   */
+  private static final double MIN_HEAP_HEADROOM_RATIO = 0.25D;
 
   private final CeProcessingSchedulerExecutorService executorService;
   private final CeWorkerCallable workerRunnable;
+  private final CEQueueStatus queueStatus;
+  private final CeQueueSubmissionWatcher submissionWatcher;
 
   private final long delayBetweenTasks;
   private final TimeUnit timeUnit;
+  private final int minWorkerCount;
   private final ChainingCallback[] chainingCallbacks;
+  private final long checksBetweenPollings;
+  // only accessed by the watcher
+  private long checksSinceLastPolling = 0;
+  @CheckForNull
+  private ListenableScheduledFuture<?> queueWatcherFuture;
 
   public CeProcessingSchedulerImpl(CeConfiguration ceConfiguration,
-    CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerCallable workerRunnable) {
+    CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerCallable workerRunnable,
+    CEQueueStatus queueStatus, CeQueueSubmissionWatcher submissionWatcher) {
     this.executorService = processingExecutorService;
     this.workerRunnable = workerRunnable;
+    this.queueStatus = queueStatus;
+    this.submissionWatcher = submissionWatcher;
 
     this.delayBetweenTasks = ceConfiguration.getQueuePollingDelay();
     this.timeUnit = MILLISECONDS;
+    this.checksBetweenPollings = Math.max(1L, delayBetweenTasks / SUBMISSION_CHECK_DELAY);
 
     int workerCount = ceConfiguration.getWorkerCount();
+    this.minWorkerCount = Math.min(ceConfiguration.getMinWorkerCount(), workerCount);
     this.chainingCallbacks = new ChainingCallback[workerCount];
     for (int i = 0; i < workerCount; i++) {
-      chainingCallbacks[i] = new ChainingCallback();
+      chainingCallbacks[i] = new ChainingCallback(i >= minWorkerCount);
     }
   }
 
@@ -67,30 +104,126 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
 
   @Override
   public void startScheduling() {
-    for (ChainingCallback chainingCallback : chainingCallbacks) {
-      ListenableScheduledFuture<Boolean> future = executorService.schedule(workerRunnable, delayBetweenTasks, timeUnit);
-      addCallback(future, chainingCallback, executorService);
+    for (int i = 0; i < minWorkerCount; i++) {
+      chainingCallbacks[i].chainWithDelay();
     }
+    updateActiveWorkerCount();
+    queueWatcherFuture = executorService.scheduleWithFixedDelay(this::watchQueue, SUBMISSION_CHECK_DELAY, SUBMISSION_CHECK_DELAY, MILLISECONDS);
   }
 
   @Override
   public void stop() {
+    if (queueWatcherFuture != null) {
+      queueWatcherFuture.cancel(false);
+    }
     for (ChainingCallback chainingCallback : chainingCallbacks) {
       chainingCallback.stop();
     }
   }
 
+  /**
+   * Wakes up the idle workers when tasks have been submitted, or one of them when the polling delay is elapsed.
+   * Nothing is read from the database while no worker is idle.
+   */
+  @VisibleForTesting
+  void watchQueue() {
+    // exceptions must not be propagated, otherwise the executor would not run the watcher anymore
+    try {
+      if (!hasIdleWorker()) {
+        checksSinceLastPolling = 0;
+        return;
+      }
+      checksSinceLastPolling++;
+      if (hasNewSubmissions()) {
+        checksSinceLastPolling = 0;
+        wakeUpWorkers(chainingCallbacks.length);
+      } else if (checksSinceLastPolling >= checksBetweenPollings) {
+        checksSinceLastPolling = 0;
+        wakeUpWorkers(1);
+      }
+    } catch (Exception e) {
+      LOG.error("Failed to wake up idle workers", e);
+    }
+  }
+
+  private boolean hasNewSubmissions() {
+    try {
+      return submissionWatcher.hasNewSubmissions();
+    } catch (Exception e) {
+      LOG.error("Failed to check submission of tasks to the queue", e);
+      return false;
+    }
+  }
+
+  private boolean hasIdleWorker() {
+    for (ChainingCallback chainingCallback : chainingCallbacks) {
+      if (chainingCallback.isIdle()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void wakeUpWorkers(int count) {
+    int wokenUpCount = 0;
+    Boolean heapHeadroom = null;
+    for (ChainingCallback chainingCallback : chainingCallbacks) {
+      if (wokenUpCount >= count) {
+        break;
+      }
+      if (chainingCallback.isAdditional() && chainingCallback.isIdle()) {
+        if (heapHeadroom == null) {
+          heapHeadroom = hasHeapHeadroom();
+        }
+        if (!heapHeadroom) {
+          LOG.debug("Not enough heap available to start an additional worker");
+          break;
+        }
+      }
+      if (chainingCallback.wakeUp()) {
+        wokenUpCount++;
+      }
+    }
+    updateActiveWorkerCount();
+  }
+
+  @VisibleForTesting
+  protected boolean hasHeapHeadroom() {
+    Runtime runtime = Runtime.getRuntime();
+    long maxMemory = runtime.maxMemory();
+    long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+    return maxMemory - usedMemory >= maxMemory * MIN_HEAP_HEADROOM_RATIO;
+  }
+
+  private void updateActiveWorkerCount() {
+    int activeWorkerCount = 0;
+    for (ChainingCallback chainingCallback : chainingCallbacks) {
+      if (!chainingCallback.isAdditional() || !chainingCallback.isIdle()) {
+        activeWorkerCount++;
+      }
+    }
+    queueStatus.setActiveWorkerCount(activeWorkerCount);
+  }
+
   private class ChainingCallback implements FutureCallback<Boolean> {
+    private final boolean additional;
     private final AtomicBoolean keepRunning = new AtomicBoolean(true);
+    private final AtomicBoolean idle;
     @CheckForNull
-    private ListenableFuture<Boolean> workerFuture;
+    private volatile ListenableFuture<Boolean> workerFuture;
+
+    private ChainingCallback(boolean additional) {
+      this.additional = additional;
+      // additional workers are started only when tasks are submitted
+      this.idle = new AtomicBoolean(additional);
+    }
 
     @Override
     public void onSuccess(@Nullable Boolean result) {
       if (result != null && result) {
         chainWithoutDelay();
       } else {
-        chainWithDelay();
+        waitForSubmission();
       }
     }
 
@@ -118,19 +251,47 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler, Startab
     }
 
     private void addCallback() {
-      if (workerFuture != null && keepRunning()) {
-        Futures.addCallback(workerFuture, this, executorService);
+      ListenableFuture<Boolean> future = workerFuture;
+      if (future != null && keepRunning()) {
+        Futures.addCallback(future, this, executorService);
       }
     }
 
+    private void waitForSubmission() {
+      idle.set(true);
+      if (additional) {
+        updateActiveWorkerCount();
+      }
+    }
+
+    /**
+     * @return {@code true} if the worker was idle and will poll the queue without delay
+     */
+    private boolean wakeUp() {
+      if (keepRunning() && idle.compareAndSet(true, false)) {
+        chainWithoutDelay();
+        return true;
+      }
+      return false;
+    }
+
+    private boolean isAdditional() {
+      return additional;
+    }
+
+    private boolean isIdle() {
+      return idle.get();
+    }
+
     private boolean keepRunning() {
       return keepRunning.get();
     }
 
     public void stop() {
       this.keepRunning.set(false);
-      if (workerFuture != null) {
-        workerFuture.cancel(false);
+      ListenableFuture<Boolean> future = workerFuture;
+      if (future != null) {
+        future.cancel(false);
       }
     }
   }
@@ -29,6 +29,7 @@ import org.sonar.ce.taskprocessor.CeTaskProcessor;
 import org.sonar.core.util.logs.Profiler;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.server.computation.queue.InternalCeQueue;
+import org.sonar.server.computation.task.projectanalysis.taskprocessor.ReportPrefetcher;
 
 import static java.lang.String.format;
 
@@ -39,11 +40,14 @@ public class CeWorkerCallableImpl implements CeWorkerCallable {
   private final InternalCeQueue queue;
   private final CeLogging ceLogging;
   private final CeTaskProcessorRepository taskProcessorRepository;
+  private final ReportPrefetcher reportPrefetcher;
 
-  public CeWorkerCallableImpl(InternalCeQueue queue, CeLogging ceLogging, CeTaskProcessorRepository taskProcessorRepository) {
+  public CeWorkerCallableImpl(InternalCeQueue queue, CeLogging ceLogging, CeTaskProcessorRepository taskProcessorRepository,
+    ReportPrefetcher reportPrefetcher) {
     this.queue = queue;
     this.ceLogging = ceLogging;
     this.taskProcessorRepository = taskProcessorRepository;
+    this.reportPrefetcher = reportPrefetcher;
   }
 
   @Override
@@ -53,6 +57,8 @@ public class CeWorkerCallableImpl implements CeWorkerCallable {
       return false;
     }
 
+    // while this task is being processed, extract in background the report of the next one
+    reportPrefetcher.prefetchNext();
     try {
       executeTask(ceTask.get());
     } catch (Exception e) {
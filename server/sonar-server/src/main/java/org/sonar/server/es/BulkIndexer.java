@@ -71,6 +71,7 @@ public class BulkIndexer implements Startable {
   private BulkRequestBuilder bulkRequest = null;
   private Map<String, Object> largeInitialSettings = null;
   private final AtomicLong counter = new AtomicLong(0L);
+  private final AtomicLong failureCounter = new AtomicLong(0L);
   private final int concurrentRequests;
   private final Semaphore semaphore;
   private final ProgressLogger progress;
@@ -125,6 +126,7 @@ public class BulkIndexer implements Startable {
     }
     bulkRequest = client.prepareBulk().setRefresh(false);
     counter.set(0L);
+    failureCounter.set(0L);
     progress.start();
   }
 
@@ -207,6 +209,13 @@ public class BulkIndexer implements Startable {
     bulkRequest = null;
   }
 
+  /**
+   * Number of requests which failed since {@link #start()}. It is complete only once {@link #stop()} returned.
+   */
+  public long getFailureCount() {
+    return failureCounter.get();
+  }
+
   private void updateSettings(Map<String, Object> settings) {
     UpdateSettingsRequestBuilder req = client.nativeClient().admin().indices().prepareUpdateSettings(indexName);
     req.setSettings(settings);
@@ -234,6 +243,7 @@ public class BulkIndexer implements Startable {
 
       for (BulkItemResponse item : response.getItems()) {
         if (item.isFailed()) {
+          failureCounter.incrementAndGet();
           LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
         }
       }
@@ -242,6 +252,7 @@ public class BulkIndexer implements Startable {
     @Override
     public void onFailure(Throwable e) {
       semaphore.release();
+      failureCounter.addAndGet(req.numberOfActions());
       LOGGER.error("Fail to execute bulk index request: " + req, e);
     }
   }
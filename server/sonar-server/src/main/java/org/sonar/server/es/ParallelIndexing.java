@@ -0,0 +1,155 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.elasticsearch.action.ActionRequest;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.ProgressLogger;
+
+import static java.lang.String.format;
+
+/**
+ * Populates an index from scratch, for example at first startup or after loss of Elasticsearch data.
+ * The table is read by partitions, generally projects, which are indexed concurrently. Each thread
+ * uses its own DB session and {@link BulkIndexer}. Replicas and automatic refresh are disabled
+ * during the whole load, as with {@link BulkIndexer#setLarge(boolean)}.
+ */
+public class ParallelIndexing {
+
+  private static final Logger LOGGER = Loggers.get(ParallelIndexing.class);
+
+  private final EsClient client;
+  private final String indexName;
+  private final int threads;
+
+  public ParallelIndexing(EsClient client, String indexName, int threads) {
+    this.client = client;
+    this.indexName = indexName;
+    this.threads = threads;
+  }
+
+  /**
+   * Number of threads used to index large tables. Each thread holds a DB connection.
+   */
+  public static int defaultThreads() {
+    return Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+  }
+
+  /**
+   * @return the greatest value returned by {@link PartitionIndexer#index(String, BulkIndexer)}, zero if there is no partition
+   */
+  public long index(Collection<String> partitions, PartitionIndexer partitionIndexer) {
+    if (partitions.isEmpty()) {
+      return 0L;
+    }
+    AtomicLong docs = new AtomicLong(0L);
+    ProgressLogger progress = new ProgressLogger(format("Progress[ParallelIndexing[%s]]", indexName), docs, LOGGER)
+      .setPluralLabel("documents");
+    // only changes settings of index during the whole load. Documents are sent by the bulk indexers of threads.
+    BulkIndexer largeIndexing = new BulkIndexer(client, indexName).setLarge(true);
+    largeIndexing.start();
+    progress.start();
+    long startedAt = System.currentTimeMillis();
+    Queue<String> queue = new ConcurrentLinkedQueue<>(partitions);
+    int threadCount = Math.min(threads, partitions.size());
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+      new ThreadFactoryBuilder()
+        .setNameFormat(format("ParallelIndexing[%s]-", indexName) + "%d")
+        .build());
+    try {
+      List<Future<Long>> futures = new ArrayList<>(threadCount);
+      for (int i = 0; i < threadCount; i++) {
+        futures.add(executor.submit(() -> indexPartitions(queue, partitionIndexer, docs)));
+      }
+      long maxValue = 0L;
+      for (Future<Long> future : futures) {
+        maxValue = Math.max(maxValue, Uninterruptibles.getUninterruptibly(future));
+      }
+      long duration = Math.max(1L, System.currentTimeMillis() - startedAt);
+      LOGGER.info("{} documents of {} partitions indexed into {} in {} ms ({} documents/s)", docs.get(), partitions.size(), indexName, duration,
+        docs.get() * 1000L / duration);
+      return maxValue;
+    } catch (ExecutionException e) {
+      // stop threads as soon as possible, the partitions that remain in queue are not indexed
+      queue.clear();
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdown();
+      progress.stop();
+      largeIndexing.stop();
+    }
+  }
+
+  private long indexPartitions(Queue<String> queue, PartitionIndexer partitionIndexer, AtomicLong docs) {
+    BulkIndexer bulk = new CountingBulkIndexer(client, indexName, docs);
+    bulk.start();
+    long maxValue = 0L;
+    try {
+      String partition = queue.poll();
+      while (partition != null) {
+        maxValue = Math.max(maxValue, partitionIndexer.index(partition, bulk));
+        partition = queue.poll();
+      }
+    } finally {
+      bulk.stop();
+    }
+    return maxValue;
+  }
+
+  @FunctionalInterface
+  public interface PartitionIndexer {
+    /**
+     * Reads the documents of the partition and adds them to the bulk indexer, which must not be started nor stopped.
+     * Called concurrently for different partitions.
+     *
+     * @return a value aggregated over partitions, generally the date of the most recently updated document
+     */
+    long index(String partition, BulkIndexer bulk);
+  }
+
+  private static class CountingBulkIndexer extends BulkIndexer {
+    private final AtomicLong counter;
+
+    CountingBulkIndexer(EsClient client, String indexName, AtomicLong counter) {
+      super(client, indexName);
+      this.counter = counter;
+    }
+
+    @Override
+    public void add(ActionRequest request) {
+      super.add(request);
+      counter.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.server.ServerSide;
+import org.sonar.core.util.stream.Collectors;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.user.UserDto;
+
+/**
+ * Size-bounded cache of the rules, users and components referenced by the responses of issue web services.
+ * <ul>
+ *   <li>rules and users are invalidated by the web server when they are updated</li>
+ *   <li>components are updated by the Compute Engine, which runs in another process. They
+ *   expire shortly after being loaded.</li>
+ * </ul>
+ * The returned DTOs are shared between requests and must not be modified.
+ */
+@ServerSide
+public class IssueReferenceCache {
+
+  static final int MAX_RULES = 10_000;
+  static final int MAX_USERS = 10_000;
+  static final int MAX_COMPONENTS = 50_000;
+  private static final long RULE_AND_USER_EXPIRATION_MINUTES = 10L;
+  private static final long COMPONENT_EXPIRATION_SECONDS = 60L;
+
+  private final DbClient dbClient;
+  private final Cache<RuleKey, RuleDto> rulesByKey = CacheBuilder.newBuilder()
+    .maximumSize(MAX_RULES)
+    .expireAfterWrite(RULE_AND_USER_EXPIRATION_MINUTES, TimeUnit.MINUTES)
+    .recordStats()
+    .build();
+  private final Cache<String, UserDto> usersByLogin = CacheBuilder.newBuilder()
+    .maximumSize(MAX_USERS)
+    .expireAfterWrite(RULE_AND_USER_EXPIRATION_MINUTES, TimeUnit.MINUTES)
+    .recordStats()
+    .build();
+  private final Cache<String, ComponentDto> componentsByUuid = CacheBuilder.newBuilder()
+    .maximumSize(MAX_COMPONENTS)
+    .expireAfterWrite(COMPONENT_EXPIRATION_SECONDS, TimeUnit.SECONDS)
+    .recordStats()
+    .build();
+
+  public IssueReferenceCache(DbClient dbClient) {
+    this.dbClient = dbClient;
+  }
+
+  /**
+   * Rules that do not exist are ignored
+   */
+  public List<RuleDto> getRulesByKeys(DbSession dbSession, Collection<RuleKey> keys) {
+    return getAll(rulesByKey, keys, missingKeys -> dbClient.ruleDao().selectByKeys(dbSession, missingKeys), RuleDto::getKey);
+  }
+
+  /**
+   * Users that do not exist are ignored
+   */
+  public List<UserDto> getUsersByLogins(DbSession dbSession, Collection<String> logins) {
+    return getAll(usersByLogin, logins, missingLogins -> dbClient.userDao().selectByLogins(dbSession, missingLogins), UserDto::getLogin);
+  }
+
+  /**
+   * Components that do not exist are ignored. Disabled components are returned.
+   */
+  public List<ComponentDto> getComponentsByUuids(DbSession dbSession, Collection<String> uuids) {
+    return getAll(componentsByUuid, uuids, missingUuids -> dbClient.componentDao().selectByUuids(dbSession, missingUuids), ComponentDto::uuid);
+  }
+
+  public void invalidateRule(RuleKey key) {
+    rulesByKey.invalidate(key);
+  }
+
+  public void invalidateUser(String login) {
+    usersByLogin.invalidate(login);
+  }
+
+  public CacheStats getRulesStats() {
+    return rulesByKey.stats();
+  }
+
+  public CacheStats getUsersStats() {
+    return usersByLogin.stats();
+  }
+
+  public CacheStats getComponentsStats() {
+    return componentsByUuid.stats();
+  }
+
+  private static <K, V> List<V> getAll(Cache<K, V> cache, Collection<K> keys, Function<List<K>, List<V>> loader, Function<V, K> keyFunction) {
+    Map<K, V> cachedValues = cache.getAllPresent(keys);
+    List<V> result = new ArrayList<>(keys.size());
+    result.addAll(cachedValues.values());
+
+    List<K> missingKeys = keys.stream()
+      .filter(key -> !cachedValues.containsKey(key))
+      .collect(Collectors.toList());
+    if (missingKeys.isEmpty()) {
+      return result;
+    }
+    for (V value : loader.apply(missingKeys)) {
+      cache.put(keyFunction.apply(value), value);
+      result.add(value);
+    }
+    return result;
+  }
+}
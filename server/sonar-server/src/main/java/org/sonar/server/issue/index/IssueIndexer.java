@@ -19,8 +19,12 @@
  */
 package org.sonar.server.issue.index;
 
+import com.google.common.collect.Iterators;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.index.IndexRequest;
@@ -31,9 +35,11 @@ import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.ParallelIndexing;
 
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.sonar.db.DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
 import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID;
 import static org.sonar.server.issue.index.IssueIndexDefinition.FIELD_ISSUE_TECHNICAL_UPDATED_AT;
 import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX;
@@ -54,17 +60,85 @@ public class IssueIndexer extends BaseIndexer {
 
   @Override
   protected long doIndex(long lastUpdatedAt) {
+    if (lastUpdatedAt <= 0L) {
+      // index is empty
+      return doIndexAll();
+    }
     return doIndex(createBulkIndexer(false), lastUpdatedAt, null);
   }
 
   public void indexAll() {
-    doIndex(createBulkIndexer(true), 0L, null);
+    doIndexAll();
+  }
+
+  /**
+   * Issues are read and indexed project by project, on several threads.
+   */
+  private long doIndexAll() {
+    List<String> projectUuids;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      projectUuids = dbClient.issueDao().selectProjectUuids(dbSession);
+    }
+    return new ParallelIndexing(esClient, INDEX, ParallelIndexing.defaultThreads()).index(projectUuids, (projectUuid, bulk) -> {
+      try (DbSession dbSession = dbClient.openSession(false);
+        IssueResultSetIterator rowIt = IssueResultSetIterator.create(dbClient, dbSession, 0L, projectUuid)) {
+        return addIssues(bulk, rowIt);
+      }
+    });
   }
 
   public void index(String projectUuid) {
     super.index(lastUpdatedAt -> doIndex(createBulkIndexer(false), lastUpdatedAt, projectUuid));
   }
 
+  /**
+   * Indexes all the issues of the given project, whatever the date of their last update.
+   *
+   * @return {@code false} if some issues failed to be indexed
+   */
+  public boolean indexAllOfProject(String projectUuid) {
+    BulkIndexer bulk = createBulkIndexer(false);
+    bulk.start();
+    try (DbSession dbSession = dbClient.openSession(false);
+      IssueResultSetIterator rowIt = IssueResultSetIterator.create(dbClient, dbSession, 0L, projectUuid)) {
+      addIssues(bulk, rowIt);
+    } finally {
+      bulk.stop();
+    }
+    return bulk.getFailureCount() == 0L;
+  }
+
+  /**
+   * Indexes only the issues with the given keys, which belong to the given project. Issues which
+   * do not exist in database are deleted from index.
+   *
+   * @return {@code false} if some issues failed to be indexed
+   */
+  public boolean indexByKeys(String projectUuid, Iterator<String> issueKeys) {
+    List<String> missingKeys = new ArrayList<>();
+    BulkIndexer bulk = createBulkIndexer(false);
+    bulk.start();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Iterator<List<String>> partitions = Iterators.partition(issueKeys, PARTITION_SIZE_FOR_ORACLE);
+      while (partitions.hasNext()) {
+        List<String> keys = partitions.next();
+        Set<String> notFoundKeys = new HashSet<>(keys);
+        try (IssueResultSetIterator rowIt = IssueResultSetIterator.createForKeys(dbClient, dbSession, keys)) {
+          while (rowIt.hasNext()) {
+            IssueDoc issue = rowIt.next();
+            bulk.add(newIndexRequest(issue));
+            notFoundKeys.remove(issue.key());
+          }
+        }
+        missingKeys.addAll(notFoundKeys);
+      }
+    } finally {
+      bulk.stop();
+    }
+    deleteByKeys(projectUuid, missingKeys);
+    return bulk.getFailureCount() == 0L;
+  }
+
   /**
    * For benchmarks
    */
@@ -81,8 +155,14 @@ public class IssueIndexer extends BaseIndexer {
     }
   }
 
-  private long doIndex(BulkIndexer bulk, Iterator<IssueDoc> issues) {
+  private static long doIndex(BulkIndexer bulk, Iterator<IssueDoc> issues) {
     bulk.start();
+    long maxDate = addIssues(bulk, issues);
+    bulk.stop();
+    return maxDate;
+  }
+
+  private static long addIssues(BulkIndexer bulk, Iterator<IssueDoc> issues) {
     long maxDate = 0L;
     while (issues.hasNext()) {
       IssueDoc issue = issues.next();
@@ -91,7 +171,6 @@ public class IssueIndexer extends BaseIndexer {
       // it's more efficient to sort programmatically than in SQL on some databases (MySQL for instance)
       maxDate = Math.max(maxDate, issue.getTechnicalUpdateDate().getTime());
     }
-    bulk.stop();
     return maxDate;
   }
 
@@ -28,6 +28,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Date;
+import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
@@ -92,6 +93,8 @@ class IssueResultSetIterator extends ResultSetIterator<IssueDoc> {
 
   private static final String PROJECT_FILTER = " AND root.uuid=?";
 
+  private static final String SQL_KEYS = SQL_ALL + " where i.kee in (%s)";
+
   private static final Splitter TAGS_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
 
   private static final Splitter MODULE_PATH_SPLITTER = Splitter.on('.').trimResults().omitEmptyStrings();
@@ -119,6 +122,22 @@ class IssueResultSetIterator extends ResultSetIterator<IssueDoc> {
     }
   }
 
+  /**
+   * Issues with the given keys. Number of keys must not exceed {@link DatabaseUtils#PARTITION_SIZE_FOR_ORACLE}.
+   */
+  static IssueResultSetIterator createForKeys(DbClient dbClient, DbSession session, List<String> issueKeys) {
+    try {
+      String sql = String.format(SQL_KEYS, StringUtils.repeat("?", ",", issueKeys.size()));
+      PreparedStatement stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, sql);
+      for (int i = 0; i < issueKeys.size(); i++) {
+        stmt.setString(i + 1, issueKeys.get(i));
+      }
+      return new IssueResultSetIterator(stmt);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to prepare SQL request to select issues by keys", e);
+    }
+  }
+
   @CheckForNull
   private static String extractDirPath(@Nullable String filePath, String scope) {
     if (filePath != null) {
@@ -30,6 +30,7 @@ import java.util.Set;
 import javax.annotation.Nullable;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
@@ -39,10 +40,12 @@ import org.sonar.db.protobuf.DbIssues;
 import org.sonar.server.es.Facets;
 import org.sonar.server.issue.ActionService;
 import org.sonar.server.issue.IssueCommentService;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.issue.IssueService;
 import org.sonarqube.ws.client.issue.IssueFilterParameters;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static org.sonar.api.resources.Scopes.PROJECT;
 import static org.sonar.server.issue.ws.SearchAdditionalField.ACTIONS;
 import static org.sonar.server.issue.ws.SearchAdditionalField.COMMENTS;
 import static org.sonar.server.issue.ws.SearchAdditionalField.RULES;
@@ -58,12 +61,15 @@ public class SearchResponseLoader {
   private final IssueService issueService;
   private final ActionService actionService;
   private final IssueCommentService commentService;
+  private final IssueReferenceCache referenceCache;
 
-  public SearchResponseLoader(DbClient dbClient, IssueService issueService, ActionService actionService, IssueCommentService commentService) {
+  public SearchResponseLoader(DbClient dbClient, IssueService issueService, ActionService actionService, IssueCommentService commentService,
+    IssueReferenceCache referenceCache) {
     this.dbClient = dbClient;
     this.issueService = issueService;
     this.actionService = actionService;
     this.commentService = commentService;
+    this.referenceCache = referenceCache;
   }
 
   /**
@@ -91,7 +97,7 @@ public class SearchResponseLoader {
 
   private void loadUsers(Collector collector, DbSession dbSession, SearchResponseData result) {
     if (collector.contains(USERS)) {
-      result.setUsers(dbClient.userDao().selectByLogins(dbSession, collector.<String>get(USERS)));
+      result.setUsers(referenceCache.getUsersByLogins(dbSession, collector.<String>get(USERS)));
     }
   }
 
@@ -110,22 +116,38 @@ public class SearchResponseLoader {
 
   private void loadRules(Collector collector, DbSession dbSession, SearchResponseData result) {
     if (collector.contains(RULES)) {
-      result.setRules(dbClient.ruleDao().selectByKeys(dbSession, collector.<RuleKey>get(RULES)));
+      result.setRules(referenceCache.getRulesByKeys(dbSession, collector.<RuleKey>get(RULES)));
     }
   }
 
   private void loadComponents(Collector collector, DbSession dbSession, SearchResponseData result) {
     // always load components and projects, because some issue fields still relate to component ids/keys.
     // They should be dropped but are kept for backward-compatibility (see SearchResponseFormat)
-    result.addComponents(dbClient.componentDao().selectByUuids(dbSession, collector.getComponentUuids()));
-    result.addComponents(dbClient.componentDao().selectSubProjectsByComponentUuids(dbSession, collector.getComponentUuids()));
+    List<ComponentDto> components = referenceCache.getComponentsByUuids(dbSession, collector.getComponentUuids());
+    result.addComponents(components);
+    result.addComponents(loadSubProjects(dbSession, components));
     for (ComponentDto component : result.getComponents()) {
       collector.addProjectUuid(component.projectUuid());
     }
-    List<ComponentDto> projects = dbClient.componentDao().selectByUuids(dbSession, collector.getProjectUuids());
+    List<ComponentDto> projects = referenceCache.getComponentsByUuids(dbSession, collector.getProjectUuids());
     result.addComponents(projects);
   }
 
+  /**
+   * Same as {@link org.sonar.db.component.ComponentDao#selectSubProjectsByComponentUuids(DbSession, Collection)}, but
+   * served by the cache: the enabled modules or projects which are the roots of the enabled components.
+   */
+  private List<ComponentDto> loadSubProjects(DbSession dbSession, List<ComponentDto> components) {
+    Set<String> rootUuids = components.stream()
+      .filter(ComponentDto::isEnabled)
+      .map(ComponentDto::getRootUuid)
+      .collect(Collectors.toSet());
+    return referenceCache.getComponentsByUuids(dbSession, rootUuids).stream()
+      .filter(ComponentDto::isEnabled)
+      .filter(component -> PROJECT.equals(component.scope()))
+      .collect(Collectors.toList());
+  }
+
   private void loadActionsAndTransitions(Collector collector, SearchResponseData result) {
     if (collector.contains(ACTIONS) || collector.contains(TRANSITIONS)) {
       for (IssueDto dto : result.getIssues()) {
@@ -42,6 +42,7 @@ import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.sonar.api.measures.Metric.ValueType;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.resources.ResourceTypes;
 import org.sonar.api.web.UserRole;
@@ -109,19 +110,23 @@ public class ComponentTreeDataLoader {
           .build();
       }
       Long developerId = searchDeveloperId(dbSession, wsRequest);
+      List<MetricDto> metrics = searchMetrics(dbSession, wsRequest);
+      List<WsMeasures.Period> periods = snapshotToWsPeriods(baseSnapshot.get());
+      boolean isSortByMetricInDb = isSortByMetricInDb(wsRequest, metrics);
 
-      ComponentTreeQuery dbQuery = toComponentTreeQuery(wsRequest, baseComponent);
+      ComponentTreeQuery dbQuery = toComponentTreeQuery(wsRequest, baseComponent, isSortByMetricInDb, metrics, periods, developerId);
       ComponentDtosAndTotal componentDtosAndTotal = searchComponents(dbSession, dbQuery, wsRequest);
       List<ComponentDto> components = componentDtosAndTotal.componentDtos;
-      List<MetricDto> metrics = searchMetrics(dbSession, wsRequest);
-      List<WsMeasures.Period> periods = snapshotToWsPeriods(baseSnapshot.get());
       Table<String, MetricDto, MeasureDto> measuresByComponentUuidAndMetric = searchMeasuresByComponentUuidAndMetric(dbSession, baseComponent, components, metrics,
         periods, developerId);
 
-      components = filterComponents(components, measuresByComponentUuidAndMetric, metrics, wsRequest);
-      components = sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric);
-      int componentCount = computeComponentCount(componentDtosAndTotal.total, components, componentWithMeasuresOnly(wsRequest));
-      components = paginateComponents(components, wsRequest);
+      int componentCount = componentDtosAndTotal.total;
+      if (!isSortByMetricInDb) {
+        components = filterComponents(components, measuresByComponentUuidAndMetric, metrics, wsRequest);
+        components = sortComponents(components, wsRequest, metrics, measuresByComponentUuidAndMetric);
+        componentCount = computeComponentCount(componentDtosAndTotal.total, components, componentWithMeasuresOnly(wsRequest));
+        components = paginateComponents(components, wsRequest);
+      }
       Map<String, ComponentDto> referenceComponentsById = searchReferenceComponentsById(dbSession, components);
 
       return ComponentTreeData.builder()
@@ -260,14 +265,30 @@ public class ComponentTreeDataLoader {
       return components;
     }
 
+    return components
+      .stream()
+      .filter(new HasMeasure(measuresByComponentUuidAndMetric, metricToSort(metrics, wsRequest), wsRequest))
+      .collect(Collectors.toList());
+  }
+
+  private static MetricDto metricToSort(List<MetricDto> metrics, ComponentTreeWsRequest wsRequest) {
     final String metricKeyToSort = wsRequest.getMetricSort();
     Optional<MetricDto> metricToSort = from(metrics).firstMatch(new MatchMetricKey(metricKeyToSort));
     checkState(metricToSort.isPresent(), "Metric '%s' not found", metricKeyToSort, wsRequest.getMetricKeys());
+    return metricToSort.get();
+  }
 
-    return components
-      .stream()
-      .filter(new HasMeasure(measuresByComponentUuidAndMetric, metricToSort.get(), wsRequest))
-      .collect(Collectors.toList());
+  /**
+   * Numerical measures are sorted, filtered and paginated by the database, so that only the requested page of
+   * components is loaded. Other types of measures can't be compared in SQL, all the components of the tree are
+   * then loaded and sorted in memory.
+   */
+  private static boolean isSortByMetricInDb(ComponentTreeWsRequest wsRequest, List<MetricDto> metrics) {
+    if (!isSortByMetric(wsRequest) || wsRequest.getMetricSort() == null) {
+      return false;
+    }
+    ValueType valueType = ValueType.valueOf(metricToSort(metrics, wsRequest).getValueType());
+    return ComponentTreeSort.NUMERIC_VALUE_TYPES.contains(valueType);
   }
 
   private static boolean componentWithMeasuresOnly(ComponentTreeWsRequest wsRequest) {
@@ -320,7 +341,8 @@ public class ComponentTreeDataLoader {
     return new ArrayList<>(qualifiersIntersection);
   }
 
-  private ComponentTreeQuery toComponentTreeQuery(ComponentTreeWsRequest wsRequest, ComponentDto baseComponent) {
+  private ComponentTreeQuery toComponentTreeQuery(ComponentTreeWsRequest wsRequest, ComponentDto baseComponent, boolean isSortByMetricInDb,
+    List<MetricDto> metrics, List<WsMeasures.Period> periods, @Nullable Long developerId) {
     List<String> childrenQualifiers = childrenQualifiers(wsRequest, baseComponent.qualifier());
 
     List<String> sortsWithoutMetricSort = newArrayList(Iterables.filter(wsRequest.getSort(), IsNotMetricSort.INSTANCE));
@@ -339,8 +361,18 @@ public class ComponentTreeDataLoader {
     if (childrenQualifiers != null) {
       dbQuery.setQualifiers(childrenQualifiers);
     }
-    // load all components if we must sort by metric value
-    if (isSortByMetric(wsRequest)) {
+    if (isSortByMetricInDb) {
+      MetricDto metricToSort = metricToSort(metrics, wsRequest);
+      Integer periodToSort = wsRequest.getMetricPeriodSort();
+      dbQuery
+        .setSortFields(toSortFieldsWithMeasureSort(wsRequest.getSort(), sortsWithoutMetricSort))
+        .setMeasureSortMetricId(metricToSort.getId())
+        .setMeasureSortPeriod(periodToSort)
+        .setMeasureSortBestValue(bestValueToSort(metricToSort, periods, periodToSort))
+        .setMeasureSortPersonId(developerId)
+        .setOnlyWithMeasureSortValue(componentWithMeasuresOnly(wsRequest));
+    } else if (isSortByMetric(wsRequest)) {
+      // load all components if we must sort by metric value in memory
       dbQuery.setPage(1);
       dbQuery.setPageSize(Integer.MAX_VALUE);
     }
@@ -348,6 +380,32 @@ public class ComponentTreeDataLoader {
     return dbQuery.build();
   }
 
+  /**
+   * Same order as {@link ComponentTreeSort}: the requested sorts, then the ones applied to the components loaded from db.
+   */
+  private static List<String> toSortFieldsWithMeasureSort(List<String> sorts, List<String> sortsWithoutMetricSort) {
+    List<String> sortFields = new ArrayList<>();
+    for (String sort : sorts) {
+      sortFields.add(IsNotMetricSort.INSTANCE.apply(sort) ? sort : ComponentTreeQuery.MEASURE_SORT_FIELD);
+    }
+    sortsWithoutMetricSort.stream()
+      .filter(sort -> !sortFields.contains(sort))
+      .forEach(sortFields::add);
+    return sortFields;
+  }
+
+  /**
+   * Best value of the sorted measure, as added to the files in {@link #addBestValuesToMeasures(Table, List, List, List)}
+   */
+  @CheckForNull
+  private static Double bestValueToSort(MetricDto metric, List<WsMeasures.Period> periods, @Nullable Integer periodToSort) {
+    if (!MetricDtoFunctions.isOptimizedForBestValue().apply(metric)) {
+      return null;
+    }
+    MeasureDto bestValue = new MetricDtoToMetricDtoWithBestValue(periods).apply(metric).getBestValue();
+    return periodToSort == null ? bestValue.getValue() : bestValue.getVariation(periodToSort);
+  }
+
   private void checkPermissions(ComponentDto baseComponent) {
     String projectUuid = firstNonNull(baseComponent.projectUuid(), baseComponent.uuid());
     if (!userSession.hasComponentUuidPermission(UserRole.ADMIN, projectUuid) &&
@@ -22,13 +22,20 @@ package org.sonar.server.notification;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
 import java.io.IOException;
 import java.io.InvalidClassException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.notifications.Notification;
 import org.sonar.api.notifications.NotificationChannel;
@@ -49,6 +56,8 @@ public class DefaultNotificationManager implements NotificationManager {
   private NotificationQueueDao notificationQueueDao;
   private PropertiesDao propertiesDao;
 
+  private final ThreadLocal<Map<List<String>, Multimap<String, NotificationChannel>>> subscribersCache = new ThreadLocal<>();
+
   private boolean alreadyLoggedDeserializationIssue = false;
 
   /**
@@ -89,21 +98,38 @@ public class DefaultNotificationManager implements NotificationManager {
   /**
    * Give the notification queue so that it can be processed
    */
+  @CheckForNull
   public Notification getFromQueue() {
-    int batchSize = 1;
+    List<Notification> notifications = getFromQueue(1);
+    return notifications.isEmpty() ? null : notifications.get(0);
+  }
+
+  /**
+   * Removes at most {@code batchSize} of the oldest notifications from the queue so that they can be processed.
+   * Notifications that can't be deserialized are ignored, so the returned list may be smaller than the number of
+   * dequeued notifications.
+   */
+  public List<Notification> getFromQueue(int batchSize) {
     List<NotificationQueueDto> notificationDtos = notificationQueueDao.selectOldest(batchSize);
     if (notificationDtos.isEmpty()) {
-      return null;
+      return Collections.emptyList();
     }
     notificationQueueDao.delete(notificationDtos);
 
-    return convertToNotification(notificationDtos);
+    List<Notification> notifications = new ArrayList<>(notificationDtos.size());
+    for (NotificationQueueDto notificationDto : notificationDtos) {
+      Notification notification = convertToNotification(notificationDto);
+      if (notification != null) {
+        notifications.add(notification);
+      }
+    }
+    return notifications;
   }
 
-  private Notification convertToNotification(List<NotificationQueueDto> notifications) {
+  @CheckForNull
+  private Notification convertToNotification(NotificationQueueDto notification) {
     try {
-      // If batchSize is increased then we should return a list instead of a single element
-      return notifications.get(0).toNotification();
+      return notification.toNotification();
     } catch (InvalidClassException e) {
       // SONAR-4739
       if (!alreadyLoggedDeserializationIssue) {
@@ -125,12 +151,29 @@ public class DefaultNotificationManager implements NotificationManager {
     return notificationQueueDao.count();
   }
 
+  /**
+   * Until {@link #clearSubscribersCache()} is called, the subscribers found by the current thread for a given dispatcher
+   * and component are loaded once from database and are then shared by all the notifications of the batch.
+   */
+  public void startSubscribersCache() {
+    subscribersCache.set(new HashMap<>());
+  }
+
+  public void clearSubscribersCache() {
+    subscribersCache.remove();
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
   public Multimap<String, NotificationChannel> findSubscribedRecipientsForDispatcher(NotificationDispatcher dispatcher,
                                                                                      @Nullable String projectUuid) {
+    return cacheSubscribers(Arrays.asList("recipients", dispatcher.getKey(), projectUuid),
+      () -> loadSubscribedRecipientsForDispatcher(dispatcher, projectUuid));
+  }
+
+  private Multimap<String, NotificationChannel> loadSubscribedRecipientsForDispatcher(NotificationDispatcher dispatcher, @Nullable String projectUuid) {
     String dispatcherKey = dispatcher.getKey();
 
     SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
@@ -151,6 +194,11 @@ public class DefaultNotificationManager implements NotificationManager {
 
   @Override
   public Multimap<String, NotificationChannel> findNotificationSubscribers(NotificationDispatcher dispatcher, @Nullable String componentKey) {
+    return cacheSubscribers(Arrays.asList("subscribers", dispatcher.getKey(), componentKey),
+      () -> loadNotificationSubscribers(dispatcher, componentKey));
+  }
+
+  private Multimap<String, NotificationChannel> loadNotificationSubscribers(NotificationDispatcher dispatcher, @Nullable String componentKey) {
     String dispatcherKey = dispatcher.getKey();
 
     SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
@@ -161,6 +209,15 @@ public class DefaultNotificationManager implements NotificationManager {
     return recipients;
   }
 
+  private Multimap<String, NotificationChannel> cacheSubscribers(List<String> key, Supplier<Multimap<String, NotificationChannel>> loader) {
+    Map<List<String>, Multimap<String, NotificationChannel>> cache = subscribersCache.get();
+    if (cache == null) {
+      return loader.get();
+    }
+    // cached subscribers are shared by dispatchers, so they must not be modified
+    return cache.computeIfAbsent(key, k -> ImmutableSetMultimap.copyOf(loader.get()));
+  }
+
   @VisibleForTesting
   protected List<NotificationChannel> getChannels() {
     return Arrays.asList(notificationChannels);
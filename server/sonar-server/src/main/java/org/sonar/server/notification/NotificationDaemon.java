@@ -20,18 +20,29 @@
 package org.sonar.server.notification;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.picocontainer.Startable;
 import org.sonar.api.Properties;
 import org.sonar.api.Property;
 import org.sonar.api.config.Settings;
 import org.sonar.api.notifications.Notification;
+import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.notification.NotificationService.Delivery;
 
 @Properties({
   @Property(
@@ -43,32 +54,72 @@ import org.sonar.api.utils.log.Loggers;
     key = NotificationDaemon.PROPERTY_DELAY_BEFORE_REPORTING_STATUS,
     defaultValue = "600",
     name = "Delay before reporting notification status, in seconds",
+    global = false),
+  @Property(
+    key = NotificationDaemon.PROPERTY_BATCH_SIZE,
+    defaultValue = "100",
+    name = "Number of notifications dequeued at once",
+    global = false),
+  @Property(
+    key = NotificationDaemon.PROPERTY_WORKERS,
+    defaultValue = "4",
+    name = "Number of threads delivering notifications",
+    global = false),
+  @Property(
+    key = NotificationDaemon.PROPERTY_MAX_DELIVERIES_PER_SECOND,
+    defaultValue = "20",
+    name = "Maximum number of notifications delivered per second by each channel, zero for no limit",
     global = false)
 })
 @ServerSide
 public class NotificationDaemon implements Startable {
   private static final String THREAD_NAME_PREFIX = "sq-notification-service-";
+  private static final String DELIVERY_THREAD_NAME_PREFIX = "sq-notification-delivery-";
 
   private static final Logger LOG = Loggers.get(NotificationDaemon.class);
 
   public static final String PROPERTY_DELAY = "sonar.notifications.delay";
   public static final String PROPERTY_DELAY_BEFORE_REPORTING_STATUS = "sonar.notifications.runningDelayBeforeReportingStatus";
+  public static final String PROPERTY_BATCH_SIZE = "sonar.notifications.batchSize";
+  public static final String PROPERTY_WORKERS = "sonar.notifications.workers";
+  public static final String PROPERTY_MAX_DELIVERIES_PER_SECOND = "sonar.notifications.maxDeliveriesPerSecond";
+
+  static final int DEFAULT_BATCH_SIZE = 100;
+  static final int DEFAULT_WORKERS = 4;
+  static final int DEFAULT_MAX_DELIVERIES_PER_SECOND = 20;
 
   private final long delayInSeconds;
   private final long delayBeforeReportingStatusInSeconds;
+  private final int batchSize;
+  private final int workers;
+  private final int maxDeliveriesPerSecond;
   private final DefaultNotificationManager manager;
   private final NotificationService service;
 
+  private final Map<String, RateLimiter> rateLimitersByChannel = new ConcurrentHashMap<>();
+  private final AtomicLong deliveredCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private final AtomicLong totalLatencyMs = new AtomicLong();
+  private final AtomicLong maxLatencyMs = new AtomicLong();
+
   private ScheduledExecutorService executorService;
+  private ExecutorService deliveryExecutorService;
   private boolean stopping = false;
 
   public NotificationDaemon(Settings settings, DefaultNotificationManager manager, NotificationService service) {
     this.delayInSeconds = settings.getLong(PROPERTY_DELAY);
     this.delayBeforeReportingStatusInSeconds = settings.getLong(PROPERTY_DELAY_BEFORE_REPORTING_STATUS);
+    this.batchSize = getInt(settings, PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+    this.workers = getInt(settings, PROPERTY_WORKERS, DEFAULT_WORKERS);
+    this.maxDeliveriesPerSecond = getInt(settings, PROPERTY_MAX_DELIVERIES_PER_SECOND, DEFAULT_MAX_DELIVERIES_PER_SECOND);
     this.manager = manager;
     this.service = service;
   }
 
+  private static int getInt(Settings settings, String key, int defaultValue) {
+    return settings.hasKey(key) ? settings.getInt(key) : defaultValue;
+  }
+
   @Override
   public void start() {
     executorService = Executors.newSingleThreadScheduledExecutor(
@@ -76,6 +127,11 @@ public class NotificationDaemon implements Startable {
         .setNameFormat(THREAD_NAME_PREFIX + "%d")
         .setPriority(Thread.MIN_PRIORITY)
         .build());
+    deliveryExecutorService = Executors.newFixedThreadPool(workers,
+      new ThreadFactoryBuilder()
+        .setNameFormat(DELIVERY_THREAD_NAME_PREFIX + "%d")
+        .setPriority(Thread.MIN_PRIORITY)
+        .build());
     executorService.scheduleWithFixedDelay(() -> {
       try {
         processQueue();
@@ -83,7 +139,7 @@ public class NotificationDaemon implements Startable {
         LOG.error("Error in NotificationService", e);
       }
     }, 0, delayInSeconds, TimeUnit.SECONDS);
-    LOG.info("Notification service started (delay {} sec.)", delayInSeconds);
+    LOG.info("Notification service started (delay {} sec., {} delivery threads)", delayInSeconds, workers);
   }
 
   @Override
@@ -92,6 +148,8 @@ public class NotificationDaemon implements Startable {
       stopping = true;
       executorService.shutdown();
       executorService.awaitTermination(5, TimeUnit.SECONDS);
+      deliveryExecutorService.shutdown();
+      deliveryExecutorService.awaitTermination(5, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
       LOG.error("Error during stop of notification service", e);
       Thread.currentThread().interrupt();
@@ -105,10 +163,10 @@ public class NotificationDaemon implements Startable {
     long lastLog = start;
     long notifSentCount = 0;
 
-    Notification notifToSend = manager.getFromQueue();
-    while (notifToSend != null) {
-      service.deliver(notifToSend);
-      notifSentCount++;
+    List<Notification> notifsToSend = manager.getFromQueue(batchSize);
+    while (!notifsToSend.isEmpty()) {
+      deliver(notifsToSend);
+      notifSentCount += notifsToSend.size();
       if (stopping) {
         break;
       }
@@ -119,10 +177,91 @@ public class NotificationDaemon implements Startable {
         long spentTimeInMinutes = (now - start) / (60 * 1000);
         log(notifSentCount, remainingNotifCount, spentTimeInMinutes);
       }
-      notifToSend = manager.getFromQueue();
+      notifsToSend = manager.getFromQueue(batchSize);
+    }
+  }
+
+  /**
+   * Recipients of the whole batch are resolved by the current thread, so that subscribers are loaded once
+   * per batch, then deliveries are spread over the delivery threads. Returns when all the deliveries are done.
+   */
+  private void deliver(List<Notification> notifications) {
+    long dequeuedAt = System.nanoTime();
+    List<Delivery> deliveries;
+    manager.startSubscribersCache();
+    try {
+      deliveries = service.dispatch(notifications);
+    } finally {
+      manager.clearSubscribersCache();
+    }
+
+    List<Future<?>> futures = new ArrayList<>(deliveries.size());
+    for (Delivery delivery : deliveries) {
+      futures.add(deliveryExecutorService.submit(() -> {
+        acquireDeliveryPermit(delivery.getChannel());
+        boolean delivered = delivery.deliver();
+        recordDelivery(delivered, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dequeuedAt));
+      }));
+    }
+    awaitDeliveries(futures);
+  }
+
+  private void acquireDeliveryPermit(NotificationChannel channel) {
+    if (maxDeliveriesPerSecond > 0) {
+      rateLimitersByChannel.computeIfAbsent(channel.getKey(), key -> RateLimiter.create(maxDeliveriesPerSecond)).acquire();
+    }
+  }
+
+  private void recordDelivery(boolean delivered, long latencyMs) {
+    if (delivered) {
+      deliveredCount.incrementAndGet();
+    } else {
+      failedCount.incrementAndGet();
+    }
+    totalLatencyMs.addAndGet(latencyMs);
+    maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+  }
+
+  private static void awaitDeliveries(List<Future<?>> futures) {
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        LOG.warn("Interrupted while delivering notifications");
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        LOG.error("Error while delivering notification", e.getCause());
+      }
     }
   }
 
+  /**
+   * Number of notifications successfully delivered since startup
+   */
+  public long getDeliveredCount() {
+    return deliveredCount.get();
+  }
+
+  /**
+   * Number of notifications that channels failed to deliver since startup
+   */
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  /**
+   * Average time between the removal of notifications from the queue and their delivery
+   */
+  public long getAverageDeliveryLatencyMillis() {
+    long count = deliveredCount.get() + failedCount.get();
+    return count == 0 ? 0 : (totalLatencyMs.get() / count);
+  }
+
+  public long getMaxDeliveryLatencyMillis() {
+    return maxLatencyMs.get();
+  }
+
   @VisibleForTesting
   void log(long notifSentCount, long remainingNotifCount, long spentTimeInMinutes) {
     LOG.info("{} notifications sent during the past {} minutes and {} still waiting to be sent",
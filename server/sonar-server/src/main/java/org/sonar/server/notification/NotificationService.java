@@ -65,6 +65,23 @@ public class NotificationService {
   }
 
   public void deliver(Notification notification) {
+    for (Delivery delivery : dispatch(notification)) {
+      delivery.deliver();
+    }
+  }
+
+  /**
+   * Resolves the recipients of the given notifications, without delivering them.
+   */
+  public List<Delivery> dispatch(List<Notification> notifications) {
+    List<Delivery> deliveries = new ArrayList<>();
+    for (Notification notification : notifications) {
+      deliveries.addAll(dispatch(notification));
+    }
+    return deliveries;
+  }
+
+  private List<Delivery> dispatch(Notification notification) {
     final SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
     for (NotificationDispatcher dispatcher : dispatchers) {
       NotificationDispatcher.Context context = new ContextImpl(recipients);
@@ -75,23 +92,17 @@ public class NotificationService {
         LOG.warn(String.format("Unable to dispatch notification %s using %s", notification, dispatcher), e);
       }
     }
-    dispatch(notification, recipients);
-  }
 
-  private void dispatch(Notification notification, SetMultimap<String, NotificationChannel> recipients) {
+    List<Delivery> deliveries = new ArrayList<>(recipients.size());
     for (Map.Entry<String, Collection<NotificationChannel>> entry : recipients.asMap().entrySet()) {
       String username = entry.getKey();
       Collection<NotificationChannel> userChannels = entry.getValue();
       LOG.debug("For user {} via {}", username, userChannels);
       for (NotificationChannel channel : userChannels) {
-        try {
-          channel.deliver(notification, username);
-        } catch (Exception e) {
-          // catch all exceptions in order to deliver via other channels
-          LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
-        }
+        deliveries.add(new Delivery(notification, username, channel));
       }
     }
+    return deliveries;
   }
 
   @VisibleForTesting
@@ -114,6 +125,39 @@ public class NotificationService {
     return dbClient.propertiesDao().hasProjectNotificationSubscribersForDispatchers(projectUuid, dispatcherKeys);
   }
 
+  /**
+   * Delivery of a notification to a user through a channel
+   */
+  public static class Delivery {
+    private final Notification notification;
+    private final String username;
+    private final NotificationChannel channel;
+
+    Delivery(Notification notification, String username, NotificationChannel channel) {
+      this.notification = notification;
+      this.username = username;
+      this.channel = channel;
+    }
+
+    public NotificationChannel getChannel() {
+      return channel;
+    }
+
+    /**
+     * @return false if the channel failed to deliver the notification
+     */
+    public boolean deliver() {
+      try {
+        channel.deliver(notification, username);
+        return true;
+      } catch (Exception e) {
+        // catch all exceptions in order to deliver via other channels
+        LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
+        return false;
+      }
+    }
+  }
+
   private static class ContextImpl implements NotificationDispatcher.Context {
     private final Multimap<String, NotificationChannel> recipients;
 
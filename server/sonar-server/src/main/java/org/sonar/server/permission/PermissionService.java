@@ -34,6 +34,7 @@ import org.sonar.db.permission.PermissionRepository;
 import org.sonar.db.permission.template.PermissionTemplateDto;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.UserSession;
 
 import static org.sonar.server.permission.PermissionPrivilegeChecker.checkProjectAdminUserByComponentKey;
@@ -46,14 +47,16 @@ public class PermissionService {
   private final IssueAuthorizationIndexer issueAuthorizationIndexer;
   private final UserSession userSession;
   private final ComponentFinder componentFinder;
+  private final UserPermissionCache userPermissionCache;
 
   public PermissionService(DbClient dbClient, PermissionRepository permissionRepository, IssueAuthorizationIndexer issueAuthorizationIndexer, UserSession userSession,
-    ComponentFinder componentFinder) {
+    ComponentFinder componentFinder, UserPermissionCache userPermissionCache) {
     this.dbClient = dbClient;
     this.permissionRepository = permissionRepository;
     this.issueAuthorizationIndexer = issueAuthorizationIndexer;
     this.userSession = userSession;
     this.componentFinder = componentFinder;
+    this.userPermissionCache = userPermissionCache;
   }
 
   /**
@@ -112,6 +115,7 @@ public class PermissionService {
   }
 
   private void indexProjectPermissions() {
+    userPermissionCache.invalidateAll();
     issueAuthorizationIndexer.index();
   }
 }
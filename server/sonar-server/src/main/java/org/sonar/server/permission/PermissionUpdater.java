@@ -26,6 +26,7 @@ import java.util.Set;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
+import org.sonar.server.user.UserPermissionCache;
 
 /**
  * Add or remove global/project permissions to a group. This class
@@ -38,13 +39,15 @@ public class PermissionUpdater {
   private final IssueAuthorizationIndexer issueAuthorizationIndexer;
   private final UserPermissionChanger userPermissionChanger;
   private final GroupPermissionChanger groupPermissionChanger;
+  private final UserPermissionCache userPermissionCache;
 
   public PermissionUpdater(DbClient dbClient, IssueAuthorizationIndexer issueAuthorizationIndexer,
-    UserPermissionChanger userPermissionChanger, GroupPermissionChanger groupPermissionChanger) {
+    UserPermissionChanger userPermissionChanger, GroupPermissionChanger groupPermissionChanger, UserPermissionCache userPermissionCache) {
     this.dbClient = dbClient;
     this.issueAuthorizationIndexer = issueAuthorizationIndexer;
     this.userPermissionChanger = userPermissionChanger;
     this.groupPermissionChanger = groupPermissionChanger;
+    this.userPermissionCache = userPermissionCache;
   }
 
   public void apply(DbSession dbSession, Collection<PermissionChange> changes) {
@@ -60,6 +63,7 @@ public class PermissionUpdater {
       dbClient.resourceDao().updateAuthorizationDate(projectId, dbSession);
     }
     dbSession.commit();
+    userPermissionCache.invalidateAll();
 
     if (!projectIds.isEmpty()) {
       issueAuthorizationIndexer.index();
@@ -59,7 +59,7 @@ public class Platform {
   private boolean dbConnected = false;
   private boolean started = false;
   private final List<Object> level4AddedComponents = Lists.newArrayList();
-  private final Profiler profiler = Profiler.createIfTrace(Loggers.get(Platform.class));
+  private final Profiler profiler = Profiler.create(Loggers.get(Platform.class));
 
   public static Platform getInstance() {
     return INSTANCE;
@@ -211,10 +211,10 @@ public class Platform {
   private PlatformLevel start(PlatformLevel platformLevel) {
     profiler.start();
     platformLevel.configure();
-    profiler.stopTrace(String.format("%s configured", platformLevel.getName()));
+    profiler.stopDebug(String.format("%s configured", platformLevel.getName()));
     profiler.start();
     platformLevel.start();
-    profiler.stopTrace(String.format("%s started", platformLevel.getName()));
+    profiler.stopInfo(String.format("%s started", platformLevel.getName()));
 
     return platformLevel;
   }
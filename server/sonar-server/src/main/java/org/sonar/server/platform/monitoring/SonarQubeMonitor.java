@@ -21,6 +21,7 @@ package org.sonar.server.platform.monitoring;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
+import com.google.common.cache.CacheStats;
 import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -35,10 +36,13 @@ import org.sonar.api.server.authentication.IdentityProvider;
 import org.sonar.core.util.stream.Collectors;
 import org.sonar.process.ProcessProperties;
 import org.sonar.server.authentication.IdentityProviderRepository;
+import org.sonar.server.batch.ProjectRepositoriesCache;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.platform.ServerId;
 import org.sonar.server.platform.ServerIdLoader;
 import org.sonar.server.platform.ServerLogging;
 import org.sonar.server.user.SecurityRealmFactory;
+import org.sonar.server.user.UserPermissionCache;
 
 public class SonarQubeMonitor extends BaseMonitorMBean implements SonarQubeMonitorMBean {
 
@@ -52,16 +56,23 @@ public class SonarQubeMonitor extends BaseMonitorMBean implements SonarQubeMonit
   private final Server server;
   private final ServerLogging serverLogging;
   private final ServerIdLoader serverIdLoader;
+  private final IssueReferenceCache issueReferenceCache;
+  private final UserPermissionCache userPermissionCache;
+  private final ProjectRepositoriesCache projectRepositoriesCache;
 
   public SonarQubeMonitor(Settings settings, SecurityRealmFactory securityRealmFactory,
     IdentityProviderRepository identityProviderRepository, Server server, ServerLogging serverLogging,
-    ServerIdLoader serverIdLoader) {
+    ServerIdLoader serverIdLoader, IssueReferenceCache issueReferenceCache, UserPermissionCache userPermissionCache,
+    ProjectRepositoriesCache projectRepositoriesCache) {
     this.settings = settings;
     this.securityRealmFactory = securityRealmFactory;
     this.identityProviderRepository = identityProviderRepository;
     this.server = server;
     this.serverLogging = serverLogging;
     this.serverIdLoader = serverIdLoader;
+    this.issueReferenceCache = issueReferenceCache;
+    this.userPermissionCache = userPermissionCache;
+    this.projectRepositoriesCache = projectRepositoriesCache;
   }
 
   @Override
@@ -79,6 +90,47 @@ public class SonarQubeMonitor extends BaseMonitorMBean implements SonarQubeMonit
     return serverLogging.getRootLoggerLevel().name();
   }
 
+  @Override
+  public long getIssueReferenceCacheHitCount() {
+    return getIssueReferenceCacheStats().hitCount();
+  }
+
+  @Override
+  public long getIssueReferenceCacheMissCount() {
+    return getIssueReferenceCacheStats().missCount();
+  }
+
+  @Override
+  public long getUserPermissionCacheHitCount() {
+    return userPermissionCache.getStats().hitCount();
+  }
+
+  @Override
+  public long getUserPermissionCacheMissCount() {
+    return userPermissionCache.getStats().missCount();
+  }
+
+  @Override
+  public long getProjectRepositoriesCacheSize() {
+    return projectRepositoriesCache.size();
+  }
+
+  @Override
+  public long getProjectRepositoriesCacheHitCount() {
+    return projectRepositoriesCache.getStats().hitCount();
+  }
+
+  @Override
+  public long getProjectRepositoriesCacheMissCount() {
+    return projectRepositoriesCache.getStats().missCount();
+  }
+
+  private CacheStats getIssueReferenceCacheStats() {
+    return issueReferenceCache.getRulesStats()
+      .plus(issueReferenceCache.getUsersStats())
+      .plus(issueReferenceCache.getComponentsStats());
+  }
+
   @CheckForNull
   private String getExternalUserAuthentication() {
     SecurityRealm realm = securityRealmFactory.getRealm();
@@ -144,6 +196,13 @@ public class SonarQubeMonitor extends BaseMonitorMBean implements SonarQubeMonit
     attributes.put("Temp Dir", settings.getString(ProcessProperties.PATH_TEMP));
     attributes.put("Logs Dir", settings.getString(ProcessProperties.PATH_LOGS));
     attributes.put("Logs Level", getLogLevel());
+    attributes.put("Issue Reference Cache Hits", getIssueReferenceCacheHitCount());
+    attributes.put("Issue Reference Cache Misses", getIssueReferenceCacheMissCount());
+    attributes.put("User Permission Cache Hits", getUserPermissionCacheHitCount());
+    attributes.put("User Permission Cache Misses", getUserPermissionCacheMissCount());
+    attributes.put("Project Repositories Cache Size", getProjectRepositoriesCacheSize());
+    attributes.put("Project Repositories Cache Hits", getProjectRepositoriesCacheHitCount());
+    attributes.put("Project Repositories Cache Misses", getProjectRepositoriesCacheMissCount());
     return attributes;
   }
 
@@ -28,4 +28,39 @@ public interface SonarQubeMonitorMBean {
   String getVersion();
 
   String getLogLevel();
+
+  /**
+   * Number of rules, users and components of issue responses served by the cache
+   */
+  long getIssueReferenceCacheHitCount();
+
+  /**
+   * Number of rules, users and components of issue responses loaded from database
+   */
+  long getIssueReferenceCacheMissCount();
+
+  /**
+   * Number of HTTP requests whose user permissions were served by the cache
+   */
+  long getUserPermissionCacheHitCount();
+
+  /**
+   * Number of HTTP requests whose user permissions were loaded from database
+   */
+  long getUserPermissionCacheMissCount();
+
+  /**
+   * Number of project repositories of api/batch/project kept in memory
+   */
+  long getProjectRepositoriesCacheSize();
+
+  /**
+   * Number of requests to api/batch/project served by the cache
+   */
+  long getProjectRepositoriesCacheHitCount();
+
+  /**
+   * Number of requests to api/batch/project that loaded the project repositories from database
+   */
+  long getProjectRepositoriesCacheMissCount();
 }
@@ -94,6 +94,7 @@ import org.sonar.server.issue.IssueBulkChangeService;
 import org.sonar.server.issue.IssueChangelogService;
 import org.sonar.server.issue.IssueCommentService;
 import org.sonar.server.issue.IssueQueryService;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.issue.IssueService;
 import org.sonar.server.issue.IssueUpdater;
 import org.sonar.server.issue.RemoveTagsAction;
@@ -148,6 +149,7 @@ import org.sonar.server.platform.SettingsChangeNotifier;
 import org.sonar.server.platform.monitoring.DatabaseMonitor;
 import org.sonar.server.platform.monitoring.EsMonitor;
 import org.sonar.server.platform.monitoring.JvmPropsMonitor;
+import org.sonar.server.platform.monitoring.NotificationMonitor;
 import org.sonar.server.platform.monitoring.PluginsMonitor;
 import org.sonar.server.platform.monitoring.SettingsMonitor;
 import org.sonar.server.platform.monitoring.SonarQubeMonitor;
@@ -248,6 +250,7 @@ import org.sonar.server.user.DefaultUserService;
 import org.sonar.server.user.DeprecatedUserFinder;
 import org.sonar.server.user.NewUserNotifier;
 import org.sonar.server.user.SecurityRealmFactory;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndex;
 import org.sonar.server.user.index.UserIndexDefinition;
@@ -423,6 +426,7 @@ public class PlatformLevel4 extends PlatformLevel {
       UserIndexer.class,
       UserIndex.class,
       UserUpdater.class,
+      UserPermissionCache.class,
       UsersWsModule.class,
       UserTokenModule.class,
 
@@ -471,6 +475,7 @@ public class PlatformLevel4 extends PlatformLevel {
       IssueWsModule.class,
       IssueService.class,
       IssueQueryService.class,
+      IssueReferenceCache.class,
       NewIssuesEmailTemplate.class,
       MyNewIssuesEmailTemplate.class,
       IssueChangesEmailTemplate.class,
@@ -568,6 +573,7 @@ public class PlatformLevel4 extends PlatformLevel {
       PluginsMonitor.class,
       JvmPropsMonitor.class,
       DatabaseMonitor.class,
+      NotificationMonitor.class,
       MigrateDbAction.class,
       LogsAction.class,
       ChangeLogLevelAction.class,
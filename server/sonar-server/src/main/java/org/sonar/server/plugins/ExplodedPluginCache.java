@@ -0,0 +1,149 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.plugins;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.sonar.api.utils.ZipUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.platform.PluginInfo;
+import org.sonar.server.platform.ServerFileSystem;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Plugin JARs and their libraries, as unzipped by {@link ServerPluginJarExploder} and the exploder of
+ * Compute Engine, kept in directory data/exploded-plugins across restarts. Entries are keyed by the MD5 checksum
+ * of JAR, so a plugin is unzipped again only when its JAR changes. Files of entries are hard-linked, or copied
+ * when links are not supported, to the directories loaded by classloaders.
+ * <p/>
+ * Web server and Compute Engine share the cache. Entries are prepared in a temporary directory then
+ * atomically renamed, so that a process never sees an incomplete entry.
+ */
+public class ExplodedPluginCache {
+
+  static final String DIR_NAME = "exploded-plugins";
+  static final String JAR_NAME_IN_ENTRY = "plugin.jar";
+  private static final String TEMP_DIR_PREFIX = "tmp";
+  private static final Logger LOG = Loggers.get(ExplodedPluginCache.class);
+
+  private final File cacheDir;
+
+  public ExplodedPluginCache(ServerFileSystem fs) {
+    this.cacheDir = new File(fs.getDataDir(), DIR_NAME);
+  }
+
+  /**
+   * Installs the JAR of plugin and the libraries accepted by {@code libFilter} into the directory {@code toDir},
+   * which is created if needed and must be empty.
+   *
+   * @return the JAR file in {@code toDir}, with the same name as the JAR of plugin
+   */
+  public File install(PluginInfo pluginInfo, File toDir, Predicate<ZipEntry> libFilter) throws IOException {
+    File jarSource = pluginInfo.getNonNullJarFile();
+    Path entry = getOrCreateEntry(pluginInfo.getKey(), jarSource, libFilter);
+    FileUtils.forceMkdir(toDir);
+    File jarTarget = new File(toDir, jarSource.getName());
+    link(entry.resolve(JAR_NAME_IN_ENTRY), jarTarget.toPath());
+    try (Stream<Path> files = Files.walk(entry)) {
+      List<Path> libs = files
+        .filter(Files::isRegularFile)
+        .filter(file -> !file.getParent().equals(entry))
+        .collect(Collectors.toList());
+      for (Path lib : libs) {
+        Path target = toDir.toPath().resolve(entry.relativize(lib).toString());
+        Files.createDirectories(target.getParent());
+        link(lib, target);
+      }
+    }
+    return jarTarget;
+  }
+
+  private Path getOrCreateEntry(String pluginKey, File jarSource, Predicate<ZipEntry> libFilter) throws IOException {
+    File pluginDir = new File(cacheDir, pluginKey);
+    File entry = new File(pluginDir, checksumOf(jarSource));
+    if (entry.isDirectory()) {
+      LOG.debug("Plugin {} is already unzipped in {}", pluginKey, entry);
+      return entry.toPath();
+    }
+
+    FileUtils.forceMkdir(pluginDir);
+    File tempDir = Files.createTempDirectory(pluginDir.toPath(), TEMP_DIR_PREFIX).toFile();
+    try {
+      FileUtils.copyFile(jarSource, new File(tempDir, JAR_NAME_IN_ENTRY));
+      ZipUtils.unzip(jarSource, tempDir, libFilter);
+      try {
+        Files.move(tempDir.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        if (!entry.isDirectory()) {
+          throw e;
+        }
+        // entry has been created concurrently by the other process
+      }
+    } finally {
+      deleteQuietly(tempDir);
+    }
+    deleteOtherEntries(pluginDir, entry);
+    return entry.toPath();
+  }
+
+  /**
+   * Entries of the previous versions of plugin. Temporary directories are kept as they can be in use by the
+   * other process.
+   */
+  private static void deleteOtherEntries(File pluginDir, File entry) {
+    File[] children = pluginDir.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      if (!child.equals(entry) && !child.getName().startsWith(TEMP_DIR_PREFIX)) {
+        deleteQuietly(child);
+      }
+    }
+  }
+
+  private static String checksumOf(File file) throws IOException {
+    try (InputStream input = Files.newInputStream(file.toPath())) {
+      return DigestUtils.md5Hex(input);
+    }
+  }
+
+  private static void link(Path source, Path target) throws IOException {
+    try {
+      Files.createLink(target, source);
+    } catch (IOException | UnsupportedOperationException e) {
+      // for example file systems of data and target directories are different
+      Files.copy(source, target);
+    }
+  }
+}
@@ -20,10 +20,8 @@
 package org.sonar.server.plugins;
 
 import java.io.File;
-import org.apache.commons.io.FileUtils;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.server.ServerSide;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.core.platform.ExplodedPlugin;
 import org.sonar.core.platform.PluginInfo;
 import org.sonar.core.platform.PluginJarExploder;
@@ -36,15 +34,18 @@ import static org.apache.commons.io.FileUtils.forceMkdir;
 public class ServerPluginJarExploder extends PluginJarExploder {
 
   private final ServerFileSystem fs;
+  private final ExplodedPluginCache cache;
 
   public ServerPluginJarExploder(ServerFileSystem fs) {
     this.fs = fs;
+    this.cache = new ExplodedPluginCache(fs);
   }
 
   /**
    * JAR files of directory extensions/plugins can be moved when server is up and plugins are uninstalled.
    * For this reason these files must not be locked by classloaders. They are copied to the directory
-   * web/deploy/plugins in order to be loaded by {@link org.sonar.core.platform.PluginLoader}.
+   * web/deploy/plugins in order to be loaded by {@link org.sonar.core.platform.PluginLoader}. Files are
+   * taken from {@link ExplodedPluginCache}, so that plugins are not unzipped on each startup.
    */
   @Override
   public ExplodedPlugin explode(PluginInfo pluginInfo) {
@@ -53,10 +54,7 @@ public class ServerPluginJarExploder extends PluginJarExploder {
       forceMkdir(toDir);
       org.sonar.core.util.FileUtils.cleanDirectory(toDir);
 
-      File jarSource = pluginInfo.getNonNullJarFile();
-      File jarTarget = new File(toDir, jarSource.getName());
-      FileUtils.copyFile(jarSource, jarTarget);
-      ZipUtils.unzip(jarSource, toDir, newLibFilter());
+      File jarTarget = cache.install(pluginInfo, toDir, newLibFilter());
       return explodeFromUnzippedDir(pluginInfo.getKey(), jarTarget, toDir);
     } catch (Exception e) {
       throw new IllegalStateException(String.format(
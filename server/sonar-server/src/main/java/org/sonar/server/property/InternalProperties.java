@@ -32,6 +32,24 @@ public interface InternalProperties {
    */
   String DEFAULT_ORGANIZATION = "organization.default";
 
+  /**
+   * Fingerprints of the rule repositories registered at last startup, one "repositoryKey=fingerprint" per line.
+   * Repositories which fingerprint did not change are not synchronized again.
+   */
+  String RULE_DEFINITION_FINGERPRINTS = "rules.definitionFingerprints";
+
+  /**
+   * The UUID of the last task submitted to the Compute Engine queue. Its changes are watched by the Compute Engine
+   * to wake up its idle workers.
+   */
+  String CE_QUEUE_LAST_SUBMISSION = "ce.queue.lastSubmission";
+
+  /**
+   * UUIDs of the projects which issues failed to be indexed by the Compute Engine, one per line. All their issues are
+   * indexed again at their next analysis.
+   */
+  String PROJECTS_WITH_STALE_ISSUES = "issues.projectsWithStaleIndex";
+
   /**
    * Read the value of the specified property.
    *
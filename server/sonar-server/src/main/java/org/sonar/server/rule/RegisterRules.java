@@ -21,17 +21,28 @@ package org.sonar.server.rule;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.picocontainer.Startable;
@@ -54,6 +65,7 @@ import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleDto.Format;
 import org.sonar.db.rule.RuleParamDto;
 import org.sonar.db.rule.RuleRepositoryDto;
+import org.sonar.server.property.InternalProperties;
 import org.sonar.server.qualityprofile.ActiveRuleChange;
 import org.sonar.server.qualityprofile.RuleActivator;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
@@ -69,6 +81,9 @@ import static com.google.common.collect.Sets.intersection;
 public class RegisterRules implements Startable {
 
   private static final Logger LOG = Loggers.get(RegisterRules.class);
+  private static final byte SEPARATOR = 0;
+  private static final byte NULL_MARKER = 1;
+  private static final Splitter LINE_SPLITTER = Splitter.on('\n').omitEmptyStrings();
 
   private final RuleDefinitionsLoader defLoader;
   private final RuleActivator ruleActivator;
@@ -95,21 +110,30 @@ public class RegisterRules implements Startable {
     DbSession session = dbClient.openSession(false);
     try {
       Map<RuleKey, RuleDto> allRules = loadRules(session);
+      Map<String, String> previousFingerprints = loadFingerprints(session);
+      Map<String, String> fingerprints = new TreeMap<>();
+      List<RuleParamToPropagate> paramsToPropagate = new ArrayList<>();
 
       RulesDefinition.Context context = defLoader.load();
-      for (RulesDefinition.ExtendedRepository repoDef : getRepositories(context)) {
-        if (languages.get(repoDef.language()) != null) {
-          for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
-            registerRule(ruleDef, allRules, session);
-          }
+      for (Map.Entry<String, List<RulesDefinition.ExtendedRepository>> repoDefsByKey : getRepositoriesByKey(context).entrySet()) {
+        List<RulesDefinition.ExtendedRepository> repoDefs = repoDefsByKey.getValue();
+        String fingerprint = fingerprintOf(repoDefs);
+        if (fingerprint.equals(previousFingerprints.get(repoDefsByKey.getKey())) && isRegistered(repoDefs, allRules)) {
+          LOG.debug("Rules of repository {} did not change", repoDefsByKey.getKey());
+          repoDefs.forEach(repoDef -> repoDef.rules().forEach(ruleDef -> allRules.remove(keyOf(ruleDef))));
+        } else {
+          registerRules(repoDefs, allRules, paramsToPropagate, session);
           session.commit();
         }
+        fingerprints.put(repoDefsByKey.getKey(), fingerprint);
       }
+      propagateDefaultValuesOfNewParams(paramsToPropagate, session);
       List<RuleDto> activeRules = processRemainingDbRules(allRules.values(), session);
       List<ActiveRuleChange> changes = removeActiveRulesOnStillExistingRepositories(session, activeRules, context);
       session.commit();
 
       persistRepositories(session, context.repositories());
+      persistFingerprints(session, fingerprints);
       ruleIndexer.index();
       activeRuleIndexer.index(changes);
       profiler.stopDebug();
@@ -133,8 +157,33 @@ public class RegisterRules implements Startable {
     // nothing
   }
 
-  private void registerRule(RulesDefinition.Rule ruleDef, Map<RuleKey, RuleDto> allRules, DbSession session) {
-    RuleKey ruleKey = RuleKey.of(ruleDef.repository().key(), ruleDef.key());
+  private void registerRules(List<RulesDefinition.ExtendedRepository> repoDefs, Map<RuleKey, RuleDto> allRules,
+    List<RuleParamToPropagate> paramsToPropagate, DbSession session) {
+    // parameters of all the existing rules of the repository are loaded at once
+    List<Integer> existingRuleIds = new ArrayList<>();
+    for (RulesDefinition.ExtendedRepository repoDef : repoDefs) {
+      for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
+        RuleDto rule = allRules.get(keyOf(ruleDef));
+        if (rule != null) {
+          existingRuleIds.add(rule.getId());
+        }
+      }
+    }
+    ListMultimap<Integer, RuleParamDto> existingParamsByRuleId = ArrayListMultimap.create();
+    for (RuleParamDto paramDto : dbClient.ruleDao().selectRuleParamsByRuleIds(session, existingRuleIds)) {
+      existingParamsByRuleId.put(paramDto.getRuleId(), paramDto);
+    }
+
+    for (RulesDefinition.ExtendedRepository repoDef : repoDefs) {
+      for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
+        registerRule(ruleDef, allRules, existingParamsByRuleId, paramsToPropagate, session);
+      }
+    }
+  }
+
+  private void registerRule(RulesDefinition.Rule ruleDef, Map<RuleKey, RuleDto> allRules, ListMultimap<Integer, RuleParamDto> existingParamsByRuleId,
+    List<RuleParamToPropagate> paramsToPropagate, DbSession session) {
+    RuleKey ruleKey = keyOf(ruleDef);
 
     RuleDto rule = allRules.containsKey(ruleKey) ? allRules.remove(ruleKey) : createRuleDto(ruleDef, session);
 
@@ -155,7 +204,11 @@ public class RegisterRules implements Startable {
       update(session, rule);
     }
 
-    mergeParams(ruleDef, rule, session);
+    mergeParams(ruleDef, rule, existingParamsByRuleId.get(rule.getId()), paramsToPropagate, session);
+  }
+
+  private static RuleKey keyOf(RulesDefinition.Rule ruleDef) {
+    return RuleKey.of(ruleDef.repository().key(), ruleDef.key());
   }
 
   private Map<RuleKey, RuleDto> loadRules(DbSession session) {
@@ -166,21 +219,109 @@ public class RegisterRules implements Startable {
     return rules;
   }
 
-  private List<RulesDefinition.ExtendedRepository> getRepositories(RulesDefinition.Context context) {
-    List<RulesDefinition.ExtendedRepository> repositories = new ArrayList<>();
+  /**
+   * Repositories of languages which are installed, grouped with their extensions
+   */
+  private Map<String, List<RulesDefinition.ExtendedRepository>> getRepositoriesByKey(RulesDefinition.Context context) {
+    Map<String, List<RulesDefinition.ExtendedRepository>> repositories = new LinkedHashMap<>();
     for (RulesDefinition.Repository repoDef : context.repositories()) {
-      repositories.add(repoDef);
+      addIfLanguageIsInstalled(repositories, repoDef);
     }
     for (RulesDefinition.ExtendedRepository extendedRepoDef : context.extendedRepositories()) {
       if (context.repository(extendedRepoDef.key()) == null) {
         LOG.warn(String.format("Extension is ignored, repository %s does not exist", extendedRepoDef.key()));
       } else {
-        repositories.add(extendedRepoDef);
+        addIfLanguageIsInstalled(repositories, extendedRepoDef);
       }
     }
     return repositories;
   }
 
+  private void addIfLanguageIsInstalled(Map<String, List<RulesDefinition.ExtendedRepository>> repositories, RulesDefinition.ExtendedRepository repoDef) {
+    if (languages.get(repoDef.language()) != null) {
+      repositories.computeIfAbsent(repoDef.key(), k -> new ArrayList<>()).add(repoDef);
+    }
+  }
+
+  /**
+   * Whether all the rules of the repositories are in db, with the status they have in definitions. That's not the
+   * case when plugin has been uninstalled then installed again.
+   */
+  private static boolean isRegistered(List<RulesDefinition.ExtendedRepository> repoDefs, Map<RuleKey, RuleDto> allRules) {
+    for (RulesDefinition.ExtendedRepository repoDef : repoDefs) {
+      for (RulesDefinition.Rule ruleDef : repoDef.rules()) {
+        RuleDto rule = allRules.get(keyOf(ruleDef));
+        if (rule == null || rule.getStatus() != ruleDef.status()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Hash of all the fields of definitions that are synchronized in db
+   */
+  private static String fingerprintOf(List<RulesDefinition.ExtendedRepository> repoDefs) {
+    MessageDigest digest = DigestUtils.getMd5Digest();
+    for (RulesDefinition.ExtendedRepository repoDef : repoDefs) {
+      updateDigest(digest, repoDef.key(), repoDef.language());
+      List<RulesDefinition.Rule> ruleDefs = new ArrayList<>(repoDef.rules());
+      ruleDefs.sort(Comparator.comparing(RulesDefinition.Rule::key));
+      for (RulesDefinition.Rule ruleDef : ruleDefs) {
+        updateDigest(digest, ruleDef.key(), ruleDef.name(), ruleDef.htmlDescription(), ruleDef.markdownDescription(), ruleDef.internalKey(),
+          ruleDef.severity(), String.valueOf(ruleDef.template()), ruleDef.status().name(), ruleDef.type().name(), ruleDef.gapDescription());
+        DebtRemediationFunction debtRemediationFunction = ruleDef.debtRemediationFunction();
+        if (debtRemediationFunction != null) {
+          updateDigest(digest, debtRemediationFunction.type().name(), debtRemediationFunction.gapMultiplier(), debtRemediationFunction.baseEffort());
+        }
+        updateDigest(digest, new TreeSet<>(ruleDef.tags()).toArray(new String[0]));
+        List<RulesDefinition.Param> paramDefs = new ArrayList<>(ruleDef.params());
+        paramDefs.sort(Comparator.comparing(RulesDefinition.Param::key));
+        for (RulesDefinition.Param paramDef : paramDefs) {
+          updateDigest(digest, paramDef.key(), paramDef.type().toString(), paramDef.defaultValue(), paramDef.description());
+        }
+      }
+    }
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  private static void updateDigest(MessageDigest digest, String... values) {
+    for (String value : values) {
+      if (value != null) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+      }
+      digest.update(value == null ? NULL_MARKER : SEPARATOR);
+    }
+  }
+
+  private Map<String, String> loadFingerprints(DbSession session) {
+    Map<String, String> fingerprints = new HashMap<>();
+    String value = dbClient.internalPropertiesDao().selectByKey(session, InternalProperties.RULE_DEFINITION_FINGERPRINTS).orElse("");
+    for (String line : LINE_SPLITTER.split(value)) {
+      int separatorIndex = line.lastIndexOf('=');
+      if (separatorIndex > 0) {
+        fingerprints.put(line.substring(0, separatorIndex), line.substring(separatorIndex + 1));
+      }
+    }
+    return fingerprints;
+  }
+
+  /**
+   * Only the repositories registered during this startup are kept, so that the rules of a repository which is
+   * missing at a startup are fully synchronized when it comes back.
+   */
+  private void persistFingerprints(DbSession session, Map<String, String> fingerprints) {
+    StringBuilder value = new StringBuilder();
+    fingerprints.forEach((repositoryKey, fingerprint) -> value.append(repositoryKey).append('=').append(fingerprint).append('\n'));
+    if (value.length() == 0) {
+      dbClient.internalPropertiesDao().saveAsEmpty(session, InternalProperties.RULE_DEFINITION_FINGERPRINTS);
+    } else {
+      dbClient.internalPropertiesDao().save(session, InternalProperties.RULE_DEFINITION_FINGERPRINTS, value.toString());
+    }
+    session.commit();
+  }
+
   private RuleDto createRuleDto(RulesDefinition.Rule ruleDef, DbSession session) {
     RuleDto ruleDto = RuleDto.createFor(RuleKey.of(ruleDef.repository().key(), ruleDef.key()))
       .setIsTemplate(ruleDef.template())
@@ -296,8 +437,8 @@ public class RegisterRules implements Startable {
     return changed;
   }
 
-  private void mergeParams(RulesDefinition.Rule ruleDef, RuleDto rule, DbSession session) {
-    List<RuleParamDto> paramDtos = dbClient.ruleDao().selectRuleParamsByRuleKey(session, rule.getKey());
+  private void mergeParams(RulesDefinition.Rule ruleDef, RuleDto rule, List<RuleParamDto> paramDtos, List<RuleParamToPropagate> paramsToPropagate,
+    DbSession session) {
     Map<String, RuleParamDto> existingParamsByName = Maps.newHashMap();
 
     for (RuleParamDto paramDto : paramDtos) {
@@ -328,12 +469,30 @@ public class RegisterRules implements Startable {
       if (StringUtils.isEmpty(param.defaultValue())) {
         continue;
       }
-      // Propagate the default value to existing active rule parameters
-      for (ActiveRuleDto activeRule : dbClient.activeRuleDao().selectByRuleId(session, rule.getId())) {
-        ActiveRuleParamDto activeParam = ActiveRuleParamDto.createFor(paramDto).setValue(param.defaultValue());
+      // Default value is propagated to existing active rule parameters once all repositories are registered
+      paramsToPropagate.add(new RuleParamToPropagate(rule.getId(), paramDto));
+    }
+  }
+
+  /**
+   * Active rules of all the rules having new parameters are loaded at once
+   */
+  private void propagateDefaultValuesOfNewParams(List<RuleParamToPropagate> paramsToPropagate, DbSession session) {
+    if (paramsToPropagate.isEmpty()) {
+      return;
+    }
+    List<Integer> ruleIds = paramsToPropagate.stream().map(p -> p.ruleId).distinct().collect(Collectors.toList());
+    ListMultimap<Integer, ActiveRuleDto> activeRulesByRuleId = ArrayListMultimap.create();
+    for (ActiveRuleDto activeRule : dbClient.activeRuleDao().selectByRuleIds(session, ruleIds)) {
+      activeRulesByRuleId.put(activeRule.getRuleId(), activeRule);
+    }
+    for (RuleParamToPropagate paramToPropagate : paramsToPropagate) {
+      for (ActiveRuleDto activeRule : activeRulesByRuleId.get(paramToPropagate.ruleId)) {
+        ActiveRuleParamDto activeParam = ActiveRuleParamDto.createFor(paramToPropagate.param).setValue(paramToPropagate.param.getDefaultValue());
         dbClient.activeRuleDao().insertParam(session, activeRule, activeParam);
       }
     }
+    session.commit();
   }
 
   private boolean mergeParam(RuleParamDto paramDto, RulesDefinition.Param paramDef) {
@@ -482,4 +641,14 @@ public class RegisterRules implements Startable {
     rule.setUpdatedAt(system2.now());
     dbClient.ruleDao().update(session, rule);
   }
+
+  private static class RuleParamToPropagate {
+    private final int ruleId;
+    private final RuleParamDto param;
+
+    RuleParamToPropagate(int ruleId, RuleParamDto param) {
+      this.ruleId = ruleId;
+      this.param = param;
+    }
+  }
 }
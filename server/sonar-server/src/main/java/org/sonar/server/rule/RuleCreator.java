@@ -39,6 +39,7 @@ import org.sonar.db.rule.RuleParamDto;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.Errors;
 import org.sonar.server.exceptions.Message;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.rule.index.RuleIndexer;
 import org.sonar.server.util.TypeValidations;
 
@@ -51,12 +52,14 @@ public class RuleCreator {
   private final RuleIndexer ruleIndexer;
   private final DbClient dbClient;
   private final TypeValidations typeValidations;
+  private final IssueReferenceCache issueReferenceCache;
 
-  public RuleCreator(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, TypeValidations typeValidations) {
+  public RuleCreator(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, TypeValidations typeValidations, IssueReferenceCache issueReferenceCache) {
     this.system2 = system2;
     this.ruleIndexer = ruleIndexer;
     this.dbClient = dbClient;
     this.typeValidations = typeValidations;
+    this.issueReferenceCache = issueReferenceCache;
   }
 
   public RuleKey create(NewCustomRule newRule) {
@@ -89,6 +92,8 @@ public class RuleCreator {
     }
 
     dbSession.commit();
+    // a removed custom rule may have been reactivated
+    issueReferenceCache.invalidateRule(customRuleKey);
     ruleIndexer.index();
     return customRuleKey;
   }
@@ -26,6 +26,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.rule.RuleDto;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.qualityprofile.RuleActivator;
 import org.sonar.server.rule.index.RuleIndexer;
 
@@ -36,12 +37,14 @@ public class RuleDeleter {
   private final RuleIndexer ruleIndexer;
   private final DbClient dbClient;
   private final RuleActivator ruleActivator;
+  private final IssueReferenceCache issueReferenceCache;
 
-  public RuleDeleter(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, RuleActivator ruleActivator) {
+  public RuleDeleter(System2 system2, RuleIndexer ruleIndexer, DbClient dbClient, RuleActivator ruleActivator, IssueReferenceCache issueReferenceCache) {
     this.system2 = system2;
     this.ruleIndexer = ruleIndexer;
     this.dbClient = dbClient;
     this.ruleActivator = ruleActivator;
+    this.issueReferenceCache = issueReferenceCache;
   }
 
   public void delete(RuleKey ruleKey) {
@@ -62,6 +65,7 @@ public class RuleDeleter {
       dbClient.ruleDao().update(dbSession, rule);
 
       dbSession.commit();
+      issueReferenceCache.invalidateRule(ruleKey);
       ruleIndexer.index();
 
     } finally {
@@ -46,6 +46,7 @@ import org.sonar.db.qualityprofile.ActiveRuleDtoFunctions.ActiveRuleDtoToId;
 import org.sonar.db.qualityprofile.ActiveRuleParamDto;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleParamDto;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.rule.index.RuleIndexer;
 import org.sonar.server.user.UserSession;
 
@@ -59,11 +60,13 @@ public class RuleUpdater {
   private final DbClient dbClient;
   private final RuleIndexer ruleIndexer;
   private final System2 system;
+  private final IssueReferenceCache issueReferenceCache;
 
-  public RuleUpdater(DbClient dbClient, RuleIndexer ruleIndexer, System2 system) {
+  public RuleUpdater(DbClient dbClient, RuleIndexer ruleIndexer, System2 system, IssueReferenceCache issueReferenceCache) {
     this.dbClient = dbClient;
     this.ruleIndexer = ruleIndexer;
     this.system = system;
+    this.issueReferenceCache = issueReferenceCache;
   }
 
   /**
@@ -96,6 +99,7 @@ public class RuleUpdater {
     update(dbSession, context.rule);
     updateParameters(dbSession, update, context);
     dbSession.commit();
+    issueReferenceCache.invalidateRule(context.rule.getKey());
     ruleIndexer.index();
     return true;
   }
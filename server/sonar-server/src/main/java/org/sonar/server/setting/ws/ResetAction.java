@@ -35,6 +35,7 @@ import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.server.batch.ProjectRepositoriesCache;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.setting.ws.SettingValidations.SettingData;
 import org.sonar.server.user.UserSession;
@@ -55,15 +56,17 @@ public class ResetAction implements SettingsWsAction {
   private final UserSession userSession;
   private final PropertyDefinitions definitions;
   private final SettingValidations validations;
+  private final ProjectRepositoriesCache projectRepositoriesCache;
 
   public ResetAction(DbClient dbClient, ComponentFinder componentFinder, SettingsUpdater settingsUpdater, UserSession userSession, PropertyDefinitions definitions,
-    SettingValidations validations) {
+    SettingValidations validations, ProjectRepositoriesCache projectRepositoriesCache) {
     this.dbClient = dbClient;
     this.settingsUpdater = settingsUpdater;
     this.userSession = userSession;
     this.componentFinder = componentFinder;
     this.definitions = definitions;
     this.validations = validations;
+    this.projectRepositoriesCache = projectRepositoriesCache;
   }
 
   @Override
@@ -108,6 +111,7 @@ public class ResetAction implements SettingsWsAction {
         settingsUpdater.deleteGlobalSettings(dbSession, keys);
       }
       dbSession.commit();
+      component.ifPresent(c -> projectRepositoriesCache.invalidateProject(c.projectUuid()));
       response.noContent();
     } finally {
       dbClient.closeSession(dbSession);
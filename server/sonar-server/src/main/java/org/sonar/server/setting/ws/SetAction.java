@@ -52,6 +52,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.scanner.protocol.GsonHelper;
+import org.sonar.server.batch.ProjectRepositoriesCache;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.platform.SettingsChangeNotifier;
@@ -80,9 +81,11 @@ public class SetAction implements SettingsWsAction {
   private final SettingsUpdater settingsUpdater;
   private final SettingsChangeNotifier settingsChangeNotifier;
   private final SettingValidations validations;
+  private final ProjectRepositoriesCache projectRepositoriesCache;
 
   public SetAction(PropertyDefinitions propertyDefinitions, DbClient dbClient, ComponentFinder componentFinder, UserSession userSession,
-    SettingsUpdater settingsUpdater, SettingsChangeNotifier settingsChangeNotifier, SettingValidations validations) {
+    SettingsUpdater settingsUpdater, SettingsChangeNotifier settingsChangeNotifier, SettingValidations validations,
+    ProjectRepositoriesCache projectRepositoriesCache) {
     this.propertyDefinitions = propertyDefinitions;
     this.dbClient = dbClient;
     this.componentFinder = componentFinder;
@@ -90,6 +93,7 @@ public class SetAction implements SettingsWsAction {
     this.settingsUpdater = settingsUpdater;
     this.settingsChangeNotifier = settingsChangeNotifier;
     this.validations = validations;
+    this.projectRepositoriesCache = projectRepositoriesCache;
   }
 
   @Override
@@ -169,7 +173,9 @@ public class SetAction implements SettingsWsAction {
 
     dbSession.commit();
 
-    if (!component.isPresent()) {
+    if (component.isPresent()) {
+      projectRepositoriesCache.invalidateProject(component.get().projectUuid());
+    } else {
       settingsChangeNotifier.onGlobalPropertyChange(persistedKey(request), value);
     }
   }
@@ -19,11 +19,8 @@
  */
 package org.sonar.server.user;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.SetMultimap;
-import java.util.ArrayList;
-import java.util.Collection;
+import com.google.common.collect.ImmutableSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
@@ -54,29 +51,25 @@ public class ServerUserSession extends AbstractUserSession {
   private final UserDto userDto;
   private final DbClient dbClient;
   private final ResourceDao resourceDao;
+  private final UserPermissions permissions;
   private final Set<String> userGroups;
-  private List<String> globalPermissions = null;
-  private SetMultimap<String, String> projectKeyByPermission = HashMultimap.create();
-  private SetMultimap<String, String> projectUuidByPermission = HashMultimap.create();
-  private SetMultimap<String, String> permissionsByOrganizationUuid;
   private Map<String, String> projectUuidByComponentUuid = newHashMap();
-  private List<String> projectPermissionsCheckedByKey = new ArrayList<>();
-  private List<String> projectPermissionsCheckedByUuid = new ArrayList<>();
 
-  private ServerUserSession(DbClient dbClient, @Nullable UserDto userDto) {
+  private ServerUserSession(DbClient dbClient, UserPermissionCache permissionCache, @Nullable UserDto userDto) {
     this.userDto = userDto;
     this.dbClient = dbClient;
     this.resourceDao = dbClient.resourceDao();
-    this.userGroups = loadUserGroups();
+    this.permissions = permissionCache.get(getLogin());
+    this.userGroups = permissions.getGroups(this::loadUserGroups);
   }
 
-  public static ServerUserSession createForUser(DbClient dbClient, UserDto userDto) {
+  public static ServerUserSession createForUser(DbClient dbClient, UserPermissionCache permissionCache, UserDto userDto) {
     requireNonNull(userDto, "UserDto must not be null");
-    return new ServerUserSession(dbClient, userDto);
+    return new ServerUserSession(dbClient, permissionCache, userDto);
   }
 
-  public static ServerUserSession createForAnonymous(DbClient dbClient) {
-    return new ServerUserSession(dbClient, null);
+  public static ServerUserSession createForAnonymous(DbClient dbClient, UserPermissionCache permissionCache) {
+    return new ServerUserSession(dbClient, permissionCache, null);
   }
 
   private Set<String> loadUserGroups() {
@@ -131,35 +124,21 @@ public class ServerUserSession extends AbstractUserSession {
 
   @Override
   public boolean hasOrganizationPermission(String organizationUuid, String permission) {
-    if (permissionsByOrganizationUuid == null) {
-      permissionsByOrganizationUuid = HashMultimap.create();
-    }
-    Set<String> permissions;
-    if (permissionsByOrganizationUuid.containsKey(organizationUuid)) {
-      permissions = permissionsByOrganizationUuid.get(organizationUuid);
-    } else {
-      permissions = loadOrganizationPermissions(organizationUuid);
-      permissionsByOrganizationUuid.putAll(organizationUuid, permissions);
-    }
-    return permissions.contains(permission);
- }
+    return permissions.getOrganizationPermissions(organizationUuid, this::loadOrganizationPermissions).contains(permission);
+  }
 
   private Set<String> loadOrganizationPermissions(String organizationUuid) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       if (userDto != null && userDto.getId() != null) {
-        return dbClient.authorizationDao().selectOrganizationPermissions(dbSession, organizationUuid, userDto.getId());
+        return ImmutableSet.copyOf(dbClient.authorizationDao().selectOrganizationPermissions(dbSession, organizationUuid, userDto.getId()));
       }
-      return dbClient.authorizationDao().selectOrganizationPermissionsOfAnonymous(dbSession, organizationUuid);
+      return ImmutableSet.copyOf(dbClient.authorizationDao().selectOrganizationPermissionsOfAnonymous(dbSession, organizationUuid));
     }
   }
 
   @Override
   public List<String> globalPermissions() {
-    if (globalPermissions == null) {
-      List<String> permissionKeys = dbClient.authorizationDao().selectGlobalPermissions(getLogin());
-      globalPermissions = ImmutableList.copyOf(permissionKeys);
-    }
-    return globalPermissions;
+    return permissions.getGlobalPermissions(() -> ImmutableList.copyOf(dbClient.authorizationDao().selectGlobalPermissions(getLogin())));
   }
 
   @Override
@@ -188,16 +167,13 @@ public class ServerUserSession extends AbstractUserSession {
     if (isRoot()) {
       return true;
     }
-    if (!projectPermissionsCheckedByKey.contains(permission)) {
-      try (DbSession dbSession = dbClient.openSession(false)) {
-        Collection<String> projectKeys = dbClient.authorizationDao().selectAuthorizedRootProjectsKeys(dbSession, getUserId(), permission);
-        for (String key : projectKeys) {
-          projectKeyByPermission.put(permission, key);
-        }
-        projectPermissionsCheckedByKey.add(permission);
-      }
+    return permissions.getProjectKeys(permission, this::loadAuthorizedProjectKeys).contains(projectKey);
+  }
+
+  private Set<String> loadAuthorizedProjectKeys(String permission) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return ImmutableSet.copyOf(dbClient.authorizationDao().selectAuthorizedRootProjectsKeys(dbSession, getUserId(), permission));
     }
-    return projectKeyByPermission.get(permission).contains(projectKey);
   }
 
   @Override
@@ -224,20 +200,13 @@ public class ServerUserSession extends AbstractUserSession {
 
   // To keep private
   private boolean hasProjectPermissionByUuid(String permission, String projectUuid) {
-    if (!projectPermissionsCheckedByUuid.contains(permission)) {
-      try (DbSession dbSession = dbClient.openSession(false)) {
-        Collection<String> projectUuids = dbClient.authorizationDao().selectAuthorizedRootProjectsUuids(dbSession, getUserId(), permission);
-        addProjectPermission(permission, projectUuids);
-      }
-    }
-    return projectUuidByPermission.get(permission).contains(projectUuid);
+    return permissions.getProjectUuids(permission, this::loadAuthorizedProjectUuids).contains(projectUuid);
   }
 
-  private void addProjectPermission(String permission, Collection<String> authorizedProjectUuids) {
-    for (String key : authorizedProjectUuids) {
-      projectUuidByPermission.put(permission, key);
+  private Set<String> loadAuthorizedProjectUuids(String permission) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return ImmutableSet.copyOf(dbClient.authorizationDao().selectAuthorizedRootProjectsUuids(dbSession, getUserId(), permission));
     }
-    projectPermissionsCheckedByUuid.add(permission);
   }
 
 }
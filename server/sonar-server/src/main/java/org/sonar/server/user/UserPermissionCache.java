@@ -0,0 +1,81 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.sonar.api.server.ServerSide;
+
+/**
+ * Short-lived snapshots of the groups and permissions of users, shared by the sessions of
+ * all HTTP requests, whether they are served by Java web services or by Ruby on Rails.
+ * <ul>
+ *   <li>snapshots are dropped by the web server when permissions, permission templates or group
+ *   memberships are changed</li>
+ *   <li>permissions applied by the Compute Engine, which runs in another process, are visible once the
+ *   snapshots expire</li>
+ * </ul>
+ */
+@ServerSide
+public class UserPermissionCache {
+
+  static final int MAX_USERS = 1_000;
+  static final long EXPIRATION_SECONDS = 30L;
+
+  /**
+   * Logins have at least two characters, so the empty string can't be used by an authenticated user
+   */
+  private static final String ANONYMOUS_KEY = "";
+
+  private final LoadingCache<String, UserPermissions> permissionsByLogin = CacheBuilder.newBuilder()
+    .maximumSize(MAX_USERS)
+    .expireAfterWrite(EXPIRATION_SECONDS, TimeUnit.SECONDS)
+    .recordStats()
+    .build(CacheLoader.from(login -> new UserPermissions()));
+
+  /**
+   * @param login login of user, {@code null} for anonymous
+   */
+  UserPermissions get(@Nullable String login) {
+    return permissionsByLogin.getUnchecked(login == null ? ANONYMOUS_KEY : login);
+  }
+
+  /**
+   * To be called when the group memberships of a user are changed
+   */
+  public void invalidate(String login) {
+    permissionsByLogin.invalidate(login);
+  }
+
+  /**
+   * To be called when the permissions of groups, of users or of projects are changed
+   */
+  public void invalidateAll() {
+    permissionsByLogin.invalidateAll();
+  }
+
+  public CacheStats getStats() {
+    return permissionsByLogin.stats();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Groups and permissions of a user, loaded on demand. Instances are shared by the sessions
+ * of concurrent requests (see {@link UserPermissionCache}), so loaded values must be immutable.
+ */
+class UserPermissions {
+
+  private volatile Set<String> groups;
+  private volatile List<String> globalPermissions;
+  private final ConcurrentMap<String, Set<String>> permissionsByOrganizationUuid = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<String>> projectKeysByPermission = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<String>> projectUuidsByPermission = new ConcurrentHashMap<>();
+
+  Set<String> getGroups(Supplier<Set<String>> loader) {
+    Set<String> result = groups;
+    if (result == null) {
+      result = loader.get();
+      groups = result;
+    }
+    return result;
+  }
+
+  List<String> getGlobalPermissions(Supplier<List<String>> loader) {
+    List<String> result = globalPermissions;
+    if (result == null) {
+      result = loader.get();
+      globalPermissions = result;
+    }
+    return result;
+  }
+
+  Set<String> getOrganizationPermissions(String organizationUuid, Function<String, Set<String>> loader) {
+    return permissionsByOrganizationUuid.computeIfAbsent(organizationUuid, loader);
+  }
+
+  /**
+   * Keys of the root projects on which the user has the given permission
+   */
+  Set<String> getProjectKeys(String permission, Function<String, Set<String>> loader) {
+    return projectKeysByPermission.computeIfAbsent(permission, loader);
+  }
+
+  /**
+   * UUIDs of the root projects on which the user has the given permission
+   */
+  Set<String> getProjectUuids(String permission, Function<String, Set<String>> loader) {
+    return projectUuidsByPermission.computeIfAbsent(permission, loader);
+  }
+}
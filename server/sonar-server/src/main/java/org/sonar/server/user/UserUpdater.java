@@ -44,6 +44,7 @@ import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.Message;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.exceptions.ServerException;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.util.Validation;
@@ -73,15 +74,19 @@ public class UserUpdater {
   private final UserIndexer userIndexer;
   private final System2 system2;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final IssueReferenceCache issueReferenceCache;
+  private final UserPermissionCache userPermissionCache;
 
   public UserUpdater(NewUserNotifier newUserNotifier, Settings settings, DbClient dbClient, UserIndexer userIndexer, System2 system2,
-    DefaultOrganizationProvider defaultOrganizationProvider) {
+    DefaultOrganizationProvider defaultOrganizationProvider, IssueReferenceCache issueReferenceCache, UserPermissionCache userPermissionCache) {
     this.newUserNotifier = newUserNotifier;
     this.settings = settings;
     this.dbClient = dbClient;
     this.userIndexer = userIndexer;
     this.system2 = system2;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.issueReferenceCache = issueReferenceCache;
+    this.userPermissionCache = userPermissionCache;
   }
 
   /**
@@ -108,6 +113,9 @@ public class UserUpdater {
       isUserReactivated = reactivateUser(dbSession, existingUser, login, newUser);
     }
     dbSession.commit();
+    issueReferenceCache.invalidateUser(login);
+    // user has been added to the default group
+    userPermissionCache.invalidate(login);
     notifyNewUser(userDto.getLogin(), userDto.getName(), newUser.email());
     userIndexer.index();
     return isUserReactivated;
@@ -152,6 +160,7 @@ public class UserUpdater {
     updateUserDto(dbSession, updateUser, user);
     updateUser(dbSession, user);
     dbSession.commit();
+    issueReferenceCache.invalidateUser(user.getLogin());
     notifyNewUser(user.getLogin(), user.getName(), user.getEmail());
     userIndexer.index();
   }
@@ -164,6 +173,7 @@ public class UserUpdater {
     } finally {
       dbClient.closeSession(dbSession);
     }
+    issueReferenceCache.invalidateUser(login);
     userIndexer.index();
   }
 
@@ -28,6 +28,7 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserGroupDto;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.UserSession;
 
 import static java.lang.String.format;
@@ -43,11 +44,13 @@ public class AddUserAction implements UserGroupsWsAction {
   private final DbClient dbClient;
   private final UserSession userSession;
   private final GroupWsSupport support;
+  private final UserPermissionCache userPermissionCache;
 
-  public AddUserAction(DbClient dbClient, UserSession userSession, GroupWsSupport support) {
+  public AddUserAction(DbClient dbClient, UserSession userSession, GroupWsSupport support, UserPermissionCache userPermissionCache) {
     this.dbClient = dbClient;
     this.userSession = userSession;
     this.support = support;
+    this.userPermissionCache = userPermissionCache;
   }
 
   @Override
@@ -78,6 +81,7 @@ public class AddUserAction implements UserGroupsWsAction {
         UserGroupDto membershipDto = new UserGroupDto().setGroupId(groupId.getId()).setUserId(user.getId());
         dbClient.userGroupDao().insert(dbSession, membershipDto);
         dbSession.commit();
+        userPermissionCache.invalidate(login);
       }
 
       response.noContent();
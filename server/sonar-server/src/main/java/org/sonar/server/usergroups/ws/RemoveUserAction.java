@@ -27,6 +27,7 @@ import org.sonar.core.permission.GlobalPermissions;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.user.UserDto;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.UserSession;
 
 import static java.lang.String.format;
@@ -42,11 +43,13 @@ public class RemoveUserAction implements UserGroupsWsAction {
   private final DbClient dbClient;
   private final UserSession userSession;
   private final GroupWsSupport support;
+  private final UserPermissionCache userPermissionCache;
 
-  public RemoveUserAction(DbClient dbClient, UserSession userSession, GroupWsSupport support) {
+  public RemoveUserAction(DbClient dbClient, UserSession userSession, GroupWsSupport support, UserPermissionCache userPermissionCache) {
     this.dbClient = dbClient;
     this.userSession = userSession;
     this.support = support;
+    this.userPermissionCache = userPermissionCache;
   }
 
   @Override
@@ -74,6 +77,7 @@ public class RemoveUserAction implements UserGroupsWsAction {
 
       dbClient.userGroupDao().delete(dbSession, group.getId(), user.getId());
       dbSession.commit();
+      userPermissionCache.invalidate(login);
 
       response.noContent();
     }
@@ -0,0 +1,137 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.util.cache;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.CloseableIterator;
+
+/**
+ * Serialize and deserialize objects on disk as size-delimited protobuf messages. No search capabilities, only
+ * traversal (full scan).
+ * <p>
+ * Compared to {@link DiskCache}, the file is much smaller and objects are written and read without the overhead
+ * of Java serialization. Files are appended and traversed through buffers of 64KB. They are not memory-mapped,
+ * as the mapping would lock the file on Windows until being garbage-collected.
+ * </p>
+ */
+public abstract class ProtobufDiskCache<O, M extends Message> {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File file;
+  private final System2 system2;
+
+  protected ProtobufDiskCache(File file, System2 system2) {
+    this.system2 = system2;
+    this.file = file;
+    try {
+      // creates the file, or empties it if it already exists
+      FileUtils.write(file, "");
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write into file: " + file, e);
+    }
+  }
+
+  protected abstract M toProtobuf(O object);
+
+  protected abstract O fromProtobuf(M message);
+
+  protected abstract Parser<M> parser();
+
+  public DiskAppender newAppender() {
+    return new DiskAppender();
+  }
+
+  public CloseableIterator<O> traverse() {
+    try {
+      return new ProtobufIterator(openInputStream());
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to traverse file: " + file, e);
+    }
+  }
+
+  private InputStream openInputStream() throws IOException {
+    return new BufferedInputStream(FileUtils.openInputStream(file), BUFFER_SIZE);
+  }
+
+  public class DiskAppender implements AutoCloseable {
+    private final OutputStream output;
+
+    private DiskAppender() {
+      try {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.output = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to open file " + file, e);
+      }
+    }
+
+    public DiskAppender append(O object) {
+      try {
+        toProtobuf(object).writeDelimitedTo(output);
+        return this;
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to write into file " + file, e);
+      }
+    }
+
+    @Override
+    public void close() {
+      system2.close(output);
+    }
+  }
+
+  private class ProtobufIterator extends CloseableIterator<O> {
+    private final InputStream input;
+
+    private ProtobufIterator(InputStream input) {
+      this.input = input;
+    }
+
+    @Override
+    protected O doNext() {
+      try {
+        M message = parser().parseDelimitedFrom(input);
+        return message == null ? null : fromProtobuf(message);
+      } catch (InvalidProtocolBufferException e) {
+        throw new IllegalStateException("Fail to read file " + file, e);
+      }
+    }
+
+    @Override
+    protected void doClose() {
+      IOUtils.closeQuietly(input);
+    }
+  }
+}
@@ -25,6 +25,7 @@ import com.google.common.net.HttpHeaders;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import javax.annotation.CheckForNull;
 import javax.servlet.http.HttpServletRequest;
 import org.sonar.api.server.ws.internal.PartImpl;
@@ -129,6 +130,11 @@ public class ServletRequest extends ValidatingRequest {
     return SUPPORTED_MEDIA_TYPES_BY_URL_SUFFIX.get(formatSuffix.toLowerCase(ENGLISH));
   }
 
+  @Override
+  public Optional<String> header(String name) {
+    return Optional.ofNullable(source.getHeader(name));
+  }
+
   @Override
   public String getPath() {
     return source.getRequestURI().replaceFirst(source.getContextPath(), "");
@@ -40,6 +40,7 @@ import org.sonar.db.component.ComponentTesting;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.startsWith;
+import static org.sonar.server.property.InternalProperties.CE_QUEUE_LAST_SUBMISSION;
 
 public class CeQueueImplTest {
 
@@ -120,6 +121,26 @@ public class CeQueueImplTest {
     verifyCeTask(taskSubmit2, tasks.get(1), null);
   }
 
+  @Test
+  public void submit_and_massSubmit_notify_uuid_of_last_submitted_task() {
+    dbTester.getDbClient().internalPropertiesDao().saveAsEmpty(session, CE_QUEUE_LAST_SUBMISSION);
+    session.commit();
+
+    CeTask task = underTest.submit(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_1", null));
+    assertThat(dbTester.getDbClient().internalPropertiesDao().selectByKey(session, CE_QUEUE_LAST_SUBMISSION)).contains(task.getUuid());
+
+    List<CeTask> tasks = underTest.massSubmit(asList(createTaskSubmit("something"), createTaskSubmit("something else")));
+    assertThat(dbTester.getDbClient().internalPropertiesDao().selectByKey(session, CE_QUEUE_LAST_SUBMISSION)).contains(tasks.get(1).getUuid());
+  }
+
+  @Test
+  public void submit_does_not_create_notification_property_when_it_does_not_exist() {
+    CeTask task = underTest.submit(createTaskSubmit(CeTaskTypes.REPORT, "PROJECT_1", null));
+
+    assertThat(task).isNotNull();
+    assertThat(dbTester.getDbClient().internalPropertiesDao().selectByKey(session, CE_QUEUE_LAST_SUBMISSION)).isEmpty();
+  }
+
   @Test
   public void cancel_pending() throws Exception {
     CeTask task = submit(CeTaskTypes.REPORT, "PROJECT_1");
@@ -33,9 +33,11 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.DefaultOrganizationProviderRule;
 import org.sonar.server.user.NewUserNotifier;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserIndexer;
 
@@ -77,7 +79,9 @@ public class UserIdentityAuthenticatorTest {
     db.getDbClient(),
     mock(UserIndexer.class),
     system2,
-    defaultOrganizationProvider);
+    defaultOrganizationProvider,
+    mock(IssueReferenceCache.class),
+    mock(UserPermissionCache.class));
   private UserIdentityAuthenticator underTest = new UserIdentityAuthenticator(db.getDbClient(), userUpdater);
   private GroupDto defaultGroup;
 
@@ -19,11 +19,17 @@
  */
 package org.sonar.server.batch;
 
+import com.google.common.collect.ImmutableMap;
+import java.net.HttpURLConnection;
+import java.util.function.Function;
+import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.sonar.scanner.protocol.input.FileData;
 import org.sonar.scanner.protocol.input.ProjectRepositories;
+import org.sonar.server.batch.ProjectRepositoriesCache.SerializedProjectRepositories;
+import org.sonar.server.ws.TestRequest;
 import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsActionTester;
 import org.sonarqube.ws.MediaTypes;
@@ -32,6 +38,7 @@ import org.sonarqube.ws.WsBatch.WsProjectResponse;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.test.JsonAssert.assertJson;
 
@@ -54,7 +61,7 @@ public class ProjectActionTest {
     when(projectReferentials.toJson()).thenReturn("{\"settingsByModule\": {}}");
 
     ArgumentCaptor<ProjectDataQuery> queryArgumentCaptor = ArgumentCaptor.forClass(ProjectDataQuery.class);
-    when(projectDataLoader.load(queryArgumentCaptor.capture())).thenReturn(projectReferentials);
+    mockLoadedRepositories(projectReferentials);
 
     TestResponse response = ws.newRequest()
       .setParam("key", projectKey)
@@ -62,7 +69,9 @@ public class ProjectActionTest {
       .setParam("preview", "false")
       .execute();
     assertJson(response.getInput()).isSimilarTo("{\"settingsByModule\": {}}");
+    assertThat(response.getHeader("ETag")).isNull();
 
+    verify(projectDataLoader).loadSerialized(queryArgumentCaptor.capture(), any(Function.class));
     assertThat(queryArgumentCaptor.getValue().getModuleKey()).isEqualTo(projectKey);
     assertThat(queryArgumentCaptor.getValue().getProfileName()).isEqualTo("Default");
     assertThat(queryArgumentCaptor.getValue().isIssuesMode()).isFalse();
@@ -76,7 +85,7 @@ public class ProjectActionTest {
     String projectKey = "org.codehaus.sonar:sonar";
 
     ProjectRepositories projectRepositories = new ProjectRepositories().addFileData("module-1", null, new FileData(null, null));
-    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+    mockLoadedRepositories(projectRepositories);
 
     TestResponse result = ws.newRequest()
       .setMediaType(MediaTypes.PROTOBUF)
@@ -87,4 +96,59 @@ public class ProjectActionTest {
     WsProjectResponse wsProjectResponse = WsProjectResponse.parseFrom(result.getInputStream());
     assertThat(wsProjectResponse.getFileDataByModuleAndPath()).isEmpty();
   }
+
+  @Test
+  public void protobuf_response_has_etag() throws Exception {
+    mockLoadedRepositories(new ProjectRepositories()
+      .addSettings("module-1", ImmutableMap.of("sonar.foo", "bar"))
+      .addFileData("module-1", "src/Foo.java", new FileData("abcd", "rev1")));
+
+    TestResponse result = callAsProtobuf(null);
+
+    assertThat(result.getStatus()).isEqualTo(HttpURLConnection.HTTP_OK);
+    assertThat(result.getHeader("ETag")).isNotEmpty();
+    WsProjectResponse wsProjectResponse = WsProjectResponse.parseFrom(result.getInputStream());
+    assertThat(wsProjectResponse.getSettingsByModule().get("module-1").getSettings()).containsEntry("sonar.foo", "bar");
+    assertThat(wsProjectResponse.getFileDataByModuleAndPath().get("module-1").getFileDataByPath().get("src/Foo.java").getHash()).isEqualTo("abcd");
+  }
+
+  @Test
+  public void return_304_when_etag_is_not_modified() throws Exception {
+    mockLoadedRepositories(new ProjectRepositories()
+      .addFileData("module-1", "src/Foo.java", new FileData("abcd", "rev1")));
+    String etag = callAsProtobuf(null).getHeader("ETag");
+
+    TestResponse result = callAsProtobuf(etag);
+
+    assertThat(result.getStatus()).isEqualTo(HttpURLConnection.HTTP_NOT_MODIFIED);
+    assertThat(result.getInput()).isEmpty();
+  }
+
+  @Test
+  public void return_project_repositories_when_etag_is_modified() throws Exception {
+    mockLoadedRepositories(new ProjectRepositories()
+      .addFileData("module-1", "src/Foo.java", new FileData("abcd", "rev1")));
+
+    TestResponse result = callAsProtobuf("\"outdated\"");
+
+    assertThat(result.getStatus()).isEqualTo(HttpURLConnection.HTTP_OK);
+    assertThat(WsProjectResponse.parseFrom(result.getInputStream()).getFileDataByModuleAndPath()).containsOnlyKeys("module-1");
+  }
+
+  private TestResponse callAsProtobuf(@Nullable String ifNoneMatch) {
+    TestRequest request = ws.newRequest()
+      .setMediaType(MediaTypes.PROTOBUF)
+      .setParam("key", "org.codehaus.sonar:sonar");
+    if (ifNoneMatch != null) {
+      request.setHeader("If-None-Match", ifNoneMatch);
+    }
+    return request.execute();
+  }
+
+  private void mockLoadedRepositories(ProjectRepositories repositories) {
+    when(projectDataLoader.loadSerialized(any(ProjectDataQuery.class), any(Function.class))).thenAnswer(invocation -> {
+      Function<ProjectRepositories, byte[]> serializer = (Function<ProjectRepositories, byte[]>) invocation.getArguments()[1];
+      return new SerializedProjectRepositories(null, serializer.apply(repositories));
+    });
+  }
 }
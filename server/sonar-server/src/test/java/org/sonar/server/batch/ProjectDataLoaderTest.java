@@ -19,6 +19,9 @@
  */
 package org.sonar.server.batch;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import org.assertj.core.api.Assertions;
 import org.junit.After;
 import org.junit.Rule;
@@ -31,13 +34,22 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.SnapshotDto;
+import org.sonar.scanner.protocol.input.ProjectRepositories;
+import org.sonar.server.batch.ProjectRepositoriesCache.SerializedProjectRepositories;
 import org.sonar.server.exceptions.BadRequestException;
+import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.user.UserSession;
 
 import static java.lang.String.format;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.db.component.ComponentTesting.newProjectDto;
+import static org.sonar.db.component.SnapshotTesting.newAnalysis;
 
 public class ProjectDataLoaderTest {
   @Rule
@@ -48,7 +60,15 @@ public class ProjectDataLoaderTest {
   private DbClient dbClient = dbTester.getDbClient();
   private DbSession dbSession = dbTester.getSession();
 
-  private ProjectDataLoader underTest = new ProjectDataLoader(dbClient, mock(UserSession.class));
+  private UserSession userSession = mock(UserSession.class);
+  private ProjectRepositoriesCache cache = new ProjectRepositoriesCache();
+  private AtomicInteger serializations = new AtomicInteger();
+  private Function<ProjectRepositories, byte[]> serializer = repositories -> {
+    serializations.incrementAndGet();
+    return repositories.toJson().getBytes(StandardCharsets.UTF_8);
+  };
+
+  private ProjectDataLoader underTest = new ProjectDataLoader(dbClient, userSession, cache);
 
   @After
   public void tearDown() throws Exception {
@@ -115,4 +135,41 @@ public class ProjectDataLoaderTest {
       }
     }
   }
+
+  @Test
+  public void loadSerialized_shares_serialization_until_new_analysis() {
+    ComponentDto project = newProjectDto();
+    dbTester.components().insertProjectAndSnapshot(project);
+    when(userSession.hasComponentUuidPermission(anyString(), anyString())).thenReturn(true);
+    ProjectDataQuery query = ProjectDataQuery.create().setModuleKey(project.key());
+
+    SerializedProjectRepositories first = underTest.loadSerialized(query, serializer);
+    SerializedProjectRepositories second = underTest.loadSerialized(query, serializer);
+
+    assertThat(second).isSameAs(first);
+    assertThat(serializations.get()).isEqualTo(1);
+
+    SnapshotDto newAnalysis = dbClient.snapshotDao().insert(dbSession, newAnalysis(project).setLast(false));
+    dbClient.snapshotDao().switchIsLastFlagAndSetProcessedStatus(dbSession, project.uuid(), newAnalysis.getUuid());
+    dbSession.commit();
+
+    SerializedProjectRepositories third = underTest.loadSerialized(query, serializer);
+    assertThat(third).isNotSameAs(first);
+    assertThat(third.getAnalysisUuid()).isEqualTo(newAnalysis.getUuid());
+    assertThat(serializations.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void loadSerialized_checks_permissions_even_if_serialization_is_shared() {
+    ComponentDto project = newProjectDto();
+    dbTester.components().insertProjectAndSnapshot(project);
+    ProjectDataQuery query = ProjectDataQuery.create().setModuleKey(project.key());
+    when(userSession.hasComponentUuidPermission(anyString(), anyString())).thenReturn(true);
+    underTest.loadSerialized(query, serializer);
+
+    when(userSession.hasComponentUuidPermission(anyString(), anyString())).thenReturn(false);
+    expectedException.expect(ForbiddenException.class);
+
+    underTest.loadSerialized(query, serializer);
+  }
 }
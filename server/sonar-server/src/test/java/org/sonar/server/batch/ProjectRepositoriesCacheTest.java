@@ -0,0 +1,93 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.sonar.server.batch.ProjectRepositoriesCache.SerializedProjectRepositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProjectRepositoriesCacheTest {
+
+  private static final byte[] BYTES = "foo".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] OTHER_BYTES = "bar".getBytes(StandardCharsets.UTF_8);
+
+  private ProjectRepositoriesCache underTest = new ProjectRepositoriesCache();
+
+  @Test
+  public void load_once_per_module_and_analysis() {
+    SerializedProjectRepositories first = underTest.get("P1", "module", true, "A1", () -> BYTES);
+    SerializedProjectRepositories second = underTest.get("P1", "module", true, "A1", () -> OTHER_BYTES);
+
+    assertThat(second).isSameAs(first);
+    assertThat(second.getBytes()).isEqualTo(BYTES);
+    assertThat(second.getAnalysisUuid()).isEqualTo("A1");
+    assertThat(underTest.size()).isEqualTo(1);
+    assertThat(underTest.getStats().hitCount()).isEqualTo(1);
+    assertThat(underTest.getStats().missCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void reload_when_project_has_a_new_analysis() {
+    underTest.get("P1", "module", true, null, () -> BYTES);
+
+    SerializedProjectRepositories reloaded = underTest.get("P1", "module", true, "A1", () -> OTHER_BYTES);
+
+    assertThat(reloaded.getBytes()).isEqualTo(OTHER_BYTES);
+    assertThat(reloaded.getAnalysisUuid()).isEqualTo("A1");
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void secured_settings_are_not_shared_with_users_without_scan_permission() {
+    underTest.get("P1", "module", true, "A1", () -> BYTES);
+
+    SerializedProjectRepositories withoutSecured = underTest.get("P1", "module", false, "A1", () -> OTHER_BYTES);
+
+    assertThat(withoutSecured.getBytes()).isEqualTo(OTHER_BYTES);
+    assertThat(underTest.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void invalidate_all_modules_of_project() {
+    underTest.get("P1", "P1:module1", true, "A1", () -> BYTES);
+    underTest.get("P1", "P1:module2", false, "A1", () -> BYTES);
+    underTest.get("P2", "P2", true, "A2", () -> BYTES);
+
+    underTest.invalidateProject("P1");
+
+    assertThat(underTest.size()).isEqualTo(1);
+    assertThat(underTest.get("P2", "P2", true, "A2", () -> OTHER_BYTES).getBytes()).isEqualTo(BYTES);
+    assertThat(underTest.get("P1", "P1:module1", true, "A1", () -> OTHER_BYTES).getBytes()).isEqualTo(OTHER_BYTES);
+
+    underTest.invalidateAll();
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  public void etag_is_a_quoted_digest_of_bytes() {
+    String etag = underTest.get("P1", "module", true, "A1", () -> BYTES).getEtag();
+
+    assertThat(etag).startsWith("\"").endsWith("\"");
+    assertThat(new SerializedProjectRepositories("A2", BYTES).getEtag()).isEqualTo(etag);
+    assertThat(new SerializedProjectRepositories("A1", OTHER_BYTES).getEtag()).isNotEqualTo(etag);
+  }
+}
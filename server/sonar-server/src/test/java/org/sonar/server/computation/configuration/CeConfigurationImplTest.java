@@ -29,6 +29,9 @@ import org.sonar.api.utils.MessageException;
 
 import static java.lang.Math.abs;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_MIN_WORKERS_COUNT_PROPERTY;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_REPORT_PREFETCH_PROPERTY;
+import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_STEPS_CONCURRENCY_PROPERTY;
 import static org.sonar.server.computation.configuration.CeConfigurationImpl.CE_WORKERS_COUNT_PROPERTY;
 
 public class CeConfigurationImplTest {
@@ -103,6 +106,68 @@ public class CeConfigurationImplTest {
     new CeConfigurationImpl(settings);
   }
 
+  @Test
+  public void getStepsConcurrency_returns_1_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).getStepsConcurrency()).isEqualTo(1);
+  }
+
+  @Test
+  public void getStepsConcurrency_returns_value_of_property() {
+    settings.setProperty(CE_STEPS_CONCURRENCY_PROPERTY, 4);
+
+    assertThat(new CeConfigurationImpl(settings).getStepsConcurrency()).isEqualTo(4);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_steps_concurrency_property_is_0() {
+    settings.setProperty(CE_STEPS_CONCURRENCY_PROPERTY, "0");
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value '0' of property " + CE_STEPS_CONCURRENCY_PROPERTY + " is invalid. " +
+      "It must an integer strictly greater than 0");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  @Test
+  public void getMinWorkerCount_returns_worker_count_when_property_is_not_defined() {
+    settings.setProperty(CE_WORKERS_COUNT_PROPERTY, 5);
+
+    assertThat(new CeConfigurationImpl(settings).getMinWorkerCount()).isEqualTo(5);
+  }
+
+  @Test
+  public void getMinWorkerCount_returns_value_of_property() {
+    settings.setProperty(CE_WORKERS_COUNT_PROPERTY, 5);
+    settings.setProperty(CE_MIN_WORKERS_COUNT_PROPERTY, 2);
+
+    assertThat(new CeConfigurationImpl(settings).getMinWorkerCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_min_worker_count_is_greater_than_worker_count() {
+    settings.setProperty(CE_WORKERS_COUNT_PROPERTY, 2);
+    settings.setProperty(CE_MIN_WORKERS_COUNT_PROPERTY, 3);
+
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("value '3' of property " + CE_MIN_WORKERS_COUNT_PROPERTY + " is invalid. " +
+      "It must not be greater than the value of property " + CE_WORKERS_COUNT_PROPERTY + " (2).");
+
+    new CeConfigurationImpl(settings);
+  }
+
+  @Test
+  public void isReportPrefetchEnabled_returns_false_when_property_is_not_defined() {
+    assertThat(new CeConfigurationImpl(settings).isReportPrefetchEnabled()).isFalse();
+  }
+
+  @Test
+  public void isReportPrefetchEnabled_returns_value_of_property() {
+    settings.setProperty(CE_REPORT_PREFETCH_PROPERTY, true);
+
+    assertThat(new CeConfigurationImpl(settings).isReportPrefetchEnabled()).isTrue();
+  }
+
   private void expectMessageException(int value) {
     expectedException.expect(MessageException.class);
     expectedException.expectMessage("value '" + value + "' of property " + CE_WORKERS_COUNT_PROPERTY + " is invalid. " +
@@ -28,7 +28,10 @@ import static com.google.common.base.Preconditions.checkArgument;
  */
 public class CeConfigurationRule extends ExternalResource implements CeConfiguration {
   private int workerCount = CeConfigurationImpl.DEFAULT_WORKER_COUNT;
+  private Integer minWorkerCount = null;
   private long queuePollingDelay = CeConfigurationImpl.DEFAULT_QUEUE_POLLING_DELAY;
+  private int stepsConcurrency = CeConfigurationImpl.DEFAULT_STEPS_CONCURRENCY;
+  private boolean reportPrefetchEnabled = false;
 
   @Override
   public int getWorkerCount() {
@@ -41,6 +44,20 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     return this;
   }
 
+  /**
+   * Same as {@link #getWorkerCount()} unless set with {@link #setMinWorkerCount(int)}.
+   */
+  @Override
+  public int getMinWorkerCount() {
+    return minWorkerCount == null ? workerCount : minWorkerCount;
+  }
+
+  public CeConfigurationRule setMinWorkerCount(int minWorkerCount) {
+    checkArgument(minWorkerCount >= 1, "min worker count must be >= 1");
+    this.minWorkerCount = minWorkerCount;
+    return this;
+  }
+
   @Override
   public long getQueuePollingDelay() {
     return queuePollingDelay;
@@ -50,4 +67,25 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     checkArgument(queuePollingDelay > 0, "Queue polling delay must be >= 0");
     this.queuePollingDelay = queuePollingDelay;
   }
+
+  @Override
+  public int getStepsConcurrency() {
+    return stepsConcurrency;
+  }
+
+  public CeConfigurationRule setStepsConcurrency(int stepsConcurrency) {
+    checkArgument(stepsConcurrency >= 1, "steps concurrency must be >= 1");
+    this.stepsConcurrency = stepsConcurrency;
+    return this;
+  }
+
+  @Override
+  public boolean isReportPrefetchEnabled() {
+    return reportPrefetchEnabled;
+  }
+
+  public CeConfigurationRule setReportPrefetchEnabled(boolean reportPrefetchEnabled) {
+    this.reportPrefetchEnabled = reportPrefetchEnabled;
+    return this;
+  }
 }
@@ -29,6 +29,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.ce.CeQueueDto;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -133,6 +134,49 @@ public class CEQueueStatusImplTest {
     assertThat(underTest.getProcessingTime()).isEqualTo(calls);
   }
 
+  @Test
+  public void addStepProcessingTime_sums_time_by_step() {
+    underTest.addStepProcessingTime("step 1", 10);
+    underTest.addStepProcessingTime("step 2", 3);
+    underTest.addStepProcessingTime("step 1", 5);
+
+    assertThat(underTest.getStepsProcessingTime()).containsOnly(entry("step 1", 15L), entry("step 2", 3L));
+  }
+
+  @Test
+  public void addStepProcessingTime_throws_IAE_if_time_is_less_than_0() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Processing time can not be < 0");
+
+    underTest.addStepProcessingTime("step", -1);
+  }
+
+  @Test
+  public void addWaitingTime_sums_waiting_time() {
+    underTest.addWaitingTime(10);
+    underTest.addWaitingTime(32);
+
+    assertThat(underTest.getWaitingTime()).isEqualTo(42);
+  }
+
+  @Test
+  public void addWaitingTime_throws_IAE_if_time_is_less_than_0() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Waiting time can not be < 0");
+
+    underTest.addWaitingTime(-1);
+  }
+
+  @Test
+  public void setActiveWorkerCount_replaces_previous_value() {
+    assertThat(underTest.getActiveWorkerCount()).isEqualTo(0);
+
+    underTest.setActiveWorkerCount(3);
+    underTest.setActiveWorkerCount(2);
+
+    assertThat(underTest.getActiveWorkerCount()).isEqualTo(2);
+  }
+
   @Test
   public void count_Pending_from_database() {
     when(dbClient.ceQueueDao().countByStatus(any(DbSession.class), eq(CeQueueDto.Status.PENDING))).thenReturn(42);
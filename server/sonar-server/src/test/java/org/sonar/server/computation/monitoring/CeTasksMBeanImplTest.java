@@ -19,7 +19,9 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import com.google.common.collect.ImmutableMap;
 import java.lang.management.ManagementFactory;
+import java.util.Map;
 import javax.annotation.CheckForNull;
 import javax.management.InstanceNotFoundException;
 import javax.management.ObjectInstance;
@@ -38,6 +40,9 @@ public class CeTasksMBeanImplTest {
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
   private static final int WORKER_COUNT = 56;
+  private static final long WAITING_TIME = 1_234;
+  private static final int ACTIVE_WORKER_COUNT = 10;
+  private static final Map<String, Long> STEPS_PROCESSING_TIME = ImmutableMap.of("step 1", 12L, "step 2", 5L);
 
   private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration());
 
@@ -59,6 +64,14 @@ public class CeTasksMBeanImplTest {
     assertThat(underTest.getErrorCount()).isEqualTo(ERROR_COUNT);
     assertThat(underTest.getSuccessCount()).isEqualTo(SUCCESS_COUNT);
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
+    assertThat(underTest.getStepsProcessingTime()).isEqualTo(STEPS_PROCESSING_TIME);
+    assertThat(underTest.getWaitingTime()).isEqualTo(WAITING_TIME);
+    assertThat(underTest.getActiveWorkerCount()).isEqualTo(ACTIVE_WORKER_COUNT);
+  }
+
+  @Test
+  public void getWorkerUtilization_is_percentage_of_active_workers_processing_a_task() {
+    assertThat(underTest.getWorkerUtilization()).isEqualTo(50);
   }
 
   @Test
@@ -119,6 +132,36 @@ public class CeTasksMBeanImplTest {
       return PROCESSING_TIME;
     }
 
+    @Override
+    public void addStepProcessingTime(String stepDescription, long processingTime) {
+      methodNotImplemented();
+    }
+
+    @Override
+    public Map<String, Long> getStepsProcessingTime() {
+      return STEPS_PROCESSING_TIME;
+    }
+
+    @Override
+    public void addWaitingTime(long waitingTime) {
+      methodNotImplemented();
+    }
+
+    @Override
+    public long getWaitingTime() {
+      return WAITING_TIME;
+    }
+
+    @Override
+    public void setActiveWorkerCount(int activeWorkerCount) {
+      methodNotImplemented();
+    }
+
+    @Override
+    public int getActiveWorkerCount() {
+      return ACTIVE_WORKER_COUNT;
+    }
+
     private long methodNotImplemented() {
       throw new UnsupportedOperationException("Not Implemented");
     }
@@ -134,6 +177,21 @@ public class CeTasksMBeanImplTest {
     public long getQueuePollingDelay() {
       throw new UnsupportedOperationException("getQueuePollingDelay is not implemented");
     }
+
+    @Override
+    public int getStepsConcurrency() {
+      throw new UnsupportedOperationException("getStepsConcurrency is not implemented");
+    }
+
+    @Override
+    public boolean isReportPrefetchEnabled() {
+      throw new UnsupportedOperationException("isReportPrefetchEnabled is not implemented");
+    }
+
+    @Override
+    public int getMinWorkerCount() {
+      throw new UnsupportedOperationException("getMinWorkerCount is not implemented");
+    }
   }
 
   @CheckForNull
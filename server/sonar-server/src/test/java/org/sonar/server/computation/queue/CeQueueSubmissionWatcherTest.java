@@ -0,0 +1,76 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.queue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.property.InternalProperties.CE_QUEUE_LAST_SUBMISSION;
+
+public class CeQueueSubmissionWatcherTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private DbClient dbClient = dbTester.getDbClient();
+  private DbSession dbSession = dbTester.getSession();
+  private CeQueueSubmissionWatcher underTest = new CeQueueSubmissionWatcher(dbClient);
+
+  @Test
+  public void start_creates_empty_property_when_it_does_not_exist() {
+    underTest.start();
+
+    assertThat(dbClient.internalPropertiesDao().selectByKey(dbSession, CE_QUEUE_LAST_SUBMISSION)).contains("");
+    assertThat(underTest.hasNewSubmissions()).isFalse();
+  }
+
+  @Test
+  public void start_keeps_existing_property() {
+    notifySubmission("TASK_1");
+
+    underTest.start();
+
+    assertThat(dbClient.internalPropertiesDao().selectByKey(dbSession, CE_QUEUE_LAST_SUBMISSION)).contains("TASK_1");
+    assertThat(underTest.hasNewSubmissions()).isFalse();
+  }
+
+  @Test
+  public void hasNewSubmissions_returns_true_once_per_change_of_property() {
+    underTest.start();
+
+    notifySubmission("TASK_1");
+    assertThat(underTest.hasNewSubmissions()).isTrue();
+    assertThat(underTest.hasNewSubmissions()).isFalse();
+
+    notifySubmission("TASK_2");
+    assertThat(underTest.hasNewSubmissions()).isTrue();
+    assertThat(underTest.hasNewSubmissions()).isFalse();
+  }
+
+  private void notifySubmission(String taskUuid) {
+    dbClient.internalPropertiesDao().save(dbSession, CE_QUEUE_LAST_SUBMISSION, taskUuid);
+    dbSession.commit();
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.batch;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.protocol.Constants;
+import org.sonar.scanner.protocol.output.FileStructure;
+import org.sonar.scanner.protocol.output.ScannerReport;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
+
+/**
+ * Reads a report the way the Compute Engine steps do: components are read by several steps, then issues and
+ * measures of each file are traversed. Compares {@link BatchReportReaderImpl} with the buffered streams it used
+ * to open for each file. Run {@link #main(String[])} from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BatchReportReaderBenchmark {
+
+  private static final int STEPS_READING_COMPONENTS = 3;
+
+  @Param({"100000"})
+  public int fileCount;
+
+  private File reportDir;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    reportDir = File.createTempFile("report", "");
+    FileUtils.forceDelete(reportDir);
+    FileUtils.forceMkdir(reportDir);
+    ScannerReportWriter writer = new ScannerReportWriter(reportDir);
+    List<Integer> fileRefs = new ArrayList<>(fileCount);
+    for (int ref = 2; ref < fileCount + 2; ref++) {
+      fileRefs.add(ref);
+      writer.writeComponent(ScannerReport.Component.newBuilder()
+        .setRef(ref)
+        .setType(ScannerReport.Component.ComponentType.FILE)
+        .setPath("src/main/java/org/sonar/File" + ref + ".java")
+        .setLanguage("java")
+        .setLines(200)
+        .build());
+      writer.writeComponentIssues(ref, createIssues(ref));
+      writer.writeComponentMeasures(ref, createMeasures());
+    }
+    writer.writeComponent(ScannerReport.Component.newBuilder()
+      .setRef(1)
+      .setType(ScannerReport.Component.ComponentType.PROJECT)
+      .setKey("org.sonarsource:project")
+      .addAllChildRef(fileRefs)
+      .build());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    FileUtils.deleteQuietly(reportDir);
+  }
+
+  @Benchmark
+  public void read_with_buffered_streams(Blackhole blackhole) throws IOException {
+    FileStructure fileStructure = new FileStructure(reportDir);
+    for (int step = 0; step < STEPS_READING_COMPONENTS; step++) {
+      for (int ref = 1; ref < fileCount + 2; ref++) {
+        try (InputStream input = openBuffered(fileStructure.fileFor(FileStructure.Domain.COMPONENT, ref))) {
+          blackhole.consume(ScannerReport.Component.parser().parseFrom(input));
+        }
+      }
+    }
+    for (int ref = 2; ref < fileCount + 2; ref++) {
+      consume(Protobuf.readStream(openBuffered(fileStructure.fileFor(FileStructure.Domain.ISSUES, ref)), ScannerReport.Issue.parser()), blackhole);
+      consume(Protobuf.readStream(openBuffered(fileStructure.fileFor(FileStructure.Domain.MEASURES, ref)), ScannerReport.Measure.parser()), blackhole);
+    }
+  }
+
+  @Benchmark
+  public void read_with_report_reader(Blackhole blackhole) {
+    BatchReportReaderImpl reader = new BatchReportReaderImpl(() -> reportDir);
+    for (int step = 0; step < STEPS_READING_COMPONENTS; step++) {
+      for (int ref = 1; ref < fileCount + 2; ref++) {
+        blackhole.consume(reader.readComponent(ref));
+      }
+    }
+    for (int ref = 2; ref < fileCount + 2; ref++) {
+      consume(reader.readComponentIssues(ref), blackhole);
+      consume(reader.readComponentMeasures(ref), blackhole);
+    }
+  }
+
+  private static InputStream openBuffered(File file) throws IOException {
+    return new BufferedInputStream(new FileInputStream(file));
+  }
+
+  private static <T> void consume(CloseableIterator<T> iterator, Blackhole blackhole) {
+    try {
+      while (iterator.hasNext()) {
+        blackhole.consume(iterator.next());
+      }
+    } finally {
+      iterator.close();
+    }
+  }
+
+  private static List<ScannerReport.Issue> createIssues(int ref) {
+    List<ScannerReport.Issue> issues = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      issues.add(ScannerReport.Issue.newBuilder()
+        .setRuleRepository("squid")
+        .setRuleKey("S" + (ref % 300))
+        .setMsg("Remove this unused private field \"field" + i + "\".")
+        .setSeverity(Constants.Severity.MAJOR)
+        .setTextRange(ScannerReport.TextRange.newBuilder().setStartLine(i + 1).setEndLine(i + 1).setStartOffset(2).setEndOffset(20))
+        .build());
+    }
+    return issues;
+  }
+
+  private static List<ScannerReport.Measure> createMeasures() {
+    List<ScannerReport.Measure> measures = new ArrayList<>();
+    for (String metricKey : new String[] {"lines", "ncloc", "complexity", "comment_lines"}) {
+      measures.add(ScannerReport.Measure.newBuilder()
+        .setMetricKey(metricKey)
+        .setIntValue(ScannerReport.Measure.IntValue.newBuilder().setValue(100))
+        .build());
+    }
+    return measures;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(BatchReportReaderBenchmark.class.getSimpleName()).build()).run();
+  }
+}
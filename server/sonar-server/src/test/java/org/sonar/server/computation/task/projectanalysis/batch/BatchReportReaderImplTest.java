@@ -151,10 +151,10 @@ public class BatchReportReaderImplTest {
   }
 
   @Test
-  public void readComponent_is_not_cached() {
+  public void readComponent_is_cached() {
     writer.writeComponent(COMPONENT);
 
-    assertThat(underTest.readComponent(COMPONENT_REF)).isNotSameAs(underTest.readComponent(COMPONENT_REF));
+    assertThat(underTest.readComponent(COMPONENT_REF)).isSameAs(underTest.readComponent(COMPONENT_REF));
   }
 
   @Test
@@ -273,6 +273,25 @@ public class BatchReportReaderImplTest {
     res.close();
   }
 
+  @Test
+  public void readFileDataDigest_depends_on_coverage_highlighting_and_symbols_of_file() {
+    String noData = underTest.readFileDataDigest(COMPONENT_REF);
+    writer.writeComponentSymbols(COMPONENT_REF + 1, of(SYMBOL));
+    assertThat(underTest.readFileDataDigest(COMPONENT_REF)).isEqualTo(noData);
+
+    writer.writeComponentCoverage(COMPONENT_REF, of(ScannerReport.LineCoverage.newBuilder().setLine(1).setHits(true).build()));
+    String withCoverage = underTest.readFileDataDigest(COMPONENT_REF);
+    assertThat(withCoverage).isNotEqualTo(noData).hasSize(32);
+    assertThat(underTest.readFileDataDigest(COMPONENT_REF)).isEqualTo(withCoverage);
+
+    writer.writeComponentSyntaxHighlighting(COMPONENT_REF, of(SYNTAX_HIGHLIGHTING_1));
+    String withHighlighting = underTest.readFileDataDigest(COMPONENT_REF);
+    assertThat(withHighlighting).isNotEqualTo(withCoverage);
+
+    writer.writeComponentSymbols(COMPONENT_REF, of(SYMBOL));
+    assertThat(underTest.readFileDataDigest(COMPONENT_REF)).isNotEqualTo(withHighlighting);
+  }
+
   @Test
   public void readFileSource_returns_absent_optional_when_file_does_not_exist() {
     assertThat(underTest.readFileSource(COMPONENT_REF)).isAbsent();
@@ -315,4 +334,35 @@ public class BatchReportReaderImplTest {
     assertThat(res).containsExactly(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2);
     res.close();
   }
+
+  @Test
+  public void read_packed_report() throws IOException {
+    writer.writeComponent(COMPONENT);
+    writer.writeComponentIssues(COMPONENT_REF, of(ISSUE));
+    writer.writeTests(COMPONENT_REF, of(TEST_1, TEST_2));
+    writer.writeCoverageDetails(COMPONENT_REF, of(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2));
+    FileUtils.writeLines(writer.getSourceFile(COMPONENT_REF), of("1", "2", "3"));
+    writer.packComponentData();
+
+    assertThat(underTest.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+    assertThat(underTest.readComponentIssues(COMPONENT_REF)).containsExactly(ISSUE);
+    assertThat(underTest.readTests(COMPONENT_REF)).containsExactly(TEST_1, TEST_2);
+    assertThat(underTest.readCoverageDetails(COMPONENT_REF)).containsExactly(COVERAGE_DETAIL_1, COVERAGE_DETAIL_2);
+    assertThat(underTest.readFileSource(COMPONENT_REF).get()).containsExactly("1", "2", "3");
+    assertThat(underTest.readFileSource(2)).isAbsent();
+    underTest.stop();
+  }
+
+  @Test
+  public void readFileDataDigest_does_not_depend_on_packing_of_report() {
+    writer.writeComponentCoverage(COMPONENT_REF, of(COVERAGE_1, COVERAGE_2));
+    writer.writeComponentSymbols(COMPONENT_REF, of(SYMBOL));
+    String unpacked = underTest.readFileDataDigest(COMPONENT_REF);
+    underTest.stop();
+
+    writer.packComponentData();
+
+    assertThat(underTest.readFileDataDigest(COMPONENT_REF)).isEqualTo(unpacked);
+    underTest.stop();
+  }
 }
@@ -21,6 +21,7 @@ package org.sonar.server.computation.task.projectanalysis.batch;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.protobuf.Message;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -29,12 +30,15 @@ import java.util.Map;
 import java.util.Objects;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.rules.TestRule;
 import org.junit.runner.Description;
 import org.junit.runners.model.Statement;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport;
 
+import static java.util.Arrays.asList;
+
 public class BatchReportReaderRule implements TestRule, BatchReportReader {
   private ScannerReport.Metadata metadata;
   private List<String> scannerLogs;
@@ -242,6 +246,15 @@ public class BatchReportReaderRule implements TestRule, BatchReportReader {
     return this;
   }
 
+  @Override
+  public String readFileDataDigest(int fileRef) {
+    StringBuilder data = new StringBuilder();
+    for (List<? extends Message> messages : asList(coverages.get(fileRef), syntaxHighlightings.get(fileRef), symbols.get(fileRef))) {
+      data.append(messages).append('|');
+    }
+    return DigestUtils.md5Hex(data.toString());
+  }
+
   @Override
   public Optional<CloseableIterator<String>> readFileSource(int fileRef) {
     List<String> lines = fileSources.get(fileRef);
@@ -0,0 +1,214 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.duplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.duplication.DuplicationDao;
+import org.sonar.db.duplication.DuplicationUnitDto;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CrossProjectDuplicationIndexTest {
+
+  private static final String JAVA = "java";
+
+  private DbClient dbClient = mock(DbClient.class);
+  private DuplicationDao duplicationDao = mock(DuplicationDao.class);
+  private System2 system2 = mock(System2.class);
+  private List<DuplicationUnitDto> javaBlocks = new ArrayList<>();
+  private Runnable onJavaLoaded = () -> {
+  };
+
+  private CrossProjectDuplicationIndex underTest = new CrossProjectDuplicationIndex(dbClient, system2);
+
+  @Before
+  public void setUp() {
+    when(dbClient.openSession(false)).thenReturn(mock(DbSession.class));
+    when(dbClient.duplicationDao()).thenReturn(duplicationDao);
+    doAnswer(invocation -> {
+      Consumer<DuplicationUnitDto> consumer = (Consumer<DuplicationUnitDto>) invocation.getArguments()[2];
+      if (JAVA.equals(invocation.getArguments()[1])) {
+        new ArrayList<>(javaBlocks).forEach(consumer);
+        onJavaLoaded.run();
+      }
+      return null;
+    }).when(duplicationDao).scrollHashesOfLastAnalyses(any(DbSession.class), anyString(), any(Consumer.class));
+  }
+
+  @Test
+  public void only_hashes_of_other_analyses_are_candidates() {
+    addBlock("other_analysis", "aa");
+    addBlock("base_analysis", "bb");
+    addBlock("base_analysis", "cc");
+    addBlock("other_analysis", "cc");
+
+    assertThat(underTest.filterCandidates(JAVA, "base_analysis", asList("aa", "bb", "cc", "dd"))).containsExactly("aa", "cc");
+  }
+
+  @Test
+  public void all_indexed_hashes_are_candidates_on_first_analysis() {
+    addBlock("other_analysis", "aa");
+    addBlock("another_analysis", "bb");
+
+    assertThat(underTest.filterCandidates(JAVA, null, asList("aa", "bb", "cc"))).containsExactly("aa", "bb");
+  }
+
+  @Test
+  public void index_is_partitioned_by_language() {
+    addBlock("other_analysis", "aa");
+
+    assertThat(underTest.filterCandidates("xoo", "base_analysis", singletonList("aa"))).isEmpty();
+    assertThat(underTest.filterCandidates(JAVA, "base_analysis", singletonList("aa"))).containsExactly("aa");
+  }
+
+  @Test
+  public void no_candidates_for_files_without_language() {
+    addBlock("other_analysis", "aa");
+
+    assertThat(underTest.filterCandidates(null, "base_analysis", singletonList("aa"))).isEmpty();
+    verify(duplicationDao, never()).scrollHashesOfLastAnalyses(any(DbSession.class), anyString(), any(Consumer.class));
+  }
+
+  @Test
+  public void add_hashes_of_new_analysis() {
+    addBlock("other_analysis", "aa");
+    assertThat(underTest.filterCandidates(JAVA, "base_analysis", asList("aa", "bb"))).containsExactly("aa");
+
+    underTest.add(JAVA, "new_analysis", singletonList("bb"));
+
+    assertThat(underTest.filterCandidates(JAVA, "base_analysis", asList("aa", "bb"))).containsExactly("aa", "bb");
+    assertThat(underTest.filterCandidates(JAVA, "new_analysis", asList("aa", "bb"))).containsExactly("aa");
+  }
+
+  @Test
+  public void hashes_of_language_not_loaded_yet_are_ignored() {
+    underTest.add(JAVA, "new_analysis", singletonList("bb"));
+
+    verify(duplicationDao, never()).scrollHashesOfLastAnalyses(any(DbSession.class), anyString(), any(Consumer.class));
+  }
+
+  @Test
+  public void index_is_loaded_once_then_reloaded_periodically() {
+    when(system2.now()).thenReturn(1_000L);
+    addBlock("other_analysis", "aa");
+
+    underTest.filterCandidates(JAVA, "base_analysis", singletonList("aa"));
+    underTest.filterCandidates(JAVA, "base_analysis", singletonList("aa"));
+    verify(duplicationDao, times(1)).scrollHashesOfLastAnalyses(any(DbSession.class), eq(JAVA), any(Consumer.class));
+
+    javaBlocks.clear();
+    when(system2.now()).thenReturn(1_000L + CrossProjectDuplicationIndex.RELOAD_PERIOD_MS);
+
+    assertThat(underTest.filterCandidates(JAVA, "base_analysis", singletonList("aa"))).isEmpty();
+    verify(duplicationDao, times(2)).scrollHashesOfLastAnalyses(any(DbSession.class), eq(JAVA), any(Consumer.class));
+  }
+
+  @Test
+  public void hashes_added_while_index_is_reloaded_are_kept() {
+    when(system2.now()).thenReturn(1_000L);
+    addBlock("other_analysis", "aa");
+    underTest.filterCandidates(JAVA, "base_analysis", singletonList("aa"));
+
+    when(system2.now()).thenReturn(1_000L + CrossProjectDuplicationIndex.RELOAD_PERIOD_MS);
+    onJavaLoaded = () -> underTest.add(JAVA, "new_analysis", singletonList("bb"));
+
+    assertThat(underTest.filterCandidates(JAVA, "base_analysis", asList("aa", "bb"))).containsExactly("aa", "bb");
+  }
+
+  @Test
+  public void loading_index_of_a_language_does_not_block_other_languages() throws Exception {
+    addBlock("other_analysis", "aa");
+    CountDownLatch javaLoading = new CountDownLatch(1);
+    CountDownLatch releaseJava = new CountDownLatch(1);
+    onJavaLoaded = () -> {
+      javaLoading.countDown();
+      try {
+        releaseJava.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<List<String>> javaCandidates = executor.submit(() -> underTest.filterCandidates(JAVA, "base_analysis", singletonList("aa")));
+      assertThat(javaLoading.await(10, TimeUnit.SECONDS)).isTrue();
+
+      assertThat(underTest.filterCandidates("xoo", "base_analysis", singletonList("aa"))).isEmpty();
+
+      releaseJava.countDown();
+      assertThat(javaCandidates.get(10, TimeUnit.SECONDS)).containsExactly("aa");
+    } finally {
+      releaseJava.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void clear_index() {
+    addBlock("other_analysis", "aa");
+    underTest.filterCandidates(JAVA, "base_analysis", singletonList("aa"));
+
+    underTest.clear();
+    underTest.filterCandidates(JAVA, "base_analysis", singletonList("aa"));
+
+    verify(duplicationDao, times(2)).scrollHashesOfLastAnalyses(any(DbSession.class), eq(JAVA), any(Consumer.class));
+  }
+
+  @Test
+  public void index_many_hashes() {
+    List<String> hashes = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      String hash = Integer.toHexString(i);
+      hashes.add(hash);
+      addBlock("analysis_" + (i % 10), hash);
+    }
+
+    assertThat(underTest.filterCandidates(JAVA, null, hashes)).containsExactlyElementsOf(hashes);
+    assertThat(underTest.filterCandidates(JAVA, "analysis_3", hashes)).hasSize(9_000);
+    assertThat(underTest.filterCandidates(JAVA, null, asList("not_indexed_1", "not_indexed_2"))).isEmpty();
+  }
+
+  private void addBlock(String analysisUuid, String hash) {
+    javaBlocks.add(new DuplicationUnitDto().setAnalysisUuid(analysisUuid).setHash(hash));
+  }
+}
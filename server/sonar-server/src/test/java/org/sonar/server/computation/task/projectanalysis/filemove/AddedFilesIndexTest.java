@@ -0,0 +1,77 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.filemove;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.sonar.server.computation.task.projectanalysis.filemove.FileSimilarity.File;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AddedFilesIndexTest {
+
+  private static final List<String> LINES = asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+
+  @Test
+  public void selects_files_with_enough_common_lines() {
+    AddedFilesIndex underTest = new AddedFilesIndex(ImmutableMap.of(
+      "same", fileOf(LINES),
+      "one_line_changed", fileOf(asList("a", "b", "c", "d", "e", "X", "g", "h", "i", "j")),
+      "two_lines_changed", fileOf(asList("a", "b", "c", "d", "e", "X", "Y", "h", "i", "j")),
+      "different", fileOf(asList("k", "l", "m", "n", "o", "p", "q", "r", "s", "t"))));
+
+    assertThat(underTest.selectCandidates(LINES)).containsExactly("same", "one_line_changed");
+  }
+
+  @Test
+  public void does_not_select_files_of_too_different_size() {
+    AddedFilesIndex underTest = new AddedFilesIndex(ImmutableMap.of(
+      "bigger", fileOf(asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l")),
+      "smaller", fileOf(asList("a", "b", "c", "d", "e", "f", "g", "h"))));
+
+    assertThat(underTest.selectCandidates(LINES)).isEmpty();
+  }
+
+  @Test
+  public void counts_duplicated_lines_no_more_than_their_occurrences() {
+    AddedFilesIndex underTest = new AddedFilesIndex(ImmutableMap.of(
+      "repeated", fileOf(asList("a", "a", "a", "a", "a", "a", "a", "a", "a", "a"))));
+
+    assertThat(underTest.selectCandidates(asList("a", "a", "a", "a", "a", "a", "a", "a", "a", "b"))).containsExactly("repeated");
+    assertThat(underTest.selectCandidates(asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "a"))).isEmpty();
+  }
+
+  @Test
+  public void never_selects_empty_files_nor_files_without_line_hashes() {
+    AddedFilesIndex underTest = new AddedFilesIndex(ImmutableMap.of(
+      "empty", fileOf(Collections.emptyList()),
+      "no_line_hashes", fileOf(null)));
+
+    assertThat(underTest.selectCandidates(LINES)).isEmpty();
+    assertThat(underTest.selectCandidates(Collections.emptyList())).isEmpty();
+  }
+
+  private static File fileOf(List<String> lineHashes) {
+    return new File("path", null, lineHashes);
+  }
+}
@@ -24,13 +24,17 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Function;
 import org.apache.commons.io.FileUtils;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -56,7 +60,9 @@ import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.sonar.api.resources.Qualifiers.FILE;
@@ -231,6 +237,7 @@ public class FileMoveDetectionStepTest {
   private FileSourceDao fileSourceDao = mock(FileSourceDao.class);
   private FileSimilarity fileSimilarity = new FileSimilarityImpl(new SourceSimilarityImpl());
   private long dbIdGenerator = 0;
+  private Map<String, FileSourceDto> fileSourcesInDbByUuid = new HashMap<>();
 
   private FileMoveDetectionStep underTest = new FileMoveDetectionStep(analysisMetadataHolder, treeRootHolder, dbClient,
     sourceLinesRepository, fileSimilarity, movedFilesRepository);
@@ -240,6 +247,15 @@ public class FileMoveDetectionStepTest {
     when(dbClient.openSession(false)).thenReturn(dbSession);
     when(dbClient.componentDao()).thenReturn(componentDao);
     when(dbClient.fileSourceDao()).thenReturn(fileSourceDao);
+    doAnswer(invocation -> {
+      Collection<String> fileUuids = (Collection<String>) invocation.getArguments()[1];
+      ResultHandler handler = (ResultHandler) invocation.getArguments()[2];
+      fileUuids.stream()
+        .map(fileSourcesInDbByUuid::get)
+        .filter(Objects::nonNull)
+        .forEach(dto -> handler.handleResult(resultContextOf(dto)));
+      return null;
+    }).when(fileSourceDao).scrollLineHashes(eq(dbSession), anyCollection(), any(ResultHandler.class));
     treeRootHolder.setRoot(PROJECT);
   }
 
@@ -447,6 +463,35 @@ public class FileMoveDetectionStepTest {
     assertThat(originalFile5.getUuid()).isEqualTo(dtos[3].uuid());
   }
 
+  @Test
+  public void execute_detects_moves_of_many_files() {
+    analysisMetadataHolder.setBaseAnalysis(ANALYSIS);
+    int count = 200;
+    String[] removedFileKeys = new String[count];
+    Component[] addedFiles = new Component[count];
+    for (int i = 0; i < count; i++) {
+      removedFileKeys[i] = "removed_" + i;
+      addedFiles[i] = fileComponent(100 + i);
+    }
+    mockComponents(removedFileKeys);
+    setFilesInReport(addedFiles);
+    for (int i = 0; i < count; i++) {
+      String[] content = new String[10];
+      for (int line = 0; line < content.length; line++) {
+        content[line] = "file " + i + " line " + line;
+      }
+      mockContentOfFileInDb(removedFileKeys[i], content);
+      setFileContentInReport(100 + i, content);
+    }
+
+    underTest.execute();
+
+    assertThat(movedFilesRepository.getComponentsWithOriginal()).containsOnly(addedFiles);
+    for (int i = 0; i < count; i++) {
+      assertThat(movedFilesRepository.getOriginalFile(addedFiles[i]).get().getKey()).isEqualTo(removedFileKeys[i]);
+    }
+  }
+
   /**
    * JH: A bug was encountered in the algorithm and I didn't manage to forge a simpler test case.
    */
@@ -510,10 +555,16 @@ public class FileMoveDetectionStepTest {
       sourceHashComputer.addLine(line, lineIterator.hasNext());
     }
 
-    when(fileSourceDao.selectSourceByFileUuid(dbSession, componentUuidOf(key)))
-      .thenReturn(new FileSourceDto()
-        .setLineHashes(on('\n').join(linesHashesComputer.getLineHashes()))
-        .setSrcHash(sourceHashComputer.getHash()));
+    fileSourcesInDbByUuid.put(componentUuidOf(key), new FileSourceDto()
+      .setFileUuid(componentUuidOf(key))
+      .setLineHashes(on('\n').join(linesHashesComputer.getLineHashes()))
+      .setSrcHash(sourceHashComputer.getHash()));
+  }
+
+  private static ResultContext resultContextOf(FileSourceDto dto) {
+    ResultContext resultContext = mock(ResultContext.class);
+    when(resultContext.getResultObject()).thenReturn(dto);
+    return resultContext;
   }
 
   private void setFilesInReport(Component... files) {
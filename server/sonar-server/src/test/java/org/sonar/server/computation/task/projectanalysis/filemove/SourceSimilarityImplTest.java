@@ -53,4 +53,11 @@ public class SourceSimilarityImplTest {
     assertThat(underTest.score(asList("a"), asList("a", "b", "c"))).isEqualTo(33);
     assertThat(underTest.score(asList("a", "b", "c"), asList("a"))).isEqualTo(33);
   }
+
+  @Test
+  public void levenshtein_distance_ignores_common_prefix_and_suffix() {
+    assertThat(underTest.levenshteinDistance(asList("a", "b", "c", "d", "e"), asList("a", "b", "X", "d", "e"))).isEqualTo(1);
+    assertThat(underTest.levenshteinDistance(asList("a", "b", "a"), asList("a", "b", "a", "b", "a"))).isEqualTo(2);
+    assertThat(underTest.levenshteinDistance(asList("a", "a"), asList("a"))).isEqualTo(1);
+  }
 }
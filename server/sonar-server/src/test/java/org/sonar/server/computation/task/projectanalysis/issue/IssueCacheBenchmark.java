@@ -0,0 +1,194 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.DiskCache;
+
+/**
+ * Compares {@link IssueCache} with the Java serialization based {@link DiskCache} it replaced.
+ * Run {@link #main(String[])} from the IDE, temp file sizes are printed before the benchmark starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IssueCacheBenchmark {
+
+  @Param({"100000"})
+  public int issueCount;
+
+  private List<DefaultIssue> issues;
+  private File legacyFile;
+  private File protobufFile;
+  private DiskCache<DefaultIssue> legacyCache;
+  private IssueCache protobufCache;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    issues = createIssues(issueCount);
+    legacyFile = File.createTempFile("legacy-issues", ".dat");
+    protobufFile = File.createTempFile("protobuf-issues", ".dat");
+    legacyCache = new DiskCache<>(legacyFile, System2.INSTANCE);
+    protobufCache = new IssueCache(protobufFile, System2.INSTANCE);
+    appendAll(legacyCache.newAppender());
+    appendAll(protobufCache.newAppender());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    legacyFile.delete();
+    protobufFile.delete();
+  }
+
+  @Benchmark
+  public void append_with_java_serialization() throws IOException {
+    File file = File.createTempFile("legacy-append", ".dat");
+    try {
+      appendAll(new DiskCache<DefaultIssue>(file, System2.INSTANCE).newAppender());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Benchmark
+  public void append_with_protobuf() throws IOException {
+    File file = File.createTempFile("protobuf-append", ".dat");
+    try {
+      appendAll(new IssueCache(file, System2.INSTANCE).newAppender());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Benchmark
+  public void traverse_with_java_serialization(Blackhole blackhole) {
+    consume(legacyCache.traverse(), blackhole);
+  }
+
+  @Benchmark
+  public void traverse_with_protobuf(Blackhole blackhole) {
+    consume(protobufCache.traverse(), blackhole);
+  }
+
+  private void appendAll(DiskCache<DefaultIssue>.DiskAppender appender) {
+    for (DefaultIssue issue : issues) {
+      appender.append(issue);
+    }
+    appender.close();
+  }
+
+  private void appendAll(IssueCache.DiskAppender appender) {
+    for (DefaultIssue issue : issues) {
+      appender.append(issue);
+    }
+    appender.close();
+  }
+
+  private static void consume(CloseableIterator<DefaultIssue> iterator, Blackhole blackhole) {
+    try {
+      while (iterator.hasNext()) {
+        blackhole.consume(iterator.next());
+      }
+    } finally {
+      iterator.close();
+    }
+  }
+
+  private static List<DefaultIssue> createIssues(int count) {
+    List<DefaultIssue> issues = new ArrayList<>(count);
+    Date now = new Date();
+    IssueChangeContext context = IssueChangeContext.createScan(now);
+    for (int i = 0; i < count; i++) {
+      DefaultIssue issue = new DefaultIssue()
+        .setKey("AVf_" + i)
+        .setType(RuleType.CODE_SMELL)
+        .setComponentUuid("FILE_UUID_" + (i / 100))
+        .setComponentKey("org.sonarsource:project:src/main/java/org/sonar/File" + (i / 100) + ".java")
+        .setModuleUuid("MODULE_UUID")
+        .setModuleUuidPath(".MODULE_UUID.")
+        .setProjectUuid("PROJECT_UUID")
+        .setProjectKey("org.sonarsource:project")
+        .setRuleKey(RuleKey.of("squid", "S" + (i % 300)))
+        .setLanguage("java")
+        .setSeverity("MAJOR")
+        .setMessage("Remove this unused private field \"field" + i + "\".")
+        .setLine(i % 1000)
+        .setEffort(Duration.create(5L))
+        .setStatus("OPEN")
+        .setChecksum("a227e508d6646b55a086ee11d63b21e9")
+        .setLocations(DbIssues.Locations.newBuilder()
+          .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(i % 1000).setEndLine(i % 1000).setStartOffset(2).setEndOffset(20))
+          .build())
+        .setCreationDate(now)
+        .setUpdateDate(now)
+        .setNew(i % 10 == 0);
+      if (i % 5 == 0) {
+        issue.setFieldChange(context, "severity", "MINOR", "MAJOR");
+      }
+      issues.add(issue);
+    }
+    return issues;
+  }
+
+  public static void main(String[] args) throws IOException, RunnerException {
+    IssueCacheBenchmark sizes = new IssueCacheBenchmark();
+    sizes.issueCount = 100_000;
+    sizes.setUp();
+    System.out.println(String.format("Size of temp file for %d issues: java serialization=%d bytes, protobuf=%d bytes",
+      sizes.issueCount, sizes.legacyFile.length(), sizes.protobufFile.length()));
+    sizes.tearDown();
+
+    new Runner(new OptionsBuilder().include(IssueCacheBenchmark.class.getSimpleName()).build()).run();
+  }
+}
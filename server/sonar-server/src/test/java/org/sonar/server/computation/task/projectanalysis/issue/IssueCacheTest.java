@@ -0,0 +1,219 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Date;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IssueCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void write_and_read_all_fields_of_issue() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+    DbIssues.Locations locations = DbIssues.Locations.newBuilder()
+      .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(3).setEndLine(5))
+      .build();
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE_KEY")
+      .setType(RuleType.BUG)
+      .setComponentUuid("FILE_UUID")
+      .setComponentKey("FILE_KEY")
+      .setModuleUuid("MODULE_UUID")
+      .setModuleUuidPath(".MODULE_UUID.")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("PROJECT_KEY")
+      .setRuleKey(RuleKey.of("xoo", "S001"))
+      .setLanguage("xoo")
+      .setSeverity("MAJOR")
+      .setManualSeverity(true)
+      .setMessage("the message")
+      .setLine(12)
+      .setGap(2.5)
+      .setEffort(Duration.create(30L))
+      .setStatus("OPEN")
+      .setResolution("FIXED")
+      .setAssignee("john")
+      .setChecksum("abcd")
+      .setAttribute("JIRA", "FOO-123")
+      .setAuthorLogin("simon")
+      .setTags(newArrayList("tag1", "tag2"))
+      .setLocations(locations)
+      .setCreationDate(new Date(1_000L))
+      .setUpdateDate(new Date(2_000L))
+      .setCloseDate(new Date(3_000L))
+      .setNew(false)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true)
+      .setSelectedAt(4_000L);
+    issue.addComment(new DefaultIssueComment()
+      .setKey("COMMENT_KEY")
+      .setIssueKey("ISSUE_KEY")
+      .setUserLogin("john")
+      .setMarkdownText("a comment")
+      .setCreatedAt(new Date(5_000L))
+      .setUpdatedAt(new Date(6_000L))
+      .setNew(true));
+
+    underTest.newAppender().append(issue).close();
+
+    List<DefaultIssue> issues = newArrayList(underTest.traverse());
+    assertThat(issues).hasSize(1);
+    DefaultIssue read = issues.get(0);
+    assertThat(read.key()).isEqualTo("ISSUE_KEY");
+    assertThat(read.type()).isEqualTo(RuleType.BUG);
+    assertThat(read.componentUuid()).isEqualTo("FILE_UUID");
+    assertThat(read.componentKey()).isEqualTo("FILE_KEY");
+    assertThat(read.moduleUuid()).isEqualTo("MODULE_UUID");
+    assertThat(read.moduleUuidPath()).isEqualTo(".MODULE_UUID.");
+    assertThat(read.projectUuid()).isEqualTo("PROJECT_UUID");
+    assertThat(read.projectKey()).isEqualTo("PROJECT_KEY");
+    assertThat(read.ruleKey()).isEqualTo(RuleKey.of("xoo", "S001"));
+    assertThat(read.language()).isEqualTo("xoo");
+    assertThat(read.severity()).isEqualTo("MAJOR");
+    assertThat(read.manualSeverity()).isTrue();
+    assertThat(read.message()).isEqualTo("the message");
+    assertThat(read.line()).isEqualTo(12);
+    assertThat(read.gap()).isEqualTo(2.5);
+    assertThat(read.effort()).isEqualTo(Duration.create(30L));
+    assertThat(read.status()).isEqualTo("OPEN");
+    assertThat(read.resolution()).isEqualTo("FIXED");
+    assertThat(read.assignee()).isEqualTo("john");
+    assertThat(read.checksum()).isEqualTo("abcd");
+    assertThat(read.attributes()).isEqualTo(ImmutableMap.of("JIRA", "FOO-123"));
+    assertThat(read.authorLogin()).isEqualTo("simon");
+    assertThat(read.tags()).containsExactly("tag1", "tag2");
+    assertThat((DbIssues.Locations) read.getLocations()).isEqualTo(locations);
+    assertThat(read.creationDate()).isEqualTo(new Date(1_000L));
+    assertThat(read.updateDate()).isEqualTo(new Date(2_000L));
+    assertThat(read.closeDate()).isEqualTo(new Date(3_000L));
+    assertThat(read.isNew()).isFalse();
+    assertThat(read.isBeingClosed()).isTrue();
+    assertThat(read.isOnDisabledRule()).isTrue();
+    assertThat(read.isChanged()).isTrue();
+    assertThat(read.mustSendNotifications()).isTrue();
+    assertThat(read.selectedAt()).isEqualTo(4_000L);
+    assertThat(read.comments()).hasSize(1);
+    DefaultIssueComment comment = (DefaultIssueComment) read.comments().get(0);
+    assertThat(comment.key()).isEqualTo("COMMENT_KEY");
+    assertThat(comment.issueKey()).isEqualTo("ISSUE_KEY");
+    assertThat(comment.userLogin()).isEqualTo("john");
+    assertThat(comment.markdownText()).isEqualTo("a comment");
+    assertThat(comment.createdAt()).isEqualTo(new Date(5_000L));
+    assertThat(comment.updatedAt()).isEqualTo(new Date(6_000L));
+    assertThat(comment.isNew()).isTrue();
+  }
+
+  @Test
+  public void write_and_read_issue_with_only_mandatory_fields() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+
+    underTest.newAppender().append(new DefaultIssue().setKey("ISSUE_KEY")).close();
+
+    DefaultIssue read = newArrayList(underTest.traverse()).get(0);
+    assertThat(read.key()).isEqualTo("ISSUE_KEY");
+    assertThat(read.type()).isNull();
+    assertThat(read.line()).isNull();
+    assertThat(read.effort()).isNull();
+    assertThat(read.attributes()).isEmpty();
+    assertThat(read.tags()).isEmpty();
+    assertThat((Object) read.getLocations()).isNull();
+    assertThat(read.comments()).isEmpty();
+    assertThat(read.changes()).isEmpty();
+    assertThat(read.currentChange()).isNull();
+    assertThat(read.isNew()).isTrue();
+  }
+
+  @Test
+  public void write_and_read_changes_of_issue() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+    FieldDiffs previousChange = new FieldDiffs()
+      .setIssueKey("ISSUE_KEY")
+      .setUserLogin("john")
+      .setCreationDate(new Date(1_000L))
+      .setDiff("severity", "MINOR", "MAJOR");
+    IssueChangeContext context = IssueChangeContext.createUser(new Date(2_000L), "simon");
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE_KEY")
+      .addChange(previousChange)
+      .setFieldChange(context, "type", RuleType.CODE_SMELL, RuleType.BUG)
+      .setFieldChange(context, "technicalDebt", 10L, null)
+      .setFieldChange(context, "assignee", null, "simon");
+
+    underTest.newAppender().append(issue).close();
+
+    DefaultIssue read = newArrayList(underTest.traverse()).get(0);
+    assertThat(read.changes()).hasSize(issue.changes().size());
+    assertThat(read.changes().get(0).toString()).isEqualTo("severity=MINOR|MAJOR");
+    assertThat(read.changes().get(0).userLogin()).isEqualTo("john");
+    assertThat(read.changes().get(0).creationDate()).isEqualTo(new Date(1_000L));
+    FieldDiffs currentChange = read.currentChange();
+    assertThat(currentChange.userLogin()).isEqualTo("simon");
+    assertThat(currentChange.creationDate()).isEqualTo(new Date(2_000L));
+    assertThat(currentChange.get("type").oldValue()).isEqualTo(RuleType.CODE_SMELL);
+    assertThat(currentChange.get("type").newValue()).isEqualTo(RuleType.BUG);
+    assertThat(currentChange.get("technicalDebt").oldValue()).isEqualTo(10L);
+    assertThat(currentChange.get("technicalDebt").newValue()).isNull();
+    assertThat(currentChange.get("assignee").oldValue()).isNull();
+    assertThat(currentChange.get("assignee").newValue()).isEqualTo("simon");
+    // current change is the same instance as the one referenced by the list of changes
+    for (FieldDiffs change : read.changes().subList(1, read.changes().size())) {
+      assertThat(change).isSameAs(currentChange);
+    }
+  }
+
+  @Test
+  public void traverse_issues_in_order_of_appending() throws Exception {
+    IssueCache underTest = new IssueCache(temp.newFile(), System2.INSTANCE);
+
+    try (IssueCache.DiskAppender appender = underTest.newAppender()) {
+      for (int i = 0; i < 100; i++) {
+        appender.append(new DefaultIssue().setKey("ISSUE_" + i));
+      }
+    }
+
+    List<DefaultIssue> issues = newArrayList(underTest.traverse());
+    assertThat(issues).hasSize(100);
+    assertThat(issues.get(0).key()).isEqualTo("ISSUE_0");
+    assertThat(issues.get(99).key()).isEqualTo("ISSUE_99");
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.issue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbTester;
+import org.sonar.server.property.InternalProperties;
+import org.sonar.server.property.InternalPropertiesImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.property.InternalProperties.PROJECTS_WITH_STALE_ISSUES;
+
+public class IssueIndexRecoveryTest {
+
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+
+  private InternalProperties internalProperties = new InternalPropertiesImpl(dbTester.getDbClient());
+  private IssueIndexRecovery underTest = new IssueIndexRecovery(internalProperties);
+
+  @Test
+  public void recovery_is_not_required_by_default() {
+    assertThat(underTest.isRequired("PROJECT_1")).isFalse();
+  }
+
+  @Test
+  public void recovery_is_required_until_done() {
+    underTest.require("PROJECT_1");
+    underTest.require("PROJECT_2");
+    underTest.require("PROJECT_1");
+
+    assertThat(underTest.isRequired("PROJECT_1")).isTrue();
+    assertThat(underTest.isRequired("PROJECT_2")).isTrue();
+    assertThat(internalProperties.read(PROJECTS_WITH_STALE_ISSUES)).contains("PROJECT_1\nPROJECT_2");
+
+    underTest.done("PROJECT_1");
+
+    assertThat(underTest.isRequired("PROJECT_1")).isFalse();
+    assertThat(underTest.isRequired("PROJECT_2")).isTrue();
+  }
+
+  @Test
+  public void required_recovery_is_persisted() {
+    underTest.require("PROJECT_1");
+
+    assertThat(new IssueIndexRecovery(internalProperties).isRequired("PROJECT_1")).isTrue();
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import com.google.common.collect.SetMultimap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.Developer;
+import org.sonar.server.computation.task.projectanalysis.component.DumbDeveloper;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.guava.api.Assertions.assertThat;
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentFunctions.toReportRef;
+import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
+
+public class ColumnarRawMeasureRepositoryTest {
+
+  private static final ReportComponent FILE_1 = ReportComponent.builder(Component.Type.FILE, 1).setKey("file1").build();
+  private static final ReportComponent FILE_2 = ReportComponent.builder(Component.Type.FILE, 2).setKey("file2").build();
+  // on another page than FILE_1 and FILE_2
+  private static final ReportComponent FAR_FILE = ReportComponent.builder(Component.Type.FILE, ColumnarRawMeasureRepository.PAGE_SIZE * 3 + 7)
+    .setKey("far file").build();
+  private static final Developer SOME_DEVELOPER = new DumbDeveloper("DEV1");
+
+  private static final Metric INT_METRIC = new MetricImpl(1, "int", "int", Metric.MetricType.INT);
+  private static final Metric LONG_METRIC = new MetricImpl(2, "long", "long", Metric.MetricType.WORK_DUR);
+  private static final Metric DOUBLE_METRIC = new MetricImpl(3, "double", "double", Metric.MetricType.FLOAT);
+  private static final Metric BOOLEAN_METRIC = new MetricImpl(4, "boolean", "boolean", Metric.MetricType.BOOL);
+  private static final Metric STRING_METRIC = new MetricImpl(5, "string", "string", Metric.MetricType.DATA);
+  private static final Metric LEVEL_METRIC = new MetricImpl(6, "level", "level", Metric.MetricType.LEVEL);
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ColumnarRawMeasureRepository underTest = new ColumnarRawMeasureRepository(toReportRef());
+
+  @Test
+  public void getBaseMeasure_is_not_supported() {
+    expectedException.expect(UnsupportedOperationException.class);
+
+    underTest.getBaseMeasure(FILE_1, INT_METRIC);
+  }
+
+  @Test
+  public void stores_all_types_of_values() {
+    verifyRoundTrip(INT_METRIC, newMeasureBuilder().create(-12, "some data"));
+    verifyRoundTrip(LONG_METRIC, newMeasureBuilder().create(Long.MAX_VALUE / 3));
+    verifyRoundTrip(DOUBLE_METRIC, newMeasureBuilder().create(12.345d, 2));
+    verifyRoundTrip(BOOLEAN_METRIC, newMeasureBuilder().create(true));
+    verifyRoundTrip(STRING_METRIC, newMeasureBuilder().create("été"));
+    verifyRoundTrip(LEVEL_METRIC, newMeasureBuilder().create(Measure.Level.WARN));
+  }
+
+  @Test
+  public void long_values_are_not_stored_as_doubles() {
+    Measure measure = newMeasureBuilder().create((1L << 53) + 1);
+    underTest.add(FILE_1, LONG_METRIC, measure);
+
+    assertThat(underTest.getRawMeasure(FILE_1, LONG_METRIC).get().getLongValue()).isEqualTo(measure.getLongValue());
+  }
+
+  @Test
+  public void stores_NO_VALUE_measures() {
+    verifyRoundTrip(INT_METRIC, newMeasureBuilder().createNoValue());
+  }
+
+  @Test
+  public void stores_description_QualityGate_status_and_variations() {
+    verifyRoundTrip(INT_METRIC, newMeasureBuilder()
+      .setDescription("some description")
+      .setQualityGateStatus(new QualityGateStatus(Measure.Level.ERROR, "some text"))
+      .setVariations(new MeasureVariations(null, 2d, null, null, -5d))
+      .create(3));
+    verifyRoundTrip(DOUBLE_METRIC, newMeasureBuilder()
+      .setQualityGateStatus(new QualityGateStatus(Measure.Level.OK))
+      .create(1.5d, 1));
+  }
+
+  @Test
+  public void does_not_return_variations_of_other_measures_of_the_same_page() {
+    underTest.add(FILE_1, INT_METRIC, newMeasureBuilder().setVariations(new MeasureVariations(1d)).create(1));
+    underTest.add(FILE_2, INT_METRIC, newMeasureBuilder().setDescription("desc").create(2));
+
+    Measure measure = underTest.getRawMeasure(FILE_2, INT_METRIC).get();
+    assertThat(measure.hasVariations()).isFalse();
+    assertThat(underTest.getRawMeasure(FILE_1, INT_METRIC).get().getDescription()).isNull();
+  }
+
+  @Test
+  public void measures_are_stored_by_component_and_metric() {
+    underTest.add(FILE_1, INT_METRIC, newMeasureBuilder().create(1));
+    underTest.add(FAR_FILE, INT_METRIC, newMeasureBuilder().create(2));
+    underTest.add(FILE_1, LONG_METRIC, newMeasureBuilder().create(3L));
+
+    assertThat(underTest.getRawMeasure(FILE_1, INT_METRIC).get().getIntValue()).isEqualTo(1);
+    assertThat(underTest.getRawMeasure(FAR_FILE, INT_METRIC).get().getIntValue()).isEqualTo(2);
+    assertThat(underTest.getRawMeasure(FILE_1, LONG_METRIC).get().getLongValue()).isEqualTo(3L);
+    assertThat(underTest.getRawMeasure(FILE_2, INT_METRIC)).isAbsent();
+    assertThat(underTest.getRawMeasure(FAR_FILE, LONG_METRIC)).isAbsent();
+    assertThat(underTest.getRawMeasure(FILE_1, DOUBLE_METRIC)).isAbsent();
+  }
+
+  @Test
+  public void add_throws_UOE_if_measure_already_exists() {
+    underTest.add(FILE_1, INT_METRIC, newMeasureBuilder().create(1));
+
+    expectedException.expect(UnsupportedOperationException.class);
+    expectedException.expectMessage("a measure can be set only once for a specific Component (key=file1), Metric (key=int). Use update method");
+
+    underTest.add(FILE_1, INT_METRIC, newMeasureBuilder().create(2));
+  }
+
+  @Test
+  public void add_throws_IAE_if_value_type_is_not_consistent_with_metric() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Measure's ValueType (STRING) is not consistent with the Metric's ValueType (INT)");
+
+    underTest.add(FILE_1, INT_METRIC, newMeasureBuilder().create("foo"));
+  }
+
+  @Test
+  public void update_throws_UOE_if_measure_does_not_exist() {
+    expectedException.expect(UnsupportedOperationException.class);
+    expectedException.expectMessage("a measure can be updated only if one already exists for a specific Component (key=file1), Metric (key=int). Use add method");
+
+    underTest.update(FILE_1, INT_METRIC, newMeasureBuilder().create(2));
+  }
+
+  @Test
+  public void update_replaces_all_fields_of_measure() {
+    underTest.add(FILE_1, INT_METRIC, newMeasureBuilder().setDescription("desc").setVariations(new MeasureVariations(1d)).create(1, "data"));
+
+    Measure newMeasure = newMeasureBuilder().create(2);
+    underTest.update(FILE_1, INT_METRIC, newMeasure);
+
+    assertThat(underTest.getRawMeasure(FILE_1, INT_METRIC).get()).isEqualToComparingFieldByField(newMeasure);
+  }
+
+  @Test
+  public void add_with_OverridePolicy() {
+    underTest.add(FILE_1, INT_METRIC, newMeasureBuilder().create(1), OverridePolicy.DO_NOT_OVERRIDE);
+    underTest.add(FILE_1, INT_METRIC, newMeasureBuilder().create(2), OverridePolicy.DO_NOT_OVERRIDE);
+    assertThat(underTest.getRawMeasure(FILE_1, INT_METRIC).get().getIntValue()).isEqualTo(1);
+
+    underTest.add(FILE_1, INT_METRIC, newMeasureBuilder().create(3), OverridePolicy.OVERRIDE);
+    assertThat(underTest.getRawMeasure(FILE_1, INT_METRIC).get().getIntValue()).isEqualTo(3);
+  }
+
+  @Test
+  public void measures_of_developers_are_stored_apart() {
+    Measure devMeasure = newMeasureBuilder().forDeveloper(SOME_DEVELOPER).create(5);
+    underTest.add(FILE_1, INT_METRIC, newMeasureBuilder().create(1));
+    underTest.add(FILE_1, INT_METRIC, devMeasure);
+
+    assertThat(underTest.getRawMeasure(FILE_1, INT_METRIC).get().getIntValue()).isEqualTo(1);
+    assertThat(underTest.getRawMeasures(FILE_1, INT_METRIC)).hasSize(2).contains(devMeasure);
+  }
+
+  @Test
+  public void getRawMeasures_returns_measures_of_component_by_metric_key() {
+    underTest.add(FILE_1, INT_METRIC, newMeasureBuilder().create(1));
+    underTest.add(FILE_1, STRING_METRIC, newMeasureBuilder().create("foo"));
+    underTest.add(FILE_2, LONG_METRIC, newMeasureBuilder().create(2L));
+
+    SetMultimap<String, Measure> measures = underTest.getRawMeasures(FILE_1);
+
+    assertThat(measures.keySet()).containsOnly(INT_METRIC.getKey(), STRING_METRIC.getKey());
+    assertThat(measures.get(STRING_METRIC.getKey()).iterator().next().getStringValue()).isEqualTo("foo");
+    assertThat(underTest.getRawMeasures(FAR_FILE).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void data_is_stored_in_string_arena() {
+    assertThat(underTest.getStringsSize()).isEqualTo(0);
+
+    underTest.add(FILE_1, STRING_METRIC, newMeasureBuilder().create("foo"));
+
+    assertThat(underTest.getStringsSize()).isGreaterThan(0);
+  }
+
+  private void verifyRoundTrip(Metric metric, Measure measure) {
+    underTest.add(FILE_1, metric, measure, OverridePolicy.OVERRIDE);
+
+    assertThat(underTest.getRawMeasure(FILE_1, metric).get()).isEqualToComparingFieldByField(measure);
+  }
+}
@@ -280,12 +280,13 @@ public class MeasureRepositoryImplTest {
 
   @Test
   public void update_updates_the_stored_value() {
-    Measure newMeasure = Measure.updatedMeasureBuilder(SOME_MEASURE).create();
+    Measure newMeasure = Measure.newMeasureBuilder().create("new value");
 
     underTest.add(FILE_COMPONENT, metric1, SOME_MEASURE);
     underTest.update(FILE_COMPONENT, metric1, newMeasure);
 
-    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric1).get()).isSameAs(newMeasure);
+    // measures are not kept as instances, see ColumnarRawMeasureRepository
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric1).get().getStringValue()).isEqualTo("new value");
   }
 
   @Test
@@ -315,7 +316,7 @@ public class MeasureRepositoryImplTest {
     Optional<Measure> res = underTest.getRawMeasure(FILE_COMPONENT, metric1);
 
     assertThat(res).isPresent();
-    assertThat(res.get()).isSameAs(SOME_MEASURE);
+    assertThat(res.get().getStringValue()).isEqualTo(SOME_MEASURE.getStringValue());
 
     // make sure we really match on the specified component and metric
     assertThat(underTest.getRawMeasure(OTHER_COMPONENT, metric1)).isAbsent();
@@ -360,13 +361,13 @@ public class MeasureRepositoryImplTest {
     reportReader.putMeasures(FILE_COMPONENT.getReportAttributes().getRef(), ImmutableList.of(
       ScannerReport.Measure.newBuilder().setMetricKey(METRIC_KEY_1).setStringValue(StringValue.newBuilder().setValue("some value")).build()));
 
-    Measure addedMeasure = SOME_MEASURE;
+    Measure addedMeasure = Measure.newMeasureBuilder().create("added value");
     underTest.add(FILE_COMPONENT, metric1, addedMeasure);
 
     Optional<Measure> res = underTest.getRawMeasure(FILE_COMPONENT, metric1);
 
     assertThat(res).isPresent();
-    assertThat(res.get()).isSameAs(addedMeasure);
+    assertThat(res.get().getStringValue()).isEqualTo("added value");
   }
 
   @Test
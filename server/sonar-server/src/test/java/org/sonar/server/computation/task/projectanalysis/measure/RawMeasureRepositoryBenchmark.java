@@ -0,0 +1,178 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.metric.Metric;
+import org.sonar.server.computation.task.projectanalysis.metric.MetricImpl;
+
+import static org.sonar.server.computation.task.projectanalysis.component.ComponentFunctions.toReportRef;
+import static org.sonar.server.computation.task.projectanalysis.measure.Measure.newMeasureBuilder;
+
+/**
+ * Compares {@link ColumnarRawMeasureRepository} with the {@link MapBasedRawMeasureRepository} it replaced.
+ * Run {@link #main(String[])} from the IDE, heap usage of both implementations is printed before the benchmark starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RawMeasureRepositoryBenchmark {
+
+  private static final int METRIC_COUNT = 80;
+
+  @Param({"50000"})
+  public int fileCount;
+
+  private List<Component> files;
+  private List<Metric> metrics;
+  private MapBasedRawMeasureRepository<Integer> mapBased;
+  private ColumnarRawMeasureRepository columnar;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    files = createFiles(fileCount);
+    metrics = createMetrics();
+    mapBased = new MapBasedRawMeasureRepository<>(toReportRef());
+    columnar = new ColumnarRawMeasureRepository(toReportRef());
+    fill(mapBased);
+    fill(columnar);
+  }
+
+  @Benchmark
+  public void add_to_map_based() {
+    fill(new MapBasedRawMeasureRepository<>(toReportRef()));
+  }
+
+  @Benchmark
+  public void add_to_columnar() {
+    fill(new ColumnarRawMeasureRepository(toReportRef()));
+  }
+
+  @Benchmark
+  public void read_from_map_based(Blackhole blackhole) {
+    readAll(mapBased, blackhole);
+  }
+
+  @Benchmark
+  public void read_from_columnar(Blackhole blackhole) {
+    readAll(columnar, blackhole);
+  }
+
+  private void fill(MeasureRepository repository) {
+    for (Component file : files) {
+      for (Metric metric : metrics) {
+        repository.add(file, metric, createMeasure(metric, file.getReportAttributes().getRef()));
+      }
+    }
+  }
+
+  private void readAll(MeasureRepository repository, Blackhole blackhole) {
+    for (Component file : files) {
+      for (Metric metric : metrics) {
+        blackhole.consume(repository.getRawMeasure(file, metric));
+      }
+    }
+  }
+
+  private static Measure createMeasure(Metric metric, int ref) {
+    switch (metric.getType().getValueType()) {
+      case INT:
+        return newMeasureBuilder().create(ref % 1000);
+      case LONG:
+        return newMeasureBuilder().create((long) ref * 60);
+      case DOUBLE:
+        return newMeasureBuilder().setVariations(new MeasureVariations(1.5d)).create(ref / 3d, 1);
+      case STRING:
+        return newMeasureBuilder().create("1=" + ref + ";2=" + (ref % 7) + ";3=0");
+      default:
+        throw new IllegalArgumentException("Unsupported metric type " + metric.getType());
+    }
+  }
+
+  private static List<Component> createFiles(int count) {
+    List<Component> files = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      files.add(ReportComponent.builder(Component.Type.FILE, i + 1).setKey("org.sonarsource:project:src/main/java/File" + i + ".java").build());
+    }
+    return files;
+  }
+
+  private static List<Metric> createMetrics() {
+    Metric.MetricType[] types = {Metric.MetricType.INT, Metric.MetricType.INT, Metric.MetricType.WORK_DUR, Metric.MetricType.PERCENT, Metric.MetricType.DATA};
+    List<Metric> metrics = new ArrayList<>(METRIC_COUNT);
+    for (int i = 0; i < METRIC_COUNT; i++) {
+      metrics.add(new MetricImpl(i, "metric" + i, "Metric " + i, types[i % types.length]));
+    }
+    return metrics;
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    RawMeasureRepositoryBenchmark sizes = new RawMeasureRepositoryBenchmark();
+    sizes.fileCount = 200_000;
+    sizes.files = createFiles(sizes.fileCount);
+    sizes.metrics = createMetrics();
+
+    long before = usedHeap();
+    MapBasedRawMeasureRepository<Integer> mapBased = new MapBasedRawMeasureRepository<>(toReportRef());
+    sizes.fill(mapBased);
+    long mapBasedHeap = usedHeap() - before;
+    mapBased = null;
+
+    before = usedHeap();
+    ColumnarRawMeasureRepository columnar = new ColumnarRawMeasureRepository(toReportRef());
+    sizes.fill(columnar);
+    long columnarHeap = usedHeap() - before;
+    System.out.println(String.format("Memory used by %d measures: map based=%d bytes of heap, columnar=%d bytes of heap, including %d bytes of strings",
+      sizes.fileCount * METRIC_COUNT, mapBasedHeap, columnarHeap, columnar.getStringsSize()));
+
+    new Runner(new OptionsBuilder().include(RawMeasureRepositoryBenchmark.class.getSimpleName()).build()).run();
+  }
+}
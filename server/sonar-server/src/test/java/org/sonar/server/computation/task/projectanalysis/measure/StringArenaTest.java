@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.measure;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StringArenaTest {
+
+  private StringArena underTest = new StringArena();
+
+  @Test
+  public void add_and_get_strings() {
+    long ref1 = underTest.add("foo", null, "");
+    long ref2 = underTest.add("ça marche");
+
+    assertThat(underTest.get(ref1)).containsExactly("foo", null, "");
+    assertThat(underTest.get(ref2)).containsExactly("ça marche");
+  }
+
+  @Test
+  public void allocate_new_chunks_when_current_one_is_full() {
+    StringBuilder big = new StringBuilder();
+    for (int i = 0; i < 700_000; i++) {
+      big.append('a');
+    }
+    long ref1 = underTest.add(big.toString());
+    long ref2 = underTest.add(big.toString(), "bar");
+    // larger than a chunk
+    long ref3 = underTest.add(big.toString(), big.toString());
+
+    assertThat(underTest.get(ref1)[0]).hasSize(700_000);
+    assertThat(underTest.get(ref2)[1]).isEqualTo("bar");
+    assertThat(underTest.get(ref3)[1]).hasSize(700_000);
+    assertThat(underTest.getAllocatedBytes()).isGreaterThan(3 * 700_000L);
+  }
+}
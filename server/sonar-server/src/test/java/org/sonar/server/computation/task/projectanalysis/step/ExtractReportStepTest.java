@@ -22,7 +22,9 @@ package org.sonar.server.computation.task.projectanalysis.step;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Optional;
 import org.apache.commons.io.FileUtils;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -37,8 +39,11 @@ import org.sonar.db.DbTester;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportDirectoryHolderImpl;
 import org.sonar.server.computation.task.projectanalysis.batch.MutableBatchReportDirectoryHolder;
+import org.sonar.server.computation.task.projectanalysis.taskprocessor.ReportPrefetcher;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ExtractReportStepTest {
 
@@ -59,7 +64,14 @@ public class ExtractReportStepTest {
   private MutableBatchReportDirectoryHolder reportDirectoryHolder = new BatchReportDirectoryHolderImpl();
   private CeTask ceTask = new CeTask.Builder().setType(CeTaskTypes.REPORT).setUuid(TASK_UUID).build();
 
-  private ExtractReportStep underTest = new ExtractReportStep(dbTester.getDbClient(), ceTask, tempFolder, reportDirectoryHolder);
+  private ReportPrefetcher reportPrefetcher = mock(ReportPrefetcher.class);
+
+  private ExtractReportStep underTest = new ExtractReportStep(dbTester.getDbClient(), ceTask, tempFolder, reportDirectoryHolder, reportPrefetcher);
+
+  @Before
+  public void setUp() {
+    when(reportPrefetcher.take(TASK_UUID)).thenReturn(Optional.empty());
+  }
 
   @Test
   public void fail_if_report_zip_does_not_exist() throws Exception {
@@ -87,6 +99,20 @@ public class ExtractReportStepTest {
     assertThat(new File(unzippedDir, "metadata.pb")).hasContent("{metadata}");
   }
 
+  @Test
+  public void move_report_already_extracted_by_prefetcher() throws Exception {
+    File prefetchedDir = tempFolder.newDir();
+    FileUtils.write(new File(prefetchedDir, "metadata.pb"), "{metadata}");
+    when(reportPrefetcher.take(TASK_UUID)).thenReturn(Optional.of(prefetchedDir));
+
+    underTest.execute();
+
+    File unzippedDir = reportDirectoryHolder.getDirectory();
+    assertThat(unzippedDir).isDirectory().exists();
+    assertThat(new File(unzippedDir, "metadata.pb")).hasContent("{metadata}");
+    assertThat(prefetchedDir).doesNotExist();
+  }
+
   private File generateReport() throws IOException {
     File zipDir = tempFolder.newDir();
     File metadataFile = new File(zipDir, "metadata.pb");
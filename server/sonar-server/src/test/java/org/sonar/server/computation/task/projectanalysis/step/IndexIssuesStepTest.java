@@ -19,13 +19,29 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.Lists;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.server.computation.task.projectanalysis.issue.IssueCache;
+import org.sonar.server.computation.task.projectanalysis.issue.IssueIndexRecovery;
 import org.sonar.server.issue.index.IssueIndexer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.sonar.server.computation.task.projectanalysis.component.Component.Type.PROJECT;
 import static org.sonar.server.computation.task.projectanalysis.component.ReportComponent.builder;
 
@@ -37,13 +53,108 @@ public class IndexIssuesStepTest {
   public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule()
     .setRoot(builder(PROJECT, 1).setUuid(PROJECT_UUID).setKey("PROJECT_KEY").build());
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private IssueIndexer issueIndexer = mock(IssueIndexer.class);
+  private IssueIndexRecovery indexRecovery = mock(IssueIndexRecovery.class);
+  private IssueCache issueCache;
+  private IndexIssuesStep underTest;
+  private List<String> indexedKeys;
+  private boolean indexingSucceeds = true;
+
+  @Before
+  public void setUp() throws Exception {
+    issueCache = new IssueCache(temp.newFile(), System2.INSTANCE);
+    underTest = new IndexIssuesStep(issueIndexer, treeRootHolder, issueCache, indexRecovery);
+    // keys are streamed from the cache, so they must be read during the call to the indexer
+    doAnswer(invocation -> {
+      indexedKeys = Lists.newArrayList((Iterator<String>) invocation.getArguments()[1]);
+      return indexingSucceeds;
+    }).when(issueIndexer).indexByKeys(eq(PROJECT_UUID), any(Iterator.class));
+  }
+
+  @Test
+  public void index_only_new_and_changed_issues() {
+    issueCache.newAppender()
+      .append(new DefaultIssue().setKey("NEW").setNew(true))
+      .append(new DefaultIssue().setKey("CHANGED").setNew(false).setChanged(true))
+      .append(new DefaultIssue().setKey("UNCHANGED").setNew(false).setChanged(false))
+      .close();
+
+    underTest.execute();
+
+    verify(issueIndexer).indexByKeys(eq(PROJECT_UUID), any(Iterator.class));
+    assertThat(indexedKeys).containsExactly("NEW", "CHANGED");
+  }
+
+  @Test
+  public void index_nothing_if_no_issues() {
+    issueCache.newAppender().close();
+
+    underTest.execute();
+
+    assertThat(indexedKeys).isEmpty();
+  }
+
+  @Test
+  public void require_recovery_of_project_when_some_issues_fail_to_be_indexed() {
+    issueCache.newAppender().append(new DefaultIssue().setKey("NEW").setNew(true)).close();
+    indexingSucceeds = false;
+
+    underTest.execute();
+
+    verify(indexRecovery).require(PROJECT_UUID);
+  }
+
+  @Test
+  public void require_recovery_of_project_when_indexing_fails() {
+    issueCache.newAppender().append(new DefaultIssue().setKey("NEW").setNew(true)).close();
+    IllegalStateException failure = new IllegalStateException("faking failure of Elasticsearch");
+    doAnswer(invocation -> {
+      throw failure;
+    }).when(issueIndexer).indexByKeys(eq(PROJECT_UUID), any(Iterator.class));
+
+    try {
+      underTest.execute();
+      fail("indexing failure should be propagated");
+    } catch (IllegalStateException e) {
+      assertThat(e).isSameAs(failure);
+    }
+    verify(indexRecovery).require(PROJECT_UUID);
+  }
+
+  @Test
+  public void do_not_require_recovery_of_project_when_all_issues_are_indexed() {
+    issueCache.newAppender().append(new DefaultIssue().setKey("NEW").setNew(true)).close();
+
+    underTest.execute();
+
+    verify(indexRecovery, never()).require(PROJECT_UUID);
+    verify(indexRecovery, never()).done(PROJECT_UUID);
+  }
+
+  @Test
+  public void index_all_issues_of_project_when_recovery_is_required() {
+    issueCache.newAppender().append(new DefaultIssue().setKey("NEW").setNew(true)).close();
+    when(indexRecovery.isRequired(PROJECT_UUID)).thenReturn(true);
+    when(issueIndexer.indexAllOfProject(PROJECT_UUID)).thenReturn(true);
+
+    underTest.execute();
+
+    verify(issueIndexer).indexAllOfProject(PROJECT_UUID);
+    verify(issueIndexer, never()).indexByKeys(eq(PROJECT_UUID), any(Iterator.class));
+    verify(indexRecovery).done(PROJECT_UUID);
+  }
+
   @Test
-  public void call_indexer() {
-    IssueIndexer issueIndexer = mock(IssueIndexer.class);
-    IndexIssuesStep underTest = new IndexIssuesStep(issueIndexer, treeRootHolder);
+  public void recovery_is_still_required_when_indexing_all_issues_of_project_fails() {
+    when(indexRecovery.isRequired(PROJECT_UUID)).thenReturn(true);
+    when(issueIndexer.indexAllOfProject(PROJECT_UUID)).thenReturn(false);
 
     underTest.execute();
 
-    verify(issueIndexer).index(PROJECT_UUID);
+    verify(indexRecovery, never()).done(PROJECT_UUID);
+    verify(indexRecovery, never()).require(PROJECT_UUID);
   }
 }
@@ -48,6 +48,7 @@ import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolde
 import org.sonar.server.computation.task.projectanalysis.component.Component;
 import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationIndex;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
 import org.sonar.server.computation.task.projectanalysis.duplication.IntegrateCrossProjectDuplications;
 import org.sonar.server.computation.task.step.ComputationStep;
@@ -104,7 +105,7 @@ public class LoadCrossProjectDuplicationsRepositoryStepTest {
   Analysis baseProjectAnalysis;
 
   ComputationStep underTest = new LoadCrossProjectDuplicationsRepositoryStep(treeRootHolder, batchReportReader, analysisMetadataHolder, crossProjectDuplicationStatusHolder,
-    integrateCrossProjectDuplications, dbClient);
+    integrateCrossProjectDuplications, new CrossProjectDuplicationIndex(dbClient, System2.INSTANCE), dbClient);
 
   @Before
   public void setUp() throws Exception {
@@ -325,6 +326,22 @@ public class LoadCrossProjectDuplicationsRepositoryStepTest {
     verifyZeroInteractions(integrateCrossProjectDuplications);
   }
 
+  @Test
+  public void do_not_query_duplicates_when_no_hash_is_indexed_in_other_projects() throws Exception {
+    when(crossProjectDuplicationStatusHolder.isEnabled()).thenReturn(true);
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    CrossProjectDuplicationIndex index = mock(CrossProjectDuplicationIndex.class);
+    DbClient dbClientWithoutDuplicationDao = mock(DbClient.class);
+    ComputationStep underTest = new LoadCrossProjectDuplicationsRepositoryStep(treeRootHolder, batchReportReader, analysisMetadataHolder,
+      crossProjectDuplicationStatusHolder, integrateCrossProjectDuplications, index, dbClientWithoutDuplicationDao);
+    batchReportReader.putDuplicationBlocks(FILE_REF, asList(ScannerReport.CpdTextBlock.newBuilder().setHash("a8998353e96320ec").build()));
+
+    underTest.execute();
+
+    verify(index).filterCandidates(XOO_LANGUAGE, baseProjectAnalysis.getUuid(), Collections.singletonList("a8998353e96320ec"));
+    verifyZeroInteractions(dbClientWithoutDuplicationDao, integrateCrossProjectDuplications);
+  }
+
   private ComponentDto createProject(String projectKey) {
     ComponentDto project = ComponentTesting.newProjectDto().setKey(projectKey);
     dbClient.componentDao().insert(dbSession, project);
@@ -19,6 +19,7 @@
  */
 package org.sonar.server.computation.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -34,19 +35,26 @@ import org.sonar.server.computation.task.projectanalysis.analysis.AnalysisMetada
 import org.sonar.server.computation.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.server.computation.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.server.computation.task.projectanalysis.component.Component;
+import org.sonar.server.computation.task.projectanalysis.component.FileAttributes;
 import org.sonar.server.computation.task.projectanalysis.component.ReportComponent;
+import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationIndex;
 import org.sonar.server.computation.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
 import org.sonar.server.computation.task.step.ComputationStep;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class PersistCrossProjectDuplicationIndexStepTest {
 
   private static final int FILE_REF = 2;
-  private static final Component FILE = ReportComponent.builder(Component.Type.FILE, FILE_REF).build();
+  private static final String LANGUAGE = "java";
+  private static final Component FILE = ReportComponent.builder(Component.Type.FILE, FILE_REF)
+    .setFileAttributes(new FileAttributes(false, LANGUAGE))
+    .build();
 
   private static final Component PROJECT = ReportComponent.builder(Component.Type.PROJECT, 1)
     .addChildren(FILE)
@@ -70,9 +78,12 @@ public class PersistCrossProjectDuplicationIndexStepTest {
 
   CrossProjectDuplicationStatusHolder crossProjectDuplicationStatusHolder = mock(CrossProjectDuplicationStatusHolder.class);
 
+  CrossProjectDuplicationIndex crossProjectDuplicationIndex = mock(CrossProjectDuplicationIndex.class);
+
   DbClient dbClient = dbTester.getDbClient();
 
-  ComputationStep underTest = new PersistCrossProjectDuplicationIndexStep(crossProjectDuplicationStatusHolder, dbClient, treeRootHolder, analysisMetadataHolder, reportReader);
+  ComputationStep underTest = new PersistCrossProjectDuplicationIndexStep(crossProjectDuplicationStatusHolder, dbClient, treeRootHolder, analysisMetadataHolder, reportReader,
+    crossProjectDuplicationIndex);
 
   @Before
   public void setUp() throws Exception {
@@ -117,6 +128,19 @@ public class PersistCrossProjectDuplicationIndexStepTest {
     assertThat(dtos).extracting("ANALYSIS_UUID").containsOnly(ANALYSIS_UUID);
   }
 
+  @Test
+  public void add_persisted_hashes_to_cross_project_duplication_index() throws Exception {
+    when(crossProjectDuplicationStatusHolder.isEnabled()).thenReturn(true);
+    reportReader.putDuplicationBlocks(FILE_REF, Arrays.asList(
+      CPD_TEXT_BLOCK,
+      ScannerReport.CpdTextBlock.newBuilder().setHash("b1234353e96320ff").build(),
+      ScannerReport.CpdTextBlock.newBuilder().setHash(CPD_TEXT_BLOCK.getHash()).build()));
+
+    underTest.execute();
+
+    verify(crossProjectDuplicationIndex).add(LANGUAGE, ANALYSIS_UUID, ImmutableSet.of(CPD_TEXT_BLOCK.getHash(), "b1234353e96320ff"));
+  }
+
   @Test
   public void nothing_to_persist_when_no_cpd_text_blocks_in_report() throws Exception {
     when(crossProjectDuplicationStatusHolder.isEnabled()).thenReturn(true);
@@ -135,6 +159,7 @@ public class PersistCrossProjectDuplicationIndexStepTest {
     underTest.execute();
 
     assertThat(dbTester.countRowsOfTable("duplications_index")).isEqualTo(0);
+    verifyZeroInteractions(crossProjectDuplicationIndex);
   }
 
 }
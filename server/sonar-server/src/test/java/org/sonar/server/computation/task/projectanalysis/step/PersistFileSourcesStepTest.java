@@ -455,6 +455,70 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(fileSourceDto.getRevision()).isNull();
   }
 
+  @Test
+  public void persist_inputs_hash() {
+    initBasicReport(1);
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getInputsHash()).hasSize(32);
+  }
+
+  @Test
+  public void skip_computation_of_sources_when_inputs_have_not_changed() {
+    initBasicReport(1);
+    underTest.execute();
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    // data hash is not computed again by next analysis
+    dbClient.fileSourceDao().update(session, fileSourceDto.setDataHash("not computed again"));
+    session.commit();
+    when(system2.now()).thenReturn(NOW + 1);
+
+    underTest.execute();
+
+    fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getDataHash()).isEqualTo("not computed again");
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+  }
+
+  @Test
+  public void update_sources_when_coverage_has_changed() {
+    initBasicReport(1);
+    underTest.execute();
+    String inputsHash = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID).getInputsHash();
+    when(system2.now()).thenReturn(NOW + 1);
+    reportReader.putCoverage(FILE_REF, newArrayList(ScannerReport.LineCoverage.newBuilder()
+      .setLine(1)
+      .setHits(true)
+      .build()));
+
+    underTest.execute();
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getInputsHash()).isNotEqualTo(inputsHash);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW + 1);
+    assertThat(fileSourceDto.getSourceData().getLines(0).getUtLineHits()).isEqualTo(1);
+  }
+
+  @Test
+  public void update_inputs_hash_without_changing_update_date_when_only_inputs_hash_is_missing() {
+    initBasicReport(1);
+    underTest.execute();
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    String inputsHash = fileSourceDto.getInputsHash();
+    // sources persisted before inputs hash existed
+    dbClient.fileSourceDao().update(session, fileSourceDto.setInputsHash(null));
+    session.commit();
+    when(system2.now()).thenReturn(NOW + 1);
+
+    underTest.execute();
+
+    fileSourceDto = dbClient.fileSourceDao().selectSourceByFileUuid(session, FILE_UUID);
+    assertThat(fileSourceDto.getInputsHash()).isEqualTo(inputsHash);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(NOW);
+  }
+
   private void initBasicReport(int numberOfLines) {
     treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(
       ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY").addChildren(
@@ -0,0 +1,176 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.task.projectanalysis.taskprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.api.utils.ZipUtils;
+import org.sonar.api.utils.internal.JUnitTempFolder;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.ce.CeQueueDto;
+import org.sonar.db.ce.CeTaskTypes;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportPrefetcherTest {
+
+  @Rule
+  public JUnitTempFolder tempFolder = new JUnitTempFolder();
+  @Rule
+  public DbTester dbTester = DbTester.create(System2.INSTANCE);
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule().setWorkerCount(2).setReportPrefetchEnabled(true);
+
+  private DbClient dbClient = dbTester.getDbClient();
+  private DbSession dbSession = dbTester.getSession();
+  private ReportPrefetcher underTest = new ReportPrefetcher(dbClient, tempFolder, ceConfiguration);
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void take_returns_empty_if_nothing_was_prefetched() {
+    assertThat(underTest.take("TASK_1")).isEmpty();
+  }
+
+  @Test
+  public void refresh_extracts_reports_of_pending_tasks() throws Exception {
+    insertReportTask("TASK_1", CeQueueDto.Status.PENDING, "report1");
+    insertReportTask("TASK_2", CeQueueDto.Status.PENDING, "report2");
+
+    underTest.refresh();
+
+    File dir1 = underTest.take("TASK_1").get();
+    assertThat(new File(dir1, "metadata.pb")).hasContent("report1");
+    File dir2 = underTest.take("TASK_2").get();
+    assertThat(new File(dir2, "metadata.pb")).hasContent("report2");
+    // directories are handed over only once
+    assertThat(underTest.take("TASK_1")).isEmpty();
+  }
+
+  @Test
+  public void refresh_ignores_tasks_which_are_not_pending() throws Exception {
+    insertReportTask("TASK_1", CeQueueDto.Status.IN_PROGRESS, "report1");
+
+    underTest.refresh();
+
+    assertThat(underTest.take("TASK_1")).isEmpty();
+  }
+
+  @Test
+  public void refresh_extracts_at_most_as_many_reports_as_workers() throws Exception {
+    insertReportTask("TASK_1", CeQueueDto.Status.PENDING, "report1");
+    insertReportTask("TASK_2", CeQueueDto.Status.PENDING, "report2");
+    insertReportTask("TASK_3", CeQueueDto.Status.PENDING, "report3");
+
+    underTest.refresh();
+
+    assertThat(underTest.take("TASK_3")).isEmpty();
+    assertThat(underTest.take("TASK_1")).isPresent();
+  }
+
+  @Test
+  public void refresh_deletes_reports_of_tasks_removed_from_queue() throws Exception {
+    insertReportTask("TASK_1", CeQueueDto.Status.PENDING, "report1");
+    underTest.refresh();
+    dbClient.ceQueueDao().deleteByUuid(dbSession, "TASK_1");
+    dbSession.commit();
+
+    underTest.refresh();
+
+    assertThat(underTest.take("TASK_1")).isEmpty();
+  }
+
+  @Test
+  public void refresh_keeps_reports_of_tasks_in_progress() throws Exception {
+    insertReportTask("TASK_1", CeQueueDto.Status.PENDING, "report1");
+    underTest.refresh();
+    CeQueueDto dto = dbClient.ceQueueDao().selectByUuid(dbSession, "TASK_1").get();
+    dbClient.ceQueueDao().deleteByUuid(dbSession, "TASK_1");
+    dbClient.ceQueueDao().insert(dbSession, dto.setStatus(CeQueueDto.Status.IN_PROGRESS));
+    dbSession.commit();
+
+    underTest.refresh();
+
+    assertThat(underTest.take("TASK_1")).isPresent();
+  }
+
+  @Test
+  public void take_returns_empty_if_report_is_missing_in_database() {
+    CeQueueDto dto = new CeQueueDto().setUuid("TASK_1").setTaskType(CeTaskTypes.REPORT).setStatus(CeQueueDto.Status.PENDING);
+    dbClient.ceQueueDao().insert(dbSession, dto);
+    dbSession.commit();
+
+    underTest.refresh();
+
+    assertThat(underTest.take("TASK_1")).isEmpty();
+  }
+
+  @Test
+  public void prefetchNext_does_nothing_when_prefetch_is_disabled() throws Exception {
+    insertReportTask("TASK_1", CeQueueDto.Status.PENDING, "report1");
+    ReportPrefetcher disabled = new ReportPrefetcher(dbClient, tempFolder, new CeConfigurationRule());
+    disabled.start();
+
+    disabled.prefetchNext();
+
+    assertThat(disabled.take("TASK_1")).isEmpty();
+    disabled.stop();
+  }
+
+  @Test
+  public void stop_deletes_prefetched_reports() throws Exception {
+    insertReportTask("TASK_1", CeQueueDto.Status.PENDING, "report1");
+    underTest.refresh();
+
+    underTest.stop();
+
+    assertThat(underTest.take("TASK_1")).isEmpty();
+  }
+
+  private void insertReportTask(String uuid, CeQueueDto.Status status, String metadata) throws IOException {
+    CeQueueDto dto = new CeQueueDto().setUuid(uuid).setTaskType(CeTaskTypes.REPORT).setComponentUuid("PROJECT_" + uuid).setStatus(status);
+    dbClient.ceQueueDao().insert(dbSession, dto);
+    try (InputStream input = FileUtils.openInputStream(generateReport(metadata))) {
+      dbClient.ceTaskInputDao().insert(dbSession, uuid, input);
+    }
+    dbSession.commit();
+  }
+
+  private File generateReport(String metadata) throws IOException {
+    File zipDir = tempFolder.newDir();
+    FileUtils.write(new File(zipDir, "metadata.pb"), metadata);
+    File zip = tempFolder.newFile();
+    ZipUtils.zipDir(zipDir, zip);
+    return zip;
+  }
+}
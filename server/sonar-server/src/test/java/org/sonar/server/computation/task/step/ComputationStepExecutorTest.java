@@ -19,19 +19,31 @@
  */
 package org.sonar.server.computation.task.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
+import org.slf4j.MDC;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.ce.monitoring.CEQueueStatus;
+import org.sonar.server.computation.configuration.CeConfigurationRule;
 import org.sonar.server.computation.task.ChangeLogLevel;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
@@ -40,10 +52,19 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class ComputationStepExecutorTest {
+  private static final Runnable NO_OP = () -> {
+    // nothing to do
+  };
+
   @Rule
   public LogTester logTester = new LogTester();
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
+
+  private final CEQueueStatus queueStatus = mock(CEQueueStatus.class);
+  private final List<String> executedSteps = Collections.synchronizedList(new ArrayList<>());
 
   private final ComputationStepExecutor.Listener listener = mock(ComputationStepExecutor.Listener.class);
   private final ComputationStep computationStep1 = mockComputationStep("step1");
@@ -152,6 +173,146 @@ public class ComputationStepExecutorTest {
     new ComputationStepExecutor(mockComputationSteps(computationStep1), listener).execute();
   }
 
+  @Test
+  public void execute_records_processing_time_of_each_step() {
+    new ComputationStepExecutor(mockComputationSteps(computationStep1, computationStep2), listener, queueStatus, ceConfiguration)
+      .execute();
+
+    verify(queueStatus).addStepProcessingTime(eq("step1"), anyLong());
+    verify(queueStatus).addStepProcessingTime(eq("step2"), anyLong());
+  }
+
+  @Test
+  public void execute_runs_independent_concurrent_steps_in_parallel() {
+    ceConfiguration.setStepsConcurrency(2);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    Runnable waitForOtherStep = () -> {
+      bothStarted.countDown();
+      try {
+        assertThat(bothStarted.await(10, TimeUnit.SECONDS)).isTrue();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    };
+
+    new ComputationStepExecutor(mockComputationSteps(
+      new TestConcurrentStep("step1", ImmutableSet.of(String.class), ImmutableSet.of(), waitForOtherStep),
+      new TestConcurrentStep("step2", ImmutableSet.of(String.class), ImmutableSet.of(), waitForOtherStep)), listener, queueStatus, ceConfiguration)
+        .execute();
+
+    assertThat(executedSteps).containsOnly("step1", "step2");
+    verify(listener).finished(true);
+  }
+
+  @Test
+  public void execute_runs_concurrent_step_after_preceding_steps_it_conflicts_with() {
+    ceConfiguration.setStepsConcurrency(4);
+
+    new ComputationStepExecutor(mockComputationSteps(
+      new TestConcurrentStep("writer", ImmutableSet.of(), ImmutableSet.of(String.class), sleep()),
+      new TestConcurrentStep("reader", ImmutableSet.of(String.class), ImmutableSet.of(), NO_OP)), listener, queueStatus, ceConfiguration)
+        .execute();
+
+    assertThat(executedSteps).containsExactly("writer", "reader");
+  }
+
+  @Test
+  public void execute_runs_non_concurrent_step_after_all_preceding_steps() {
+    ceConfiguration.setStepsConcurrency(4);
+    ComputationStep barrier = mock(ComputationStep.class);
+    when(barrier.getDescription()).thenReturn("barrier");
+    doAnswer(invocation -> executedSteps.add("barrier")).when(barrier).execute();
+
+    new ComputationStepExecutor(mockComputationSteps(
+      new TestConcurrentStep("concurrent", ImmutableSet.of(), ImmutableSet.of(), sleep()),
+      barrier), listener, queueStatus, ceConfiguration)
+        .execute();
+
+    assertThat(executedSteps).containsExactly("concurrent", "barrier");
+  }
+
+  @Test
+  public void execute_let_exception_thrown_by_concurrent_step_go_up_as_is() {
+    ceConfiguration.setStepsConcurrency(2);
+    RuntimeException toBeThrown = new RuntimeException("simulating failing concurrent step");
+
+    try {
+      new ComputationStepExecutor(mockComputationSteps(
+        new TestConcurrentStep("failing", ImmutableSet.of(), ImmutableSet.of(), () -> {
+          throw toBeThrown;
+        })), listener, queueStatus, ceConfiguration)
+          .execute();
+      fail("exception toBeThrown should have been raised");
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(toBeThrown);
+      verify(listener).finished(false);
+    }
+  }
+
+  @Test
+  public void execute_copies_logging_context_of_caller_to_concurrent_steps() {
+    ceConfiguration.setStepsConcurrency(2);
+    List<String> mdcValues = Collections.synchronizedList(new ArrayList<>());
+    Runnable readMdc = () -> mdcValues.add(MDC.get("ceTaskUuid"));
+
+    MDC.put("ceTaskUuid", "TASK_1");
+    try {
+      new ComputationStepExecutor(mockComputationSteps(
+        new TestConcurrentStep("step1", ImmutableSet.of(), ImmutableSet.of(), readMdc),
+        new TestConcurrentStep("step2", ImmutableSet.of(), ImmutableSet.of(), readMdc)), listener, queueStatus, ceConfiguration)
+          .execute();
+    } finally {
+      MDC.remove("ceTaskUuid");
+    }
+
+    assertThat(mdcValues).containsExactly("TASK_1", "TASK_1");
+  }
+
+  private static Runnable sleep() {
+    return () -> {
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    };
+  }
+
+  private class TestConcurrentStep implements ConcurrentComputationStep {
+    private final String description;
+    private final Set<Class<?>> readHolders;
+    private final Set<Class<?>> writtenHolders;
+    private final Runnable action;
+
+    private TestConcurrentStep(String description, Set<Class<?>> readHolders, Set<Class<?>> writtenHolders, Runnable action) {
+      this.description = description;
+      this.readHolders = readHolders;
+      this.writtenHolders = writtenHolders;
+      this.action = action;
+    }
+
+    @Override
+    public void execute() {
+      action.run();
+      executedSteps.add(description);
+    }
+
+    @Override
+    public Set<Class<?>> readHolders() {
+      return readHolders;
+    }
+
+    @Override
+    public Set<Class<?>> writtenHolders() {
+      return writtenHolders;
+    }
+
+    @Override
+    public String getDescription() {
+      return description;
+    }
+  }
+
   private static ComputationSteps mockComputationSteps(ComputationStep... computationSteps) {
     ComputationSteps steps = mock(ComputationSteps.class);
     when(steps.instances()).thenReturn(Arrays.asList(computationSteps));
@@ -43,16 +43,20 @@ import javax.annotation.concurrent.Immutable;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
+import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.server.computation.configuration.CeConfigurationRule;
+import org.sonar.server.computation.queue.CeQueueSubmissionWatcher;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.sonar.server.computation.taskprocessor.CeProcessingSchedulerImpl.SUBMISSION_CHECK_DELAY;
 
 public class CeProcessingSchedulerImplTest {
   private static final Error ERROR_TO_INTERRUPT_CHAINING = new Error("Error should stop scheduling");
@@ -64,11 +68,14 @@ public class CeProcessingSchedulerImplTest {
   public CeConfigurationRule ceConfiguration = new CeConfigurationRule();
 
   private CeWorkerCallable ceWorkerRunnable = mock(CeWorkerCallable.class);
+  private CEQueueStatus queueStatus = mock(CEQueueStatus.class);
+  private CeQueueSubmissionWatcher submissionWatcher = mock(CeQueueSubmissionWatcher.class);
   private StubCeProcessingSchedulerExecutorService processingExecutorService = new StubCeProcessingSchedulerExecutorService();
   private SchedulerCall regularDelayedPoll = new SchedulerCall(ceWorkerRunnable, 2000L, TimeUnit.MILLISECONDS);
   private SchedulerCall notDelayedPoll = new SchedulerCall(ceWorkerRunnable);
 
-  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
+  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable,
+    queueStatus, submissionWatcher);
 
   @Test
   public void polls_without_delay_when_CeWorkerCallable_returns_true() throws Exception {
@@ -99,21 +106,34 @@ public class CeProcessingSchedulerImplTest {
   }
 
   @Test
-  public void polls_with_regular_delay_when_CeWorkerCallable_returns_false() throws Exception {
+  public void does_not_poll_anymore_when_CeWorkerCallable_returns_false() throws Exception {
     when(ceWorkerRunnable.call())
       .thenReturn(false)
       .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
 
     startSchedulingAndRun();
 
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(regularDelayedPoll);
+  }
+
+  @Test
+  public void polls_without_delay_when_tasks_are_submitted_after_CeWorkerCallable_returned_false() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    when(submissionWatcher.hasNewSubmissions()).thenReturn(true);
+
+    startSchedulingAndRun();
+    watchQueueAndRun();
+
     assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
       regularDelayedPoll,
-      regularDelayedPoll
+      notDelayedPoll
       );
   }
 
   @Test
-  public void startScheduling_schedules_CeWorkerCallable_at_fixed_rate_run_head_of_queue() throws Exception {
+  public void startScheduling_schedules_CeWorkerCallable_run_head_of_queue_until_empty_then_at_submission() throws Exception {
     when(ceWorkerRunnable.call())
       .thenReturn(true)
       .thenReturn(true)
@@ -122,37 +142,34 @@ public class CeProcessingSchedulerImplTest {
       .thenReturn(false)
       .thenThrow(new Exception("IAE should not cause scheduling to stop"))
       .thenReturn(false)
-      .thenReturn(false)
-      .thenReturn(false)
       .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    when(submissionWatcher.hasNewSubmissions()).thenReturn(true);
 
     startSchedulingAndRun();
+    watchQueueAndRun();
+    watchQueueAndRun();
+    watchQueueAndRun();
 
     assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
       regularDelayedPoll,
       notDelayedPoll,
       notDelayedPoll,
-      regularDelayedPoll,
       notDelayedPoll,
-      regularDelayedPoll,
       notDelayedPoll,
-      regularDelayedPoll,
-      regularDelayedPoll,
-      regularDelayedPoll
+      notDelayedPoll,
+      notDelayedPoll,
+      notDelayedPoll
       );
   }
 
   @Test
   public void stop_cancels_next_polling_and_does_not_add_any_new_one() throws Exception {
     when(ceWorkerRunnable.call())
-      .thenReturn(false)
       .thenReturn(true)
-      .thenReturn(false)
-      .thenReturn(false)
-      .thenReturn(false)
-      .thenReturn(false)
+      .thenReturn(true)
       .thenReturn(false)
       .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    when(submissionWatcher.hasNewSubmissions()).thenReturn(true);
 
     underTest.startScheduling();
 
@@ -165,19 +182,19 @@ public class CeProcessingSchedulerImplTest {
       } else {
         future.get();
       }
-      // call stop after second delayed polling
+      // call stop after second polling
       if (i == 1) {
         underTest.stop();
       }
       i++;
     }
+    watchQueueAndRun();
 
     assertThat(cancelledTaskFutureCount).isEqualTo(1);
     assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
-      regularDelayedPoll,
       regularDelayedPoll,
       notDelayedPoll,
-      regularDelayedPoll
+      notDelayedPoll
       );
   }
 
@@ -189,7 +206,8 @@ public class CeProcessingSchedulerImplTest {
 
     ListenableScheduledFuture listenableScheduledFuture = mock(ListenableScheduledFuture.class);
     CeProcessingSchedulerExecutorService processingExecutorService = mock(CeProcessingSchedulerExecutorService.class);
-    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable);
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable,
+      queueStatus, submissionWatcher);
     when(processingExecutorService.schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
         .thenReturn(listenableScheduledFuture);
 
@@ -199,6 +217,150 @@ public class CeProcessingSchedulerImplTest {
     verify(listenableScheduledFuture, times(workerCount)).addListener(any(Runnable.class), eq(processingExecutorService));
   }
 
+  @Test
+  public void startScheduling_schedules_watcher_of_queue() {
+    CeProcessingSchedulerExecutorService processingExecutorService = mockProcessingExecutorService();
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable,
+      queueStatus, submissionWatcher);
+
+    underTest.startScheduling();
+
+    verify(processingExecutorService).scheduleWithFixedDelay(any(Runnable.class), eq(SUBMISSION_CHECK_DELAY), eq(SUBMISSION_CHECK_DELAY),
+      eq(MILLISECONDS));
+  }
+
+  @Test
+  public void watchQueue_does_not_check_submissions_when_no_worker_is_idle() throws Exception {
+    underTest.startScheduling();
+
+    underTest.watchQueue();
+
+    verify(submissionWatcher, never()).hasNewSubmissions();
+  }
+
+  @Test
+  public void watchQueue_does_not_wake_up_idle_worker_when_no_task_is_submitted() throws Exception {
+    when(ceWorkerRunnable.call()).thenReturn(false);
+    startSchedulingAndRun();
+
+    watchQueueAndRun();
+
+    verify(submissionWatcher).hasNewSubmissions();
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(regularDelayedPoll);
+  }
+
+  @Test
+  public void watchQueue_wakes_up_one_idle_worker_at_polling_delay_when_no_task_is_submitted() throws Exception {
+    ceConfiguration.setWorkerCount(2);
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable,
+      queueStatus, submissionWatcher);
+    when(ceWorkerRunnable.call()).thenReturn(false);
+    underTest.startScheduling();
+    processingExecutorService.runFutures();
+
+    long checksBetweenPollings = ceConfiguration.getQueuePollingDelay() / SUBMISSION_CHECK_DELAY;
+    for (int i = 0; i < checksBetweenPollings; i++) {
+      underTest.watchQueue();
+      processingExecutorService.runFutures();
+    }
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      regularDelayedPoll,
+      notDelayedPoll
+      );
+  }
+
+  @Test
+  public void watchQueue_wakes_up_idle_worker_at_polling_delay_when_submissions_can_not_be_checked() throws Exception {
+    when(ceWorkerRunnable.call())
+      .thenReturn(false)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    when(submissionWatcher.hasNewSubmissions()).thenThrow(new IllegalStateException("faking DB failure"));
+    startSchedulingAndRun();
+
+    long checksBetweenPollings = ceConfiguration.getQueuePollingDelay() / SUBMISSION_CHECK_DELAY;
+    for (int i = 0; i < checksBetweenPollings; i++) {
+      watchQueueAndRun();
+    }
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      notDelayedPoll
+      );
+  }
+
+  @Test
+  public void only_min_worker_count_workers_are_scheduled_when_less_than_worker_count() {
+    ceConfiguration.setWorkerCount(3).setMinWorkerCount(1);
+    CeProcessingSchedulerExecutorService processingExecutorService = mockProcessingExecutorService();
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable,
+      queueStatus, submissionWatcher);
+
+    underTest.startScheduling();
+
+    verify(processingExecutorService, times(1)).schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS);
+    verify(queueStatus).setActiveWorkerCount(1);
+  }
+
+  @Test
+  public void watchQueue_starts_additional_workers_when_tasks_are_submitted() {
+    ceConfiguration.setWorkerCount(3).setMinWorkerCount(1);
+    CeProcessingSchedulerExecutorService processingExecutorService = mockProcessingExecutorService();
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable,
+      queueStatus, submissionWatcher);
+    when(submissionWatcher.hasNewSubmissions()).thenReturn(true);
+    underTest.startScheduling();
+
+    underTest.watchQueue();
+
+    // the always active worker is busy, two additional workers are started
+    verify(processingExecutorService, times(2)).submit(ceWorkerRunnable);
+    verify(queueStatus).setActiveWorkerCount(3);
+  }
+
+  @Test
+  public void watchQueue_does_not_start_additional_workers_when_no_task_is_submitted() {
+    ceConfiguration.setWorkerCount(3).setMinWorkerCount(1);
+    CeProcessingSchedulerExecutorService processingExecutorService = mockProcessingExecutorService();
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable,
+      queueStatus, submissionWatcher);
+    when(submissionWatcher.hasNewSubmissions()).thenReturn(false);
+    underTest.startScheduling();
+
+    underTest.watchQueue();
+
+    verify(processingExecutorService, never()).submit(ceWorkerRunnable);
+  }
+
+  @Test
+  public void watchQueue_does_not_start_additional_workers_when_heap_headroom_is_too_low() {
+    ceConfiguration.setWorkerCount(3).setMinWorkerCount(1);
+    CeProcessingSchedulerExecutorService processingExecutorService = mockProcessingExecutorService();
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerRunnable,
+      queueStatus, submissionWatcher) {
+      @Override
+      protected boolean hasHeapHeadroom() {
+        return false;
+      }
+    };
+    when(submissionWatcher.hasNewSubmissions()).thenReturn(true);
+    underTest.startScheduling();
+
+    underTest.watchQueue();
+
+    verify(processingExecutorService, never()).submit(ceWorkerRunnable);
+    verify(queueStatus, never()).setActiveWorkerCount(2);
+  }
+
+  private CeProcessingSchedulerExecutorService mockProcessingExecutorService() {
+    CeProcessingSchedulerExecutorService processingExecutorService = mock(CeProcessingSchedulerExecutorService.class);
+    when(processingExecutorService.schedule(ceWorkerRunnable, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
+      .thenReturn(mock(ListenableScheduledFuture.class));
+    when(processingExecutorService.submit(ceWorkerRunnable)).thenReturn(mock(ListenableFuture.class));
+    return processingExecutorService;
+  }
+
   private void startSchedulingAndRun() throws ExecutionException, InterruptedException {
     underTest.startScheduling();
 
@@ -206,6 +368,13 @@ public class CeProcessingSchedulerImplTest {
     processingExecutorService.runFutures();
   }
 
+  private void watchQueueAndRun() throws ExecutionException, InterruptedException {
+    underTest.watchQueue();
+
+    // execute futures of woken up workers synchronously
+    processingExecutorService.runFutures();
+  }
+
   /**
    * A synchronous implementation of {@link CeProcessingSchedulerExecutorService} which exposes a synchronous
    * method to execute futures it creates and exposes a method to retrieve logs of calls to
@@ -327,7 +496,7 @@ public class CeProcessingSchedulerImplTest {
     }
 
     /**
-     * A partial (only 3 methods) implementation of ScheduledExecutorService which stores futures it creates into
+     * A partial (only 4 methods) implementation of ScheduledExecutorService which stores futures it creates into
      * {@link StubCeProcessingSchedulerExecutorService#futures}.
      */
     private class SynchronousStubExecutorService implements ScheduledExecutorService {
@@ -391,9 +560,17 @@ public class CeProcessingSchedulerImplTest {
         throw new UnsupportedOperationException("scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) not implemented");
       }
 
+      /**
+       * The command is never run, tests call it explicitly.
+       */
       @Override
       public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
-        throw new UnsupportedOperationException("scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) not implemented");
+        return new AbstractPartiallyImplementedScheduledFuture<Void>() {
+          @Override
+          public Void get() throws InterruptedException, ExecutionException {
+            throw new UnsupportedOperationException("get() not implemented");
+          }
+        };
       }
 
       @Override
@@ -33,6 +33,7 @@ import org.sonar.ce.queue.CeTask;
 import org.sonar.db.ce.CeActivityDto;
 import org.sonar.db.ce.CeTaskTypes;
 import org.sonar.server.computation.queue.InternalCeQueue;
+import org.sonar.server.computation.task.projectanalysis.taskprocessor.ReportPrefetcher;
 import org.sonar.server.computation.task.projectanalysis.taskprocessor.ReportTaskProcessor;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -52,7 +53,8 @@ public class CeWorkerCallableImplTest {
   InternalCeQueue queue = mock(InternalCeQueue.class);
   ReportTaskProcessor taskProcessor = mock(ReportTaskProcessor.class);
   CeLogging ceLogging = spy(CeLogging.class);
-  CeWorkerCallable underTest = new CeWorkerCallableImpl(queue, ceLogging, taskProcessorRepository);
+  ReportPrefetcher reportPrefetcher = mock(ReportPrefetcher.class);
+  CeWorkerCallable underTest = new CeWorkerCallableImpl(queue, ceLogging, taskProcessorRepository, reportPrefetcher);
   InOrder inOrder = Mockito.inOrder(ceLogging, taskProcessor, queue);
 
   @Test
@@ -61,7 +63,7 @@ public class CeWorkerCallableImplTest {
 
     assertThat(underTest.call()).isFalse();
 
-    verifyZeroInteractions(taskProcessor, ceLogging);
+    verifyZeroInteractions(taskProcessor, ceLogging, reportPrefetcher);
   }
 
   @Test
@@ -91,6 +93,20 @@ public class CeWorkerCallableImplTest {
     inOrder.verify(ceLogging).clearForTask();
   }
 
+  @Test
+  public void prefetch_next_report_before_processing_task() throws Exception {
+    CeTask task = createCeTask(null);
+    when(queue.peek()).thenReturn(Optional.of(task));
+    taskProcessorRepository.setProcessorForTask(task.getType(), taskProcessor);
+    InOrder prefetchOrder = Mockito.inOrder(queue, reportPrefetcher, taskProcessor);
+
+    underTest.call();
+
+    prefetchOrder.verify(queue).peek();
+    prefetchOrder.verify(reportPrefetcher).prefetchNext();
+    prefetchOrder.verify(taskProcessor).process(task);
+  }
+
   @Test
   public void fail_to_process_task() throws Exception {
     CeTask task = createCeTask(null);
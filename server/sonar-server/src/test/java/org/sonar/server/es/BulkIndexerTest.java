@@ -59,6 +59,19 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(2);
   }
 
+  @Test
+  public void count_failed_requests() {
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX);
+    indexer.start();
+    indexer.add(newIndexRequest(42));
+    indexer.add(new IndexRequest(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE)
+      .source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, "not an integer")));
+    indexer.stop();
+
+    assertThat(count()).isEqualTo(1);
+    assertThat(indexer.getFailureCount()).isEqualTo(1);
+  }
+
   @Test
   public void large_indexing() {
     // index has one replica
@@ -0,0 +1,115 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelIndexingTest {
+
+  @Rule
+  public EsTester esTester = new EsTester(new FakeIndexDefinition().setReplicas(1));
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private ParallelIndexing underTest = new ParallelIndexing(esTester.client(), FakeIndexDefinition.INDEX, 3);
+
+  @Test
+  public void index_nothing_if_no_partitions() {
+    long result = underTest.index(Collections.emptyList(), (partition, bulk) -> {
+      throw new IllegalStateException("Must not be called");
+    });
+
+    assertThat(result).isEqualTo(0L);
+    assertThat(count()).isEqualTo(0);
+  }
+
+  @Test
+  public void index_all_partitions() {
+    List<String> partitions = Arrays.asList("1", "2", "3", "4", "5", "6", "7", "8", "9", "10");
+    Set<String> indexingThreads = ConcurrentHashMap.newKeySet();
+
+    long result = underTest.index(partitions, (partition, bulk) -> {
+      indexingThreads.add(Thread.currentThread().getName());
+      // replicas are disabled during the whole load
+      assertThat(replicas()).isEqualTo(0);
+      int value = Integer.parseInt(partition);
+      for (int i = 0; i < value; i++) {
+        bulk.add(newIndexRequest(value));
+      }
+      return value;
+    });
+
+    assertThat(result).isEqualTo(10L);
+    // 1 + 2 + ... + 10
+    assertThat(count()).isEqualTo(55);
+    assertThat(replicas()).isEqualTo(1);
+    assertThat(indexingThreads).isNotEmpty();
+    for (String indexingThread : indexingThreads) {
+      assertThat(indexingThread).startsWith("ParallelIndexing[fakes]-");
+    }
+  }
+
+  @Test
+  public void fail_if_a_partition_fails() {
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Fail to index partition 2");
+
+    try {
+      underTest.index(Arrays.asList("1", "2", "3"), (partition, bulk) -> {
+        if ("2".equals(partition)) {
+          throw new IllegalStateException("Fail to index partition 2");
+        }
+        return 0L;
+      });
+    } finally {
+      // settings of index are restored
+      assertThat(replicas()).isEqualTo(1);
+    }
+  }
+
+  private long count() {
+    return esTester.countDocuments("fakes", "fake");
+  }
+
+  private int replicas() {
+    GetSettingsResponse settingsResp = esTester.client().nativeClient().admin().indices()
+      .prepareGetSettings(FakeIndexDefinition.INDEX).get();
+    return Integer.parseInt(settingsResp.getSetting(FakeIndexDefinition.INDEX, IndexMetaData.SETTING_NUMBER_OF_REPLICAS));
+  }
+
+  private static IndexRequest newIndexRequest(int intField) {
+    return new IndexRequest(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE)
+      .source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, intField));
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.System2;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.db.user.UserDto;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.db.component.ComponentTesting.newProjectDto;
+import static org.sonar.db.rule.RuleTesting.newDto;
+
+public class IssueReferenceCacheTest {
+
+  private static final RuleKey RULE_KEY = RuleKey.of("xoo", "x1");
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private DbClient dbClient = db.getDbClient();
+  private DbSession dbSession = db.getSession();
+
+  private IssueReferenceCache underTest = new IssueReferenceCache(dbClient);
+
+  @Test
+  public void load_rules_from_db_only_once() {
+    dbClient.ruleDao().insert(dbSession, newDto(RULE_KEY).setName("Old name"));
+    db.commit();
+
+    assertThat(underTest.getRulesByKeys(dbSession, asList(RULE_KEY, RuleKey.of("xoo", "unknown")))).extracting(RuleDto::getName).containsExactly("Old name");
+    assertThat(underTest.getRulesStats().missCount()).isEqualTo(2);
+
+    dbClient.ruleDao().update(dbSession, dbClient.ruleDao().selectOrFailByKey(dbSession, RULE_KEY).setName("New name"));
+    db.commit();
+
+    assertThat(underTest.getRulesByKeys(dbSession, singletonList(RULE_KEY))).extracting(RuleDto::getName).containsExactly("Old name");
+    assertThat(underTest.getRulesStats().hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void reload_rule_when_invalidated() {
+    dbClient.ruleDao().insert(dbSession, newDto(RULE_KEY).setName("Old name"));
+    db.commit();
+    underTest.getRulesByKeys(dbSession, singletonList(RULE_KEY));
+
+    dbClient.ruleDao().update(dbSession, dbClient.ruleDao().selectOrFailByKey(dbSession, RULE_KEY).setName("New name"));
+    db.commit();
+    underTest.invalidateRule(RULE_KEY);
+
+    assertThat(underTest.getRulesByKeys(dbSession, singletonList(RULE_KEY))).extracting(RuleDto::getName).containsExactly("New name");
+    assertThat(underTest.getRulesStats().missCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void load_users_from_db_only_once_until_invalidated() {
+    UserDto user = db.users().insertUser("marius");
+    db.users().insertUser("simon");
+
+    assertThat(underTest.getUsersByLogins(dbSession, asList("marius", "unknown"))).extracting(UserDto::getLogin).containsExactly("marius");
+    assertThat(underTest.getUsersByLogins(dbSession, asList("marius", "simon"))).extracting(UserDto::getLogin).containsOnly("marius", "simon");
+    assertThat(underTest.getUsersStats().hitCount()).isEqualTo(1);
+    assertThat(underTest.getUsersStats().missCount()).isEqualTo(3);
+
+    dbClient.userDao().update(dbSession, user.setName("Marius"));
+    db.commit();
+    underTest.invalidateUser("marius");
+
+    assertThat(underTest.getUsersByLogins(dbSession, singletonList("marius"))).extracting(UserDto::getName).containsExactly("Marius");
+  }
+
+  @Test
+  public void load_components_from_db_only_once() {
+    ComponentDto project = db.components().insertComponent(newProjectDto());
+    ComponentDto disabledFile = db.components().insertComponent(newFileDto(project, null).setEnabled(false));
+
+    assertThat(underTest.getComponentsByUuids(dbSession, asList(project.uuid(), disabledFile.uuid()))).extracting(ComponentDto::uuid)
+      .containsOnly(project.uuid(), disabledFile.uuid());
+    assertThat(underTest.getComponentsByUuids(dbSession, singletonList(project.uuid()))).extracting(ComponentDto::uuid)
+      .containsOnly(project.uuid());
+    assertThat(underTest.getComponentsStats().hitCount()).isEqualTo(1);
+    assertThat(underTest.getComponentsStats().missCount()).isEqualTo(2);
+  }
+}
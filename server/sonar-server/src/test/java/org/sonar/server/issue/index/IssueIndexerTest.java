@@ -32,7 +32,6 @@ import org.junit.Test;
 import org.sonar.api.config.MapSettings;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.System2;
-import org.sonar.db.DbClient;
 import org.sonar.db.DbTester;
 import org.sonar.server.es.EsTester;
 
@@ -108,6 +107,48 @@ public class IssueIndexerTest {
     verifyIssueKeys("ABCDE");
   }
 
+  @Test
+  public void index_issues_of_all_projects_when_index_is_empty() {
+    dbTester.prepareDbUnit(getClass(), "index_project.xml");
+
+    IssueIndexer indexer = createIndexer();
+    indexer.index();
+
+    verifyIssueKeys("ABCDE", "EDCBA");
+  }
+
+  @Test
+  public void index_issues_by_keys() throws Exception {
+    dbTester.prepareDbUnit(getClass(), "index_project.xml");
+    // no more in db
+    addIssue("THE_PROJECT_1", "DELETED");
+
+    IssueIndexer indexer = createIndexer();
+    boolean indexed = indexer.indexByKeys("THE_PROJECT_1", asList("ABCDE", "DELETED").iterator());
+
+    assertThat(indexed).isTrue();
+    verifyIssueKeys("ABCDE");
+  }
+
+  @Test
+  public void index_all_issues_of_project() {
+    dbTester.prepareDbUnit(getClass(), "index_project.xml");
+
+    IssueIndexer indexer = createIndexer();
+    boolean indexed = indexer.indexAllOfProject("THE_PROJECT_1");
+
+    assertThat(indexed).isTrue();
+    verifyIssueKeys("ABCDE");
+  }
+
+  @Test
+  public void index_nothing_by_keys() {
+    IssueIndexer indexer = createIndexer();
+    indexer.indexByKeys("THE_PROJECT_1", Iterators.emptyIterator());
+
+    assertThat(esTester.countDocuments(IssueIndexDefinition.INDEX, IssueIndexDefinition.TYPE_ISSUE)).isEqualTo(0L);
+  }
+
   @Test
   public void delete_issues_by_keys() throws Exception {
     addIssue("P1", "Issue1");
@@ -156,7 +197,7 @@ public class IssueIndexerTest {
   }
 
   private IssueIndexer createIndexer() {
-    return new IssueIndexer(new DbClient(dbTester.database(), dbTester.myBatis()), esTester.client());
+    return new IssueIndexer(dbTester.getDbClient(), esTester.client());
   }
 
   private void addIssue(String projectUuid, String issueKey) throws Exception {
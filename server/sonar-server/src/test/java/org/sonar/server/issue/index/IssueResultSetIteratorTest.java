@@ -29,6 +29,7 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class IssueResultSetIteratorTest {
@@ -151,6 +152,16 @@ public class IssueResultSetIteratorTest {
     assertThat(issuesByKey).hasSize(1);
   }
 
+  @Test
+  public void iterator_over_issues_by_keys() {
+    dbTester.prepareDbUnit(getClass(), "many_projects.xml");
+    IssueResultSetIterator it = IssueResultSetIterator.createForKeys(dbTester.getDbClient(), dbTester.getSession(), asList("ABCDE", "EDCBA", "UNKNOWN"));
+    Map<String, IssueDoc> issuesByKey = issuesByKey(it);
+    it.close();
+
+    assertThat(issuesByKey).containsOnlyKeys("ABCDE", "EDCBA");
+  }
+
   @Test
   public void extract_directory_path() {
     dbTester.prepareDbUnit(getClass(), "extract_directory_path.xml");
@@ -315,6 +315,41 @@ public class ComponentTreeActionTest {
     assertThat(response.getPaging().getTotal()).isEqualTo(4);
   }
 
+  @Test
+  public void sort_by_metric_value_with_best_value_and_paginated() {
+    ComponentDto projectDto = newProjectDto("project-uuid");
+    SnapshotDto projectSnapshot = componentDb.insertProjectAndSnapshot(projectDto);
+    ComponentDto directory = componentDb.insertComponent(newDirectory(projectDto, "directory-uuid", "path/to/directory"));
+    ComponentDto file1 = componentDb.insertComponent(newFileDto(directory, null, "file-uuid-1"));
+    componentDb.insertComponent(newFileDto(directory, null, "file-uuid-2"));
+    ComponentDto file3 = componentDb.insertComponent(newFileDto(directory, null, "file-uuid-3"));
+    MetricDto coverage = dbClient.metricDao().insert(dbSession, newMetricDtoWithoutOptimization()
+      .setKey("coverage")
+      .setValueType(ValueType.PERCENT.name())
+      .setOptimizedBestValue(true)
+      .setBestValue(100d));
+    dbClient.measureDao().insert(dbSession,
+      newMeasureDto(coverage, file1, projectSnapshot).setValue(50.0d),
+      newMeasureDto(coverage, file3, projectSnapshot).setValue(80.0d));
+    db.commit();
+
+    TestRequest request = ws.newRequest()
+      .setParam(PARAM_BASE_COMPONENT_ID, "project-uuid")
+      .setParam(Param.SORT, METRIC_SORT)
+      .setParam(Param.ASCENDING, "false")
+      .setParam(PARAM_METRIC_SORT, "coverage")
+      .setParam(PARAM_METRIC_KEYS, "coverage")
+      .setParam(Param.PAGE_SIZE, "2");
+    ComponentTreeWsResponse firstPage = call(request.setParam(Param.PAGE, "1"));
+    ComponentTreeWsResponse secondPage = call(request.setParam(Param.PAGE, "2"));
+
+    // file-uuid-2 has the best value, the directory has no value
+    assertThat(firstPage.getComponentsList()).extracting("id").containsExactly("file-uuid-2", "file-uuid-3");
+    assertThat(firstPage.getComponentsList().get(0).getMeasuresList()).extracting("value").containsExactly("100.0");
+    assertThat(secondPage.getComponentsList()).extracting("id").containsExactly("file-uuid-1", "directory-uuid");
+    assertThat(secondPage.getPaging().getTotal()).isEqualTo(4);
+  }
+
   @Test
   public void remove_components_without_measure_on_the_metric_sort() {
     ComponentDto project = newProjectDto("project-uuid");
@@ -41,6 +41,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -121,6 +122,58 @@ public class DefaultNotificationManagerTest {
     verify(manager, times(1)).logDeserializationIssue();
   }
 
+  @Test
+  public void get_batch_from_queue_and_delete() {
+    List<NotificationQueueDto> dtos = Arrays.asList(
+      NotificationQueueDto.toNotificationQueueDto(new Notification("test1")),
+      NotificationQueueDto.toNotificationQueueDto(new Notification("test2")));
+    when(notificationQueueDao.selectOldest(10)).thenReturn(dtos);
+
+    assertThat(manager.getFromQueue(10)).extracting(Notification::getType).containsExactly("test1", "test2");
+
+    InOrder inOrder = inOrder(notificationQueueDao);
+    inOrder.verify(notificationQueueDao).selectOldest(10);
+    inOrder.verify(notificationQueueDao).delete(dtos);
+  }
+
+  @Test
+  public void get_batch_from_queue_ignores_notifications_that_can_not_be_deserialized() throws Exception {
+    NotificationQueueDto dto1 = mock(NotificationQueueDto.class);
+    when(dto1.toNotification()).thenThrow(new InvalidClassException("Pouet"));
+    NotificationQueueDto dto2 = NotificationQueueDto.toNotificationQueueDto(new Notification("test2"));
+    when(notificationQueueDao.selectOldest(10)).thenReturn(Arrays.asList(dto1, dto2));
+
+    assertThat(manager.getFromQueue(10)).extracting(Notification::getType).containsExactly("test2");
+  }
+
+  @Test
+  public void get_empty_batch_from_empty_queue() {
+    assertThat(manager.getFromQueue(10)).isEmpty();
+
+    verify(notificationQueueDao, never()).delete(any(List.class));
+  }
+
+  @Test
+  public void subscribers_are_loaded_once_while_cache_is_started() {
+    when(propertiesDao.selectUsersForNotification("NewViolations", "Email", "uuid_45")).thenReturn(Lists.newArrayList("user1"));
+    when(propertiesDao.selectNotificationSubscribers("NewViolations", "Email", "PROJECT_KEY")).thenReturn(Lists.newArrayList("user2"));
+
+    manager.startSubscribersCache();
+    try {
+      for (int i = 0; i < 3; i++) {
+        assertThat(manager.findSubscribedRecipientsForDispatcher(dispatcher, "uuid_45").get("user1")).containsOnly(emailChannel);
+        assertThat(manager.findNotificationSubscribers(dispatcher, "PROJECT_KEY").get("user2")).containsOnly(emailChannel);
+      }
+    } finally {
+      manager.clearSubscribersCache();
+    }
+    verify(propertiesDao, times(1)).selectUsersForNotification("NewViolations", "Email", "uuid_45");
+    verify(propertiesDao, times(1)).selectNotificationSubscribers("NewViolations", "Email", "PROJECT_KEY");
+
+    manager.findNotificationSubscribers(dispatcher, "PROJECT_KEY");
+    verify(propertiesDao, times(2)).selectNotificationSubscribers("NewViolations", "Email", "PROJECT_KEY");
+  }
+
   @Test
   public void shouldFindNoRecipient() {
     assertThat(manager.findSubscribedRecipientsForDispatcher(dispatcher, "uuid_45").asMap().entrySet()).hasSize(0);
@@ -21,7 +21,9 @@ package org.sonar.server.notification;
 
 import com.google.common.collect.Sets;
 import java.util.Arrays;
+import java.util.Collections;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.sonar.api.config.Settings;
@@ -31,15 +33,20 @@ import org.sonar.api.notifications.NotificationChannel;
 import org.sonar.db.DbClient;
 import org.sonar.db.property.PropertiesDao;
 
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.same;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -68,7 +75,7 @@ public class NotificationDaemonTest {
     when(commentOnIssueCreatedByMe.getType()).thenReturn("issue-changes");
     when(qualityGateChange.getKey()).thenReturn("QGateChange");
     when(qualityGateChange.getType()).thenReturn("qgate-changes");
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(singletonList(notification)).thenReturn(Collections.emptyList());
 
     Settings settings = new MapSettings().setProperty("sonar.notifications.delay", 1L);
 
@@ -174,7 +181,8 @@ public class NotificationDaemonTest {
   @Test
   public void shouldNotStopWhenException() {
     setUpMocks();
-    when(manager.getFromQueue()).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(singletonList(notification))
+      .thenReturn(Collections.emptyList());
     doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
     doAnswer(addUser(CREATOR_SIMON, emailChannel)).when(commentOnIssueCreatedByMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
 
@@ -197,6 +205,42 @@ public class NotificationDaemonTest {
     verify(gtalkChannel, never()).deliver(any(Notification.class), anyString());
   }
 
+  @Test
+  public void deliver_batch_of_notifications_with_subscribers_cache() {
+    setUpMocks();
+    Notification other = mock(Notification.class);
+    when(manager.getFromQueue(anyInt())).thenReturn(Arrays.asList(notification, other)).thenReturn(Collections.emptyList());
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+
+    underTest.start();
+    verify(emailChannel, timeout(2000)).deliver(notification, ASSIGNEE_SIMON);
+    verify(emailChannel, timeout(2000)).deliver(other, ASSIGNEE_SIMON);
+    underTest.stop();
+
+    InOrder inOrder = inOrder(manager, commentOnIssueAssignedToMe);
+    inOrder.verify(manager).startSubscribersCache();
+    inOrder.verify(commentOnIssueAssignedToMe, times(2)).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+    inOrder.verify(manager).clearSubscribersCache();
+    assertThat(underTest.getDeliveredCount()).isEqualTo(2);
+    assertThat(underTest.getFailedCount()).isZero();
+    assertThat(underTest.getMaxDeliveryLatencyMillis()).isGreaterThanOrEqualTo(underTest.getAverageDeliveryLatencyMillis());
+  }
+
+  @Test
+  public void count_failed_deliveries() {
+    setUpMocks();
+    doAnswer(addUser(ASSIGNEE_SIMON, new NotificationChannel[] {emailChannel, gtalkChannel}))
+      .when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
+    doThrow(new IllegalStateException("SMTP server is down")).when(emailChannel).deliver(notification, ASSIGNEE_SIMON);
+
+    underTest.start();
+    verify(gtalkChannel, timeout(2000)).deliver(notification, ASSIGNEE_SIMON);
+    underTest.stop();
+
+    assertThat(underTest.getDeliveredCount()).isEqualTo(1);
+    assertThat(underTest.getFailedCount()).isEqualTo(1);
+  }
+
   @Test
   public void getDispatchers() {
     setUpMocks();
@@ -216,7 +260,8 @@ public class NotificationDaemonTest {
   public void shouldLogEvery10Minutes() {
     setUpMocks();
     // Emulate 2 notifications in DB
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(singletonList(notification)).thenReturn(singletonList(notification))
+      .thenReturn(Collections.emptyList());
     when(manager.count()).thenReturn(1L).thenReturn(0L);
     underTest = spy(underTest);
     // Emulate processing of each notification take 10 min to have a log each time
@@ -30,6 +30,7 @@ import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.exceptions.ServerException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
 import static org.sonar.api.web.UserRole.ISSUE_ADMIN;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
@@ -65,6 +66,7 @@ public class AddUserActionTest extends BasePermissionWsTest<AddUserAction> {
       .execute();
 
     assertThat(db.users().selectUserPermissions(user, null)).containsOnly(SYSTEM_ADMIN);
+    verify(userPermissionCache).invalidateAll();
   }
 
   @Test
@@ -37,6 +37,7 @@ import org.sonar.server.permission.GroupPermissionChanger;
 import org.sonar.server.permission.PermissionUpdater;
 import org.sonar.server.permission.UserPermissionChanger;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.usergroups.ws.GroupWsSupport;
 import org.sonar.server.ws.WsTester;
 
@@ -54,6 +55,7 @@ public abstract class BasePermissionWsTest<A extends PermissionsWsAction> {
 
   protected DefaultOrganizationProviderRule defaultOrganizationProvider = DefaultOrganizationProviderRule.create(db);
   protected UserSessionRule userSession = UserSessionRule.standalone();
+  protected UserPermissionCache userPermissionCache = mock(UserPermissionCache.class);
   protected WsTester wsTester;
 
   @Before
@@ -80,7 +82,8 @@ public abstract class BasePermissionWsTest<A extends PermissionsWsAction> {
     return new PermissionUpdater(db.getDbClient(),
       mock(IssueAuthorizationIndexer.class),
       new UserPermissionChanger(db.getDbClient()),
-      new GroupPermissionChanger(db.getDbClient()));
+      new GroupPermissionChanger(db.getDbClient()),
+      userPermissionCache);
   }
 
   protected PermissionTemplateDto insertTemplate() {
@@ -20,6 +20,7 @@
 package org.sonar.server.platform.monitoring;
 
 import com.google.common.base.Optional;
+import com.google.common.cache.CacheStats;
 import java.io.File;
 import java.util.Map;
 import org.apache.commons.io.FileUtils;
@@ -34,10 +35,13 @@ import org.sonar.api.security.SecurityRealm;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.server.authentication.IdentityProviderRepositoryRule;
 import org.sonar.server.authentication.TestIdentityProvider;
+import org.sonar.server.batch.ProjectRepositoriesCache;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.platform.ServerId;
 import org.sonar.server.platform.ServerIdLoader;
 import org.sonar.server.platform.ServerLogging;
 import org.sonar.server.user.SecurityRealmFactory;
+import org.sonar.server.user.UserPermissionCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.data.MapEntry.entry;
@@ -61,13 +65,54 @@ public class SonarQubeMonitorTest {
   ServerIdLoader serverIdLoader = mock(ServerIdLoader.class, RETURNS_DEEP_STUBS);
   ServerLogging serverLogging = mock(ServerLogging.class);
   SecurityRealmFactory securityRealmFactory = mock(SecurityRealmFactory.class);
+  IssueReferenceCache issueReferenceCache = mock(IssueReferenceCache.class);
+  UserPermissionCache userPermissionCache = mock(UserPermissionCache.class);
+  ProjectRepositoriesCache projectRepositoriesCache = mock(ProjectRepositoriesCache.class);
 
   SonarQubeMonitor underTest = new SonarQubeMonitor(settings, securityRealmFactory, identityProviderRepository, server,
-    serverLogging, serverIdLoader);
+    serverLogging, serverIdLoader, issueReferenceCache, userPermissionCache, projectRepositoriesCache);
 
   @Before
   public void setUp() throws Exception {
     when(serverLogging.getRootLoggerLevel()).thenReturn(LoggerLevel.DEBUG);
+    when(issueReferenceCache.getRulesStats()).thenReturn(new CacheStats(10, 2, 0, 0, 0, 0));
+    when(issueReferenceCache.getUsersStats()).thenReturn(new CacheStats(5, 1, 0, 0, 0, 0));
+    when(issueReferenceCache.getComponentsStats()).thenReturn(new CacheStats(1, 4, 0, 0, 0, 0));
+    when(userPermissionCache.getStats()).thenReturn(new CacheStats(30, 3, 0, 0, 0, 0));
+    when(projectRepositoriesCache.size()).thenReturn(4L);
+    when(projectRepositoriesCache.getStats()).thenReturn(new CacheStats(12, 5, 0, 0, 0, 0));
+  }
+
+  @Test
+  public void get_issue_reference_cache_hits_and_misses() {
+    assertThat(underTest.getIssueReferenceCacheHitCount()).isEqualTo(16);
+    assertThat(underTest.getIssueReferenceCacheMissCount()).isEqualTo(7);
+
+    Map<String, Object> attributes = underTest.attributes();
+    assertThat(attributes).containsEntry("Issue Reference Cache Hits", 16L);
+    assertThat(attributes).containsEntry("Issue Reference Cache Misses", 7L);
+  }
+
+  @Test
+  public void get_user_permission_cache_hits_and_misses() {
+    assertThat(underTest.getUserPermissionCacheHitCount()).isEqualTo(30);
+    assertThat(underTest.getUserPermissionCacheMissCount()).isEqualTo(3);
+
+    Map<String, Object> attributes = underTest.attributes();
+    assertThat(attributes).containsEntry("User Permission Cache Hits", 30L);
+    assertThat(attributes).containsEntry("User Permission Cache Misses", 3L);
+  }
+
+  @Test
+  public void get_project_repositories_cache_size_hits_and_misses() {
+    assertThat(underTest.getProjectRepositoriesCacheSize()).isEqualTo(4);
+    assertThat(underTest.getProjectRepositoriesCacheHitCount()).isEqualTo(12);
+    assertThat(underTest.getProjectRepositoriesCacheMissCount()).isEqualTo(5);
+
+    Map<String, Object> attributes = underTest.attributes();
+    assertThat(attributes).containsEntry("Project Repositories Cache Size", 4L);
+    assertThat(attributes).containsEntry("Project Repositories Cache Hits", 12L);
+    assertThat(attributes).containsEntry("Project Repositories Cache Misses", 5L);
   }
 
   @Test
@@ -0,0 +1,100 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.plugins;
+
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.core.platform.PluginInfo;
+import org.sonar.server.platform.ServerFileSystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExplodedPluginCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private ServerFileSystem fs = mock(ServerFileSystem.class);
+  private File dataDir;
+  private ExplodedPluginCache underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    dataDir = temp.newFolder();
+    when(fs.getDataDir()).thenReturn(dataDir);
+    underTest = new ExplodedPluginCache(fs);
+  }
+
+  @Test
+  public void install_jar_and_libs_of_plugin() throws Exception {
+    File jar = TestProjectUtils.jarOf("test-libs-plugin");
+    File toDir = new File(temp.newFolder(), "testlibs");
+
+    File installedJar = underTest.install(PluginInfo.create(jar), toDir, ze -> ze.getName().startsWith("META-INF/lib"));
+
+    assertThat(installedJar).isFile().hasName(jar.getName()).hasParent(toDir);
+    assertThat(FileUtils.contentEquals(installedJar, jar)).isTrue();
+    assertThat(new File(toDir, "META-INF/lib").list()).containsOnly("commons-daemon-1.0.15.jar", "commons-email-20030310.165926.jar");
+  }
+
+  @Test
+  public void plugin_is_unzipped_only_once() throws Exception {
+    File jar = TestProjectUtils.jarOf("test-libs-plugin");
+    PluginInfo pluginInfo = PluginInfo.create(jar);
+
+    underTest.install(pluginInfo, temp.newFolder(), ze -> ze.getName().startsWith("META-INF/lib"));
+    File[] entries = new File(dataDir, "exploded-plugins/testlibs").listFiles();
+    assertThat(entries).hasSize(1);
+    File cachedLib = new File(entries[0], "META-INF/lib/commons-daemon-1.0.15.jar");
+    long lastModified = cachedLib.lastModified();
+
+    // another process, or next startup
+    File toDir = temp.newFolder();
+    new ExplodedPluginCache(fs).install(pluginInfo, toDir, ze -> ze.getName().startsWith("META-INF/lib"));
+
+    assertThat(new File(dataDir, "exploded-plugins/testlibs").listFiles()).containsOnly(entries[0]);
+    assertThat(cachedLib.lastModified()).isEqualTo(lastModified);
+    assertThat(new File(toDir, "META-INF/lib/commons-daemon-1.0.15.jar")).isFile();
+  }
+
+  @Test
+  public void new_version_of_plugin_replaces_previous_entry() throws Exception {
+    File jar = temp.newFile("testlibs.jar");
+    FileUtils.copyFile(TestProjectUtils.jarOf("test-libs-plugin"), jar);
+    PluginInfo pluginInfo = PluginInfo.create(jar);
+    underTest.install(pluginInfo, temp.newFolder(), ze -> ze.getName().startsWith("META-INF/lib"));
+    File[] previousEntries = new File(dataDir, "exploded-plugins/testlibs").listFiles();
+
+    // same plugin, different checksum
+    FileUtils.copyFile(TestProjectUtils.jarOf("test-base-plugin"), jar);
+    File toDir = temp.newFolder();
+    File installedJar = underTest.install(pluginInfo, toDir, ze -> ze.getName().startsWith("META-INF/lib"));
+
+    File[] entries = new File(dataDir, "exploded-plugins/testlibs").listFiles();
+    assertThat(entries).hasSize(1).doesNotContain(previousEntries);
+    assertThat(FileUtils.contentEquals(installedJar, jar)).isTrue();
+  }
+}
@@ -43,6 +43,7 @@ public class ServerPluginJarExploderTest {
   public void copy_all_classloader_files_to_dedicated_directory() throws Exception {
     File deployDir = temp.newFolder();
     when(fs.getDeployedPluginsDir()).thenReturn(deployDir);
+    when(fs.getDataDir()).thenReturn(temp.newFolder());
     File jar = TestProjectUtils.jarOf("test-libs-plugin");
     PluginInfo info = PluginInfo.create(jar);
 
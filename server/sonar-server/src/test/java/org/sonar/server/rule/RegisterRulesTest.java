@@ -41,6 +41,7 @@ import org.sonar.db.rule.RuleParamDto;
 import org.sonar.db.rule.RuleRepositoryDto;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.es.SearchOptions;
+import org.sonar.server.property.InternalProperties;
 import org.sonar.server.qualityprofile.RuleActivator;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndexer;
 import org.sonar.server.rule.index.RuleIndex;
@@ -329,6 +330,35 @@ public class RegisterRulesTest {
     assertThat(rule1.getUpdatedAt()).isEqualTo(DATE1.getTime());
   }
 
+  @Test
+  public void do_not_synchronize_repository_when_its_definitions_did_not_change() {
+    execute(new FakeRepositoryV1());
+    assertThat(dbClient.internalPropertiesDao().selectByKey(dbTester.getSession(), InternalProperties.RULE_DEFINITION_FINGERPRINTS).get()).startsWith("fake=");
+
+    // Rule is modified in db, definitions are unchanged
+    RuleDto rule1 = dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY1);
+    dbClient.ruleDao().update(dbTester.getSession(), rule1.setName("Updated"));
+    dbTester.getSession().commit();
+
+    when(system.now()).thenReturn(DATE2.getTime());
+    execute(new FakeRepositoryV1());
+
+    rule1 = dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY1);
+    assertThat(rule1.getName()).isEqualTo("Updated");
+    assertThat(rule1.getUpdatedAt()).isEqualTo(DATE1.getTime());
+    assertThat(dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY2).getStatus()).isEqualTo(RuleStatus.READY);
+
+    // Fingerprints are lost, repository is synchronized again
+    dbClient.internalPropertiesDao().saveAsEmpty(dbTester.getSession(), InternalProperties.RULE_DEFINITION_FINGERPRINTS);
+    dbTester.getSession().commit();
+    when(system.now()).thenReturn(DATE3.getTime());
+    execute(new FakeRepositoryV1());
+
+    rule1 = dbClient.ruleDao().selectOrFailByKey(dbTester.getSession(), RULE_KEY1);
+    assertThat(rule1.getName()).isEqualTo("One");
+    assertThat(rule1.getUpdatedAt()).isEqualTo(DATE3.getTime());
+  }
+
   @Test
   public void do_not_update_already_removed_rules() {
     execute(new FakeRepositoryV1());
@@ -39,6 +39,7 @@ import org.sonar.db.property.PropertyDbTester;
 import org.sonar.db.property.PropertyQuery;
 import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserTesting;
+import org.sonar.server.batch.ProjectRepositoriesCache;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
@@ -51,6 +52,9 @@ import org.sonarqube.ws.MediaTypes;
 
 import static java.net.HttpURLConnection.HTTP_NO_CONTENT;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.api.resources.Qualifiers.PROJECT;
 import static org.sonar.api.resources.Qualifiers.VIEW;
 import static org.sonar.api.web.UserRole.ADMIN;
@@ -85,7 +89,9 @@ public class ResetActionTest {
 
   ComponentDto project;
 
-  ResetAction underTest = new ResetAction(dbClient, componentFinder, settingsUpdater, userSession, definitions, settingValidations);
+  ProjectRepositoriesCache projectRepositoriesCache = mock(ProjectRepositoriesCache.class);
+
+  ResetAction underTest = new ResetAction(dbClient, componentFinder, settingsUpdater, userSession, definitions, settingValidations, projectRepositoriesCache);
   WsActionTester ws = new WsActionTester(underTest);
 
   @Before
@@ -101,6 +107,7 @@ public class ResetActionTest {
 
     executeRequestOnGlobalSetting("foo");
     assertGlobalPropertyDoesNotExist("foo");
+    verifyZeroInteractions(projectRepositoriesCache);
   }
 
   @Test
@@ -120,6 +127,7 @@ public class ResetActionTest {
 
     executeRequestOnProjectSetting("foo");
     assertProjectPropertyDoesNotExist("foo");
+    verify(projectRepositoriesCache).invalidateProject(project.uuid());
   }
 
   @Test
@@ -46,6 +46,7 @@ import org.sonar.db.property.PropertyDbTester;
 import org.sonar.db.property.PropertyDto;
 import org.sonar.db.property.PropertyQuery;
 import org.sonar.scanner.protocol.GsonHelper;
+import org.sonar.server.batch.ProjectRepositoriesCache;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
@@ -60,6 +61,9 @@ import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.db.component.ComponentTesting.newView;
 import static org.sonar.db.metric.MetricTesting.newMetricDto;
 import static org.sonar.db.property.PropertyTesting.newComponentPropertyDto;
@@ -87,7 +91,9 @@ public class SetActionTest {
   private FakeSettingsNotifier settingsChangeNotifier = new FakeSettingsNotifier(dbClient);
   private SettingsUpdater settingsUpdater = new SettingsUpdater(dbClient, definitions);
   private SettingValidations validations = new SettingValidations(definitions, dbClient, i18n);
-  private SetAction underTest = new SetAction(definitions, dbClient, componentFinder, userSession, settingsUpdater, settingsChangeNotifier, validations);
+  private ProjectRepositoriesCache projectRepositoriesCache = mock(ProjectRepositoriesCache.class);
+  private SetAction underTest = new SetAction(definitions, dbClient, componentFinder, userSession, settingsUpdater, settingsChangeNotifier, validations,
+    projectRepositoriesCache);
 
   private WsActionTester ws = new WsActionTester(underTest);
 
@@ -108,6 +114,7 @@ public class SetActionTest {
 
     assertGlobalSetting("my.key", "my,value");
     assertThat(settingsChangeNotifier.wasCalled).isTrue();
+    verifyZeroInteractions(projectRepositoriesCache);
   }
 
   @Test
@@ -131,6 +138,7 @@ public class SetActionTest {
     assertGlobalSetting("my.key", "my global value");
     assertComponentSetting("my.key", "my project value", project.getId());
     assertThat(settingsChangeNotifier.wasCalled).isFalse();
+    verify(projectRepositoriesCache).invalidateProject(project.uuid());
   }
 
   @Test
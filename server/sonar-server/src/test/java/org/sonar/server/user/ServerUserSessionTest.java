@@ -64,6 +64,7 @@ public class ServerUserSessionTest {
   public ExpectedException expectedException = ExpectedException.none();
 
   private DbClient dbClient = db.getDbClient();
+  private UserPermissionCache permissionCache = new UserPermissionCache();
   private UserDto userDto = newUserDto().setLogin(LOGIN);
   private ComponentDto project;
 
@@ -353,12 +354,44 @@ public class ServerUserSessionTest {
     assertThat(session.hasOrganizationPermission("another-org", GlobalPermissions.PROVISIONING)).isFalse();
   }
 
+  @Test
+  public void permissions_are_shared_by_sessions_of_same_user_until_cache_is_invalidated() {
+    addGlobalPermissions("admin");
+    assertThat(newUserSession(userDto).hasPermission(SYSTEM_ADMIN)).isTrue();
+
+    addGlobalPermissions("profileadmin");
+    assertThat(newUserSession(userDto).hasPermission(QUALITY_PROFILE_ADMIN)).isFalse();
+    assertThat(permissionCache.getStats().hitCount()).isEqualTo(1);
+
+    permissionCache.invalidateAll();
+    assertThat(newUserSession(userDto).hasPermission(QUALITY_PROFILE_ADMIN)).isTrue();
+  }
+
+  @Test
+  public void project_permissions_are_not_shared_by_user_and_anonymous() {
+    addProjectPermissions(project, UserRole.USER);
+
+    assertThat(newUserSession(userDto).hasComponentUuidPermission(UserRole.USER, FILE_UUID)).isTrue();
+    assertThat(newAnonymousSession().hasComponentUuidPermission(UserRole.USER, FILE_UUID)).isFalse();
+  }
+
+  @Test
+  public void groups_are_reloaded_when_user_is_invalidated() {
+    assertThat(newUserSession(userDto).getUserGroups()).containsOnly("Anyone");
+
+    db.users().insertMember(db.users().insertGroup(db.getDefaultOrganization(), "developers"), userDto);
+    assertThat(newUserSession(userDto).getUserGroups()).containsOnly("Anyone");
+
+    permissionCache.invalidate(LOGIN);
+    assertThat(newUserSession(userDto).getUserGroups()).containsOnly("Anyone", "developers");
+  }
+
   private ServerUserSession newUserSession(UserDto userDto) {
-    return createForUser(dbClient, userDto);
+    return createForUser(dbClient, permissionCache, userDto);
   }
 
   private ServerUserSession newAnonymousSession() {
-    return createForAnonymous(dbClient);
+    return createForAnonymous(dbClient, permissionCache);
   }
 
   private void addGlobalPermissions(String... permissions) {
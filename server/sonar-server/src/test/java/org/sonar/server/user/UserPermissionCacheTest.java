@@ -0,0 +1,73 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import java.util.Collections;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UserPermissionCacheTest {
+
+  private UserPermissionCache underTest = new UserPermissionCache();
+
+  @Test
+  public void same_permissions_are_returned_for_same_user() {
+    UserPermissions permissions = underTest.get("marius");
+
+    assertThat(underTest.get("marius")).isSameAs(permissions);
+    assertThat(underTest.get("another")).isNotSameAs(permissions);
+    assertThat(underTest.get(null)).isNotSameAs(permissions).isSameAs(underTest.get(null));
+    assertThat(underTest.getStats().hitCount()).isEqualTo(2);
+    assertThat(underTest.getStats().missCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void invalidate_user() {
+    UserPermissions permissions = underTest.get("marius");
+    UserPermissions anotherPermissions = underTest.get("another");
+
+    underTest.invalidate("marius");
+
+    assertThat(underTest.get("marius")).isNotSameAs(permissions);
+    assertThat(underTest.get("another")).isSameAs(anotherPermissions);
+  }
+
+  @Test
+  public void invalidate_all() {
+    UserPermissions permissions = underTest.get("marius");
+    UserPermissions anonymousPermissions = underTest.get(null);
+
+    underTest.invalidateAll();
+
+    assertThat(underTest.get("marius")).isNotSameAs(permissions);
+    assertThat(underTest.get(null)).isNotSameAs(anonymousPermissions);
+  }
+
+  @Test
+  public void loaded_values_are_kept() {
+    UserPermissions permissions = underTest.get("marius");
+    permissions.getProjectKeys("user", permission -> Collections.singleton("PROJECT"));
+
+    assertThat(underTest.get("marius").getProjectKeys("user", permission -> {
+      throw new IllegalStateException("Should not be loaded");
+    })).containsOnly("PROJECT");
+  }
+}
@@ -44,6 +44,7 @@ import org.sonar.server.es.EsTester;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.Message;
 import org.sonar.server.exceptions.ServerException;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.DefaultOrganizationProviderRule;
 import org.sonar.server.user.index.UserIndexDefinition;
@@ -84,6 +85,8 @@ public class UserUpdaterTest {
   private GroupDao groupDao = dbClient.groupDao();
   private DbSession session = db.getSession();
   private UserIndexer userIndexer;
+  private IssueReferenceCache issueReferenceCache = mock(IssueReferenceCache.class);
+  private UserPermissionCache userPermissionCache = mock(UserPermissionCache.class);
   private UserUpdater underTest;
 
   @Before
@@ -91,7 +94,7 @@ public class UserUpdaterTest {
     userIndexer = new UserIndexer(dbClient, es.client());
     DefaultOrganizationProvider defaultOrganizationProvider = DefaultOrganizationProviderRule.create(db);
     underTest = new UserUpdater(newUserNotifier, settings, dbClient,
-      userIndexer, system2, defaultOrganizationProvider);
+      userIndexer, system2, defaultOrganizationProvider, issueReferenceCache, userPermissionCache);
 
     when(system2.now()).thenReturn(NOW);
   }
@@ -129,6 +132,7 @@ public class UserUpdaterTest {
         entry("login", "user"),
         entry("name", "User"),
         entry("email", "user@mail.com"));
+    verify(userPermissionCache).invalidate("user");
   }
 
   @Test
@@ -505,6 +509,7 @@ public class UserUpdaterTest {
     assertThat(dto.getUpdatedAt()).isEqualTo(NOW);
 
     assertThat(result).isTrue();
+    verify(userPermissionCache).invalidate(DEFAULT_LOGIN);
   }
 
   @Test
@@ -531,6 +536,7 @@ public class UserUpdaterTest {
     assertThat(dto.getUpdatedAt()).isEqualTo(1418215735486L);
 
     assertThat(result).isTrue();
+    verify(userPermissionCache).invalidate(DEFAULT_LOGIN);
   }
 
   @Test
@@ -621,6 +627,25 @@ public class UserUpdaterTest {
         entry("email", "marius2@mail.com"));
   }
 
+  @Test
+  public void update_user_invalidates_issue_reference_cache() {
+    db.prepareDbUnit(getClass(), "update_user.xml");
+    createDefaultGroup();
+
+    underTest.update(UpdateUser.create(DEFAULT_LOGIN).setName("Marius2"));
+
+    verify(issueReferenceCache).invalidateUser(DEFAULT_LOGIN);
+  }
+
+  @Test
+  public void deactivate_user_invalidates_issue_reference_cache() {
+    db.prepareDbUnit(getClass(), "update_user.xml");
+
+    underTest.deactivateUserByLogin(DEFAULT_LOGIN);
+
+    verify(issueReferenceCache).invalidateUser(DEFAULT_LOGIN);
+  }
+
   @Test
   public void update_user_external_identity_when_user_was_not_local() {
     addUser(UserTesting.newExternalUser(DEFAULT_LOGIN, "Marius", "marius@email.com")
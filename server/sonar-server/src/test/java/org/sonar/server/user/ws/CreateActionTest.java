@@ -34,10 +34,12 @@ import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.UserDto;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.exceptions.ForbiddenException;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.DefaultOrganizationProviderRule;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.user.NewUserNotifier;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserDoc;
 import org.sonar.server.user.index.UserIndex;
@@ -78,7 +80,8 @@ public class CreateActionTest {
     index = new UserIndex(esTester.client());
     DefaultOrganizationProvider defaultOrganizationProvider = DefaultOrganizationProviderRule.create(db);
     tester = new WsTester(new UsersWs(new CreateAction(db.getDbClient(),
-      new UserUpdater(mock(NewUserNotifier.class), settings, db.getDbClient(), userIndexer, system2, defaultOrganizationProvider),
+      new UserUpdater(mock(NewUserNotifier.class), settings, db.getDbClient(), userIndexer, system2, defaultOrganizationProvider,
+        mock(IssueReferenceCache.class), mock(UserPermissionCache.class)),
       i18n, userSessionRule, new UserJsonWriter(userSessionRule))));
   }
 
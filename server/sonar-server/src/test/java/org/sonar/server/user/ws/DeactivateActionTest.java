@@ -37,10 +37,12 @@ import org.sonar.server.es.EsTester;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.issue.IssueReferenceCache;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 import org.sonar.server.organization.DefaultOrganizationProviderRule;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.user.NewUserNotifier;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.user.UserUpdater;
 import org.sonar.server.user.index.UserDoc;
 import org.sonar.server.user.index.UserIndex;
@@ -84,7 +86,8 @@ public class DeactivateActionTest {
     index = new UserIndex(esTester.client());
     DefaultOrganizationProvider defaultOrganizationProvider = DefaultOrganizationProviderRule.create(db);
     ws = new WsTester(new UsersWs(new DeactivateAction(
-      new UserUpdater(mock(NewUserNotifier.class), settings, dbClient, userIndexer, system2, defaultOrganizationProvider), userSessionRule,
+      new UserUpdater(mock(NewUserNotifier.class), settings, dbClient, userIndexer, system2, defaultOrganizationProvider,
+        mock(IssueReferenceCache.class), mock(UserPermissionCache.class)), userSessionRule,
       new UserJsonWriter(userSessionRule), dbClient)));
   }
 
@@ -35,9 +35,12 @@ import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.exceptions.UnauthorizedException;
 import org.sonar.server.organization.DefaultOrganizationProviderRule;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.ws.WsTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.db.organization.OrganizationTesting.newOrganizationDto;
 import static org.sonar.server.usergroups.ws.GroupWsSupport.PARAM_GROUP_NAME;
 import static org.sonar.server.usergroups.ws.GroupWsSupport.PARAM_LOGIN;
@@ -53,11 +56,12 @@ public class AddUserActionTest {
   public ExpectedException expectedException = ExpectedException.none();
 
   private DefaultOrganizationProviderRule defaultOrganizationProvider = DefaultOrganizationProviderRule.create(db);
+  private UserPermissionCache userPermissionCache = mock(UserPermissionCache.class);
   private WsTester ws;
 
   @Before
   public void setUp() {
-    ws = new WsTester(new UserGroupsWs(new AddUserAction(db.getDbClient(), userSession, newGroupWsSupport())));
+    ws = new WsTester(new UserGroupsWs(new AddUserAction(db.getDbClient(), userSession, newGroupWsSupport(), userPermissionCache)));
   }
 
   @Test
@@ -73,6 +77,7 @@ public class AddUserActionTest {
       .assertNoContent();
 
     assertThat(db.users().selectGroupIdsOfUser(user)).containsOnly(group.getId());
+    verify(userPermissionCache).invalidate(user.getLogin());
   }
 
   @Test
@@ -42,9 +42,12 @@ import org.sonar.db.user.UserDto;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.organization.DefaultOrganizationProviderRule;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.ws.WsTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.core.permission.GlobalPermissions.SYSTEM_ADMIN;
 import static org.sonar.db.organization.OrganizationTesting.newOrganizationDto;
 import static org.sonar.server.usergroups.ws.GroupWsSupport.PARAM_GROUP_ID;
@@ -63,6 +66,7 @@ public class DeleteActionTest {
   private ComponentDbTester componentTester = new ComponentDbTester(db);
   private DefaultOrganizationProviderRule defaultOrganizationProvider = DefaultOrganizationProviderRule.create(db);
   private GroupDto defaultGroup;
+  private UserPermissionCache userPermissionCache = mock(UserPermissionCache.class);
   private WsTester ws;
 
   @Before
@@ -75,7 +79,7 @@ public class DeleteActionTest {
         db.getDbClient(),
         userSession,
         newGroupWsSupport(),
-        settings, defaultOrganizationProvider)));
+        settings, defaultOrganizationProvider, userPermissionCache)));
   }
 
   @Test
@@ -90,6 +94,7 @@ public class DeleteActionTest {
       .assertNoContent();
 
     assertThat(db.users().selectGroupById(group.getId())).isNull();
+    verify(userPermissionCache).invalidateAll();
   }
 
   @Test
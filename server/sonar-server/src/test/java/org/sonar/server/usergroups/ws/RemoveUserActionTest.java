@@ -33,9 +33,12 @@ import org.sonar.db.user.UserDto;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.organization.DefaultOrganizationProviderRule;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.UserPermissionCache;
 import org.sonar.server.ws.WsTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.sonar.server.usergroups.ws.GroupWsSupport.PARAM_GROUP_NAME;
 import static org.sonar.server.usergroups.ws.GroupWsSupport.PARAM_LOGIN;
 import static org.sonar.server.usergroups.ws.GroupWsSupport.PARAM_ORGANIZATION_KEY;
@@ -50,12 +53,13 @@ public class RemoveUserActionTest {
   public ExpectedException expectedException = ExpectedException.none();
 
   private DefaultOrganizationProviderRule defaultOrganizationProvider = DefaultOrganizationProviderRule.create(db);
+  private UserPermissionCache userPermissionCache = mock(UserPermissionCache.class);
   private WsTester ws;
 
   @Before
   public void setUp() {
     GroupWsSupport groupSupport = new GroupWsSupport(db.getDbClient(), defaultOrganizationProvider);
-    ws = new WsTester(new UserGroupsWs(new RemoveUserAction(db.getDbClient(), userSession, groupSupport)));
+    ws = new WsTester(new UserGroupsWs(new RemoveUserAction(db.getDbClient(), userSession, groupSupport, userPermissionCache)));
   }
 
   @Test
@@ -87,6 +91,7 @@ public class RemoveUserActionTest {
       .assertNoContent();
 
     assertThat(db.users().selectGroupIdsOfUser(user)).isEmpty();
+    verify(userPermissionCache).invalidate(user.getLogin());
   }
 
   @Test
@@ -0,0 +1,222 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Index of base issues used by {@link Tracker}. It is built once per tracking and then re-organized in place
+ * for each {@link SearchKey}, so that matching passes do not allocate any object. Fields of base issues
+ * are read only once.
+ * <p>
+ * Bases are indexed by an open hash table. Bases with the same key are chained in a group, in their
+ * original order, so that the first base of a group is the one returned by {@link #pollMatch(Trackable)}.
+ * Polling a match removes it from the index, in constant time.
+ */
+class TrackableIndex<BASE extends Trackable> {
+
+  private static final int NONE = -1;
+  private static final int NO_LINE = 0;
+
+  enum SearchKey {
+    // same rule, same line and same line hash, but not necessarily with same message
+    LINE_AND_LINE_HASH(true, true, false),
+    // same rule, same message and same line hash
+    LINE_HASH_AND_MESSAGE(false, true, true),
+    // same rule, same line and same message
+    LINE_AND_MESSAGE(true, false, true),
+    // same rule and same line hash but different line and different message
+    LINE_HASH(false, true, false);
+
+    private final boolean line;
+    private final boolean lineHash;
+    private final boolean message;
+
+    SearchKey(boolean line, boolean lineHash, boolean message) {
+      this.line = line;
+      this.lineHash = lineHash;
+      this.message = message;
+    }
+  }
+
+  private final Object[] bases;
+  private final RuleKey[] ruleKeys;
+  private final int[] ruleKeyHashes;
+  private final int[] lines;
+  private final String[] lineHashes;
+  private final int[] lineHashHashes;
+  private final String[] messages;
+  private final int[] messageHashes;
+
+  private final int mask;
+  // first group of each bucket of the hash table
+  private final int[] table;
+  // groups are identified by the index of their first base
+  private final int[] groupHashes;
+  private final int[] nextGroups;
+  private final int[] groupHeads;
+  private final int[] groupTails;
+  private final int[] nextInGroups;
+
+  private SearchKey searchKey;
+
+  TrackableIndex(Collection<BASE> issues) {
+    int size = issues.size();
+    this.bases = new Object[size];
+    this.ruleKeys = new RuleKey[size];
+    this.ruleKeyHashes = new int[size];
+    this.lines = new int[size];
+    this.lineHashes = new String[size];
+    this.lineHashHashes = new int[size];
+    this.messages = new String[size];
+    this.messageHashes = new int[size];
+    int i = 0;
+    for (BASE base : issues) {
+      bases[i] = base;
+      ruleKeys[i] = base.getRuleKey();
+      ruleKeyHashes[i] = ruleKeys[i].hashCode();
+      lines[i] = line(base);
+      lineHashes[i] = lineHash(base);
+      lineHashHashes[i] = lineHashes[i].hashCode();
+      messages[i] = base.getMessage();
+      messageHashes[i] = Objects.hashCode(messages[i]);
+      i++;
+    }
+
+    int capacity = Integer.highestOneBit(Math.max(16, size * 2 - 1)) << 1;
+    this.mask = capacity - 1;
+    this.table = new int[capacity];
+    this.groupHashes = new int[size];
+    this.nextGroups = new int[size];
+    this.groupHeads = new int[size];
+    this.groupTails = new int[size];
+    this.nextInGroups = new int[size];
+  }
+
+  /**
+   * Indexes the bases which are not matched yet by {@code tracking}, according to {@code key}.
+   */
+  void reset(SearchKey key, Tracking<?, BASE> tracking) {
+    this.searchKey = key;
+    Arrays.fill(table, NONE);
+    for (int i = 0; i < bases.length; i++) {
+      if (!tracking.containsUnmatchedBase(base(i))) {
+        continue;
+      }
+      int hash = hash(ruleKeyHashes[i], lines[i], lineHashHashes[i], messageHashes[i]);
+      int bucket = bucket(hash);
+      int group = findGroup(bucket, hash, ruleKeys[i], lines[i], lineHashes[i], messages[i]);
+      nextInGroups[i] = NONE;
+      if (group == NONE) {
+        groupHashes[i] = hash;
+        groupHeads[i] = i;
+        groupTails[i] = i;
+        nextGroups[i] = table[bucket];
+        table[bucket] = i;
+      } else if (groupHeads[group] == NONE) {
+        groupHeads[group] = i;
+        groupTails[group] = i;
+      } else {
+        nextInGroups[groupTails[group]] = i;
+        groupTails[group] = i;
+      }
+    }
+  }
+
+  /**
+   * Removes from index and returns the first base having the same key than {@code raw}, if any.
+   */
+  @CheckForNull
+  BASE pollMatch(Trackable raw) {
+    RuleKey ruleKey = raw.getRuleKey();
+    int line = line(raw);
+    String lineHash = lineHash(raw);
+    String message = raw.getMessage();
+    int hash = hash(ruleKey.hashCode(), line, lineHash.hashCode(), Objects.hashCode(message));
+    int group = findGroup(bucket(hash), hash, ruleKey, line, lineHash, message);
+    if (group == NONE) {
+      return null;
+    }
+    int head = groupHeads[group];
+    if (head == NONE) {
+      return null;
+    }
+    groupHeads[group] = nextInGroups[head];
+    return base(head);
+  }
+
+  private int findGroup(int bucket, int hash, RuleKey ruleKey, int line, String lineHash, @Nullable String message) {
+    int group = table[bucket];
+    while (group != NONE) {
+      if (groupHashes[group] == hash && sameKey(group, ruleKey, line, lineHash, message)) {
+        return group;
+      }
+      group = nextGroups[group];
+    }
+    return NONE;
+  }
+
+  private boolean sameKey(int i, RuleKey ruleKey, int line, String lineHash, @Nullable String message) {
+    // start with most discriminant fields
+    return (!searchKey.line || lines[i] == line)
+      && (!searchKey.lineHash || lineHashes[i].equals(lineHash))
+      && (!searchKey.message || Objects.equals(messages[i], message))
+      && ruleKeys[i].equals(ruleKey);
+  }
+
+  private int hash(int ruleKeyHash, int line, int lineHashHash, int messageHash) {
+    int result = ruleKeyHash;
+    if (searchKey.line) {
+      result = 31 * result + line;
+    }
+    if (searchKey.lineHash) {
+      result = 31 * result + lineHashHash;
+    }
+    if (searchKey.message) {
+      result = 31 * result + messageHash;
+    }
+    return result;
+  }
+
+  private int bucket(int hash) {
+    // spread higher bits, as done by java.util.HashMap
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  @SuppressWarnings("unchecked")
+  private BASE base(int i) {
+    return (BASE) bases[i];
+  }
+
+  private static int line(Trackable trackable) {
+    Integer line = trackable.getLine();
+    return line == null ? NO_LINE : line;
+  }
+
+  private static String lineHash(Trackable trackable) {
+    String lineHash = trackable.getLineHash();
+    return lineHash == null ? "" : lineHash;
+  }
+}
@@ -19,15 +19,9 @@
  */
 package org.sonar.core.issue.tracking;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
-import java.util.Collection;
-import java.util.Objects;
-import javax.annotation.Nonnull;
-import org.apache.commons.lang.StringUtils;
-import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.InstantiationStrategy;
-import org.sonar.api.rule.RuleKey;
+import org.sonar.api.batch.ScannerSide;
+import org.sonar.core.issue.tracking.TrackableIndex.SearchKey;
 
 @InstantiationStrategy(InstantiationStrategy.PER_BATCH)
 @ScannerSide
@@ -35,22 +29,28 @@ public class Tracker<RAW extends Trackable, BASE extends Trackable> {
 
   public Tracking<RAW, BASE> track(Input<RAW> rawInput, Input<BASE> baseInput) {
     Tracking<RAW, BASE> tracking = new Tracking<>(rawInput, baseInput);
+    if (tracking.isComplete()) {
+      return tracking;
+    }
+
+    // the same index is re-organized by each pass
+    TrackableIndex<BASE> index = new TrackableIndex<>(baseInput.getIssues());
 
     // 1. match issues with same rule, same line and same line hash, but not necessarily with same message
-    match(tracking, LineAndLineHashKeyFactory.INSTANCE);
+    match(tracking, index, SearchKey.LINE_AND_LINE_HASH);
 
     // 2. detect code moves by comparing blocks of codes
     detectCodeMoves(rawInput, baseInput, tracking);
 
     // 3. match issues with same rule, same message and same line hash
-    match(tracking, LineHashAndMessageKeyFactory.INSTANCE);
+    match(tracking, index, SearchKey.LINE_HASH_AND_MESSAGE);
 
     // 4. match issues with same rule, same line and same message
-    match(tracking, LineAndMessageKeyFactory.INSTANCE);
+    match(tracking, index, SearchKey.LINE_AND_MESSAGE);
 
     // 5. match issues with same rule and same line hash but different line and different message.
     // See SONAR-2812
-    match(tracking, LineHashKeyFactory.INSTANCE);
+    match(tracking, index, SearchKey.LINE_HASH);
 
     return tracking;
   }
@@ -61,189 +61,19 @@ public class Tracker<RAW extends Trackable, BASE extends Trackable> {
     }
   }
 
-  private void match(Tracking<RAW, BASE> tracking, SearchKeyFactory factory) {
+  private void match(Tracking<RAW, BASE> tracking, TrackableIndex<BASE> index, SearchKey key) {
     if (tracking.isComplete()) {
       return;
     }
 
-    Multimap<SearchKey, BASE> baseSearch = ArrayListMultimap.create();
-    for (BASE base : tracking.getUnmatchedBases()) {
-      baseSearch.put(factory.create(base), base);
-    }
-
+    index.reset(key, tracking);
     for (RAW raw : tracking.getUnmatchedRaws()) {
-      SearchKey rawKey = factory.create(raw);
-      Collection<BASE> bases = baseSearch.get(rawKey);
-      if (!bases.isEmpty()) {
-        // TODO taking the first one. Could be improved if there are more than 2 issues on the same line.
-        // Message could be checked to take the best one.
-        BASE match = bases.iterator().next();
+      // TODO taking the first one. Could be improved if there are more than 2 issues on the same line.
+      // Message could be checked to take the best one.
+      BASE match = index.pollMatch(raw);
+      if (match != null) {
         tracking.match(raw, match);
-        baseSearch.remove(rawKey, match);
-      }
-    }
-  }
-
-  private interface SearchKey {
-  }
-
-  private interface SearchKeyFactory {
-    SearchKey create(Trackable trackable);
-  }
-
-  private static class LineAndLineHashKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String lineHash;
-    private final Integer line;
-
-    LineAndLineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.line = trackable.getLine();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
-
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
-      }
-      LineAndLineHashKey that = (LineAndLineHashKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && lineHash.equals(that.lineHash)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      result = 31 * result + (line != null ? line.hashCode() : 0);
-      return result;
-    }
-  }
-
-  private enum LineAndLineHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineAndLineHashKey(t);
-    }
-  }
-
-  private static class LineHashAndMessageKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String message;
-    private final String lineHash;
-
-    LineHashAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
-
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
       }
-      LineHashAndMessageKey that = (LineHashAndMessageKey) o;
-      // start with most discriminant field
-      return lineHash.equals(that.lineHash)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + message.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      return result;
-    }
-  }
-
-  private enum LineHashAndMessageKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineHashAndMessageKey(t);
-    }
-  }
-
-  private static class LineAndMessageKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String message;
-    private final Integer line;
-
-    LineAndMessageKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.message = trackable.getMessage();
-      this.line = trackable.getLine();
-    }
-
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
-      }
-      LineAndMessageKey that = (LineAndMessageKey) o;
-      // start with most discriminant field
-      return Objects.equals(line, that.line)
-        && message.equals(that.message)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + message.hashCode();
-      result = 31 * result + (line != null ? line.hashCode() : 0);
-      return result;
-    }
-  }
-
-  private enum LineAndMessageKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineAndMessageKey(t);
-    }
-  }
-
-  private static class LineHashKey implements SearchKey {
-    private final RuleKey ruleKey;
-    private final String lineHash;
-
-    LineHashKey(Trackable trackable) {
-      this.ruleKey = trackable.getRuleKey();
-      this.lineHash = StringUtils.defaultString(trackable.getLineHash(), "");
-    }
-
-    @Override
-    public boolean equals(@Nonnull Object o) {
-      if (this == o) {
-        return true;
-      }
-      LineHashKey that = (LineHashKey) o;
-      // start with most discriminant field
-      return lineHash.equals(that.lineHash)
-        && ruleKey.equals(that.ruleKey);
-    }
-
-    @Override
-    public int hashCode() {
-      int result = ruleKey.hashCode();
-      result = 31 * result + lineHash.hashCode();
-      return result;
-    }
-  }
-
-  private enum LineHashKeyFactory implements SearchKeyFactory {
-    INSTANCE;
-    @Override
-    public SearchKey create(Trackable t) {
-      return new LineHashKey(t);
     }
   }
 }
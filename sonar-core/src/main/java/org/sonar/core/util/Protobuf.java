@@ -24,17 +24,29 @@ import com.google.protobuf.Message;
 import com.google.protobuf.Parser;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import org.apache.commons.io.IOUtils;
 
 /**
  * Utility to read and write Protocol Buffers messages
  */
 public class Protobuf {
+
+  /**
+   * Files up to this size are loaded in memory by a single read, larger files are read through a buffer
+   * of {@link #LARGE_FILE_BUFFER_SIZE} bytes. They are not memory-mapped, as a mapping is released only
+   * when garbage-collected and locks the file on Windows until then.
+   */
+  static final int MAX_SIZE_OF_FILE_READ_AT_ONCE = 1024 * 1024;
+  private static final int LARGE_FILE_BUFFER_SIZE = 64 * 1024;
+
   private Protobuf() {
     // only static stuff
   }
@@ -47,7 +59,7 @@ public class Protobuf {
   public static <MSG extends Message> MSG read(File file, Parser<MSG> parser) {
     InputStream input = null;
     try {
-      input = new BufferedInputStream(new FileInputStream(file));
+      input = openInput(file);
       return parser.parseFrom(input);
     } catch (Exception e) {
       throw ContextException.of("Unable to read message", e).addContext("file", file);
@@ -126,8 +138,7 @@ public class Protobuf {
   public static <MSG extends Message> CloseableIterator<MSG> readStream(File file, Parser<MSG> parser) {
     try {
       // the input stream is closed by the CloseableIterator
-      BufferedInputStream input = new BufferedInputStream(new FileInputStream(file));
-      return readStream(input, parser);
+      return readStream(openInput(file), parser);
     } catch (Exception e) {
       throw ContextException.of("Unable to read messages", e).addContext("file", file);
     }
@@ -146,6 +157,16 @@ public class Protobuf {
     return new StreamIterator<>(parser, input);
   }
 
+  /**
+   * Opens the file without issuing a system call per 8KB buffer when the stream is consumed
+   */
+  private static InputStream openInput(File file) throws IOException {
+    if (file.length() <= MAX_SIZE_OF_FILE_READ_AT_ONCE) {
+      return new ByteArrayInputStream(Files.readAllBytes(file.toPath()));
+    }
+    return new BufferedInputStream(new FileInputStream(file), LARGE_FILE_BUFFER_SIZE);
+  }
+
   private static class StreamIterator<MSG extends Message> extends CloseableIterator<MSG> {
     private final Parser<MSG> parser;
     private final InputStream input;
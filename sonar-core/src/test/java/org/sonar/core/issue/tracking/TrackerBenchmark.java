@@ -0,0 +1,175 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Tracking of issues of a large generated file, in which 10 lines are inserted at the beginning.
+ * Run {@link #main(String[])} from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrackerBenchmark {
+
+  private static final int INSERTED_LINES = 10;
+
+  @Param({"50000"})
+  public int issueCount;
+
+  private final Tracker<Issue, Issue> tracker = new Tracker<>();
+  private FakeInput baseOnLines;
+  private FakeInput rawOnLines;
+  private FakeInput baseOnFile;
+  private FakeInput rawOnFile;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // 5 issues per line, 20 different rules
+    int lines = issueCount / 5;
+    List<String> baseHashes = new ArrayList<>(lines);
+    List<String> rawHashes = new ArrayList<>(lines + INSERTED_LINES);
+    for (int i = 0; i < INSERTED_LINES; i++) {
+      rawHashes.add("new" + i);
+    }
+    for (int i = 0; i < lines; i++) {
+      // generated code: the same lines are repeated
+      String hash = "hash" + (i % 100);
+      baseHashes.add(hash);
+      rawHashes.add(hash);
+    }
+
+    baseOnLines = new FakeInput(baseHashes);
+    rawOnLines = new FakeInput(rawHashes);
+    baseOnFile = new FakeInput(baseHashes);
+    rawOnFile = new FakeInput(rawHashes);
+    for (int i = 0; i < issueCount; i++) {
+      RuleKey ruleKey = RuleKey.of("squid", "S" + (i % 20));
+      String message = "Message " + (i % 1000);
+      int line = 1 + (i / 5);
+      baseOnLines.addIssue(new Issue(line, baseHashes.get(line - 1), ruleKey, message));
+      rawOnLines.addIssue(new Issue(line + INSERTED_LINES, rawHashes.get(line + INSERTED_LINES - 1), ruleKey, message));
+      baseOnFile.addIssue(new Issue(null, null, ruleKey, message));
+      rawOnFile.addIssue(new Issue(null, null, ruleKey, message));
+    }
+  }
+
+  @Benchmark
+  public Tracking<Issue, Issue> track_issues_on_lines() {
+    return tracker.track(rawOnLines, baseOnLines);
+  }
+
+  @Benchmark
+  public Tracking<Issue, Issue> track_issues_on_file() {
+    return tracker.track(rawOnFile, baseOnFile);
+  }
+
+  private static class Issue implements Trackable {
+    private final Integer line;
+    private final String lineHash;
+    private final RuleKey ruleKey;
+    private final String message;
+
+    Issue(@Nullable Integer line, @Nullable String lineHash, RuleKey ruleKey, String message) {
+      this.line = line;
+      this.lineHash = lineHash;
+      this.ruleKey = ruleKey;
+      this.message = message;
+    }
+
+    @Override
+    public Integer getLine() {
+      return line;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String getLineHash() {
+      return lineHash;
+    }
+
+    @Override
+    public RuleKey getRuleKey() {
+      return ruleKey;
+    }
+  }
+
+  private static class FakeInput implements Input<Issue> {
+    private final List<Issue> issues = new ArrayList<>();
+    private final LineHashSequence lineHashes;
+    private final BlockHashSequence blockHashes;
+
+    FakeInput(List<String> hashes) {
+      this.lineHashes = new LineHashSequence(hashes);
+      this.blockHashes = BlockHashSequence.create(lineHashes);
+    }
+
+    void addIssue(Issue issue) {
+      issues.add(issue);
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return lineHashes;
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return blockHashes;
+    }
+
+    @Override
+    public Collection<Issue> getIssues() {
+      return issues;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(TrackerBenchmark.class.getSimpleName()).build()).run();
+  }
+}
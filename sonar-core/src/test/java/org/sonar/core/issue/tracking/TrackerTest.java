@@ -61,6 +61,37 @@ public class TrackerTest {
     assertThat(tracking.baseFor(raw)).isNull();
   }
 
+  @Test
+  public void issues_with_same_key_are_matched_in_order() {
+    FakeInput baseInput = new FakeInput("H1");
+    Issue base1 = baseInput.createIssue(RULE_SYSTEM_PRINT, "msg");
+    Issue base2 = baseInput.createIssue(RULE_SYSTEM_PRINT, "msg");
+    Issue base3 = baseInput.createIssue(RULE_SYSTEM_PRINT, "msg");
+
+    FakeInput rawInput = new FakeInput("H1");
+    Issue raw1 = rawInput.createIssue(RULE_SYSTEM_PRINT, "msg");
+    Issue raw2 = rawInput.createIssue(RULE_SYSTEM_PRINT, "msg");
+
+    Tracking<Issue, Issue> tracking = tracker.track(rawInput, baseInput);
+    assertThat(tracking.baseFor(raw1)).isSameAs(base1);
+    assertThat(tracking.baseFor(raw2)).isSameAs(base2);
+    assertThat(tracking.getUnmatchedBases()).containsOnly(base3);
+  }
+
+  @Test
+  public void bases_matched_by_a_pass_are_not_matched_again_by_next_passes() {
+    FakeInput baseInput = new FakeInput("H1");
+    Issue base = baseInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+
+    FakeInput rawInput = new FakeInput("H1");
+    Issue raw1 = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+    Issue raw2 = rawInput.createIssueOnLine(1, RULE_SYSTEM_PRINT, "msg");
+
+    Tracking<Issue, Issue> tracking = tracker.track(rawInput, baseInput);
+    assertThat(tracking.baseFor(raw1)).isSameAs(base);
+    assertThat(tracking.baseFor(raw2)).isNull();
+  }
+
   @Test
   public void line_hash_has_greater_priority_than_line() {
     FakeInput baseInput = new FakeInput("H1", "H2", "H3");
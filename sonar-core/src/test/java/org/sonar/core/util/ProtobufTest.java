@@ -21,6 +21,7 @@ package org.sonar.core.util;
 
 import java.io.File;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -115,5 +116,33 @@ public class ProtobufTest {
     assertThat(it.hasNext()).isFalse();
   }
 
-  // TODO test in-moemry file
+  @Test
+  public void read_large_file() throws Exception {
+    File file = temp.newFile();
+    String label = StringUtils.repeat("a", Protobuf.MAX_SIZE_OF_FILE_READ_AT_ONCE);
+    Protobuf.write(Fake.newBuilder().setLabel(label).setLine(10).build(), file);
+    assertThat(file.length()).isGreaterThan(Protobuf.MAX_SIZE_OF_FILE_READ_AT_ONCE);
+
+    Fake msg = Protobuf.read(file, Fake.PARSER);
+    assertThat(msg.getLabel()).isEqualTo(label);
+    assertThat(msg.getLine()).isEqualTo(10);
+  }
+
+  @Test
+  public void read_large_stream() throws Exception {
+    File file = temp.newFile();
+    String label = StringUtils.repeat("a", Protobuf.MAX_SIZE_OF_FILE_READ_AT_ONCE / 2);
+    Fake item1 = Fake.newBuilder().setLabel(label).setLine(1).build();
+    Fake item2 = Fake.newBuilder().setLabel(label).setLine(2).build();
+    Fake item3 = Fake.newBuilder().setLabel("three").build();
+    Protobuf.writeStream(asList(item1, item2, item3), file, false);
+    assertThat(file.length()).isGreaterThan(Protobuf.MAX_SIZE_OF_FILE_READ_AT_ONCE);
+
+    CloseableIterator<Fake> it = Protobuf.readStream(file, Fake.PARSER);
+    assertThat(it.next().getLine()).isEqualTo(1);
+    assertThat(it.next().getLine()).isEqualTo(2);
+    assertThat(it.next().getLabel()).isEqualTo("three");
+    assertThat(it.hasNext()).isFalse();
+    it.close();
+  }
 }
@@ -312,6 +312,13 @@ public class MyBatis {
     return new DbSession(session);
   }
 
+  /**
+   * @see org.sonar.db.dialect.Dialect#getDeletePartitionSize()
+   */
+  public int getDeletePartitionSize() {
+    return database.getDialect().getDeletePartitionSize();
+  }
+
   /**
    * Create a PreparedStatement for SELECT requests with scrolling of results
    */
@@ -48,6 +48,13 @@ public class CeQueueDao implements Dao {
     return mapper(session).selectAllInAscOrder();
   }
 
+  /**
+   * Oldest tasks in status {@link CeQueueDto.Status#PENDING}, whether they are eligible for peek or not.
+   */
+  public List<CeQueueDto> selectPendingInAscOrder(DbSession session, int limit) {
+    return mapper(session).selectPendingInAscOrder(new RowBounds(0, limit));
+  }
+
   public List<CeQueueDto> selectByQueryInDescOrder(DbSession dbSession, CeTaskQuery query, int pageSize) {
     if (query.isShortCircuitedByComponentUuids()
       || query.isOnlyCurrents()
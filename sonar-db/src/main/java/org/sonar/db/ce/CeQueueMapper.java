@@ -31,6 +31,8 @@ public interface CeQueueMapper {
 
   List<CeQueueDto> selectAllInAscOrder();
 
+  List<CeQueueDto> selectPendingInAscOrder(RowBounds rowBounds);
+
   List<CeQueueDto> selectByQueryInDescOrder(@Param("query") CeTaskQuery query, RowBounds rowBounds);
 
   int countByQuery(@Param("query") CeTaskQuery query);
@@ -19,6 +19,7 @@
  */
 package org.sonar.db.component;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -28,6 +29,7 @@ import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.sonar.api.resources.Qualifiers;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Lists.newArrayList;
@@ -37,6 +39,12 @@ import static org.sonar.db.DatabaseUtils.buildLikeValue;
 import static org.sonar.db.WildcardPosition.AFTER;
 
 public class ComponentTreeQuery {
+  /**
+   * Sort field ordering components by the value of the measure defined by {@link Builder#setMeasureSortMetricId(Integer)}.
+   * Components without value are returned last.
+   */
+  public static final String MEASURE_SORT_FIELD = "measure";
+
   @CheckForNull
   private final String nameOrKeyQuery;
   // SONAR-7681 a public implementation of List must be used in MyBatis - potential concurrency exceptions otherwise
@@ -49,6 +57,13 @@ public class ComponentTreeQuery {
   private final String baseUuid;
   private final String sqlSort;
   private final String direction;
+  @CheckForNull
+  private final Integer measureSortMetricId;
+  @CheckForNull
+  private final Long measureSortPersonId;
+  @CheckForNull
+  private final String sqlMeasureSortValue;
+  private final boolean onlyWithMeasureSortValue;
 
   private ComponentTreeQuery(Builder builder) {
     this.nameOrKeyQuery = builder.nameOrKeyQuery;
@@ -57,7 +72,11 @@ public class ComponentTreeQuery {
     this.pageSize = builder.pageSize;
     this.baseUuid = builder.baseUuid;
     this.direction = builder.asc ? "ASC" : "DESC";
-    this.sqlSort = sortFieldsToSqlSort(builder.sortFields, direction);
+    this.measureSortMetricId = builder.measureSortMetricId;
+    this.measureSortPersonId = builder.measureSortPersonId;
+    this.sqlMeasureSortValue = builder.measureSortMetricId == null ? null : toSqlMeasureSortValue(builder.measureSortPeriod, builder.measureSortBestValue);
+    this.onlyWithMeasureSortValue = builder.onlyWithMeasureSortValue;
+    this.sqlSort = sortFieldsToSqlSort(builder.sortFields, direction, sqlMeasureSortValue);
   }
 
   public Collection<String> getQualifiers() {
@@ -94,17 +113,49 @@ public class ComponentTreeQuery {
     return direction;
   }
 
+  @CheckForNull
+  public Integer getMeasureSortMetricId() {
+    return measureSortMetricId;
+  }
+
+  @CheckForNull
+  public Long getMeasureSortPersonId() {
+    return measureSortPersonId;
+  }
+
+  /**
+   * SQL expression of the value used to sort by measure, {@code null} if the query is not sorted by measure.
+   * The table "pm" is the measure of the sorted metric on the last analysis, if any.
+   */
+  @CheckForNull
+  public String getSqlMeasureSortValue() {
+    return sqlMeasureSortValue;
+  }
+
+  public boolean isOnlyWithMeasureSortValue() {
+    return onlyWithMeasureSortValue;
+  }
+
   public static Builder builder() {
     return new Builder();
   }
 
-  private static String sortFieldsToSqlSort(List<String> sortFields, String direction) {
+  private static String sortFieldsToSqlSort(List<String> sortFields, String direction, @Nullable String sqlMeasureSortValue) {
     return sortFields
       .stream()
-      .map(new SortFieldToSqlSortFieldFunction(direction)::apply)
+      .map(new SortFieldToSqlSortFieldFunction(direction, sqlMeasureSortValue)::apply)
       .collect(Collectors.joining(", "));
   }
 
+  private static String toSqlMeasureSortValue(@Nullable Integer period, @Nullable Double bestValue) {
+    String column = period == null ? "pm.value" : ("pm.variation_value_" + period);
+    if (bestValue == null) {
+      return column;
+    }
+    return format("CASE WHEN pm.component_uuid IS NULL AND p.qualifier IN ('%s', '%s') THEN %s ELSE %s END", Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE,
+      BigDecimal.valueOf(bestValue).toPlainString(), column);
+  }
+
   public static class Builder {
     @CheckForNull
     private String nameOrKeyQuery;
@@ -117,6 +168,15 @@ public class ComponentTreeQuery {
     private String baseUuid;
     private List<String> sortFields;
     private boolean asc = true;
+    @CheckForNull
+    private Integer measureSortMetricId;
+    @CheckForNull
+    private Integer measureSortPeriod;
+    @CheckForNull
+    private Double measureSortBestValue;
+    @CheckForNull
+    private Long measureSortPersonId;
+    private boolean onlyWithMeasureSortValue = false;
 
     private Builder() {
       // private constructor
@@ -125,6 +185,9 @@ public class ComponentTreeQuery {
     public ComponentTreeQuery build() {
       requireNonNull(baseUuid);
       requireNonNull(sortFields);
+      checkArgument(measureSortMetricId != null || (!sortFields.contains(MEASURE_SORT_FIELD) && !onlyWithMeasureSortValue),
+        "Metric to sort by must be defined when sorting or filtering by measure");
+      checkArgument(measureSortPeriod == null || (measureSortPeriod >= 1 && measureSortPeriod <= 5), "Period index must be between 1 and 5");
       return new ComponentTreeQuery(this);
     }
 
@@ -163,20 +226,67 @@ public class ComponentTreeQuery {
       this.asc = asc;
       return this;
     }
+
+    /**
+     * Metric of the measures used by the sort field {@link #MEASURE_SORT_FIELD}
+     */
+    public Builder setMeasureSortMetricId(@Nullable Integer metricId) {
+      this.measureSortMetricId = metricId;
+      return this;
+    }
+
+    /**
+     * Sort by the variation on the given period instead of the value of the measure
+     */
+    public Builder setMeasureSortPeriod(@Nullable Integer period) {
+      this.measureSortPeriod = period;
+      return this;
+    }
+
+    /**
+     * Value used to sort the files and unit test files that have no measure on the metric
+     */
+    public Builder setMeasureSortBestValue(@Nullable Double bestValue) {
+      this.measureSortBestValue = bestValue;
+      return this;
+    }
+
+    /**
+     * Sort by the measures of a developer. By default, measures not related to a developer are used.
+     */
+    public Builder setMeasureSortPersonId(@Nullable Long personId) {
+      this.measureSortPersonId = personId;
+      return this;
+    }
+
+    /**
+     * Return only the components having a value to sort by
+     */
+    public Builder setOnlyWithMeasureSortValue(boolean onlyWithMeasureSortValue) {
+      this.onlyWithMeasureSortValue = onlyWithMeasureSortValue;
+      return this;
+    }
   }
 
   private static class SortFieldToSqlSortFieldFunction implements Function<String, String> {
     private static final String PATTERN = "LOWER(p.%1$s) %2$s, p.%1$s %2$s";
+    private static final String MEASURE_PATTERN = "CASE WHEN %1$s IS NULL THEN 1 ELSE 0 END ASC, %1$s %2$s";
 
     private final String direction;
+    @Nullable
+    private final String sqlMeasureSortValue;
 
-    private SortFieldToSqlSortFieldFunction(String direction) {
+    private SortFieldToSqlSortFieldFunction(String direction, @Nullable String sqlMeasureSortValue) {
       this.direction = direction;
+      this.sqlMeasureSortValue = sqlMeasureSortValue;
     }
 
     @Nonnull
     @Override
     public String apply(@Nonnull String input) {
+      if (MEASURE_SORT_FIELD.equals(input)) {
+        return format(MEASURE_PATTERN, sqlMeasureSortValue, direction);
+      }
       return format(PATTERN, input, direction);
     }
   }
@@ -87,4 +87,13 @@ abstract class AbstractDialect implements Dialect {
   public int getScrollSingleRowFetchSize() {
     return 1;
   }
+
+  /**
+   * Oracle does not support more than 1'000 expressions in a list, and SQLServer
+   * does not support more than 2'100 parameters in a statement.
+   */
+  @Override
+  public int getDeletePartitionSize() {
+    return 1_000;
+  }
 }
@@ -83,6 +83,14 @@ public interface Dialect {
    */
   int getScrollSingleRowFetchSize();
 
+  /**
+   * Maximum number of values bound to the IN clause of the statements which delete large
+   * sets of rows by partitions.
+   *
+   * @since 6.2
+   */
+  int getDeletePartitionSize();
+
   /**
    * Indicates whether DB migration can be perform on the DB vendor implementation associated with the current dialect.
    *
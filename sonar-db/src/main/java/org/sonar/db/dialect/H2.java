@@ -42,4 +42,8 @@ public class H2 extends AbstractDialect {
     return false;
   }
 
+  @Override
+  public int getDeletePartitionSize() {
+    return 5_000;
+  }
 }
@@ -51,4 +51,9 @@ public class MySql extends AbstractDialect {
   public boolean supportsMigration() {
     return true;
   }
+
+  @Override
+  public int getDeletePartitionSize() {
+    return 5_000;
+  }
 }
@@ -19,16 +19,33 @@
  */
 package org.sonar.db.duplication;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
+import org.sonar.db.MyBatis;
 
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 
 public class DuplicationDao implements Dao {
 
+  private static final String SQL_HASHES_OF_LAST_ANALYSES = "SELECT duplication_block.analysis_uuid, duplication_block.hash" +
+    " FROM duplications_index duplication_block" +
+    " INNER JOIN snapshots snapshot ON duplication_block.analysis_uuid=snapshot.uuid AND snapshot.islast=?" +
+    " INNER JOIN projects file_component ON file_component.uuid=duplication_block.component_uuid AND file_component.language=?" +
+    " AND file_component.enabled=?";
+
+  private final MyBatis mybatis;
+
+  public DuplicationDao(MyBatis myBatis) {
+    this.mybatis = myBatis;
+  }
+
   /**
    * @param analysisUuid snapshot id of the project from the previous analysis (islast=true)
    */
@@ -38,6 +55,31 @@ public class DuplicationDao implements Dao {
       partition -> session.getMapper(DuplicationMapper.class).selectCandidates(analysisUuid, language, partition));
   }
 
+  /**
+   * Scrolls the blocks of the last analyses of all projects, for the files of the specified language. Each row
+   * is a {@link DuplicationUnitDto} with only hash and analysis uuid populated.
+   * <p>
+   * Rows are fetched with the scrolling fetch size of the dialect, so that the JDBC driver does not load the whole
+   * result set in memory.
+   * </p>
+   */
+  public void scrollHashesOfLastAnalyses(DbSession session, String language, Consumer<DuplicationUnitDto> consumer) {
+    try (PreparedStatement stmt = mybatis.newScrollingSelectStatement(session, SQL_HASHES_OF_LAST_ANALYSES)) {
+      stmt.setBoolean(1, true);
+      stmt.setString(2, language);
+      stmt.setBoolean(3, true);
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          consumer.accept(new DuplicationUnitDto()
+            .setAnalysisUuid(rs.getString(1))
+            .setHash(rs.getString(2)));
+        }
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to scroll hashes of duplication blocks of language " + language, e);
+    }
+  }
+
   /**
    * Insert rows in the table DUPLICATIONS_INDEX.
    * Note that generated ids are not returned.
@@ -91,6 +91,13 @@ public class IssueDao implements Dao {
     return mapper(session).selectComponentUuidsOfOpenIssuesForProjectUuid(projectUuid);
   }
 
+  /**
+   * Uuids of the projects having issues, whatever their status
+   */
+  public List<String> selectProjectUuids(DbSession session) {
+    return mapper(session).selectProjectUuids();
+  }
+
   public void insert(DbSession session, IssueDto dto) {
     mapper(session).insert(dto);
   }
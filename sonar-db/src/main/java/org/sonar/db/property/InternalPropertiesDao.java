@@ -76,6 +76,25 @@ public class InternalPropertiesDao implements Dao {
     mapper.insertAsEmpty(key, system2.now());
   }
 
+  /**
+   * Update the value of a property, only if it already exists.
+   * <p>Unlike {@link #save(DbSession, String, String)}, the property is not deleted then inserted, so that concurrent
+   * updates of the same property can not fail. Value can't be {@code null} nor empty and is stored in varchar, so it
+   * can't be longer than 4000 characters.</p>
+   *
+   * @return {@code false} if the property does not exist
+   *
+   * @throws IllegalArgumentException if {@code key} or {@code value} is {@code null} or empty, or if {@code value} is
+   *         longer than 4000 characters.
+   */
+  public boolean update(DbSession dbSession, String key, String value) {
+    checkKey(key);
+    checkArgument(value != null && !value.isEmpty(), "value can't be null nor empty");
+    checkArgument(!mustsBeStoredInClob(value), "value can't be longer than %s characters", TEXT_VALUE_MAX_LENGTH);
+
+    return getMapper(dbSession).updateAsText(key, value, system2.now()) > 0;
+  }
+
   /**
    * No streaming of value
    */
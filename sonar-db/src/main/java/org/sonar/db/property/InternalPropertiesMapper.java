@@ -32,5 +32,7 @@ public interface InternalPropertiesMapper {
 
   void insertAsClob(@Param("key") String key, @Param("value") String value, @Param("createdAt") long createdAt);
 
+  int updateAsText(@Param("key") String key, @Param("value") String value, @Param("createdAt") long createdAt);
+
   void deleteByKey(@Param("key") String key);
 }
@@ -22,34 +22,41 @@ package org.sonar.db.purge;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.session.SqlSession;
 
 import static com.google.common.collect.FluentIterable.from;
 import static java.util.Arrays.asList;
+import static org.sonar.db.DatabaseUtils.PARTITION_SIZE_FOR_ORACLE;
 
+/**
+ * Deletes rows by partitions of ids. The statements of a table are sent in JDBC batches when the session
+ * is a {@link org.sonar.db.BatchSession}. The number of deleted rows of each table is recorded by the {@link PurgeProfiler}.
+ */
 class PurgeCommands {
 
-  private static final int MAX_SNAPSHOTS_PER_QUERY = 1000;
-  private static final int MAX_RESOURCES_PER_QUERY = 1000;
+  /**
+   * Statements are flushed before {@link org.sonar.db.BatchSession} commits by itself, so that
+   * the number of deleted rows is not lost
+   */
+  private static final int MAX_STATEMENTS_PER_FLUSH = 100;
 
   private final SqlSession session;
   private final PurgeMapper purgeMapper;
   private final PurgeProfiler profiler;
+  private final int partitionSize;
 
-  PurgeCommands(SqlSession session, PurgeMapper purgeMapper, PurgeProfiler profiler) {
+  PurgeCommands(SqlSession session, PurgeMapper purgeMapper, PurgeProfiler profiler, int partitionSize) {
     this.session = session;
     this.purgeMapper = purgeMapper;
     this.profiler = profiler;
+    this.partitionSize = partitionSize;
   }
 
   @VisibleForTesting
   PurgeCommands(SqlSession session, PurgeProfiler profiler) {
-    this(session, session.getMapper(PurgeMapper.class), profiler);
-  }
-
-  List<String> selectSnapshotUuids(PurgeSnapshotQuery query) {
-    return purgeMapper.selectAnalysisIdsAndUuids(query).stream().map(IdUuidPair::getUuid).collect(Collectors.toList());
+    this(session, session.getMapper(PurgeMapper.class), profiler, PARTITION_SIZE_FOR_ORACLE);
   }
 
   List<IdUuidPair> selectSnapshotIdUuids(PurgeSnapshotQuery query) {
@@ -61,68 +68,25 @@ class PurgeCommands {
   }
 
   void deleteComponents(List<IdUuidPair> componentIdUuids) {
-    List<List<Long>> componentIdPartitions = Lists.partition(IdUuidPairs.ids(componentIdUuids), MAX_RESOURCES_PER_QUERY);
-    List<List<String>> componentUuidsPartitions = Lists.partition(IdUuidPairs.uuids(componentIdUuids), MAX_RESOURCES_PER_QUERY);
+    List<List<Long>> componentIdPartitions = Lists.partition(IdUuidPairs.ids(componentIdUuids), partitionSize);
+    List<List<String>> componentUuidsPartitions = Lists.partition(IdUuidPairs.uuids(componentIdUuids), partitionSize);
     // Note : do not merge the delete statements into a single loop of resource ids. It's
     // voluntarily grouped by tables in order to benefit from JDBC batch mode.
     // Batch requests can only relate to the same PreparedStatement.
 
     // possible missing optimization: filter requests according to resource scope
 
-    profiler.start("deleteResourceLinks (project_links)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponentLinks);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceProperties (properties)");
-    componentIdPartitions.forEach(purgeMapper::deleteComponentProperties);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceIndex (resource_index)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteResourceIndex);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceGroupRoles (group_roles)");
-    componentIdPartitions.forEach(purgeMapper::deleteComponentGroupRoles);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceUserRoles (user_roles)");
-    componentIdPartitions.forEach(purgeMapper::deleteComponentUserRoles);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResourceManualMeasures (manual_measures)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponentManualMeasures);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteComponentIssueChanges (issue_changes)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponentIssueChanges);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteComponentIssues (issues)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponentIssues);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteComponentEvents (events)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponentEvents);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteResource (projects)");
-    componentUuidsPartitions.forEach(purgeMapper::deleteComponents);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAuthors (authors)");
-    componentIdPartitions.forEach(purgeMapper::deleteAuthors);
-    session.commit();
-    profiler.stop();
+    delete("deleteResourceLinks (project_links)", componentUuidsPartitions, purgeMapper::deleteComponentLinks);
+    delete("deleteResourceProperties (properties)", componentIdPartitions, purgeMapper::deleteComponentProperties);
+    delete("deleteResourceIndex (resource_index)", componentUuidsPartitions, purgeMapper::deleteResourceIndex);
+    delete("deleteResourceGroupRoles (group_roles)", componentIdPartitions, purgeMapper::deleteComponentGroupRoles);
+    delete("deleteResourceUserRoles (user_roles)", componentIdPartitions, purgeMapper::deleteComponentUserRoles);
+    delete("deleteResourceManualMeasures (manual_measures)", componentUuidsPartitions, purgeMapper::deleteComponentManualMeasures);
+    delete("deleteComponentIssueChanges (issue_changes)", componentUuidsPartitions, purgeMapper::deleteComponentIssueChanges);
+    delete("deleteComponentIssues (issues)", componentUuidsPartitions, purgeMapper::deleteComponentIssues);
+    delete("deleteComponentEvents (events)", componentUuidsPartitions, purgeMapper::deleteComponentEvents);
+    delete("deleteResource (projects)", componentUuidsPartitions, purgeMapper::deleteComponents);
+    delete("deleteAuthors (authors)", componentIdPartitions, purgeMapper::deleteAuthors);
   }
 
   public void deleteComponentMeasures(List<String> analysisUuids, List<String> componentUuids) {
@@ -130,17 +94,12 @@ class PurgeCommands {
       return;
     }
 
-    List<List<String>> analysisUuidsPartitions = Lists.partition(analysisUuids, MAX_SNAPSHOTS_PER_QUERY);
-    List<List<String>> componentUuidsPartitions = Lists.partition(componentUuids, MAX_RESOURCES_PER_QUERY);
+    List<List<String>> analysisUuidsPartitions = Lists.partition(analysisUuids, partitionSize);
+    List<List<String>> componentUuidsPartitions = Lists.partition(componentUuids, partitionSize);
 
-    profiler.start("deleteComponentMeasures");
-    for (List<String> analysisUuidsPartition : analysisUuidsPartitions) {
-      for (List<String> componentUuidsPartition : componentUuidsPartitions) {
-        purgeMapper.deleteComponentMeasures(analysisUuidsPartition, componentUuidsPartition);
-      }
-    }
-    session.commit();
-    profiler.stop();
+    // one statement per pair of partitions, so that each of them is counted as pending
+    delete("deleteComponentMeasures (project_measures)", Lists.cartesianProduct(analysisUuidsPartitions, componentUuidsPartitions),
+      partitions -> purgeMapper.deleteComponentMeasures(partitions.get(0), partitions.get(1)));
   }
 
   void deleteAnalyses(PurgeSnapshotQuery... queries) {
@@ -152,62 +111,88 @@ class PurgeCommands {
 
   @VisibleForTesting
   protected void deleteAnalyses(List<IdUuidPair> analysisIdUuids) {
-    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisIdUuids), MAX_SNAPSHOTS_PER_QUERY);
+    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisIdUuids), partitionSize);
 
     deleteAnalysisDuplications(analysisUuidsPartitions);
-
-    profiler.start("deleteAnalyses (events)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisEvents);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAnalyses (project_measures)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalysisMeasures);
-    session.commit();
-    profiler.stop();
-
-    profiler.start("deleteAnalyses (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::deleteAnalyses);
-    session.commit();
-    profiler.stop();
+    delete("deleteAnalyses (events)", analysisUuidsPartitions, purgeMapper::deleteAnalysisEvents);
+    delete("deleteAnalyses (project_measures)", analysisUuidsPartitions, purgeMapper::deleteAnalysisMeasures);
+    delete("deleteAnalyses (snapshots)", analysisUuidsPartitions, purgeMapper::deleteAnalyses);
   }
 
   public void purgeAnalyses(List<IdUuidPair> analysisUuids) {
-    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisUuids), MAX_SNAPSHOTS_PER_QUERY);
+    if (analysisUuids.isEmpty()) {
+      return;
+    }
+    List<List<String>> analysisUuidsPartitions = Lists.partition(IdUuidPairs.uuids(analysisUuids), partitionSize);
 
     deleteAnalysisDuplications(analysisUuidsPartitions);
 
-    profiler.start("deleteSnapshotWastedMeasures (project_measures)");
     List<Long> metricIdsWithoutHistoricalData = purgeMapper.selectMetricIdsWithoutHistoricalData();
-    analysisUuidsPartitions.stream()
-        .forEach(analysisUuidsPartition -> purgeMapper.deleteAnalysisWastedMeasures(analysisUuidsPartition, metricIdsWithoutHistoricalData));
-    session.commit();
-    profiler.stop();
+    delete("deleteSnapshotWastedMeasures (project_measures)", analysisUuidsPartitions,
+      analysisUuidsPartition -> purgeMapper.deleteAnalysisWastedMeasures(analysisUuidsPartition, metricIdsWithoutHistoricalData));
 
-    profiler.start("updatePurgeStatusToOne (snapshots)");
-    analysisUuidsPartitions.forEach(purgeMapper::updatePurgeStatusToOne);
-    session.commit();
-    profiler.stop();
+    delete("updatePurgeStatusToOne (snapshots)", analysisUuidsPartitions, purgeMapper::updatePurgeStatusToOne);
   }
 
   private void deleteAnalysisDuplications(List<List<String>> snapshotUuidsPartitions) {
-    profiler.start("deleteAnalysisDuplications (duplications_index)");
-    snapshotUuidsPartitions.forEach(purgeMapper::deleteAnalysisDuplications);
-    session.commit();
-    profiler.stop();
+    delete("deleteAnalysisDuplications (duplications_index)", snapshotUuidsPartitions, purgeMapper::deleteAnalysisDuplications);
   }
 
   public void deleteFileSources(String rootUuid) {
     profiler.start("deleteFileSources (file_sources)");
-    purgeMapper.deleteFileSourcesByProjectUuid(rootUuid);
+    int deletedRows = purgeMapper.deleteFileSourcesByProjectUuid(rootUuid);
+    profiler.stop(sumOfAffectedRows(flush(), deletedRows));
     session.commit();
-    profiler.stop();
   }
 
   public void deleteCeActivity(String rootUuid) {
     profiler.start("deleteCeActivity (ce_activity)");
-    purgeMapper.deleteCeActivityByProjectUuid(rootUuid);
+    int deletedRows = purgeMapper.deleteCeActivityByProjectUuid(rootUuid);
+    profiler.stop(sumOfAffectedRows(flush(), deletedRows));
+    session.commit();
+  }
+
+  /**
+   * Executes the statement on each partition and commits. The statement must execute a single
+   * SQL statement per call.
+   */
+  private <T> void delete(String description, List<T> partitions, Function<T, Integer> statement) {
+    profiler.start(description);
+    long affectedRows = 0L;
+    int pendingStatements = 0;
+    for (T partition : partitions) {
+      affectedRows = sumOfAffectedRows(affectedRows, statement.apply(partition));
+      pendingStatements++;
+      if (pendingStatements >= MAX_STATEMENTS_PER_FLUSH) {
+        affectedRows = sumOfAffectedRows(affectedRows, flush());
+        pendingStatements = 0;
+      }
+    }
+    affectedRows = sumOfAffectedRows(affectedRows, flush());
+    profiler.stop(affectedRows);
     session.commit();
-    profiler.stop();
+  }
+
+  /**
+   * Sends the pending batched statements, if any.
+   *
+   * @return the number of rows affected by these statements
+   */
+  private long flush() {
+    long affectedRows = 0L;
+    for (BatchResult batchResult : session.flushStatements()) {
+      for (int updateCount : batchResult.getUpdateCounts()) {
+        affectedRows = sumOfAffectedRows(affectedRows, updateCount);
+      }
+    }
+    return affectedRows;
+  }
+
+  /**
+   * Counts returned by batched statements are negative: they are ignored, as well
+   * as the {@link java.sql.Statement#SUCCESS_NO_INFO} returned by some JDBC drivers.
+   */
+  private static long sumOfAffectedRows(long affectedRows, long count) {
+    return count > 0 ? (affectedRows + count) : affectedRows;
   }
 }
@@ -31,6 +31,7 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.stream.Collectors;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
+import org.sonar.db.MyBatis;
 import org.sonar.db.component.ComponentDao;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTreeQuery;
@@ -47,32 +48,31 @@ public class PurgeDao implements Dao {
   private static final String[] UNPROCESSED_STATUS = new String[] {"U"};
   private static final List<String> UUID_FIELD_SORT = Collections.singletonList("uuid");
 
+  private final MyBatis myBatis;
   private final ComponentDao componentDao;
   private final System2 system2;
 
-  public PurgeDao(ComponentDao componentDao, System2 system2) {
+  public PurgeDao(MyBatis myBatis, ComponentDao componentDao, System2 system2) {
+    this.myBatis = myBatis;
     this.componentDao = componentDao;
     this.system2 = system2;
   }
 
   public void purge(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler) {
     PurgeMapper mapper = session.getMapper(PurgeMapper.class);
-    PurgeCommands commands = new PurgeCommands(session, mapper, profiler);
+    PurgeCommands commands = newPurgeCommands(session, mapper, profiler);
     String rootUuid = conf.rootProjectIdUuid().getUuid();
     deleteAbortedAnalyses(rootUuid, commands);
-    deleteDataOfComponentsWithoutHistoricalData(session, rootUuid, conf.scopesWithoutHistoricalData(), commands);
-    purgeAnalyses(commands, rootUuid);
-    purgeDisabledComponents(session, conf.getDisabledComponentUuids(), listener);
-    deleteOldClosedIssues(conf, mapper, listener);
-  }
-
-  private static void purgeAnalyses(PurgeCommands commands, String rootUuid) {
-    List<IdUuidPair> analysisUuids = commands.selectSnapshotIdUuids(
+    // analyses to be purged are loaded once and shared by the following steps
+    List<IdUuidPair> unpurgedAnalyses = commands.selectSnapshotIdUuids(
       new PurgeSnapshotQuery()
         .setComponentUuid(rootUuid)
         .setIslast(false)
         .setNotPurged(true));
-    commands.purgeAnalyses(analysisUuids);
+    deleteDataOfComponentsWithoutHistoricalData(session, rootUuid, conf.scopesWithoutHistoricalData(), IdUuidPairs.uuids(unpurgedAnalyses), commands);
+    commands.purgeAnalyses(unpurgedAnalyses);
+    purgeDisabledComponents(session, conf.getDisabledComponentUuids(), listener);
+    deleteOldClosedIssues(conf, mapper, listener);
   }
 
   private static void deleteOldClosedIssues(PurgeConfiguration conf, PurgeMapper mapper, PurgeListener listener) {
@@ -99,16 +99,12 @@ public class PurgeDao implements Dao {
     commands.deleteAnalyses(query);
   }
 
-  private void deleteDataOfComponentsWithoutHistoricalData(DbSession dbSession, String rootUuid, String[] scopesWithoutHistoricalData, PurgeCommands purgeCommands) {
-    if (scopesWithoutHistoricalData.length == 0) {
+  private void deleteDataOfComponentsWithoutHistoricalData(DbSession dbSession, String rootUuid, String[] scopesWithoutHistoricalData, List<String> analysisUuids,
+    PurgeCommands purgeCommands) {
+    if (scopesWithoutHistoricalData.length == 0 || analysisUuids.isEmpty()) {
       return;
     }
 
-    List<String> analysisUuids = purgeCommands.selectSnapshotUuids(
-      new PurgeSnapshotQuery()
-        .setComponentUuid(rootUuid)
-        .setIslast(false)
-        .setNotPurged(true));
     List<String> componentWithoutHistoricalDataUuids = componentDao
       .selectDescendants(
         dbSession,
@@ -160,8 +156,9 @@ public class PurgeDao implements Dao {
 
   public PurgeDao deleteProject(DbSession session, String uuid) {
     PurgeProfiler profiler = new PurgeProfiler();
-    PurgeCommands purgeCommands = new PurgeCommands(session, profiler);
-    deleteProject(uuid, mapper(session), purgeCommands);
+    PurgeMapper mapper = mapper(session);
+    PurgeCommands purgeCommands = newPurgeCommands(session, mapper, profiler);
+    deleteProject(uuid, mapper, purgeCommands);
     return this;
   }
 
@@ -174,7 +171,11 @@ public class PurgeDao implements Dao {
   }
 
   public void deleteAnalyses(DbSession session, PurgeProfiler profiler, List<IdUuidPair> analysisIdUuids) {
-    new PurgeCommands(session, profiler).deleteAnalyses(analysisIdUuids);
+    newPurgeCommands(session, mapper(session), profiler).deleteAnalyses(analysisIdUuids);
+  }
+
+  private PurgeCommands newPurgeCommands(DbSession session, PurgeMapper mapper, PurgeProfiler profiler) {
+    return new PurgeCommands(session, mapper, profiler, myBatis.getDeletePartitionSize());
   }
 
   private static PurgeMapper mapper(DbSession session) {
@@ -32,6 +32,7 @@ import org.sonar.api.utils.log.Logger;
 public class PurgeProfiler {
 
   private Map<String, Long> durations = new HashMap<>();
+  private Map<String, Long> affectedRows = new HashMap<>();
   private long startTime;
   private String currentTable;
   private final Clock clock;
@@ -47,6 +48,7 @@ public class PurgeProfiler {
 
   public void reset() {
     durations.clear();
+    affectedRows.clear();
   }
 
   void start(String table) {
@@ -64,6 +66,18 @@ public class PurgeProfiler {
     durations.put(currentTable, cumulatedDuration + (clock.now() - startTime));
   }
 
+  void stop(long rows) {
+    stop();
+    affectedRows.merge(currentTable, rows, Long::sum);
+  }
+
+  /**
+   * Number of rows deleted or updated by each step of the purge
+   */
+  public Map<String, Long> getAffectedRows() {
+    return Collections.unmodifiableMap(affectedRows);
+  }
+
   public void dump(long totalTime, Logger logger) {
     List<Entry<String, Long>> data = new ArrayList<>(durations.entrySet());
     Collections.sort(data, (o1, o2) -> o2.getValue().compareTo(o1.getValue()));
@@ -72,6 +86,10 @@ public class PurgeProfiler {
       StringBuilder sb = new StringBuilder();
       sb.append("   o ").append(entry.getKey()).append(": ").append(TimeUtils.formatDuration(entry.getValue()))
         .append(" (").append((int) (entry.getValue() / percent)).append("%)");
+      Long rows = affectedRows.get(entry.getKey());
+      if (rows != null) {
+        sb.append(", ").append(rows).append(" rows");
+      }
       logger.info(sb.toString());
     }
   }
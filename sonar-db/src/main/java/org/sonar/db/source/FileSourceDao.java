@@ -26,16 +26,20 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
+
 public class FileSourceDao implements Dao {
 
   private static final Splitter END_OF_LINE_SPLITTER = Splitter.on('\n');
@@ -85,6 +89,19 @@ public class FileSourceDao implements Dao {
     }
   }
 
+  /**
+   * Scrolls the line hashes of the source files with the specified uuids. Each row is a {@link FileSourceDto} with
+   * only file uuid, line hashes and source hash populated. Files without source data are ignored.
+   */
+  public void scrollLineHashes(DbSession dbSession, Collection<String> fileUuids, ResultHandler handler) {
+    executeLargeInputsWithoutOutput(
+      fileUuids,
+      partitionedFileUuids -> {
+        mapper(dbSession).scrollLineHashes(partitionedFileUuids, Type.SOURCE, handler);
+        return null;
+      });
+  }
+
   public <T> void readLineHashesStream(DbSession dbSession, String fileUuid, Function<Reader, T> function) {
     Connection connection = dbSession.getConnection();
     PreparedStatement pstmt = null;
@@ -48,6 +48,7 @@ public class FileSourceDto {
   private long updatedAt;
   private String lineHashes;
   private String srcHash;
+  private String inputsHash;
   private byte[] binaryData;
   private String dataType;
   private String dataHash;
@@ -254,6 +255,20 @@ public class FileSourceDto {
     return this;
   }
 
+  @CheckForNull
+  public String getInputsHash() {
+    return inputsHash;
+  }
+
+  /**
+   * Hash of the data of the analysis report BINARY_DATA is computed from. Used to skip the computation of BINARY_DATA
+   * when these inputs did not change.
+   */
+  public FileSourceDto setInputsHash(@Nullable String inputsHash) {
+    this.inputsHash = inputsHash;
+    return this;
+  }
+
   public long getCreatedAt() {
     return createdAt;
   }
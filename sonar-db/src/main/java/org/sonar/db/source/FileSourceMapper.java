@@ -19,9 +19,11 @@
  */
 package org.sonar.db.source;
 
+import java.util.Collection;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 public interface FileSourceMapper {
 
@@ -30,6 +32,8 @@ public interface FileSourceMapper {
   @CheckForNull
   FileSourceDto select(@Param("fileUuid") String fileUuid, @Param("dataType") String dataType);
 
+  void scrollLineHashes(@Param("fileUuids") Collection<String> fileUuids, @Param("dataType") String dataType, ResultHandler resultHandler);
+
   void insert(FileSourceDto dto);
 
   void update(FileSourceDto dto);
@@ -159,6 +159,7 @@ import org.sonar.db.version.v61.DropIsGlobalFromDashboards;
 import org.sonar.db.version.v61.PopulateTableProperties2;
 import org.sonar.db.version.v61.RemoveViewsDefinitionFromProperties;
 import org.sonar.db.version.v61.ShrinkModuleUuidPathOfProjects;
+import org.sonar.db.version.v62.AddInputsHashToFileSources;
 import org.sonar.db.version.v62.AddIsRootColumnOnTableUsers;
 import org.sonar.db.version.v62.AddOrganizationUuidToGroupRoles;
 import org.sonar.db.version.v62.AddOrganizationUuidToGroups;
@@ -374,7 +375,8 @@ public class MigrationStepModule extends Module {
       MakeOrganizationUuidNotNullOnPermissionTemplates.class,
       AddOrganizationUuidToGroupRoles.class,
       PopulateOrganizationUuidOfGroupRoles.class,
-      MakeOrganizationUuidNotNullOnGroupRoles.class
+      MakeOrganizationUuidNotNullOnGroupRoles.class,
+      AddInputsHashToFileSources.class
     );
   }
 }
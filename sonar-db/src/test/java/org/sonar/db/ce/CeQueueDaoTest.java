@@ -182,6 +182,18 @@ public class CeQueueDaoTest {
     assertThat(peek.get().getUuid()).isEqualTo(TASK_UUID_2);
   }
 
+  @Test
+  public void selectPendingInAscOrder_returns_oldest_pending_tasks_even_if_not_eligible_for_peek() {
+    insert(TASK_UUID_1, COMPONENT_UUID_1, IN_PROGRESS);
+    system2.setNow(INIT_TIME + 1_000);
+    insert(TASK_UUID_2, COMPONENT_UUID_1, PENDING);
+    system2.setNow(INIT_TIME + 2_000);
+    insert(TASK_UUID_3, COMPONENT_UUID_2, PENDING);
+
+    assertThat(underTest.selectPendingInAscOrder(db.getSession(), 10)).extracting("uuid").containsExactly(TASK_UUID_2, TASK_UUID_3);
+    assertThat(underTest.selectPendingInAscOrder(db.getSession(), 1)).extracting("uuid").containsExactly(TASK_UUID_2);
+  }
+
   @Test
   public void select_by_query() {
     // task status not in query
@@ -32,6 +32,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.RowNotFoundException;
+import org.sonar.db.measure.MeasureDto;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Sets.newHashSet;
@@ -56,6 +57,7 @@ public class ComponentDaoTest {
   private static final String FILE_2_UUID = "file-2-uuid";
   private static final String FILE_3_UUID = "file-3-uuid";
   private static final String A_VIEW_UUID = "view-uuid";
+  private static final int A_METRIC_ID = 10;
 
   @Rule
   public ExpectedException thrown = ExpectedException.none();
@@ -1095,6 +1097,96 @@ public class ComponentDaoTest {
     assertThat(result).extracting("uuid").containsExactly("file-uuid-6", "file-uuid-5", "file-uuid-4");
   }
 
+  @Test
+  public void selectDescendants_sorted_by_measure_value_and_paginated() {
+    ComponentDto project = newProjectDto(PROJECT_UUID);
+    SnapshotDto analysis = componentDb.insertProjectAndSnapshot(project);
+    ComponentDto file1 = componentDb.insertComponent(newFileDto(project, null, "file-uuid-1").setName("file-name-1"));
+    ComponentDto file2 = componentDb.insertComponent(newFileDto(project, null, "file-uuid-2").setName("file-name-2"));
+    ComponentDto file3 = componentDb.insertComponent(newFileDto(project, null, "file-uuid-3").setName("file-name-3"));
+    ComponentDto file4 = componentDb.insertComponent(newFileDto(project, null, "file-uuid-4").setName("file-name-4"));
+    db.getDbClient().measureDao().insert(dbSession,
+      newMeasure(A_METRIC_ID, file1, analysis).setValue(3.0d),
+      newMeasure(A_METRIC_ID, file2, analysis).setValue(1.0d),
+      newMeasure(A_METRIC_ID, file3, analysis).setValue(2.0d),
+      // measures of a developer and of another metric are ignored
+      newMeasure(A_METRIC_ID, file4, analysis).setValue(0.0d).setDeveloperId(42L),
+      newMeasure(A_METRIC_ID + 1, file4, analysis).setValue(0.0d));
+    db.commit();
+
+    ComponentTreeQuery.Builder query = newTreeQuery(PROJECT_UUID)
+      .setSortFields(asList(ComponentTreeQuery.MEASURE_SORT_FIELD, "name"))
+      .setMeasureSortMetricId(A_METRIC_ID);
+
+    assertThat(underTest.selectDescendants(dbSession, query.build())).extracting("uuid")
+      .containsExactly("file-uuid-2", "file-uuid-3", "file-uuid-1", "file-uuid-4");
+    // components without measure are last, whatever the direction
+    assertThat(underTest.selectDescendants(dbSession, query.setAsc(false).build())).extracting("uuid")
+      .containsExactly("file-uuid-1", "file-uuid-3", "file-uuid-2", "file-uuid-4");
+    assertThat(underTest.selectDescendants(dbSession, query.setPage(2).setPageSize(2).build())).extracting("uuid")
+      .containsExactly("file-uuid-2", "file-uuid-4");
+    assertThat(underTest.countDescendants(dbSession, query.build())).isEqualTo(4);
+    assertThat(underTest.selectDescendants(dbSession, query.setPage(1).setMeasureSortPersonId(42L).build())).extracting("uuid")
+      .containsExactly("file-uuid-4", "file-uuid-3");
+  }
+
+  @Test
+  public void selectDescendants_sorted_by_measure_variation_with_best_value_and_only_with_value() {
+    ComponentDto project = newProjectDto(PROJECT_UUID);
+    SnapshotDto analysis = componentDb.insertProjectAndSnapshot(project);
+    ComponentDto module = componentDb.insertComponent(newModuleDto(MODULE_UUID, project));
+    ComponentDto file1 = componentDb.insertComponent(newFileDto(module, null, "file-uuid-1"));
+    componentDb.insertComponent(newFileDto(module, null, "file-uuid-2"));
+    ComponentDto file3 = componentDb.insertComponent(newFileDto(module, null, "file-uuid-3"));
+    db.getDbClient().measureDao().insert(dbSession,
+      newMeasure(A_METRIC_ID, file1, analysis).setVariation(1, 5.0d),
+      // no variation on the sorted period
+      newMeasure(A_METRIC_ID, file3, analysis).setValue(-1.0d).setVariation(2, -1.0d));
+    db.commit();
+
+    ComponentTreeQuery query = newTreeQuery(PROJECT_UUID)
+      .setSortFields(asList(ComponentTreeQuery.MEASURE_SORT_FIELD, "name"))
+      .setMeasureSortMetricId(A_METRIC_ID)
+      .setMeasureSortPeriod(1)
+      .setMeasureSortBestValue(0.5d)
+      .setOnlyWithMeasureSortValue(true)
+      .build();
+
+    // files without measure get the best value, the module and file-uuid-3 are excluded as they have no value
+    assertThat(underTest.selectDescendants(dbSession, query)).extracting("uuid").containsExactly("file-uuid-2", "file-uuid-1");
+    assertThat(underTest.countDescendants(dbSession, query)).isEqualTo(2);
+  }
+
+  @Test
+  public void selectChildren_sorted_by_measure_value() {
+    ComponentDto project = newProjectDto(PROJECT_UUID);
+    SnapshotDto analysis = componentDb.insertProjectAndSnapshot(project);
+    ComponentDto module = componentDb.insertComponent(newModuleDto(MODULE_UUID, project));
+    ComponentDto file1 = componentDb.insertComponent(newFileDto(project, null, FILE_1_UUID));
+    componentDb.insertComponent(newFileDto(module, null, FILE_2_UUID));
+    db.getDbClient().measureDao().insert(dbSession,
+      newMeasure(A_METRIC_ID, module, analysis).setValue(10.0d),
+      newMeasure(A_METRIC_ID, file1, analysis).setValue(20.0d));
+    db.commit();
+
+    ComponentTreeQuery query = newTreeQuery(PROJECT_UUID)
+      .setSortFields(singletonList(ComponentTreeQuery.MEASURE_SORT_FIELD))
+      .setMeasureSortMetricId(A_METRIC_ID)
+      .setOnlyWithMeasureSortValue(true)
+      .setAsc(false)
+      .build();
+
+    assertThat(underTest.selectChildren(dbSession, query)).extracting("uuid").containsExactly(FILE_1_UUID, MODULE_UUID);
+    assertThat(underTest.countChildren(dbSession, query)).isEqualTo(2);
+  }
+
+  private static MeasureDto newMeasure(int metricId, ComponentDto component, SnapshotDto analysis) {
+    return new MeasureDto()
+      .setMetricId(metricId)
+      .setComponentUuid(component.uuid())
+      .setAnalysisUuid(analysis.getUuid());
+  }
+
   private static ComponentTreeQuery.Builder newTreeQuery(String baseUuid) {
     return ComponentTreeQuery.builder()
       .setPage(1)
@@ -44,6 +44,44 @@ public class ComponentTreeQueryTest {
     assertThat(result.getSqlSort()).isEqualTo("LOWER(p.name) ASC, p.name ASC, LOWER(p.path) ASC, p.path ASC, LOWER(p.qualifier) ASC, p.qualifier ASC");
   }
 
+  @Test
+  public void convert_measure_sort_in_sql_representation() {
+    ComponentTreeQuery result = ComponentTreeQuery.builder()
+      .setBaseUuid(AN_UUID)
+      .setSortFields(newArrayList(ComponentTreeQuery.MEASURE_SORT_FIELD, "name"))
+      .setMeasureSortMetricId(10)
+      .setMeasureSortPeriod(2)
+      .setAsc(false)
+      .build();
+
+    assertThat(result.getSqlMeasureSortValue()).isEqualTo("pm.variation_value_2");
+    assertThat(result.getSqlSort())
+      .isEqualTo("CASE WHEN pm.variation_value_2 IS NULL THEN 1 ELSE 0 END ASC, pm.variation_value_2 DESC, LOWER(p.name) DESC, p.name DESC");
+  }
+
+  @Test
+  public void measure_sort_value_of_files_without_measure_is_the_best_value() {
+    ComponentTreeQuery result = ComponentTreeQuery.builder()
+      .setBaseUuid(AN_UUID)
+      .setSortFields(singletonList(ComponentTreeQuery.MEASURE_SORT_FIELD))
+      .setMeasureSortMetricId(10)
+      .setMeasureSortBestValue(100d)
+      .build();
+
+    assertThat(result.getSqlMeasureSortValue()).isEqualTo("CASE WHEN pm.component_uuid IS NULL AND p.qualifier IN ('FIL', 'UTS') THEN 100.0 ELSE pm.value END");
+  }
+
+  @Test
+  public void fail_if_measure_sort_without_metric() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Metric to sort by must be defined when sorting or filtering by measure");
+
+    ComponentTreeQuery.builder()
+      .setBaseUuid(AN_UUID)
+      .setSortFields(singletonList(ComponentTreeQuery.MEASURE_SORT_FIELD))
+      .build();
+  }
+
   @Test
   public void fail_if_no_base_uuid() {
     expectedException.expect(NullPointerException.class);
@@ -56,4 +56,9 @@ public class H2Test {
   public void h2_does_not_supportMigration() {
     assertThat(dialect.supportsMigration()).isFalse();
   }
+
+  @Test
+  public void delete_partition_size() {
+    assertThat(dialect.getDeletePartitionSize()).isEqualTo(5_000);
+  }
 }
@@ -59,4 +59,9 @@ public class MsSqlTest {
   public void msSql_does_supportMigration() {
     assertThat(msSql.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void delete_partition_size() {
+    assertThat(msSql.getDeletePartitionSize()).isEqualTo(1_000);
+  }
 }
@@ -60,4 +60,9 @@ public class MySqlTest {
   public void mysql_does_supportMigration() {
     assertThat(mySql.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void delete_partition_size() {
+    assertThat(mySql.getDeletePartitionSize()).isEqualTo(5_000);
+  }
 }
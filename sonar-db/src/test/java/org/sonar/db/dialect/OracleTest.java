@@ -57,4 +57,9 @@ public class OracleTest {
   public void oracle_does_supportMigration() {
     assertThat(dialect.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void delete_partition_size() {
+    assertThat(dialect.getDeletePartitionSize()).isEqualTo(1_000);
+  }
 }
@@ -61,4 +61,9 @@ public class PostgreSqlTest {
   public void postgres_does_supportMigration() {
     assertThat(dialect.supportsMigration()).isTrue();
   }
+
+  @Test
+  public void delete_partition_size() {
+    assertThat(dialect.getDeletePartitionSize()).isEqualTo(5_000);
+  }
 }
@@ -25,10 +25,12 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 
 public class DuplicationDaoTest {
@@ -61,6 +63,22 @@ public class DuplicationDaoTest {
     assertThat(blocks).hasSize(2);
   }
 
+  @Test
+  public void scroll_hashes_of_last_analyses() {
+    db.prepareDbUnit(getClass(), "select_candidates.xml");
+    dbSession.commit();
+
+    List<DuplicationUnitDto> blocks = new ArrayList<>();
+    dao.scrollHashesOfLastAnalyses(dbSession, "java", blocks::add);
+
+    assertThat(blocks).extracting(DuplicationUnitDto::getAnalysisUuid, DuplicationUnitDto::getHash)
+      .containsOnly(tuple("u3", "aa"), tuple("u7", "aa"));
+
+    blocks.clear();
+    dao.scrollHashesOfLastAnalyses(dbSession, "grvy", blocks::add);
+    assertThat(blocks).isEmpty();
+  }
+
   @Test
   public void insert() {
     db.prepareDbUnit(getClass(), "insert.xml");
@@ -119,6 +119,22 @@ public class IssueDaoTest {
     assertThat(issues).extracting("key").containsExactly("I2", "I1");
   }
 
+  @Test
+  public void selectProjectUuids() {
+    assertThat(underTest.selectProjectUuids(dbTester.getSession())).isEmpty();
+
+    // I1 and I2 belong to PROJECT
+    prepareTables();
+    ComponentDto otherProject = ComponentTesting.newProjectDto();
+    underTest.insert(dbTester.getSession(), newIssueDto("I3")
+      .setRuleId(RULE.getId())
+      .setComponentUuid(otherProject.uuid())
+      .setProjectUuid(otherProject.uuid()));
+    dbTester.getSession().commit();
+
+    assertThat(underTest.selectProjectUuids(dbTester.getSession())).containsOnly(PROJECT.uuid(), otherProject.uuid());
+  }
+
   private static IssueDto newIssueDto(String key) {
     IssueDto dto = new IssueDto();
     dto.setComponent(new ComponentDto().setKey("struts:Action").setId(123L).setUuid("component-uuid"));
@@ -235,6 +235,45 @@ public class InternalPropertiesDaoTest {
       .hasCreatedAt(DATE_1);
   }
 
+  @Test
+  public void update_throws_IAE_if_value_is_more_than_4000() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("value can't be longer than 4000 characters");
+
+    underTest.update(dbSession, A_KEY, VALUE_SIZE_4001);
+  }
+
+  @Test
+  public void update_does_not_create_property_which_does_not_exist() {
+    assertThat(underTest.update(dbSession, A_KEY, VALUE_1)).isFalse();
+
+    assertThat(underTest.selectByKey(dbSession, A_KEY)).isEmpty();
+  }
+
+  @Test
+  public void update_persists_new_value_in_varchar_when_old_one_was_empty() {
+    when(system2.now()).thenReturn(DATE_1, DATE_2);
+    underTest.saveAsEmpty(dbSession, A_KEY);
+
+    assertThat(underTest.update(dbSession, A_KEY, VALUE_1)).isTrue();
+
+    assertThatInternalProperty(A_KEY)
+      .hasTextValue(VALUE_1)
+      .hasCreatedAt(DATE_2);
+  }
+
+  @Test
+  public void update_persists_new_value_in_varchar_when_old_one_was_in_clob() {
+    when(system2.now()).thenReturn(DATE_1, DATE_2);
+    underTest.save(dbSession, A_KEY, VALUE_SIZE_4001);
+
+    assertThat(underTest.update(dbSession, A_KEY, VALUE_2)).isTrue();
+
+    assertThatInternalProperty(A_KEY)
+      .hasTextValue(VALUE_2)
+      .hasCreatedAt(DATE_2);
+  }
+
   @Test
   public void selectByKey_throws_IAE_when_key_is_null() {
     expectKeyNullOrEmptyIAE();
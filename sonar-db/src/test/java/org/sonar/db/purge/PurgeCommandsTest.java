@@ -23,6 +23,7 @@ import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.api.utils.System2;
+import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 
 import static com.google.common.collect.Lists.newArrayList;
@@ -37,6 +38,22 @@ public class PurgeCommandsTest {
 
   private PurgeProfiler profiler = new PurgeProfiler();
 
+  @Test
+  public void deleted_measures_are_recorded_by_profiler_when_statements_are_batched() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteWastedMeasuresWhenPurgingAnalysis.xml");
+    List<String> componentUuids = newArrayList("1");
+    for (int i = 0; i < 300; i++) {
+      componentUuids.add("unknown_" + i);
+    }
+
+    try (DbSession batchSession = dbTester.getDbClient().openSession(true)) {
+      new PurgeCommands(batchSession, batchSession.getMapper(PurgeMapper.class), profiler, 1).deleteComponentMeasures(newArrayList("u1"), componentUuids);
+    }
+
+    assertThat(dbTester.countRowsOfTable("project_measures")).isZero();
+    assertThat(profiler.getAffectedRows()).containsEntry("deleteComponentMeasures (project_measures)", 3L);
+  }
+
   /**
    * Test that SQL queries execution do not fail with a huge number of parameter
    */
@@ -67,6 +84,22 @@ public class PurgeCommandsTest {
     dbTester.assertDbUnit(getClass(), "shouldDeleteWastedMeasuresWhenPurgingAnalysis-result.xml", "project_measures");
   }
 
+  @Test
+  public void deleted_measures_are_recorded_by_profiler_when_statements_are_batched() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteWastedMeasuresWhenPurgingAnalysis.xml");
+    List<String> componentUuids = newArrayList("1");
+    for (int i = 0; i < 300; i++) {
+      componentUuids.add("unknown_" + i);
+    }
+
+    try (DbSession batchSession = dbTester.getDbClient().openSession(true)) {
+      new PurgeCommands(batchSession, batchSession.getMapper(PurgeMapper.class), profiler, 1).deleteComponentMeasures(newArrayList("u1"), componentUuids);
+    }
+
+    assertThat(dbTester.countRowsOfTable("project_measures")).isZero();
+    assertThat(profiler.getAffectedRows()).containsEntry("deleteComponentMeasures (project_measures)", 3L);
+  }
+
   /**
    * Test that SQL queries execution do not fail with a huge number of parameter
    */
@@ -107,6 +140,58 @@ public class PurgeCommandsTest {
     assertThat(dbTester.countRowsOfTable("authors")).isEqualTo(2);
   }
 
+  @Test
+  public void deleted_rows_are_recorded_by_profiler() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteResource.xml");
+
+    new PurgeCommands(dbTester.getSession(), profiler).deleteAnalyses("uuid_1");
+
+    assertThat(profiler.getAffectedRows())
+      .containsEntry("deleteAnalyses (events)", 3L)
+      .containsEntry("deleteAnalyses (snapshots)", 1L);
+  }
+
+  @Test
+  public void deleted_rows_are_recorded_by_profiler_when_statements_are_batched() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteResource.xml");
+
+    try (DbSession batchSession = dbTester.getDbClient().openSession(true)) {
+      new PurgeCommands(batchSession, profiler).deleteAnalyses("uuid_1");
+    }
+
+    assertThat(dbTester.countRowsOfTable("snapshots")).isZero();
+    assertThat(profiler.getAffectedRows())
+      .containsEntry("deleteAnalyses (events)", 3L)
+      .containsEntry("deleteAnalyses (snapshots)", 1L);
+  }
+
+  @Test
+  public void partition_size_does_not_change_deleted_rows() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteResource.xml");
+    DbSession session = dbTester.getSession();
+
+    new PurgeCommands(session, session.getMapper(PurgeMapper.class), profiler, 1).deleteAnalyses("uuid_1");
+
+    assertThat(dbTester.countRowsOfTable("snapshots")).isZero();
+    assertThat(dbTester.countRowsOfTable("events")).isZero();
+  }
+
+  @Test
+  public void deleted_measures_are_recorded_by_profiler_when_statements_are_batched() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteWastedMeasuresWhenPurgingAnalysis.xml");
+    List<String> componentUuids = newArrayList("1");
+    for (int i = 0; i < 300; i++) {
+      componentUuids.add("unknown_" + i);
+    }
+
+    try (DbSession batchSession = dbTester.getDbClient().openSession(true)) {
+      new PurgeCommands(batchSession, batchSession.getMapper(PurgeMapper.class), profiler, 1).deleteComponentMeasures(newArrayList("u1"), componentUuids);
+    }
+
+    assertThat(dbTester.countRowsOfTable("project_measures")).isZero();
+    assertThat(profiler.getAffectedRows()).containsEntry("deleteComponentMeasures (project_measures)", 3L);
+  }
+
   /**
    * Test that SQL queries execution do not fail with a huge number of parameter
    */
@@ -23,6 +23,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.utils.log.Logger;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Matchers.contains;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -80,6 +82,24 @@ public class PurgeProfilerTest {
     verify(logger).info(contains("bar: 5ms"));
   }
 
+  @Test
+  public void dump_affected_rows() {
+    profiler.start("foo");
+    clock.sleep(10);
+    profiler.stop(3);
+
+    profiler.start("foo");
+    clock.sleep(10);
+    profiler.stop(4);
+
+    profiler.dump(50, logger);
+    verify(logger).info(contains("foo: 20ms (40%), 7 rows"));
+    assertThat(profiler.getAffectedRows()).containsOnly(entry("foo", 7L));
+
+    profiler.reset();
+    assertThat(profiler.getAffectedRows()).isEmpty();
+  }
+
   private class MockedClock extends PurgeProfiler.Clock {
     private long now = 0;
 
@@ -24,6 +24,9 @@ import com.google.common.base.Throwables;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
@@ -33,6 +36,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.source.FileSourceDto.Type;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.assertj.core.api.Assertions.in;
@@ -93,6 +97,36 @@ public class FileSourceDaoTest {
     assertThat(fn.result).isNull();
   }
 
+  @Test
+  public void scrollLineHashes_returns_line_hashes_of_source_files_with_specified_uuids() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    underTest.insert(new FileSourceDto()
+      .setProjectUuid("PRJ_UUID")
+      .setFileUuid("FILE2_UUID")
+      .setBinaryData("FILE2_BINARY_DATA".getBytes())
+      .setDataHash("FILE2_DATA_HASH")
+      .setLineHashes("LINE1_HASH\\nLINE2_HASH")
+      .setSrcHash("FILE2_HASH")
+      .setDataType(Type.TEST)
+      .setCreatedAt(1500000000000L)
+      .setUpdatedAt(1500000000001L));
+
+    List<FileSourceDto> dtos = new ArrayList<>();
+    underTest.scrollLineHashes(session, asList("FILE1_UUID", "FILE2_UUID", "unknown"), context -> dtos.add((FileSourceDto) context.getResultObject()));
+
+    assertThat(dtos).hasSize(1);
+    assertThat(dtos.get(0).getFileUuid()).isEqualTo("FILE1_UUID");
+    assertThat(dtos.get(0).getLineHashes()).isEqualTo("ABC\\nDEF\\nGHI");
+    assertThat(dtos.get(0).getSrcHash()).isEqualTo("FILE_HASH");
+  }
+
+  @Test
+  public void scrollLineHashes_does_nothing_when_no_uuid() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    underTest.scrollLineHashes(session, Collections.emptyList(), context -> fail("no row must be returned"));
+  }
+
   @Test
   public void insert() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
@@ -104,13 +138,14 @@ public class FileSourceDaoTest {
       .setDataHash("FILE2_DATA_HASH")
       .setLineHashes("LINE1_HASH\\nLINE2_HASH")
       .setSrcHash("FILE2_HASH")
+      .setInputsHash("FILE2_INPUTS_HASH")
       .setDataType(Type.SOURCE)
       .setCreatedAt(1500000000000L)
       .setUpdatedAt(1500000000001L)
       .setRevision("123456789"));
 
     dbTester.assertDbUnitTable(getClass(), "insert-result.xml", "file_sources",
-      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
+      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "inputs_hash", "created_at", "updated_at", "data_type", "revision");
   }
 
   @Test
@@ -170,13 +205,14 @@ public class FileSourceDaoTest {
       .setBinaryData("updated data".getBytes())
       .setDataHash("NEW_DATA_HASH")
       .setSrcHash("NEW_FILE_HASH")
+      .setInputsHash("NEW_INPUTS_HASH")
       .setLineHashes("NEW_LINE_HASHES")
       .setDataType(Type.SOURCE)
       .setUpdatedAt(1500000000002L)
       .setRevision("987654321"));
 
     dbTester.assertDbUnitTable(getClass(), "update-result.xml", "file_sources",
-      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "created_at", "updated_at", "data_type", "revision");
+      "project_uuid", "file_uuid", "data_hash", "line_hashes", "src_hash", "inputs_hash", "created_at", "updated_at", "data_type", "revision");
   }
 
   @Test
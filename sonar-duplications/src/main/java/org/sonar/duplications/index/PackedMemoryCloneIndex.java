@@ -44,6 +44,10 @@ import javax.annotation.Nullable;
  * <p>
  * Note that this implementation currently does not support deletion, however it's possible to implement.
  * </p>
+ * <p>
+ * Once sorted (i.e. after first call of {@link #iterator()} or any query), {@link #getBySequenceHash(ByteArray)} does not modify the index,
+ * so it can be invoked concurrently as long as no more blocks are inserted.
+ * </p>
  */
 public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
@@ -70,8 +74,6 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
   private int[] resourceIdsIndex;
 
-  private final Block.Builder blockBuilder = Block.builder();
-
   public PackedMemoryCloneIndex() {
     this(8, DEFAULT_INITIAL_CAPACITY);
   }
@@ -138,7 +140,7 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     int startUnit = blockData[offset++];
     int endUnit = blockData[offset];
 
-    return blockBuilder
+    return Block.builder()
       .setResourceId(resourceId)
       .setBlockHash(blockHash)
       .setIndexInFile(indexInFile)
@@ -217,20 +219,25 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
   public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
     ensureSorted();
 
-    // prepare hash for binary search
     int[] hash = sequenceHash.toIntArray();
     if (hash.length != hashInts) {
       throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
     }
-    int offset = size * blockInts;
-    for (int i = 0; i < hashInts; i++) {
-      blockData[offset++] = hash[i];
-    }
 
-    int index = DataUtils.binarySearch(byBlockHash);
+    // binary search without sentinel, so that concurrent queries do not write into the index
+    int index = 0;
+    int high = size;
+    while (index < high) {
+      int mid = (index + high) >>> 1;
+      if (compareHash(mid, hash) < 0) {
+        index = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
 
     List<Block> result = new ArrayList<>();
-    while (index < size && !isLessByHash(size, index)) {
+    while (index < size && compareHash(index, hash) == 0) {
       // extract block (note that there is no need to extract hash)
       String resourceId = resourceIds[index];
       result.add(createBlock(index, resourceId, sequenceHash));
@@ -323,6 +330,19 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     return false;
   }
 
+  private int compareHash(int i, int[] hash) {
+    int i2 = i * blockInts;
+    for (int k = 0; k < hashInts; k++, i2++) {
+      if (blockData[i2] < hash[k]) {
+        return -1;
+      }
+      if (blockData[i2] > hash[k]) {
+        return 1;
+      }
+    }
+    return 0;
+  }
+
   private final DataUtils.Sortable byBlockHash = new DataUtils.Sortable() {
     @Override
     public void swap(int i, int j) {
@@ -28,6 +28,10 @@ import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
@@ -110,6 +114,42 @@ public class PackedMemoryCloneIndexTest {
     
   }
 
+  @Test
+  public void query_by_hash_concurrently() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      index.insert(newBlock("r" + i, i % 100));
+    }
+    // sort before sharing the index
+    index.iterator();
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 1000; i++) {
+            long hash = i % 100;
+            Collection<Block> blocks = index.getBySequenceHash(new ByteArray(hash));
+            for (Block block : blocks) {
+              if (!block.getBlockHash().equals(new ByteArray(hash)) || Long.parseLong(block.getResourceId().substring(1)) % 100 != hash) {
+                return false;
+              }
+            }
+            if (blocks.size() != 10) {
+              return false;
+            }
+          }
+          return true;
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        assertThat(future.get()).isTrue();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   /**
    * Given: index with initial capacity 1.
    * Expected: size and capacity should be increased after insertion of two blocks.
@@ -23,6 +23,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.ByteBuffer;
@@ -33,11 +34,14 @@ import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.ByteOrderMark;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BOMInputStream;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.ScannerSide;
@@ -56,6 +60,12 @@ public class FileMetadata {
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
 
+  /**
+   * Size of the buffer through which files are read by the byte-based path. Files are not memory-mapped, as
+   * the mapping would lock them on Windows until being garbage-collected.
+   */
+  static final int READ_BUFFER_SIZE = 64 * 1024;
+
   public abstract static class CharHandler {
 
     protected void handleAll(char c) {
@@ -270,6 +280,12 @@ public class FileMetadata {
    * Maximum performance is needed.
    */
   public Metadata readMetadata(File file, Charset encoding) {
+    if (isAsciiCompatible(encoding)) {
+      AsciiMetadataComputer computer = new AsciiMetadataComputer();
+      if (readAsciiFile(file, encoding, computer)) {
+        return computer.getMetadata();
+      }
+    }
     LineCounter lineCounter = new LineCounter(file, encoding);
     FileHashComputer fileHashComputer = new FileHashComputer(file);
     LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
@@ -377,6 +393,227 @@ public class FileMetadata {
    * Compute a MD5 hash of each line of the file after removing of all blank chars
    */
   public static void computeLineHashesForIssueTracking(DefaultInputFile f, LineHashConsumer consumer) {
+    if (isAsciiCompatible(f.charset())) {
+      AsciiLineHashComputer computer = new AsciiLineHashComputer();
+      if (readAsciiFile(f.file(), f.charset(), computer)) {
+        computer.sendTo(consumer);
+        return;
+      }
+    }
     readFile(f.file(), f.charset(), new LineHashComputer(consumer, f.file()));
   }
+
+  /**
+   * Charsets in which bytes lower than 0x80 always are the ASCII characters, so that content made only of
+   * such bytes can be processed without being decoded.
+   */
+  private static boolean isAsciiCompatible(Charset encoding) {
+    String name = encoding.name();
+    return StandardCharsets.UTF_8.equals(encoding) || StandardCharsets.US_ASCII.equals(encoding)
+      || name.startsWith("ISO-8859-") || name.startsWith("windows-125");
+  }
+
+  /**
+   * Fast path of {@link #readFile(File, Charset, CharHandler...)}: lines are found in the bytes of the file, which is
+   * streamed through a buffer of {@link #READ_BUFFER_SIZE} bytes, and are given to the handler as ranges of this
+   * buffer. Works only when the file is made of ASCII characters, optionally preceded by an UTF-8 BOM, as bytes
+   * then are the characters decoded by the char-based path.
+   *
+   * @return false if a non-ASCII byte is found, in which case the handler must be discarded and the file read
+   * with {@link #readFile(File, Charset, CharHandler...)}
+   */
+  private static boolean readAsciiFile(File file, Charset encoding, AsciiLineHandler handler) {
+    long size = file.length();
+    if (size > Integer.MAX_VALUE) {
+      return false;
+    }
+    try (InputStream input = new FileInputStream(file)) {
+      return readAscii(input, new byte[(int) Math.max(1L, Math.min(size, READ_BUFFER_SIZE))], handler);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
+    }
+  }
+
+  private static boolean readAscii(InputStream input, byte[] buffer, AsciiLineHandler handler) throws IOException {
+    int read = IOUtils.read(input, buffer);
+    int i = 0;
+    if (read >= 3 && buffer[0] == (byte) 0xEF && buffer[1] == (byte) 0xBB && buffer[2] == (byte) 0xBF) {
+      // UTF-8 BOM, as skipped by BOMInputStream
+      i = 3;
+    }
+    // offset in content of the first byte of buffer
+    int bufferOffset = -i;
+    boolean blankLine = true;
+    boolean pendingCarriageReturn = false;
+    while (read > 0) {
+      int lineStart = i;
+      while (i < read) {
+        byte b = buffer[i];
+        if (b < 0) {
+          // byte >= 0x80
+          return false;
+        }
+        if (pendingCarriageReturn) {
+          // the carriage return may be the last byte of previous buffer
+          pendingCarriageReturn = false;
+          if (b == LINE_FEED) {
+            i++;
+            lineStart = i;
+          }
+          handler.newLine(bufferOffset + i, blankLine);
+          blankLine = true;
+        } else if (b == LINE_FEED) {
+          handler.lineContent(buffer, lineStart, i);
+          i++;
+          handler.newLine(bufferOffset + i, blankLine);
+          lineStart = i;
+          blankLine = true;
+        } else if (b == CARRIAGE_RETURN) {
+          handler.lineContent(buffer, lineStart, i);
+          i++;
+          lineStart = i;
+          pendingCarriageReturn = true;
+        } else {
+          if (!isAsciiWhitespace(b)) {
+            blankLine = false;
+          }
+          i++;
+        }
+      }
+      handler.lineContent(buffer, lineStart, read);
+      bufferOffset += read;
+      read = IOUtils.read(input, buffer);
+      i = 0;
+    }
+    if (pendingCarriageReturn) {
+      handler.newLine(bufferOffset, blankLine);
+      blankLine = true;
+    }
+    handler.eof(bufferOffset, blankLine);
+    return true;
+  }
+
+  /**
+   * Same as {@link Character#isWhitespace(char)} on ASCII characters
+   */
+  private static boolean isAsciiWhitespace(byte b) {
+    return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F);
+  }
+
+  /**
+   * Receives the lines found by {@link #readAscii(InputStream, byte[], AsciiLineHandler)}. Offsets are relative
+   * to the start of content, UTF-8 BOM excluded.
+   */
+  private abstract static class AsciiLineHandler {
+    /**
+     * Part of the current line, end of line characters excluded. A line is given in several parts when it
+     * spans several buffers.
+     */
+    abstract void lineContent(byte[] bytes, int from, int to);
+
+    abstract void newLine(int nextLineOffset, boolean blankLine);
+
+    abstract void eof(int contentLength, boolean blankLine);
+  }
+
+  /**
+   * Computes on bytes what {@link LineCounter}, {@link FileHashComputer} and {@link LineOffsetCounter} compute on chars
+   */
+  private static class AsciiMetadataComputer extends AsciiLineHandler {
+    private final MessageDigest globalMd5Digest = DigestUtils.getMd5Digest();
+    private final IntArrayList originalLineOffsets = new IntArrayList();
+    private int lines = 1;
+    private int nonBlankLines = 0;
+    private int lastValidOffset = 0;
+
+    AsciiMetadataComputer() {
+      originalLineOffsets.add(0);
+    }
+
+    @Override
+    void lineContent(byte[] bytes, int from, int to) {
+      if (to > from) {
+        globalMd5Digest.update(bytes, from, to - from);
+      }
+    }
+
+    @Override
+    void newLine(int nextLineOffset, boolean blankLine) {
+      lines++;
+      if (!blankLine) {
+        nonBlankLines++;
+      }
+      globalMd5Digest.update((byte) LINE_FEED);
+      originalLineOffsets.add(nextLineOffset);
+    }
+
+    @Override
+    void eof(int contentLength, boolean blankLine) {
+      if (!blankLine) {
+        nonBlankLines++;
+      }
+      lastValidOffset = contentLength;
+    }
+
+    Metadata getMetadata() {
+      return new Metadata(lines, nonBlankLines, Hex.encodeHexString(globalMd5Digest.digest()), originalLineOffsets.trimAndGet(), lastValidOffset);
+    }
+  }
+
+  /**
+   * Computes on bytes what {@link LineHashComputer} computes on chars. Hashes are kept until the whole file
+   * is known to be ASCII, so that the consumer is not called twice for the same line when falling back to the
+   * char-based path.
+   */
+  private static class AsciiLineHashComputer extends AsciiLineHandler {
+    private final MessageDigest lineMd5Digest = DigestUtils.getMd5Digest();
+    private final IntArrayList hashedLines = new IntArrayList();
+    private final List<byte[]> hashes = new ArrayList<>();
+    private int line = 1;
+
+    @Override
+    void lineContent(byte[] bytes, int from, int to) {
+      // whitespaces are ignored
+      int wordStart = -1;
+      for (int i = from; i < to; i++) {
+        if (isAsciiWhitespace(bytes[i])) {
+          if (wordStart >= 0) {
+            lineMd5Digest.update(bytes, wordStart, i - wordStart);
+            wordStart = -1;
+          }
+        } else if (wordStart < 0) {
+          wordStart = i;
+        }
+      }
+      if (wordStart >= 0) {
+        lineMd5Digest.update(bytes, wordStart, to - wordStart);
+      }
+    }
+
+    @Override
+    void newLine(int nextLineOffset, boolean blankLine) {
+      processLine(blankLine);
+      line++;
+    }
+
+    @Override
+    void eof(int contentLength, boolean blankLine) {
+      processLine(blankLine);
+    }
+
+    private void processLine(boolean blankLine) {
+      // nothing has been added to the digest of a blank line
+      if (!blankLine) {
+        hashedLines.add(line);
+        hashes.add(lineMd5Digest.digest());
+      }
+    }
+
+    void sendTo(LineHashConsumer consumer) {
+      int[] lineIndexes = hashedLines.trimAndGet();
+      for (int i = 0; i < lineIndexes.length; i++) {
+        consumer.consume(lineIndexes[i], hashes.get(i));
+      }
+    }
+  }
 }
@@ -79,4 +79,13 @@ public interface SensorDescriptor {
    */
   SensorDescriptor requireProperties(String... propertyKeys);
 
+  /**
+   * Declare that this {@link Sensor} can be executed concurrently with other thread-safe sensors. It is used by the platform
+   * when parallel execution of sensors is enabled. Sensors working on the same languages and file types,
+   * see {@link #onlyOnLanguages(String...)} and {@link #onlyOnFileType(InputFile.Type)}, are never executed concurrently.
+   * Default is to execute the {@link Sensor} alone.
+   * @since 6.2
+   */
+  SensorDescriptor threadSafe();
+
 }
@@ -26,6 +26,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import javax.annotation.CheckForNull;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.utils.DateUtils;
@@ -296,6 +297,15 @@ public abstract class Request {
    */
   public abstract String getPath();
 
+  /**
+   * Returns value of a HTTP header of the request, if defined. Headers are not available
+   * when the request is executed by a {@link LocalConnector}.
+   * @since 6.2
+   */
+  public Optional<String> header(String name) {
+    return Optional.empty();
+  }
+
   /**
    * @since 6.0
    */
@@ -0,0 +1,100 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Computes metadata of a generated source file, like the huge file of the perf tests, with the byte-level
+ * path of {@link FileMetadata#readMetadata(File, java.nio.charset.Charset)} and with the char-based path.
+ * Run {@link #main(String[])} from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileMetadataBenchmark {
+
+  @Param({"1000", "1000000"})
+  public int lineCount;
+
+  private File file;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    file = File.createTempFile("metadata", ".java");
+    StringBuilder content = new StringBuilder();
+    for (int line = 0; line < lineCount; line++) {
+      if (line % 10 == 0) {
+        content.append("\n");
+      } else {
+        content.append("    private int field").append(line).append(" = compute(").append(line).append(", \"value\"); // comment\n");
+      }
+    }
+    FileUtils.write(file, content, StandardCharsets.UTF_8);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    FileUtils.deleteQuietly(file);
+  }
+
+  @Benchmark
+  public FileMetadata.Metadata read_bytes() {
+    return new FileMetadata().readMetadata(file, StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public FileMetadata.Metadata read_chars() throws IOException {
+    try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      return new FileMetadata().readMetadata(reader);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(FileMetadataBenchmark.class.getSimpleName()).build()).run();
+  }
+}
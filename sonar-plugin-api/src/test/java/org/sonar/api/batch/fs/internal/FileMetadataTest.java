@@ -20,11 +20,13 @@
 package org.sonar.api.batch.fs.internal;
 
 import java.io.File;
+import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -316,4 +318,81 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void ascii_content_gives_same_metadata_as_char_based_reading() throws Exception {
+    String[] contents = {"", "\n", "\r", "\r\n", "\n\r", "foo\r\rbar\r", " \t\n\u000B\f\u001C\r\nfoo\u0000bar \n\tbaz", "\r\n\r\nfoo"};
+    for (String content : contents) {
+      File tempFile = temp.newFile();
+      FileUtils.write(tempFile, content, StandardCharsets.UTF_8);
+
+      assertSameMetadata(new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_8), new FileMetadata().readMetadata(new StringReader(content)));
+      assertSameMetadata(new FileMetadata().readMetadata(tempFile, StandardCharsets.ISO_8859_1), new FileMetadata().readMetadata(new StringReader(content)));
+    }
+  }
+
+  @Test
+  public void non_ascii_iso_8859_1() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "föo\r\nbàr\n", StandardCharsets.ISO_8859_1, true);
+
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(tempFile, StandardCharsets.ISO_8859_1);
+    assertThat(metadata.lines).isEqualTo(3);
+    assertThat(metadata.nonBlankLines).isEqualTo(2);
+    assertThat(metadata.hash).isEqualTo(md5Hex("föo\nbàr\n".getBytes(StandardCharsets.UTF_8)));
+    assertThat(metadata.originalLineOffsets).containsOnly(0, 5, 9);
+    assertThat(metadata.lastValidOffset).isEqualTo(9);
+  }
+
+  @Test
+  public void big_file() throws Exception {
+    String line = "  foo = bar(baz);\r\n";
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, StringUtils.repeat(line, 100_000), StandardCharsets.UTF_8);
+
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_8);
+    assertThat(metadata.lines).isEqualTo(100_001);
+    assertThat(metadata.nonBlankLines).isEqualTo(100_000);
+    assertThat(metadata.hash).isEqualTo(md5Hex(StringUtils.repeat("  foo = bar(baz);\n", 100_000)));
+    assertThat(metadata.originalLineOffsets[100_000]).isEqualTo(100_000 * line.length());
+    assertThat(metadata.lastValidOffset).isEqualTo(100_000 * line.length());
+  }
+
+  @Test
+  public void lines_and_end_of_lines_spanning_several_read_buffers() throws Exception {
+    // carriage return is the last byte of the first buffer, line feed the first byte of the second one
+    String content = StringUtils.repeat("a b", FileMetadata.READ_BUFFER_SIZE / 3) + StringUtils.repeat("c", FileMetadata.READ_BUFFER_SIZE % 3 - 1)
+      + "\r\n" + StringUtils.repeat("d ", FileMetadata.READ_BUFFER_SIZE) + "\r\r" + StringUtils.repeat("e", 10);
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, content, StandardCharsets.UTF_8);
+
+    assertSameMetadata(new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_8), new FileMetadata().readMetadata(new StringReader(content)));
+  }
+
+  @Test
+  public void compute_line_hashes_of_non_ascii_file() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, " föo\n\nb àr", StandardCharsets.UTF_8, true);
+
+    DefaultInputFile f = new DefaultInputFile("foo", tempFile.getName());
+    f.setModuleBaseDir(tempFile.getParentFile().toPath());
+    f.setCharset(StandardCharsets.UTF_8);
+    final StringBuilder hashes = new StringBuilder();
+    FileMetadata.computeLineHashesForIssueTracking(f, new LineHashConsumer() {
+
+      @Override
+      public void consume(int lineIdx, @Nullable byte[] hash) {
+        hashes.append(lineIdx).append(':').append(Hex.encodeHexString(hash)).append(' ');
+      }
+    });
+    assertThat(hashes.toString()).isEqualTo("1:" + md5Hex("föo".getBytes(StandardCharsets.UTF_8)) + " 3:" + md5Hex("bàr".getBytes(StandardCharsets.UTF_8)) + " ");
+  }
+
+  private static void assertSameMetadata(FileMetadata.Metadata metadata, FileMetadata.Metadata expected) {
+    assertThat(metadata.lines).isEqualTo(expected.lines);
+    assertThat(metadata.nonBlankLines).isEqualTo(expected.nonBlankLines);
+    assertThat(metadata.hash).isEqualTo(expected.hash);
+    assertThat(metadata.originalLineOffsets).isEqualTo(expected.originalLineOffsets);
+    assertThat(metadata.lastValidOffset).isEqualTo(expected.lastValidOffset);
+  }
+
 }
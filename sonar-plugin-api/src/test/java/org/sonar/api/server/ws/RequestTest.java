@@ -326,6 +326,11 @@ public class RequestTest {
     underTest.mandatoryParamAsPart("required_param");
   }
 
+  @Test
+  public void headers_are_not_defined_by_default() {
+    assertThat(underTest.header("If-None-Match")).isEmpty();
+  }
+
   private static class FakeRequest extends ValidatingRequest {
 
     private final ListMultimap<String, String> multiParams = ArrayListMultimap.create();
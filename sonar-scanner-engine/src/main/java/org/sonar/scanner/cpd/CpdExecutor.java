@@ -22,14 +22,20 @@ package org.sonar.scanner.cpd;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import javax.annotation.CheckForNull;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
@@ -54,11 +60,17 @@ import static com.google.common.collect.FluentIterable.from;
  * Runs on the root module, at the end of the project analysis.
  * It executes copy paste detection involving all files of all modules, which were indexed during sensors execution for each module
  * by {@link CpdSensor). The sensor is responsible for handling exclusions and block sizes.
+ * <p>
+ * Detection of each file is executed by a pool of threads sharing the index, which is read-only at this stage. Results
+ * are written to the report in the order of the index, whatever the number of threads.
  */
 public class CpdExecutor {
   private static final Logger LOG = Loggers.get(CpdExecutor.class);
-  // timeout for the computation of duplicates in a file (seconds)
-  private static final int TIMEOUT = 5 * 60;
+  public static final String THREADS_PROPERTY = "sonar.cpd.threads";
+  // timeout for the computation of duplicates in a file
+  private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(5 * 60);
+  // max number of pending detections per thread, to bound the memory used by results waiting to be written
+  private static final int PENDING_PER_THREAD = 4;
   static final int MAX_CLONE_GROUP_PER_FILE = 100;
   static final int MAX_CLONE_PART_PER_GROUP = 100;
 
@@ -66,7 +78,6 @@ public class CpdExecutor {
   private final ReportPublisher publisher;
   private final BatchComponentCache batchComponentCache;
   private final Settings settings;
-  private final ExecutorService executorService;
   private final ProgressReport progressReport;
   private int count;
   private int total;
@@ -76,53 +87,73 @@ public class CpdExecutor {
     this.index = index;
     this.publisher = publisher;
     this.batchComponentCache = batchComponentCache;
-    this.executorService = Executors.newSingleThreadExecutor();
     this.progressReport = new ProgressReport("CPD computation", TimeUnit.SECONDS.toMillis(10));
   }
 
   public void execute() {
     total = index.noResources();
+    int threads = getThreads();
     progressReport.start(String.format("Calculating CPD for %d files", total));
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("cpd-%d")
+      .setDaemon(true)
+      .build());
     try {
+      // the iterator sorts the index, which must be done before sharing it between threads
       Iterator<ResourceBlocks> it = index.iterator();
-
+      Deque<Detection> pending = new ArrayDeque<>();
       while (it.hasNext()) {
         ResourceBlocks resourceBlocks = it.next();
-        runCpdAnalysis(resourceBlocks.resourceId(), resourceBlocks.blocks());
-        count++;
+        Detection detection = submit(executorService, resourceBlocks.resourceId(), resourceBlocks.blocks());
+        if (detection != null) {
+          pending.add(detection);
+        }
+        if (pending.size() >= threads * PENDING_PER_THREAD) {
+          save(pending.poll());
+        }
+      }
+      while (!pending.isEmpty()) {
+        save(pending.poll());
       }
       progressReport.stop("CPD calculation finished");
     } catch (Exception e) {
       progressReport.stop("");
       throw e;
+    } finally {
+      executorService.shutdownNow();
     }
   }
 
-  private void runCpdAnalysis(String resource, final Collection<Block> fileBlocks) {
-    LOG.debug("Detection of duplications for {}", resource);
+  @VisibleForTesting
+  int getThreads() {
+    int threads = settings.getInt(THREADS_PROPERTY);
+    if (threads <= 0) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    return threads;
+  }
 
+  @CheckForNull
+  private Detection submit(ExecutorService executorService, String resource, Collection<Block> fileBlocks) {
     BatchComponent component = batchComponentCache.get(resource);
     if (component == null) {
       LOG.error("Resource not found in component cache: {}. Skipping CPD computation for it", resource);
-      return;
+      count++;
+      return null;
     }
+    Detection detection = new Detection(component, fileBlocks);
+    detection.future = executorService.submit(detection);
+    return detection;
+  }
 
-    InputFile inputFile = (InputFile) component.inputComponent();
+  private void save(Detection detection) {
+    InputFile inputFile = (InputFile) detection.component.inputComponent();
     progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
-
-    List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = null;
-    try {
-      futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
-      duplications = futureResult.get(TIMEOUT, TimeUnit.SECONDS);
-    } catch (TimeoutException e) {
+    List<CloneGroup> duplications = detection.await();
+    count++;
+    if (duplications == null) {
       LOG.warn("Timeout during detection of duplications for " + inputFile.absolutePath());
-      if (futureResult != null) {
-        futureResult.cancel(true);
-      }
       return;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
     }
 
     List<CloneGroup> filtered;
@@ -133,7 +164,7 @@ public class CpdExecutor {
       filtered = duplications;
     }
 
-    saveDuplications(component, filtered);
+    saveDuplications(detection.component, filtered);
   }
 
   @VisibleForTesting
@@ -208,4 +239,55 @@ public class CpdExecutor {
     }
     return dupBuilder.build();
   }
+
+  /**
+   * Detection of duplications of a file. The timeout applies from the moment the detection
+   * is started by a thread of the pool, not from its submission.
+   */
+  private class Detection implements Callable<List<CloneGroup>> {
+    private final BatchComponent component;
+    private final Collection<Block> fileBlocks;
+    private Future<List<CloneGroup>> future;
+    // System.nanoTime() when started, 0 when still queued
+    private volatile long startedAt = 0L;
+
+    Detection(BatchComponent component, Collection<Block> fileBlocks) {
+      this.component = component;
+      this.fileBlocks = fileBlocks;
+    }
+
+    @Override
+    public List<CloneGroup> call() {
+      startedAt = System.nanoTime();
+      LOG.debug("Detection of duplications for {}", component.key());
+      return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks);
+    }
+
+    /**
+     * @return the duplications, or {@code null} if detection timed out
+     */
+    @CheckForNull
+    List<CloneGroup> await() {
+      String path = ((InputFile) component.inputComponent()).absolutePath();
+      try {
+        while (true) {
+          long started = startedAt;
+          long wait = started == 0L ? TIMEOUT : (TIMEOUT - (System.nanoTime() - started));
+          try {
+            return future.get(Math.max(wait, 0L), TimeUnit.NANOSECONDS);
+          } catch (TimeoutException e) {
+            if (startedAt != 0L && System.nanoTime() - startedAt >= TIMEOUT) {
+              future.cancel(true);
+              return null;
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted during detection of duplication for " + path, e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Fail during detection of duplication for " + path, e.getCause());
+      }
+    }
+  }
 }
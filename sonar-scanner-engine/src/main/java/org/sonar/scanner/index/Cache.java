@@ -19,56 +19,62 @@
  */
 package org.sonar.scanner.index;
 
-import com.google.common.collect.Sets;
-import com.persistit.Exchange;
-import com.persistit.Key;
-import com.persistit.KeyFilter;
-import com.persistit.exception.PersistitException;
+import com.google.common.collect.Iterators;
+import java.io.IOException;
 import java.util.Iterator;
-import java.util.NoSuchElementException;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.lang.builder.ToStringBuilder;
 
 /**
  * <p>
- * This cache is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * Values are appended to a file, see {@link CacheLog}. The sorted index of keys, and offsets of the related
+ * values in the file, is kept in memory.
+ * </p>
+ * <p>
+ * This cache supports concurrent reads. Writes can be executed concurrently with reads but must be done
+ * by a single thread at a time for a given key. Iterables are lazy and weakly consistent: they reflect
+ * the state of the cache at some point at or since their creation.
  * </p>
  */
 public class Cache<V> {
 
   private final String name;
-  private final Exchange exchange;
+  private final CacheLog log;
+  private final ValueCoders valueCoders;
+  private final ConcurrentNavigableMap<CacheKey, Long> index = new ConcurrentSkipListMap<>();
 
-  Cache(String name, Exchange exchange) {
+  Cache(String name, CacheLog log, ValueCoders valueCoders) {
     this.name = name;
-    this.exchange = exchange;
+    this.log = log;
+    this.valueCoders = valueCoders;
   }
 
   public Cache<V> put(Object key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(CacheKey.of(key), value);
   }
 
   public Cache<V> put(Object firstKey, Object secondKey, V value) {
-    resetKey(firstKey, secondKey);
-    return doPut(value);
+    return doPut(CacheKey.of(firstKey, secondKey), value);
   }
 
   public Cache<V> put(Object firstKey, Object secondKey, Object thirdKey, V value) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doPut(value);
+    return doPut(CacheKey.of(firstKey, secondKey, thirdKey), value);
   }
 
   public Cache<V> put(Object[] key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(CacheKey.of(key), value);
   }
 
-  private Cache<V> doPut(V value) {
+  private Cache<V> doPut(CacheKey key, V value) {
     try {
-      exchange.getValue().put(value);
-      exchange.store();
+      long offset = log.append(valueCoders.encode(value));
+      index.put(key, offset);
       return this;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to put element in the storage '" + name + "'", e);
@@ -79,8 +85,7 @@ public class Cache<V> {
    * Returns the value object associated with keys, or null if not found.
    */
   public V get(Object key) {
-    resetKey(key);
-    return doGet();
+    return doGet(CacheKey.of(key));
   }
 
   /**
@@ -88,8 +93,7 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doGet();
+    return doGet(CacheKey.of(firstKey, secondKey));
   }
 
   /**
@@ -97,8 +101,7 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doGet();
+    return doGet(CacheKey.of(firstKey, secondKey, thirdKey));
   }
 
   /**
@@ -106,172 +109,112 @@ public class Cache<V> {
    */
   @CheckForNull
   public V get(Object[] key) {
-    resetKey(key);
-    return doGet();
+    return doGet(CacheKey.of(key));
+  }
+
+  @CheckForNull
+  private V doGet(CacheKey key) {
+    Long offset = index.get(key);
+    if (offset == null) {
+      return null;
+    }
+    return read(offset);
   }
 
   @SuppressWarnings("unchecked")
   @CheckForNull
-  private V doGet() {
+  private V read(long offset) {
     try {
-      exchange.fetch();
-      if (!exchange.getValue().isDefined()) {
-        return null;
-      }
-      return (V) exchange.getValue().get();
-    } catch (Exception e) {
-      // TODO add parameters to message
+      return (V) valueCoders.decode(log.read(offset));
+    } catch (IOException e) {
       throw new IllegalStateException("Fail to get element from cache " + name, e);
     }
   }
 
   public boolean containsKey(Object key) {
-    resetKey(key);
-    return doContainsKey();
+    return index.containsKey(CacheKey.of(key));
   }
 
   public boolean containsKey(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doContainsKey();
+    return index.containsKey(CacheKey.of(firstKey, secondKey));
   }
 
   public boolean containsKey(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doContainsKey();
+    return index.containsKey(CacheKey.of(firstKey, secondKey, thirdKey));
   }
 
   public boolean containsKey(Object[] key) {
-    resetKey(key);
-    return doContainsKey();
-  }
-
-  private boolean doContainsKey() {
-    try {
-      exchange.fetch();
-      return exchange.isValueDefined();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to check if element is in cache " + name, e);
-    }
+    return index.containsKey(CacheKey.of(key));
   }
 
+  /**
+   * Removes the value associated with keys. Values associated with longer keys starting with
+   * the same parts are kept, see {@link #clear(Object)}.
+   * The space used by the value in the storage is not reclaimed.
+   */
   public boolean remove(Object key) {
-    resetKey(key);
-    return doRemove();
+    return index.remove(CacheKey.of(key)) != null;
   }
 
   public boolean remove(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doRemove();
+    return index.remove(CacheKey.of(firstKey, secondKey)) != null;
   }
 
   public boolean remove(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doRemove();
+    return index.remove(CacheKey.of(firstKey, secondKey, thirdKey)) != null;
   }
 
   public boolean remove(Object[] key) {
-    resetKey(key);
-    return doRemove();
-  }
-
-  private boolean doRemove() {
-    try {
-      return exchange.remove();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to get element from cache " + name, e);
-    }
+    return index.remove(CacheKey.of(key)) != null;
   }
 
   /**
    * Removes everything in the specified group.
    *
-   * @param group The group name.
+   * @param key The group name.
    */
   public Cache<V> clear(Object key) {
-    resetKey(key);
-    return doClear();
+    return doClear(CacheKey.of(key));
   }
 
   public Cache<V> clear(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doClear();
+    return doClear(CacheKey.of(firstKey, secondKey));
   }
 
   public Cache<V> clear(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doClear();
+    return doClear(CacheKey.of(firstKey, secondKey, thirdKey));
   }
 
   public Cache<V> clear(Object[] key) {
-    resetKey(key);
-    return doClear();
+    return doClear(CacheKey.of(key));
   }
 
-  private Cache<V> doClear() {
-    try {
-      Key to = new Key(exchange.getKey());
-      to.append(Key.AFTER);
-      exchange.removeKeyRange(exchange.getKey(), to);
-      return this;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear values from cache " + name, e);
-    }
+  private Cache<V> doClear(CacheKey key) {
+    index.subMap(key, true, key.after(), false).clear();
+    return this;
   }
 
   /**
    * Clears the default as well as all group caches.
    */
   public void clear() {
-    try {
-      exchange.clear();
-      exchange.removeAll();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear cache", e);
-    }
+    index.clear();
   }
 
   /**
    * Returns the set of cache keys associated with this group.
-   * TODO implement a lazy-loading equivalent with Iterator/Iterable
    *
-   * @param group The group.
+   * @param key The group.
    * @return The set of cache keys for this group.
    */
   @SuppressWarnings("rawtypes")
   public Set keySet(Object key) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(key);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return childKeys(CacheKey.of(key));
   }
 
   @SuppressWarnings("rawtypes")
   public Set keySet(Object firstKey, Object secondKey) {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(firstKey);
-      iteratorExchange.append(secondKey);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return childKeys(CacheKey.of(firstKey, secondKey));
   }
 
   /**
@@ -280,200 +223,89 @@ public class Cache<V> {
    * @return The set containing the keys for this cache.
    */
   public Set<Object> keySet() {
-    try {
-      Set<Object> keys = Sets.newLinkedHashSet();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
+    return childKeys(CacheKey.of());
+  }
+
+  /**
+   * Distinct parts following the given prefix, in key order. Keys sharing the same next part are skipped
+   * by seeking the index instead of being traversed.
+   */
+  private Set<Object> childKeys(CacheKey prefix) {
+    Set<Object> keys = new LinkedHashSet<>();
+    CacheKey end = prefix.after();
+    CacheKey next = index.higherKey(prefix.before());
+    while (next != null && next.compareTo(end) < 0) {
+      Object child = next.part(prefix.depth());
+      keys.add(child);
+      next = index.higherKey(prefix.append(child).after());
     }
+    return keys;
   }
 
   /**
    * Lazy-loading values for given keys
    */
   public Iterable<V> values(Object firstKey, Object secondKey) {
-    return new ValueIterable<>(exchange, firstKey, secondKey);
+    return new ValueIterable(CacheKey.of(firstKey, secondKey));
   }
 
   /**
    * Lazy-loading values for a given key
    */
   public Iterable<V> values(Object firstKey) {
-    return new ValueIterable<>(exchange, firstKey);
+    return new ValueIterable(CacheKey.of(firstKey));
   }
 
   /**
    * Lazy-loading values
    */
   public Iterable<V> values() {
-    return new ValueIterable<>(exchange);
+    return new ValueIterable(CacheKey.of());
   }
 
   public Iterable<Entry<V>> entries() {
-    return new EntryIterable<>(exchange);
+    return new EntryIterable(CacheKey.of());
   }
 
   public Iterable<Entry<V>> entries(Object firstKey) {
-    return new EntryIterable<>(exchange, firstKey);
-  }
-
-  private void resetKey(Object key) {
-    exchange.clear();
-    exchange.append(key);
-  }
-
-  private void resetKey(Object first, Object second) {
-    exchange.clear();
-    exchange.append(first).append(second);
-  }
-
-  private void resetKey(Object first, Object second, Object third) {
-    exchange.clear();
-    exchange.append(first).append(second).append(third);
+    return new EntryIterable(CacheKey.of(firstKey));
   }
 
-  private void resetKey(Object[] keys) {
-    exchange.clear();
-    for (Object o : keys) {
-      exchange.append(o);
-    }
+  /**
+   * Index entries of the keys strictly starting with the given prefix
+   */
+  private Iterable<Map.Entry<CacheKey, Long>> indexEntries(CacheKey prefix) {
+    return index.subMap(prefix.before(), false, prefix.after(), false).entrySet();
   }
 
   //
   // LAZY ITERATORS AND ITERABLES
   //
 
-  private static class ValueIterable<T> implements Iterable<T> {
-    private final Exchange originExchange;
-    private final Object[] keys;
+  private class ValueIterable implements Iterable<V> {
+    private final CacheKey prefix;
 
-    private ValueIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
+    private ValueIterable(CacheKey prefix) {
+      this.prefix = prefix;
     }
 
     @Override
-    public Iterator<T> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new ValueIterator<>(iteratorExchange, filter);
+    public Iterator<V> iterator() {
+      return Iterators.unmodifiableIterator(Iterators.transform(indexEntries(prefix).iterator(), indexEntry -> read(indexEntry.getValue())));
     }
   }
 
-  private static class ValueIterator<T> implements Iterator<T> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private ValueIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
-    }
-
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-    }
-
-    @SuppressWarnings("unchecked")
-    @Override
-    public T next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        return (T) exchange.getValue().get();
-      }
-      throw new NoSuchElementException();
-    }
+  private class EntryIterable implements Iterable<Entry<V>> {
+    private final CacheKey prefix;
 
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
-    }
-  }
-
-  private static class EntryIterable<T> implements Iterable<Entry<T>> {
-    private final Exchange originExchange;
-    private final Object[] keys;
-
-    private EntryIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
-    }
-
-    @Override
-    public Iterator<Entry<T>> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new EntryIterator<>(iteratorExchange, filter);
-    }
-  }
-
-  private static class EntryIterator<T> implements Iterator<Entry<T>> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private EntryIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
-    }
-
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-    }
-
-    @SuppressWarnings("unchecked")
-    @Override
-    public Entry<T> next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        T value = (T) exchange.getValue().get();
-        Key key = exchange.getKey();
-        Object[] array = new Object[key.getDepth()];
-        for (int i = 0; i < key.getDepth(); i++) {
-          array[i] = key.indexTo(i - key.getDepth()).decode();
-        }
-        return new Entry<>(array, value);
-      }
-      throw new NoSuchElementException();
+    private EntryIterable(CacheKey prefix) {
+      this.prefix = prefix;
     }
 
     @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
+    public Iterator<Entry<V>> iterator() {
+      return Iterators.unmodifiableIterator(Iterators.transform(indexEntries(prefix).iterator(),
+        indexEntry -> new Entry<V>(indexEntry.getKey().toArray(), read(indexEntry.getValue()))));
     }
   }
 
@@ -481,7 +313,7 @@ public class Cache<V> {
     private final Object[] key;
     private final V value;
 
-    Entry(Object[] key, V value) {
+    Entry(Object[] key, @Nullable V value) {
       this.key = key;
       this.value = value;
     }
@@ -0,0 +1,144 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Key of an element of {@link Cache}, made of one or more parts. Keys are sorted part by part, a key
+ * being sorted before all the keys it is a prefix of. Parts must be {@link Comparable}, or null, so that
+ * ordering is consistent with {@link #equals(Object)}.
+ */
+final class CacheKey implements Comparable<CacheKey> {
+
+  /**
+   * Special parts sorted before and after any other part, used as bounds of range queries
+   */
+  private static final Object BEFORE = new Object();
+  private static final Object AFTER = new Object();
+
+  private final Object[] parts;
+
+  private CacheKey(Object[] parts) {
+    this.parts = parts;
+  }
+
+  /**
+   * @throws IllegalArgumentException if a part is not {@link Comparable}
+   */
+  static CacheKey of(Object... parts) {
+    for (Object part : parts) {
+      checkArgument(part == null || part instanceof Comparable, "Part of cache key is not Comparable: %s (%s)", part, part == null ? null : part.getClass());
+    }
+    return new CacheKey(Arrays.copyOf(parts, parts.length));
+  }
+
+  int depth() {
+    return parts.length;
+  }
+
+  Object part(int index) {
+    return parts[index];
+  }
+
+  Object[] toArray() {
+    return Arrays.copyOf(parts, parts.length);
+  }
+
+  private CacheKey append(Object part) {
+    Object[] newParts = Arrays.copyOf(parts, parts.length + 1);
+    newParts[parts.length] = part;
+    return new CacheKey(newParts);
+  }
+
+  /**
+   * Lower bound, excluded, of the keys strictly starting with this key
+   */
+  CacheKey before() {
+    return append(BEFORE);
+  }
+
+  /**
+   * Upper bound, excluded, of the keys starting with this key
+   */
+  CacheKey after() {
+    return append(AFTER);
+  }
+
+  @Override
+  public int compareTo(CacheKey other) {
+    int commonDepth = Math.min(parts.length, other.parts.length);
+    for (int i = 0; i < commonDepth; i++) {
+      int c = compareParts(parts[i], other.parts[i]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return Integer.compare(parts.length, other.parts.length);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compareParts(@Nullable Object part, @Nullable Object otherPart) {
+    if (part == otherPart) {
+      return 0;
+    }
+    if (part == BEFORE || otherPart == AFTER) {
+      return -1;
+    }
+    if (part == AFTER || otherPart == BEFORE) {
+      return 1;
+    }
+    if (part == null) {
+      return -1;
+    }
+    if (otherPart == null) {
+      return 1;
+    }
+    if (part.getClass() != otherPart.getClass()) {
+      return part.getClass().getName().compareTo(otherPart.getClass().getName());
+    }
+    // parts are Comparable, see of(Object...)
+    return ((Comparable) part).compareTo(otherPart);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return Arrays.equals(parts, ((CacheKey) o).parts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(parts);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(parts);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only file of records. Each record is made of its length, as an int, followed by its bytes.
+ * Records are identified by their offset in the file.
+ * <p>
+ * Appends are serialized. Reads can be executed concurrently and do not lock, except when the record
+ * is still in the write buffer.
+ * </p>
+ */
+final class CacheLog implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int HEADER_SIZE = 4;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  /**
+   * Number of bytes written to the file. Records located before this offset are read directly from the file.
+   */
+  private volatile long flushedSize = 0L;
+
+  CacheLog(File file) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), CREATE_NEW, READ, WRITE);
+  }
+
+  /**
+   * @return the offset of the record
+   */
+  synchronized long append(byte[] data) throws IOException {
+    int recordSize = HEADER_SIZE + data.length;
+    if (recordSize > buffer.remaining()) {
+      flush();
+    }
+    long offset = flushedSize + buffer.position();
+    if (recordSize > buffer.capacity()) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(0, data.length);
+      writeFully(header);
+      writeFully(ByteBuffer.wrap(data));
+      flushedSize += recordSize;
+    } else {
+      buffer.putInt(data.length);
+      buffer.put(data);
+    }
+    return offset;
+  }
+
+  byte[] read(long offset) throws IOException {
+    if (offset >= flushedSize) {
+      synchronized (this) {
+        if (offset >= flushedSize) {
+          return readFromBuffer((int) (offset - flushedSize));
+        }
+      }
+    }
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    readFully(header, offset);
+    ByteBuffer data = ByteBuffer.allocate(header.getInt(0));
+    readFully(data, offset + HEADER_SIZE);
+    return data.array();
+  }
+
+  private byte[] readFromBuffer(int position) {
+    ByteBuffer record = buffer.duplicate();
+    record.position(position);
+    byte[] data = new byte[record.getInt()];
+    record.get(data);
+    return data;
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    int size = buffer.remaining();
+    writeFully(buffer);
+    buffer.clear();
+    flushedSize += size;
+  }
+
+  private void writeFully(ByteBuffer src) throws IOException {
+    while (src.hasRemaining()) {
+      channel.write(src);
+    }
+  }
+
+  private void readFully(ByteBuffer dst, long position) throws IOException {
+    long readPosition = position;
+    while (dst.hasRemaining()) {
+      int read = channel.read(dst, readPosition);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of cache file at offset " + readPosition);
+      }
+      readPosition += read;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
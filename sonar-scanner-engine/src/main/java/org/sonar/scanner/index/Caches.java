@@ -19,31 +19,25 @@
  */
 package org.sonar.scanner.index;
 
-import com.google.common.collect.Maps;
-
-import java.util.Map;
-import java.util.Map.Entry;
-
 import com.google.common.base.Preconditions;
-import com.persistit.Exchange;
-import com.persistit.Value;
-import com.persistit.encoding.CoderManager;
-import com.persistit.Persistit;
-import com.persistit.encoding.ValueCoder;
-import com.persistit.exception.PersistitException;
-import com.persistit.Volume;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.ScannerSide;
 
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
 @ScannerSide
 public class Caches implements Startable {
-  private final Map<String, Exchange> cacheMap = Maps.newHashMap();
-  private Persistit persistit;
-  private Volume volume;
+  private final Map<String, CacheLog> cacheMap = new ConcurrentHashMap<>();
+  private final ValueCoders valueCoders = new ValueCoders();
+  private File dir;
 
   public Caches(CachesManager caches) {
-    persistit = caches.persistit();
-    doStart();
+    doStart(caches.tempDir());
   }
 
   @Override
@@ -51,50 +45,48 @@ public class Caches implements Startable {
     // done in constructor
   }
 
-  private void doStart() {
+  private void doStart(File tempDir) {
     try {
-      persistit.flush();
-      volume = persistit.createTemporaryVolume();
+      dir = Files.createTempDirectory(tempDir.toPath(), "caches").toFile();
     } catch (Exception e) {
       throw new IllegalStateException("Fail to create a cache volume", e);
     }
   }
 
   public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
-    CoderManager cm = persistit.getCoderManager();
-    cm.registerValueCoder(clazz, coder);
+    valueCoders.register(clazz, coder);
   }
 
-  public <V> Cache<V> createCache(String cacheName) {
-    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
+  public synchronized <V> Cache<V> createCache(String cacheName) {
+    Preconditions.checkState(dir != null, "Caches are not initialized");
     Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: " + cacheName);
     try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Cache<V> cache = new Cache<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
-      return cache;
+      CacheLog log = new CacheLog(new File(dir, "cache" + cacheMap.size() + ".log"));
+      cacheMap.put(cacheName, log);
+      return new Cache<>(cacheName, log, valueCoders);
     } catch (Exception e) {
       throw new IllegalStateException("Fail to create cache: " + cacheName, e);
     }
   }
 
   @Override
-  public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
-    }
-
-    cacheMap.clear();
-
-    if (volume != null) {
+  public synchronized void stop() {
+    for (CacheLog log : cacheMap.values()) {
       try {
-        volume.close();
-        volume.delete();
-      } catch (PersistitException e) {
+        log.close();
+      } catch (IOException e) {
         throw new IllegalStateException("Fail to close caches", e);
       }
-      volume = null;
     }
+    cacheMap.clear();
+
+    if (dir != null) {
+      deleteQuietly(dir);
+      dir = null;
+    }
+  }
+
+  File dir() {
+    return dir;
   }
 }
@@ -19,13 +19,8 @@
  */
 package org.sonar.scanner.index;
 
-import com.persistit.Persistit;
-import com.persistit.exception.PersistitException;
-import com.persistit.logging.Slf4jAdapter;
 import java.io.File;
-import java.util.Properties;
 import org.picocontainer.Startable;
-import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.utils.TempFolder;
 
@@ -39,34 +34,9 @@ import static org.sonar.core.util.FileUtils.deleteQuietly;
 @ScannerSide
 public class CachesManager implements Startable {
   private File tempDir;
-  private Persistit persistit;
-  private final TempFolder tempFolder;
 
   public CachesManager(TempFolder tempFolder) {
-    this.tempFolder = tempFolder;
-    initPersistit();
-  }
-
-  private void initPersistit() {
-    try {
-      tempDir = tempFolder.newDir("caches");
-      persistit = new Persistit();
-      persistit.setPersistitLogger(new Slf4jAdapter(LoggerFactory.getLogger("PERSISTIT")));
-      Properties props = new Properties();
-      props.setProperty("datapath", tempDir.getAbsolutePath());
-      props.setProperty("logpath", "${datapath}/log");
-      props.setProperty("logfile", "${logpath}/persistit_${timestamp}.log");
-      props.setProperty("buffer.count.8192", "10");
-      props.setProperty("journalpath", "${datapath}/journal");
-      props.setProperty("tmpvoldir", "${datapath}");
-      props.setProperty("volume.1", "${datapath}/persistit,create,pageSize:8192,initialPages:10,extensionPages:100,maximumPages:25000");
-      props.setProperty("jmx", "false");
-      persistit.setProperties(props);
-      persistit.initialize();
-
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to start caches", e);
-    }
+    this.tempDir = tempFolder.newDir("caches");
   }
 
   @Override
@@ -76,14 +46,6 @@ public class CachesManager implements Startable {
 
   @Override
   public void stop() {
-    if (persistit != null) {
-      try {
-        persistit.close(false);
-        persistit = null;
-      } catch (PersistitException e) {
-        throw new IllegalStateException("Fail to close caches", e);
-      }
-    }
     deleteQuietly(tempDir);
     tempDir = null;
   }
@@ -91,8 +53,4 @@ public class CachesManager implements Startable {
   File tempDir() {
     return tempDir;
   }
-
-  Persistit persistit() {
-    return persistit;
-  }
 }
@@ -0,0 +1,115 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Converts values of {@link Cache} to bytes, using the registered {@link ValueCoder} of their class if any.
+ * The first byte of the encoded value tells how it is encoded.
+ */
+final class ValueCoders {
+
+  /**
+   * Same limit as the Persistit volumes which were previously used to store caches
+   */
+  static final int MAX_VALUE_SIZE = 64 * 1024 * 1024;
+
+  private static final int NULL_VALUE = 0;
+  private static final int STRING_VALUE = 1;
+  private static final int SERIALIZED_VALUE = 2;
+  private static final int FIRST_CODER = 3;
+  private static final int MAX_CODERS = 256 - FIRST_CODER;
+
+  private final List<ValueCoder> coders = new CopyOnWriteArrayList<>();
+  private final Map<Class<?>, Integer> coderIndexByClass = new ConcurrentHashMap<>();
+
+  synchronized void register(Class<?> clazz, ValueCoder coder) {
+    Integer existingIndex = coderIndexByClass.get(clazz);
+    if (existingIndex != null) {
+      coders.set(existingIndex, coder);
+    } else {
+      checkState(coders.size() < MAX_CODERS, "Too many value coders");
+      coders.add(coder);
+      coderIndexByClass.put(clazz, coders.size() - 1);
+    }
+  }
+
+  byte[] encode(@Nullable Object value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    if (value == null) {
+      bytes.write(NULL_VALUE);
+    } else if (value instanceof String) {
+      bytes.write(STRING_VALUE);
+      bytes.write(((String) value).getBytes(UTF_8));
+    } else {
+      Integer coderIndex = coderIndexByClass.get(value.getClass());
+      if (coderIndex == null) {
+        bytes.write(SERIALIZED_VALUE);
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+          output.writeObject(value);
+        }
+      } else {
+        bytes.write(FIRST_CODER + coderIndex);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+          coders.get(coderIndex).put(output, value);
+        }
+      }
+    }
+    checkArgument(bytes.size() <= MAX_VALUE_SIZE, "Value is too big: %s bytes. Max size is %s bytes", bytes.size(), MAX_VALUE_SIZE);
+    return bytes.toByteArray();
+  }
+
+  @CheckForNull
+  Object decode(byte[] bytes) throws IOException {
+    int type = bytes[0] & 0xFF;
+    switch (type) {
+      case NULL_VALUE:
+        return null;
+      case STRING_VALUE:
+        return new String(bytes, 1, bytes.length - 1, UTF_8);
+      case SERIALIZED_VALUE:
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+          return input.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IllegalStateException("Fail to deserialize value", e);
+        }
+      default:
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+        return coders.get(type - FIRST_CODER).get(input);
+    }
+  }
+}
@@ -38,7 +38,7 @@ import org.sonar.scanner.protocol.output.ScannerReport.IssueLocation;
 import org.sonar.scanner.report.ReportPublisher;
 
 /**
- * Initialize the issues raised during scan.
+ * Initialize the issues raised during scan. Issues can be added concurrently.
  */
 public class ModuleIssues {
 
@@ -93,9 +93,12 @@ public class ModuleIssues {
     applyFlows(builder, locationBuilder, textRangeBuilder, issue);
     ScannerReport.Issue rawIssue = builder.build();
 
-    if (filters.accept(inputComponent.key(), rawIssue)) {
-      write(component, rawIssue);
-      return true;
+    // issues of a given component may be raised concurrently by sensors, and filters are not required to be thread-safe
+    synchronized (this) {
+      if (filters.accept(inputComponent.key(), rawIssue)) {
+        write(component, rawIssue);
+        return true;
+      }
     }
     return false;
   }
@@ -144,7 +147,7 @@ public class ModuleIssues {
     return rule;
   }
 
-  public void write(BatchComponent component, ScannerReport.Issue rawIssue) {
+  public synchronized void write(BatchComponent component, ScannerReport.Issue rawIssue) {
     reportPublisher.getWriter().appendComponentIssue(component.batchId(), rawIssue);
   }
 
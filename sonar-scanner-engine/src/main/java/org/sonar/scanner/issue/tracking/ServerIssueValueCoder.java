@@ -19,27 +19,27 @@
  */
 package org.sonar.scanner.issue.tracking;
 
-import com.persistit.Value;
-import com.persistit.encoding.CoderContext;
-import com.persistit.encoding.ValueCoder;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import org.sonar.scanner.index.ValueCoder;
 import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 
 public class ServerIssueValueCoder implements ValueCoder {
 
   @Override
-  public void put(Value value, Object object, CoderContext context) {
+  public void put(DataOutput output, Object object) throws IOException {
     ServerIssue issue = (ServerIssue) object;
-    value.putByteArray(issue.toByteArray());
+    byte[] bytes = issue.toByteArray();
+    output.writeInt(bytes.length);
+    output.write(bytes);
   }
 
   @Override
-  public Object get(Value value, Class<?> clazz, CoderContext context) {
-    try {
-      return ServerIssue.parseFrom(value.getByteArray());
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to read issue from cache", e);
-    }
+  public Object get(DataInput input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return ServerIssue.parseFrom(bytes);
   }
 
 }
@@ -29,7 +29,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.CheckForNull;
-import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.AnalysisMode;
@@ -43,6 +42,7 @@ import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.issue.IssueCache;
 import org.sonar.scanner.issue.tracking.TrackedIssue;
+import org.sonar.scanner.protocol.output.FileStructure;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Component;
 import org.sonar.scanner.protocol.output.ScannerReport.Metadata;
@@ -261,7 +261,7 @@ public class TaskResult implements org.sonar.scanner.mediumtest.ScanTaskObserver
 
   public ScannerReport.Test testExecutionFor(InputFile testFile, String testName) {
     int ref = reportComponents.get(((DefaultInputFile) testFile).key()).getRef();
-    try (InputStream inputStream = FileUtils.openInputStream(getReportReader().readTests(ref))) {
+    try (InputStream inputStream = getReportReader().openComponentData(FileStructure.Domain.TESTS, ref)) {
       ScannerReport.Test test = ScannerReport.Test.parser().parseDelimitedFrom(inputStream);
       while (test != null) {
         if (test.getName().equals(testName)) {
@@ -277,7 +277,7 @@ public class TaskResult implements org.sonar.scanner.mediumtest.ScanTaskObserver
 
   public ScannerReport.CoverageDetail coveragePerTestFor(InputFile testFile, String testName) {
     int ref = reportComponents.get(((DefaultInputFile) testFile).key()).getRef();
-    try (InputStream inputStream = FileUtils.openInputStream(getReportReader().readCoverageDetails(ref))) {
+    try (InputStream inputStream = getReportReader().openComponentData(FileStructure.Domain.COVERAGE_DETAILS, ref)) {
       ScannerReport.CoverageDetail details = ScannerReport.CoverageDetail.parser().parseDelimitedFrom(inputStream);
       while (details != null) {
         if (details.getTestName().equals(testName)) {
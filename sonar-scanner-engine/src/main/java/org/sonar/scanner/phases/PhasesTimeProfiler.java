@@ -19,8 +19,10 @@
  */
 package org.sonar.scanner.phases;
 
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang.StringUtils;
+import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.events.SensorExecutionHandler;
 import org.sonar.api.batch.events.SensorsPhaseHandler;
 import org.sonar.api.utils.log.Logger;
@@ -32,7 +34,10 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, SensorsPhaseH
 
   private static final Logger LOG = Loggers.get(PhasesTimeProfiler.class);
 
-  private Profiler profiler = Profiler.create(LOG);
+  /**
+   * Sensors may be executed concurrently, see {@link SensorsExecutor#PARALLEL_SENSORS_PROPERTY}
+   */
+  private final Map<Sensor, Profiler> profilers = new ConcurrentHashMap<>();
 
   @Override
   public void onSensorsPhase(SensorsPhaseEvent event) {
@@ -44,9 +49,12 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, SensorsPhaseH
   @Override
   public void onSensorExecution(SensorExecutionEvent event) {
     if (event.isStart()) {
-      profiler.startInfo("Sensor " + BatchUtils.describe(event.getSensor()));
+      profilers.put(event.getSensor(), Profiler.create(LOG).startInfo("Sensor " + BatchUtils.describe(event.getSensor())));
     } else {
-      profiler.stopInfo();
+      Profiler profiler = profilers.remove(event.getSensor());
+      if (profiler != null) {
+        profiler.stopInfo();
+      }
     }
   }
 
@@ -19,39 +19,160 @@
  */
 package org.sonar.scanner.phases;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.sonar.api.batch.ScannerSide;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.bootstrap.BatchExtensionDictionnary;
 import org.sonar.scanner.events.EventBus;
-import java.util.Collection;
+import org.sonar.scanner.sensor.SensorWrapper;
 
 @ScannerSide
 public class SensorsExecutor {
 
+  /**
+   * When enabled, consecutive sensors declared as thread-safe are executed concurrently unless
+   * they work on the same languages and file types.
+   */
+  public static final String PARALLEL_SENSORS_PROPERTY = "sonar.scanner.parallelSensors";
+
+  private static final Logger LOG = Loggers.get(SensorsExecutor.class);
+
   private EventBus eventBus;
   private Project module;
   private BatchExtensionDictionnary selector;
+  private final boolean parallel;
 
-  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, EventBus eventBus) {
+  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, EventBus eventBus, Settings settings) {
     this.selector = selector;
     this.eventBus = eventBus;
     this.module = project;
+    this.parallel = settings.getBoolean(PARALLEL_SENSORS_PROPERTY);
   }
 
   public void execute(SensorContext context) {
     Collection<Sensor> sensors = selector.select(Sensor.class, module, true, null);
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), true));
 
-    for (Sensor sensor : sensors) {
-      executeSensor(context, sensor);
+    if (parallel) {
+      executeInParallel(context, sensors);
+    } else {
+      for (Sensor sensor : sensors) {
+        executeSensor(context, sensor);
+      }
     }
 
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), false));
   }
 
+  /**
+   * Sensors are grouped in batches of consecutive thread-safe sensors without conflicts, so that the order
+   * of sensors which are not thread-safe or which conflict is kept.
+   */
+  private void executeInParallel(SensorContext context, Collection<Sensor> sensors) {
+    int threads = Runtime.getRuntime().availableProcessors();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("sensor-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Sensor> batch = new ArrayList<>();
+      for (Sensor sensor : sensors) {
+        if (!canJoin(batch, sensor)) {
+          executeBatch(executor, context, batch);
+          batch.clear();
+        }
+        if (isThreadSafe(sensor)) {
+          batch.add(sensor);
+        } else {
+          executeSensor(context, sensor);
+        }
+      }
+      executeBatch(executor, context, batch);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void executeBatch(ExecutorService executor, SensorContext context, List<Sensor> batch) {
+    if (batch.size() <= 1) {
+      for (Sensor sensor : batch) {
+        executeSensor(context, sensor);
+      }
+      return;
+    }
+    LOG.debug("Execute sensors concurrently: {}", batch);
+    List<Future<?>> futures = new ArrayList<>(batch.size());
+    for (Sensor sensor : batch) {
+      futures.add(executor.submit(() -> executeSensor(context, sensor)));
+    }
+    for (Future<?> future : futures) {
+      waitFor(future);
+    }
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while executing sensors", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("Fail to execute sensor", cause);
+    }
+  }
+
+  private static boolean canJoin(List<Sensor> batch, Sensor sensor) {
+    if (!isThreadSafe(sensor)) {
+      return batch.isEmpty();
+    }
+    DefaultSensorDescriptor descriptor = ((SensorWrapper) sensor).descriptor();
+    for (Sensor other : batch) {
+      if (conflict(descriptor, ((SensorWrapper) other).descriptor())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isThreadSafe(Sensor sensor) {
+    return sensor instanceof SensorWrapper && ((SensorWrapper) sensor).descriptor().isThreadSafe();
+  }
+
+  /**
+   * Two sensors conflict when they may work on the same files. Sensors without languages or file type
+   * work on all files.
+   */
+  @VisibleForTesting
+  static boolean conflict(DefaultSensorDescriptor descriptor, DefaultSensorDescriptor other) {
+    boolean sameLanguages = descriptor.languages().isEmpty() || other.languages().isEmpty()
+      || !Collections.disjoint(descriptor.languages(), other.languages());
+    boolean sameType = descriptor.type() == null || other.type() == null || descriptor.type() == other.type();
+    return sameLanguages && sameType;
+  }
+
   private void executeSensor(SensorContext context, Sensor sensor) {
     eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
     sensor.analyse(module, context);
@@ -25,6 +25,10 @@ public class ItemProfiling extends AbstractTimeProfiling {
 
   private final String itemName;
 
+  private long startCpuTime;
+
+  private long cpuTime;
+
   public ItemProfiling(System2 system, String itemName) {
     super(system);
     this.itemName = itemName;
@@ -34,4 +38,34 @@ public class ItemProfiling extends AbstractTimeProfiling {
     return itemName;
   }
 
+  /**
+   * @param threadCpuTime CPU time, in nanoseconds, of the thread executing the item
+   */
+  public void startCpu(long threadCpuTime) {
+    this.startCpuTime = threadCpuTime;
+  }
+
+  /**
+   * @param threadCpuTime CPU time, in nanoseconds, of the thread executing the item. Must be the thread
+   * given to {@link #startCpu(long)}.
+   */
+  public void stopCpu(long threadCpuTime) {
+    this.cpuTime = threadCpuTime - startCpuTime;
+  }
+
+  /**
+   * CPU time in nanoseconds, or 0 if not measured
+   */
+  public long cpuTime() {
+    return cpuTime;
+  }
+
+  @Override
+  protected void add(AbstractTimeProfiling other) {
+    super.add(other);
+    if (other instanceof ItemProfiling) {
+      this.cpuTime += ((ItemProfiling) other).cpuTime;
+    }
+  }
+
 }
@@ -19,17 +19,22 @@
  */
 package org.sonar.scanner.profiling;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import org.sonar.api.utils.System2;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
 public class PhaseProfiling extends AbstractTimeProfiling {
 
   private final Phase phase;
 
-  private Map<String, ItemProfiling> profilingPerItem = new HashMap<>();
+  /**
+   * Items of phase {@link Phase#SENSOR} may be executed concurrently
+   */
+  private Map<String, ItemProfiling> profilingPerItem = new ConcurrentHashMap<>();
 
   PhaseProfiling(System2 system, Phase phase) {
     super(system);
@@ -53,9 +58,11 @@ public class PhaseProfiling extends AbstractTimeProfiling {
     return profilingPerItem.get(stringOrSimpleName);
   }
 
-  public void newItemProfiling(Object item) {
+  public ItemProfiling newItemProfiling(Object item) {
     String stringOrSimpleName = toStringOrSimpleName(item);
-    profilingPerItem.put(stringOrSimpleName, new ItemProfiling(system(), stringOrSimpleName));
+    ItemProfiling itemProfiling = new ItemProfiling(system(), stringOrSimpleName);
+    profilingPerItem.put(stringOrSimpleName, itemProfiling);
+    return itemProfiling;
   }
 
   public void newItemProfiling(String itemName) {
@@ -76,6 +83,9 @@ public class PhaseProfiling extends AbstractTimeProfiling {
     double percent = this.totalTime() / 100.0;
     for (ItemProfiling itemProfiling : profilingPerItem.values()) {
       props.setProperty(itemProfiling.itemName(), Long.toString(itemProfiling.totalTime()));
+      if (itemProfiling.cpuTime() > 0) {
+        props.setProperty(itemProfiling.itemName() + ".cpu", Long.toString(NANOSECONDS.toMillis(itemProfiling.cpuTime())));
+      }
     }
     for (ItemProfiling itemProfiling : truncate(sortByDescendingTotalTime(profilingPerItem).values())) {
       println("   o " + itemProfiling.itemName() + ": ", percent, itemProfiling);
@@ -23,11 +23,14 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.LongSupplier;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -50,6 +53,7 @@ import org.sonar.scanner.bootstrap.GlobalProperties;
 import org.sonar.scanner.events.BatchStepHandler;
 import org.sonar.scanner.util.BatchUtils;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.sonar.scanner.profiling.AbstractTimeProfiling.sortByDescendingTotalTime;
 import static org.sonar.scanner.profiling.AbstractTimeProfiling.truncate;
 
@@ -71,6 +75,12 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
 
   private final System2 system;
   private final File out;
+
+  /**
+   * CPU time, in nanoseconds, of the current thread
+   */
+  @VisibleForTesting
+  LongSupplier threadCpuTime = PhasesSumUpTimeProfiler::currentThreadCpuTime;
   
   public PhasesSumUpTimeProfiler(System2 system, GlobalProperties bootstrapProps) {
     String workingDirPath = StringUtils.defaultIfBlank(bootstrapProps.property(CoreProperties.WORKING_DIRECTORY), CoreProperties.WORKING_DIRECTORY_DEFAULT_VALUE);
@@ -91,9 +101,20 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
     if (percent != null) {
       sb.append(" (").append((int) (phaseProfiling.totalTime() / percent)).append("%)");
     }
+    if (phaseProfiling instanceof ItemProfiling && ((ItemProfiling) phaseProfiling).cpuTime() > 0) {
+      sb.append(" [CPU ").append(TimeUtils.formatDuration(NANOSECONDS.toMillis(((ItemProfiling) phaseProfiling).cpuTime()))).append("]");
+    }
     println(sb.toString());
   }
 
+  private static long currentThreadCpuTime() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (threadMXBean.isCurrentThreadCpuTimeSupported()) {
+      return threadMXBean.getCurrentThreadCpuTime();
+    }
+    return 0L;
+  }
+
   @Override
   public void onProjectAnalysis(ProjectAnalysisEvent event) {
     Project module = event.getProject();
@@ -163,11 +184,14 @@ public class PhasesSumUpTimeProfiler implements ProjectAnalysisHandler, SensorEx
 
   @Override
   public void onSensorExecution(SensorExecutionEvent event) {
+    // events of a given sensor are fired by the thread executing it, which may not be the main thread
     PhaseProfiling profiling = currentModuleProfiling.getProfilingPerPhase(Phase.SENSOR);
     if (event.isStart()) {
-      profiling.newItemProfiling(event.getSensor());
+      profiling.newItemProfiling(event.getSensor()).startCpu(threadCpuTime.getAsLong());
     } else {
-      profiling.getProfilingPerItem(event.getSensor()).stop();
+      ItemProfiling itemProfiling = profiling.getProfilingPerItem(event.getSensor());
+      itemProfiling.stop();
+      itemProfiling.stopCpu(threadCpuTime.getAsLong());
     }
   }
 
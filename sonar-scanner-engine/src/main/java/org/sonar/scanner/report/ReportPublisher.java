@@ -144,6 +144,11 @@ public class ReportPublisher implements Startable {
       long stopTime = System.currentTimeMillis();
       LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir)));
 
+      startTime = System.currentTimeMillis();
+      int packedFiles = writer.packComponentData();
+      stopTime = System.currentTimeMillis();
+      LOG.info("Analysis report packed in {}ms, {} files packed, {} files remaining", stopTime - startTime, packedFiles, countFiles(reportDir));
+
       startTime = System.currentTimeMillis();
       File reportZip = temp.newFile("batch-report", ".zip");
       ZipUtils.zipDir(reportDir, reportZip);
@@ -155,6 +160,11 @@ public class ReportPublisher implements Startable {
     }
   }
 
+  private static int countFiles(File dir) {
+    String[] files = dir.list();
+    return files == null ? 0 : files.length;
+  }
+
   /**
    * Uploads the report file to server and returns the generated task id
    */
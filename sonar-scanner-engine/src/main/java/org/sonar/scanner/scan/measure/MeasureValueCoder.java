@@ -19,15 +19,30 @@
  */
 package org.sonar.scanner.scan.measure;
 
-import com.persistit.Value;
-import com.persistit.encoding.CoderContext;
-import com.persistit.encoding.ValueCoder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import org.sonar.api.batch.measure.MetricFinder;
 import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.scanner.index.ValueCoder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 class MeasureValueCoder implements ValueCoder {
 
+  private static final byte NULL = 0;
+  private static final byte INT = 1;
+  private static final byte LONG = 2;
+  private static final byte DOUBLE = 3;
+  private static final byte BOOLEAN = 4;
+  private static final byte STRING = 5;
+  private static final byte SERIALIZED = 6;
+
   private final MetricFinder metricFinder;
 
   public MeasureValueCoder(MetricFinder metricFinder) {
@@ -35,23 +50,87 @@ class MeasureValueCoder implements ValueCoder {
   }
 
   @Override
-  public void put(Value value, Object object, CoderContext context) {
+  public void put(DataOutput output, Object object) throws IOException {
     DefaultMeasure<?> m = (DefaultMeasure<?>) object;
     org.sonar.api.batch.measure.Metric<?> metric = m.metric();
-    value.putString(metric.key());
-    value.put(m.value());
+    output.writeUTF(metric.key());
+    putValue(output, m.value());
+  }
+
+  private static void putValue(DataOutput output, Serializable value) throws IOException {
+    if (value == null) {
+      output.writeByte(NULL);
+    } else if (value instanceof Integer) {
+      output.writeByte(INT);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      output.writeByte(LONG);
+      output.writeLong((Long) value);
+    } else if (value instanceof Double) {
+      output.writeByte(DOUBLE);
+      output.writeDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      output.writeByte(BOOLEAN);
+      output.writeBoolean((Boolean) value);
+    } else if (value instanceof String) {
+      // DataOutput#writeUTF() is limited to 64Kb
+      byte[] bytes = ((String) value).getBytes(UTF_8);
+      output.writeByte(STRING);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    } else {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+        objectOutput.writeObject(value);
+      }
+      output.writeByte(SERIALIZED);
+      output.writeInt(bytes.size());
+      output.write(bytes.toByteArray());
+    }
   }
 
   @Override
-  public Object get(Value value, Class clazz, CoderContext context) {
-    String metricKey = value.getString();
+  public Object get(DataInput input) throws IOException {
+    String metricKey = input.readUTF();
     org.sonar.api.batch.measure.Metric<?> metric = metricFinder.findByKey(metricKey);
     if (metric == null) {
       throw new IllegalStateException("Unknow metric with key " + metricKey);
     }
     DefaultMeasure<?> m = new DefaultMeasure()
       .forMetric(metric)
-      .withValue((Serializable) value.get());
+      .withValue(getValue(input));
     return m;
   }
+
+  private static Serializable getValue(DataInput input) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case INT:
+        return input.readInt();
+      case LONG:
+        return input.readLong();
+      case DOUBLE:
+        return input.readDouble();
+      case BOOLEAN:
+        return input.readBoolean();
+      case STRING:
+        return new String(readBytes(input), UTF_8);
+      case SERIALIZED:
+        try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(readBytes(input)))) {
+          return (Serializable) objectInput.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IllegalStateException("Fail to deserialize measure value", e);
+        }
+      default:
+        throw new IllegalStateException("Unknown type of measure value: " + type);
+    }
+  }
+
+  private static byte[] readBytes(DataInput input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return bytes;
+  }
 }
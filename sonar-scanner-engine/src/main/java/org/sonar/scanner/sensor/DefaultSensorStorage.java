@@ -29,6 +29,7 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
@@ -58,6 +59,7 @@ import org.sonar.duplications.block.Block;
 import org.sonar.duplications.internal.pmd.PmdBlockChunker;
 import org.sonar.scanner.cpd.deprecated.DefaultCpdBlockIndexer;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
+import org.sonar.scanner.index.BatchComponent;
 import org.sonar.scanner.index.BatchComponentCache;
 import org.sonar.scanner.issue.ModuleIssues;
 import org.sonar.scanner.protocol.output.FileStructure;
@@ -115,6 +117,10 @@ import static org.sonar.api.measures.CoreMetrics.TEST_SUCCESS_DENSITY_KEY;
 import static org.sonar.api.measures.CoreMetrics.UNCOVERED_CONDITIONS;
 import static org.sonar.api.measures.CoreMetrics.UNCOVERED_LINES;
 
+/**
+ * Sensors may be executed concurrently, see {@link org.sonar.scanner.phases.SensorsExecutor#PARALLEL_SENSORS_PROPERTY}.
+ * Storage of data attached to a component is atomic for this component.
+ */
 public class DefaultSensorStorage implements SensorStorage {
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultSensorStorage.class);
@@ -155,7 +161,11 @@ public class DefaultSensorStorage implements SensorStorage {
   private final Map<Metric<?>, Metric<?>> deprecatedCoverageMetricMapping = new IdentityHashMap<>();
   private final Set<Metric<?>> coverageMetrics = new HashSet<>();
   private final Set<Metric<?>> byLineMetrics = new HashSet<>();
-  private Set<String> alreadyLogged = new HashSet<>();
+  private final Set<String> alreadyLogged = ConcurrentHashMap.newKeySet();
+  /**
+   * Guards the check-then-act sequences on {@link #measureCache}
+   */
+  private final Object measuresLock = new Object();
 
   public DefaultSensorStorage(MetricFinder metricFinder, ModuleIssues moduleIssues,
     Settings settings,
@@ -213,9 +223,8 @@ public class DefaultSensorStorage implements SensorStorage {
   }
 
   private void logOnce(String metricKey, String msg, Object... params) {
-    if (!alreadyLogged.contains(metricKey)) {
+    if (alreadyLogged.add(metricKey)) {
       LOG.warn(msg, params);
-      alreadyLogged.add(metricKey);
     }
   }
 
@@ -250,23 +259,27 @@ public class DefaultSensorStorage implements SensorStorage {
       }
       saveCoverageMetricInternal((InputFile) component, metric, measure);
     } else {
-      if (measureCache.contains(component.key(), metric.key())) {
-        throw new UnsupportedOperationException("Can not add the same measure twice on " + component + ": " + measure);
+      synchronized (measuresLock) {
+        if (measureCache.contains(component.key(), metric.key())) {
+          throw new UnsupportedOperationException("Can not add the same measure twice on " + component + ": " + measure);
+        }
+        measureCache.put(component.key(), metric.key(), measure);
       }
-      measureCache.put(component.key(), metric.key(), measure);
     }
   }
 
   private void saveCoverageMetricInternal(InputFile file, Metric<?> metric, DefaultMeasure<?> measure) {
     if (isLineMetrics(metric)) {
       validateCoverageMeasure((String) measure.value(), file);
-      DefaultMeasure<?> previousMeasure = measureCache.byMetric(file.key(), metric.key());
-      if (previousMeasure != null) {
-        measureCache.put(file.key(), metric.key(), new DefaultMeasure<String>()
-          .forMetric((Metric<String>) metric)
-          .withValue(KeyValueFormat.format(mergeCoverageLineMetric(metric, (String) previousMeasure.value(), (String) measure.value()))));
-      } else {
-        measureCache.put(file.key(), metric.key(), measure);
+      synchronized (measuresLock) {
+        DefaultMeasure<?> previousMeasure = measureCache.byMetric(file.key(), metric.key());
+        if (previousMeasure != null) {
+          measureCache.put(file.key(), metric.key(), new DefaultMeasure<String>()
+            .forMetric((Metric<String>) metric)
+            .withValue(KeyValueFormat.format(mergeCoverageLineMetric(metric, (String) previousMeasure.value(), (String) measure.value()))));
+        } else {
+          measureCache.put(file.key(), metric.key(), measure);
+        }
       }
     } else {
       // Other coverage metrics are all integer values. Just erase value, it will be recomputed at the end anyway
@@ -347,21 +360,31 @@ public class DefaultSensorStorage implements SensorStorage {
   public void store(DefaultHighlighting highlighting) {
     ScannerReportWriter writer = reportPublisher.getWriter();
     DefaultInputFile inputFile = (DefaultInputFile) highlighting.inputFile();
-    int componentRef = componentCache.get(inputFile).batchId();
-    if (writer.hasComponentData(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef)) {
-      throw new UnsupportedOperationException("Trying to save highlighting twice for the same file is not supported: " + inputFile.absolutePath());
+    BatchComponent component = componentCache.get(inputFile);
+    int componentRef = component.batchId();
+    synchronized (component) {
+      if (writer.hasComponentData(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef)) {
+        throw new UnsupportedOperationException("Trying to save highlighting twice for the same file is not supported: " + inputFile.absolutePath());
+      }
+      writer.writeComponentSyntaxHighlighting(componentRef,
+        Iterables.transform(highlighting.getSyntaxHighlightingRuleSet(), new BuildSyntaxHighlighting()));
     }
-    writer.writeComponentSyntaxHighlighting(componentRef,
-      Iterables.transform(highlighting.getSyntaxHighlightingRuleSet(), new BuildSyntaxHighlighting()));
   }
 
   @Override
   public void store(DefaultSymbolTable symbolTable) {
     ScannerReportWriter writer = reportPublisher.getWriter();
-    int componentRef = componentCache.get(symbolTable.inputFile()).batchId();
-    if (writer.hasComponentData(FileStructure.Domain.SYMBOLS, componentRef)) {
-      throw new UnsupportedOperationException("Trying to save symbol table twice for the same file is not supported: " + symbolTable.inputFile().absolutePath());
+    BatchComponent component = componentCache.get(symbolTable.inputFile());
+    int componentRef = component.batchId();
+    synchronized (component) {
+      if (writer.hasComponentData(FileStructure.Domain.SYMBOLS, componentRef)) {
+        throw new UnsupportedOperationException("Trying to save symbol table twice for the same file is not supported: " + symbolTable.inputFile().absolutePath());
+      }
+      writeSymbols(writer, componentRef, symbolTable);
     }
+  }
+
+  private static void writeSymbols(ScannerReportWriter writer, int componentRef, DefaultSymbolTable symbolTable) {
     writer.writeComponentSymbols(componentRef,
       Iterables.transform(symbolTable.getReferencesBySymbol().entrySet(), new Function<Map.Entry<TextRange, Set<TextRange>>, ScannerReport.Symbol>() {
         private ScannerReport.Symbol.Builder builder = ScannerReport.Symbol.newBuilder();
@@ -29,6 +29,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.config.Settings;
@@ -37,6 +38,8 @@ import org.sonar.api.resources.Project;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.core.util.CloseableIterator;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.ClonePart;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
@@ -113,6 +116,60 @@ public class CpdExecutorTest {
     assertThat(executor.getMinimumTokens("php")).isEqualTo(33);
   }
 
+  @Test
+  public void threads_default_to_available_processors() {
+    assertThat(executor.getThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "3");
+    assertThat(executor.getThreads()).isEqualTo(3);
+  }
+
+  @Test
+  public void detect_duplications_with_single_thread() {
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "1");
+    verifyDetection();
+  }
+
+  @Test
+  public void detect_duplications_with_many_threads() {
+    settings.setProperty(CpdExecutor.THREADS_PROPERTY, "4");
+    verifyDetection();
+  }
+
+  private void verifyDetection() {
+    settings.setProperty("sonar.cpd.php.minimumTokens", "10");
+    SonarCpdBlockIndex realIndex = new SonarCpdBlockIndex(publisher, componentCache, settings);
+    realIndex.insert((InputFile) batchComponent1.inputComponent(), newBlocks(batchComponent1, 1, 2, 3));
+    realIndex.insert((InputFile) batchComponent2.inputComponent(), newBlocks(batchComponent2, 1, 2, 3));
+    realIndex.insert((InputFile) batchComponent3.inputComponent(), newBlocks(batchComponent3, 10, 11));
+    executor = new CpdExecutor(settings, realIndex, publisher, componentCache);
+
+    executor.execute();
+
+    Duplication[] dups = readDuplications(1);
+    assertDuplication(dups[0], 1, 3, batchComponent2.batchId(), 1, 3);
+    try (CloseableIterator<Duplication> it = reader.readComponentDuplications(batchComponent2.batchId())) {
+      Duplication dup = it.next();
+      assertThat(dup.getDuplicate(0).getOtherFileRef()).isEqualTo(batchComponent1.batchId());
+      assertThat(it.hasNext()).isFalse();
+    }
+    assertThat(reader.readComponentDuplications(batchComponent3.batchId())).isEmpty();
+  }
+
+  private static List<Block> newBlocks(BatchComponent component, long... hashes) {
+    List<Block> blocks = new ArrayList<>();
+    for (int i = 0; i < hashes.length; i++) {
+      blocks.add(Block.builder()
+        .setResourceId(component.key())
+        .setBlockHash(new ByteArray(hashes[i]))
+        .setIndexInFile(i)
+        .setLines(i + 1, i + 1)
+        .setUnit(i * 10, i * 10 + 9)
+        .build());
+    }
+    return blocks;
+  }
+
   @Test
   public void testNothingToSave() {
     executor.saveDuplications(batchComponent1, Collections.<CloneGroup>emptyList());
@@ -20,10 +20,16 @@
 package org.sonar.scanner.index;
 
 import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import org.sonar.scanner.index.Cache;
 import org.sonar.scanner.index.Cache.Entry;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class CacheTest extends AbstractCachesTest {
@@ -248,4 +254,95 @@ public class CacheTest extends AbstractCachesTest {
     cache.clear("foo", "bar", "baz");
     cache.clear();
   }
+
+  @Test
+  public void integer_and_string_parts_of_key() {
+    Cache<String> cache = caches.createCache("issues");
+    cache.put(12, "b", "issue b");
+    cache.put(2, "a", "issue a");
+    cache.put(0, "c", "issue c");
+
+    assertThat(cache.keySet()).containsExactly(0, 2, 12);
+    assertThat(cache.values(2)).containsExactly("issue a");
+    assertThat(cache.get(12, "b")).isEqualTo("issue b");
+    assertThat(cache.containsKey("12", "b")).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_part_of_key_is_not_comparable() {
+    Cache<String> cache = caches.createCache("issues");
+    cache.put(new Object(), "value");
+  }
+
+  @Test
+  public void null_and_serializable_values() {
+    Cache<Object> cache = caches.createCache("values");
+    cache.put("null", null);
+    cache.put("list", new ArrayList<>(asList("a", "b")));
+
+    assertThat(cache.containsKey("null")).isTrue();
+    assertThat(cache.get("null")).isNull();
+    assertThat(cache.get("list")).isEqualTo(asList("a", "b"));
+  }
+
+  @Test
+  public void values_bigger_than_write_buffer() {
+    Cache<String> cache = caches.createCache("big");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100_000; i++) {
+      sb.append('a');
+    }
+    String big = sb.toString();
+
+    cache.put("small1", "foo");
+    cache.put("big", big);
+    cache.put("small2", "bar");
+
+    assertThat(cache.get("small1")).isEqualTo("foo");
+    assertThat(cache.get("big")).isEqualTo(big);
+    assertThat(cache.get("small2")).isEqualTo("bar");
+  }
+
+  @Test
+  public void overridden_value_is_replaced() {
+    Cache<String> cache = caches.createCache("capitals");
+    cache.put("germany", "bonn");
+    cache.put("germany", "berlin");
+
+    assertThat(cache.get("germany")).isEqualTo("berlin");
+    assertThat(cache.values()).containsExactly("berlin");
+  }
+
+  @Test
+  public void concurrent_readers_and_single_writer() throws Exception {
+    Cache<String> cache = caches.createCache("concurrent");
+    int count = 50_000;
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<?> writer = executor.submit(() -> {
+        for (int i = 0; i < count; i++) {
+          cache.put("component" + (i % 100), i, "value" + i);
+        }
+      });
+      List<Future<?>> readers = new ArrayList<>();
+      for (int r = 0; r < 3; r++) {
+        readers.add(executor.submit(() -> {
+          while (!writer.isDone()) {
+            for (String value : cache.values("component42")) {
+              assertThat(value).startsWith("value");
+            }
+          }
+        }));
+      }
+      writer.get();
+      for (Future<?> reader : readers) {
+        reader.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(cache.values()).hasSize(count);
+    assertThat(cache.get("component42", 4242)).isEqualTo("value4242");
+  }
 }
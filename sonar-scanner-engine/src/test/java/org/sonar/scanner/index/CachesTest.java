@@ -19,9 +19,8 @@
  */
 package org.sonar.scanner.index;
 
+import java.io.File;
 import java.io.Serializable;
-
-import com.persistit.exception.PersistitException;
 import org.junit.Test;
 import org.sonar.scanner.index.Cache;
 import org.sonar.scanner.index.Caches;
@@ -54,10 +53,14 @@ public class CachesTest extends AbstractCachesTest {
       c.put("a" + i, "a" + i);
     }
 
+    File dir = caches.dir();
+    assertThat(dir.listFiles()).hasSize(1);
+
     caches.stop();
 
+    assertThat(dir).doesNotExist();
     // manager continues up
-    assertThat(cachesManager.persistit().isInitialized()).isTrue();
+    assertThat(cachesManager.tempDir()).isDirectory();
 
     caches = new Caches(cachesManager);
     caches.start();
@@ -65,7 +68,7 @@ public class CachesTest extends AbstractCachesTest {
   }
 
   @Test
-  public void leak_test() throws PersistitException {
+  public void leak_test() {
     caches.stop();
 
     int len = 1 * 1024 * 1024;
@@ -79,10 +82,10 @@ public class CachesTest extends AbstractCachesTest {
       caches.start();
       Cache<String> c = caches.<String>createCache("test" + i);
       c.put("key" + i, sb.toString());
-      cachesManager.persistit().flush();
 
       caches.stop();
     }
+    assertThat(cachesManager.tempDir().listFiles()).isEmpty();
   }
 
   private static class Element implements Serializable {
@@ -0,0 +1,103 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.mediumtest.fs;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.sonar.scanner.mediumtest.BatchMediumTester;
+import org.sonar.xoo.XooPlugin;
+import org.sonar.xoo.rule.XooRulesDefinition;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Analyses a generated project of 50k xoo files, with measures and one issue per line, and prints
+ * the total analysis time and the peak resident set size of the JVM (Linux only).
+ * Run {@link #main(String[])} from the IDE. Compare with a previous revision to measure the impact of
+ * changes on scanner caches, see {@link org.sonar.scanner.index.Caches}.
+ */
+public class LargeProjectBenchmark {
+
+  private static final int FILE_COUNT = 50_000;
+  private static final int FILES_PER_DIR = 500;
+
+  public static void main(String[] args) throws IOException {
+    File baseDir = Files.createTempDirectory("large-project").toFile();
+    try {
+      generateProject(baseDir);
+
+      BatchMediumTester tester = BatchMediumTester.builder()
+        .registerPlugin("xoo", new XooPlugin())
+        .addDefaultQProfile("xoo", "Sonar Way")
+        .addRules(new XooRulesDefinition())
+        .addActiveRule("xoo", "OneIssuePerLine", null, "One issue per line", "MAJOR", "OneIssuePerLine.internal", "xoo")
+        .build();
+      tester.start();
+      long start = System.currentTimeMillis();
+      try {
+        tester.newTask()
+          .properties(ImmutableMap.<String, String>builder()
+            .put("sonar.task", "scan")
+            .put("sonar.projectBaseDir", baseDir.getAbsolutePath())
+            .put("sonar.projectKey", "com.foo.project")
+            .put("sonar.projectName", "Foo Project")
+            .put("sonar.projectVersion", "1.0-SNAPSHOT")
+            .put("sonar.sources", "src")
+            .put("sonar.cpd.xoo.skip", "true")
+            .build())
+          .start();
+      } finally {
+        tester.stop();
+      }
+      System.out.println(String.format("Analysis of %d files: %d ms, peak RSS: %s", FILE_COUNT, System.currentTimeMillis() - start, peakRss()));
+    } finally {
+      FileUtils.deleteQuietly(baseDir);
+    }
+  }
+
+  private static void generateProject(File baseDir) throws IOException {
+    for (int i = 0; i < FILE_COUNT; i++) {
+      File dir = new File(baseDir, "src/dir" + (i / FILES_PER_DIR));
+      dir.mkdirs();
+      FileUtils.write(new File(dir, "File" + i + ".xoo"), "line 1\nline 2\nline 3\nline 4\nline 5\n", UTF_8);
+      FileUtils.write(new File(dir, "File" + i + ".xoo.measures"), "lines:5\nncloc:4\ncomment_lines:1\nstatements:" + (i % 10) + "\n", UTF_8);
+    }
+  }
+
+  private static String peakRss() throws IOException {
+    Path status = Paths.get("/proc/self/status");
+    if (!status.toFile().exists()) {
+      return "unknown";
+    }
+    List<String> lines = Files.readAllLines(status, UTF_8);
+    for (String line : lines) {
+      if (line.startsWith("VmHWM:")) {
+        return line.substring("VmHWM:".length()).trim();
+      }
+    }
+    return "unknown";
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.phases;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.sonar.api.batch.Sensor;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorDescriptor;
+import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
+import org.sonar.api.config.MapSettings;
+import org.sonar.api.config.Settings;
+import org.sonar.api.resources.Project;
+import org.sonar.scanner.bootstrap.BatchExtensionDictionnary;
+import org.sonar.scanner.events.EventBus;
+import org.sonar.scanner.sensor.SensorOptimizer;
+import org.sonar.scanner.sensor.SensorWrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SensorsExecutorTest {
+
+  private Project project = new Project("project");
+  private BatchExtensionDictionnary selector = mock(BatchExtensionDictionnary.class);
+  private SensorContext context = mock(SensorContext.class);
+  private Settings settings = new MapSettings();
+  private List<String> executions = new CopyOnWriteArrayList<>();
+
+  @Test
+  public void execute_sensors_sequentially_by_default() {
+    CountDownLatch latch = new CountDownLatch(2);
+    FakeSensor java = new FakeSensor("java", latch);
+    FakeSensor js = new FakeSensor("js", latch);
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.asList(wrap(java, true), wrap(js, true)));
+
+    newExecutor().execute(context);
+
+    assertThat(executions).containsExactly("java", "js");
+    assertThat(java.concurrent).isFalse();
+  }
+
+  @Test
+  public void execute_concurrently_thread_safe_sensors_working_on_different_languages() {
+    settings.setProperty(SensorsExecutor.PARALLEL_SENSORS_PROPERTY, true);
+    CountDownLatch latch = new CountDownLatch(2);
+    FakeSensor java = new FakeSensor("java", latch);
+    FakeSensor js = new FakeSensor("js", latch);
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.asList(wrap(java, true), wrap(js, true)));
+
+    newExecutor().execute(context);
+
+    assertThat(executions).containsOnly("java", "js");
+    assertThat(java.concurrent).isTrue();
+    assertThat(js.concurrent).isTrue();
+  }
+
+  @Test
+  public void do_not_execute_concurrently_sensors_which_are_not_thread_safe() {
+    settings.setProperty(SensorsExecutor.PARALLEL_SENSORS_PROPERTY, true);
+    CountDownLatch latch = new CountDownLatch(2);
+    FakeSensor java = new FakeSensor("java", latch);
+    FakeSensor js = new FakeSensor("js", latch);
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.asList(wrap(java, true), wrap(js, false)));
+
+    newExecutor().execute(context);
+
+    assertThat(executions).containsExactly("java", "js");
+    assertThat(java.concurrent).isFalse();
+  }
+
+  @Test
+  public void do_not_execute_concurrently_sensors_working_on_same_language() {
+    settings.setProperty(SensorsExecutor.PARALLEL_SENSORS_PROPERTY, true);
+    CountDownLatch latch = new CountDownLatch(2);
+    FakeSensor java1 = new FakeSensor("java", latch);
+    FakeSensor java2 = new FakeSensor("java", latch);
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.asList(wrap(java1, true), wrap(java2, true)));
+
+    newExecutor().execute(context);
+
+    assertThat(executions).containsExactly("java", "java");
+    assertThat(java1.concurrent).isFalse();
+  }
+
+  @Test
+  public void conflicts_between_sensors() {
+    assertThat(SensorsExecutor.conflict(descriptor("java"), descriptor("js"))).isFalse();
+    assertThat(SensorsExecutor.conflict(descriptor("java"), descriptor("java", "js"))).isTrue();
+    assertThat(SensorsExecutor.conflict(descriptor("java"), descriptor())).isTrue();
+    assertThat(SensorsExecutor.conflict(descriptor("java").onlyOnFileType(InputFile.Type.MAIN), descriptor("java").onlyOnFileType(InputFile.Type.TEST))).isFalse();
+    assertThat(SensorsExecutor.conflict(descriptor("java").onlyOnFileType(InputFile.Type.MAIN), descriptor("java"))).isTrue();
+  }
+
+  @Test
+  public void propagate_failure_of_sensor_executed_concurrently() {
+    settings.setProperty(SensorsExecutor.PARALLEL_SENSORS_PROPERTY, true);
+    CountDownLatch latch = new CountDownLatch(2);
+    FakeSensor java = new FakeSensor("java", latch);
+    FakeSensor failing = new FakeSensor("js", latch) {
+      @Override
+      public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+        throw new IllegalStateException("Fail to analyse");
+      }
+    };
+    when(selector.select(Sensor.class, project, true, null)).thenReturn(Arrays.asList(wrap(java, true), wrap(failing, true)));
+
+    try {
+      newExecutor().execute(context);
+      org.junit.Assert.fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to analyse");
+    }
+  }
+
+  private SensorsExecutor newExecutor() {
+    return new SensorsExecutor(selector, project, mock(EventBus.class), settings);
+  }
+
+  private static DefaultSensorDescriptor descriptor(String... languages) {
+    return new DefaultSensorDescriptor().onlyOnLanguages(languages);
+  }
+
+  private static SensorWrapper wrap(FakeSensor sensor, boolean threadSafe) {
+    sensor.threadSafe = threadSafe;
+    return new SensorWrapper(sensor, mock(org.sonar.api.batch.sensor.SensorContext.class), mock(SensorOptimizer.class));
+  }
+
+  private class FakeSensor implements org.sonar.api.batch.sensor.Sensor {
+    private final String language;
+    private final CountDownLatch latch;
+    private boolean threadSafe;
+    private volatile boolean concurrent;
+
+    FakeSensor(String language, CountDownLatch latch) {
+      this.language = language;
+      this.latch = latch;
+    }
+
+    @Override
+    public void describe(SensorDescriptor descriptor) {
+      descriptor.onlyOnLanguage(language);
+      if (threadSafe) {
+        descriptor.threadSafe();
+      }
+    }
+
+    @Override
+    public void execute(org.sonar.api.batch.sensor.SensorContext context) {
+      executions.add(language);
+      latch.countDown();
+      try {
+        // the first executed sensor is released only if the other one is executed concurrently
+        concurrent = latch.await(100, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -88,6 +89,21 @@ public class PhasesSumUpTimeProfilerTest {
     assertThat(profiler.currentModuleProfiling.getProfilingPerBatchStep("Free memory").totalTime()).isEqualTo(9L);
   }
 
+  @Test
+  public void measure_cpu_time_of_sensors() throws InterruptedException {
+    AtomicLong threadCpuTime = new AtomicLong();
+    profiler.threadCpuTime = () -> threadCpuTime.addAndGet(4_000_000L);
+    final Project project = mockProject("project root", true);
+    final Project moduleA = mockProject("moduleA", false);
+    when(project.getModules()).thenReturn(Arrays.asList(moduleA));
+
+    fakeAnalysis(profiler, moduleA);
+    fakeAnalysis(profiler, project);
+
+    assertThat(profiler.currentModuleProfiling.getProfilingPerPhase(Phase.SENSOR).getProfilingPerItem(new FakeSensor()).cpuTime()).isEqualTo(4_000_000L);
+    assertThat(profiler.totalProfiling.getProfilingPerPhase(Phase.SENSOR).getProfilingPerItem(new FakeSensor()).cpuTime()).isEqualTo(8_000_000L);
+  }
+
   @Test
   public void testMultimoduleProject() throws InterruptedException {
     final Project project = mockProject("project root", true);
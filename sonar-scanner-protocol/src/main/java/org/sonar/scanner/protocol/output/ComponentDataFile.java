@@ -0,0 +1,272 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2016 SonarSource SA
+ * mailto:contact AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Single file containing the data of all the {@link FileStructure.Domain}s and components of a report. The data of each
+ * (domain, component) pair is copied as-is, followed by an index of the entries:
+ * <pre>
+ *   data of entries
+ *   index: number of domains, name of each domain, number of entries, (domain, component ref, offset, length) of each entry
+ *   offset of index (long), {@link #MAGIC} (int)
+ * </pre>
+ * Entries are read by positional reads, so the file does not have to be extracted.
+ */
+class ComponentDataFile implements Closeable {
+
+  static final int MAGIC = 0x53514344;
+  private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+  private final File file;
+  private final FileChannel channel;
+  private final Map<FileStructure.Domain, Map<Integer, Entry>> entries;
+
+  private ComponentDataFile(File file, FileChannel channel, Map<FileStructure.Domain, Map<Integer, Entry>> entries) {
+    this.file = file;
+    this.channel = channel;
+    this.entries = entries;
+  }
+
+  /**
+   * Moves the files of all domains and components of the report into {@link FileStructure#componentDataFile()}.
+   * Files are deleted once the data file is complete.
+   *
+   * @return the number of packed files
+   */
+  static int pack(FileStructure fileStructure) {
+    List<PackedFile> packedFiles = listComponentFiles(fileStructure.root());
+    packedFiles.sort(Comparator.<PackedFile>comparingInt(f -> f.domain.ordinal()).thenComparingInt(f -> f.componentRef));
+    File dataFile = fileStructure.componentDataFile();
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)))) {
+      long position = 0L;
+      for (PackedFile packedFile : packedFiles) {
+        packedFile.offset = position;
+        packedFile.length = Math.toIntExact(Files.copy(packedFile.file.toPath(), output));
+        position += packedFile.length;
+      }
+      writeIndex(output, packedFiles);
+      output.writeLong(position);
+      output.writeInt(MAGIC);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to pack analysis report in " + dataFile, e);
+    }
+    for (PackedFile packedFile : packedFiles) {
+      if (!packedFile.file.delete()) {
+        throw new IllegalStateException("Unable to delete packed file " + packedFile.file);
+      }
+    }
+    return packedFiles.size();
+  }
+
+  private static List<PackedFile> listComponentFiles(File dir) {
+    List<PackedFile> result = new ArrayList<>();
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return result;
+    }
+    for (File file : files) {
+      if (!file.isFile()) {
+        continue;
+      }
+      for (FileStructure.Domain domain : FileStructure.Domain.values()) {
+        Integer componentRef = domain.componentRefOf(file.getName());
+        if (componentRef != null) {
+          result.add(new PackedFile(file, domain, componentRef));
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void writeIndex(DataOutputStream output, List<PackedFile> packedFiles) throws IOException {
+    FileStructure.Domain[] domains = FileStructure.Domain.values();
+    output.writeInt(domains.length);
+    for (FileStructure.Domain domain : domains) {
+      output.writeUTF(domain.name());
+    }
+    output.writeInt(packedFiles.size());
+    for (PackedFile packedFile : packedFiles) {
+      output.writeByte(packedFile.domain.ordinal());
+      output.writeInt(packedFile.componentRef);
+      output.writeLong(packedFile.offset);
+      output.writeInt(packedFile.length);
+    }
+  }
+
+  /**
+   * Opens the data file and loads its index. The file is kept open until {@link #close()} is called.
+   */
+  static ComponentDataFile open(File file) {
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      long size = channel.size();
+      if (size < TRAILER_SIZE) {
+        throw new IllegalStateException("File of analysis report is corrupted: " + file);
+      }
+      ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+      long indexOffset = trailer.getLong();
+      if (trailer.getInt() != MAGIC || indexOffset < 0 || indexOffset > size - TRAILER_SIZE) {
+        throw new IllegalStateException("File of analysis report is corrupted: " + file);
+      }
+      ByteBuffer index = read(channel, indexOffset, (int) (size - TRAILER_SIZE - indexOffset));
+      return new ComponentDataFile(file, channel, readIndex(index));
+    } catch (IOException e) {
+      closeQuietly(channel);
+      throw new IllegalStateException("Unable to read index of analysis report: " + file, e);
+    } catch (RuntimeException e) {
+      closeQuietly(channel);
+      throw e;
+    }
+  }
+
+  private static Map<FileStructure.Domain, Map<Integer, Entry>> readIndex(ByteBuffer index) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(index.array()));
+    int domainCount = input.readInt();
+    // domains unknown to this version of the protocol are ignored
+    FileStructure.Domain[] domains = new FileStructure.Domain[domainCount];
+    for (int i = 0; i < domainCount; i++) {
+      domains[i] = toDomain(input.readUTF());
+    }
+    Map<FileStructure.Domain, Map<Integer, Entry>> result = new EnumMap<>(FileStructure.Domain.class);
+    int entryCount = input.readInt();
+    for (int i = 0; i < entryCount; i++) {
+      FileStructure.Domain domain = domains[input.readUnsignedByte()];
+      int componentRef = input.readInt();
+      Entry entry = new Entry(input.readLong(), input.readInt());
+      if (domain != null) {
+        result.computeIfAbsent(domain, d -> new HashMap<>()).put(componentRef, entry);
+      }
+    }
+    return result;
+  }
+
+  @CheckForNull
+  private static FileStructure.Domain toDomain(String name) {
+    for (FileStructure.Domain domain : FileStructure.Domain.values()) {
+      if (domain.name().equals(name)) {
+        return domain;
+      }
+    }
+    return null;
+  }
+
+  boolean contains(FileStructure.Domain domain, int componentRef) {
+    return entry(domain, componentRef) != null;
+  }
+
+  /**
+   * Data of the component in the domain, loaded by a single positional read, or {@code null} if the report
+   * has no such data.
+   */
+  @CheckForNull
+  InputStream open(FileStructure.Domain domain, int componentRef) {
+    Entry entry = entry(domain, componentRef);
+    if (entry == null) {
+      return null;
+    }
+    try {
+      return new ByteArrayInputStream(read(channel, entry.offset, entry.length).array());
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read " + domain + " of component #" + componentRef + " in " + file, e);
+    }
+  }
+
+  @CheckForNull
+  private Entry entry(FileStructure.Domain domain, int componentRef) {
+    Map<Integer, Entry> entriesOfDomain = entries.get(domain);
+    return entriesOfDomain == null ? null : entriesOfDomain.get(componentRef);
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      // positional read, does not change the position of the channel, so concurrent reads are safe
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  @Override
+  public void close() {
+    closeQuietly(channel);
+  }
+
+  private static void closeQuietly(@Nullable FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // ignored
+      }
+    }
+  }
+
+  private static class Entry {
+    private final long offset;
+    private final int length;
+
+    private Entry(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private static class PackedFile {
+    private final File file;
+    private final FileStructure.Domain domain;
+    private final int componentRef;
+    private long offset;
+    private int length;
+
+    private PackedFile(File file, FileStructure.Domain domain, int componentRef) {
+      this.file = file;
+      this.domain = domain;
+      this.componentRef = componentRef;
+    }
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonar.scanner.protocol.output;
 
 import java.io.File;
+import javax.annotation.CheckForNull;
 
 /**
  * Structure of files in the zipped report
@@ -48,6 +49,26 @@ public class FileStructure {
       this.filePrefix = filePrefix;
       this.fileSuffix = fileSuffix;
     }
+
+    /**
+     * Reference of the component which data is stored in the file, or {@code null} if the file
+     * does not belong to this domain.
+     */
+    @CheckForNull
+    Integer componentRefOf(String fileName) {
+      if (!fileName.startsWith(filePrefix) || !fileName.endsWith(fileSuffix)) {
+        return null;
+      }
+      String ref = fileName.substring(filePrefix.length(), fileName.length() - fileSuffix.length());
+      if (ref.isEmpty() || !ref.chars().allMatch(Character::isDigit)) {
+        return null;
+      }
+      try {
+        return Integer.valueOf(ref);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
   }
 
   private final File dir;
@@ -78,4 +99,16 @@ public class FileStructure {
   public File contextProperties() {
     return new File(dir, "context-props.pb");
   }
+
+  /**
+   * Data of all domains and components packed in a single file, see {@link ScannerReportWriter#packComponentData()}
+   * @since 6.2
+   */
+  public File componentDataFile() {
+    return new File(dir, "components.dat");
+  }
+
+  File root() {
+    return dir;
+  }
 }
@@ -19,19 +19,33 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import javax.annotation.CheckForNull;
+import org.apache.commons.io.FileUtils;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.Protobuf;
 
 import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
 
-public class ScannerReportReader {
+/**
+ * Reads reports which component data is either stored in one file per component and domain, or packed
+ * in {@link FileStructure#componentDataFile()}.
+ */
+public class ScannerReportReader implements Closeable {
 
   private final FileStructure fileStructure;
+  @CheckForNull
+  private final ComponentDataFile componentData;
 
   public ScannerReportReader(File dir) {
     this.fileStructure = new FileStructure(dir);
+    File componentDataFile = fileStructure.componentDataFile();
+    this.componentData = fileExists(componentDataFile) ? ComponentDataFile.open(componentDataFile) : null;
   }
 
   public ScannerReport.Metadata readMetadata() {
@@ -51,88 +65,61 @@ public class ScannerReportReader {
   }
 
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Measure.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.MEASURES, componentRef, ScannerReport.Measure.parser());
   }
 
   @CheckForNull
   public ScannerReport.Changesets readChangesets(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.Changesets.parser());
+    if (hasComponentData(FileStructure.Domain.CHANGESETS, componentRef)) {
+      return readComponentMessage(FileStructure.Domain.CHANGESETS, componentRef, ScannerReport.Changesets.parser());
     }
     return null;
   }
 
   public ScannerReport.Component readComponent(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef);
-    if (!fileExists(file)) {
-      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
+    if (!hasComponentData(FileStructure.Domain.COMPONENT, componentRef)) {
+      throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: "
+        + fileStructure.fileFor(FileStructure.Domain.COMPONENT, componentRef));
     }
-    return Protobuf.read(file, ScannerReport.Component.parser());
+    return readComponentMessage(FileStructure.Domain.COMPONENT, componentRef, ScannerReport.Component.parser());
   }
 
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Issue.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.ISSUES, componentRef, ScannerReport.Issue.parser());
   }
 
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Duplication.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.DUPLICATIONS, componentRef, ScannerReport.Duplication.parser());
   }
 
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, ScannerReport.CpdTextBlock.parser());
   }
 
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Symbol.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.SYMBOLS, componentRef, ScannerReport.Symbol.parser());
   }
 
   public boolean hasSyntaxHighlighting(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    return file.exists();
+    return hasComponentData(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
   }
 
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef, ScannerReport.SyntaxHighlightingRule.parser());
   }
 
   public boolean hasCoverage(int componentRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    return file.exists();
+    return hasComponentData(FileStructure.Domain.COVERAGES, componentRef);
   }
 
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, fileRef);
-    if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineCoverage.parser());
-    }
-    return emptyCloseableIterator();
+    return readComponentStream(FileStructure.Domain.COVERAGES, fileRef, ScannerReport.LineCoverage.parser());
   }
 
+  /**
+   * @deprecated since 6.2 the file does not exist when component data is packed. Use {@link #openComponentData(FileStructure.Domain, int)}.
+   */
+  @Deprecated
   @CheckForNull
   public File readFileSource(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SOURCE, fileRef);
@@ -142,6 +129,10 @@ public class ScannerReportReader {
     return null;
   }
 
+  /**
+   * @deprecated since 6.2 the file does not exist when component data is packed. Use {@link #openComponentData(FileStructure.Domain, int)}.
+   */
+  @Deprecated
   @CheckForNull
   public File readTests(int testFileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.TESTS, testFileRef);
@@ -152,6 +143,10 @@ public class ScannerReportReader {
     return null;
   }
 
+  /**
+   * @deprecated since 6.2 the file does not exist when component data is packed. Use {@link #openComponentData(FileStructure.Domain, int)}.
+   */
+  @Deprecated
   @CheckForNull
   public File readCoverageDetails(int testFileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.COVERAGE_DETAILS, testFileRef);
@@ -170,6 +165,60 @@ public class ScannerReportReader {
     return Protobuf.readStream(file, ScannerReport.ContextProperty.parser());
   }
 
+  /**
+   * @since 6.2
+   */
+  public boolean hasComponentData(FileStructure.Domain domain, int componentRef) {
+    if (componentData != null && componentData.contains(domain, componentRef)) {
+      return true;
+    }
+    return fileExists(fileStructure.fileFor(domain, componentRef));
+  }
+
+  /**
+   * Raw data of the component in the domain, for example the source code of {@link FileStructure.Domain#SOURCE}.
+   * The stream must be closed by caller.
+   *
+   * @return {@code null} if the report has no such data
+   * @since 6.2
+   */
+  @CheckForNull
+  public InputStream openComponentData(FileStructure.Domain domain, int componentRef) {
+    if (componentData != null) {
+      InputStream input = componentData.open(domain, componentRef);
+      if (input != null) {
+        return input;
+      }
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    if (!fileExists(file)) {
+      return null;
+    }
+    try {
+      return FileUtils.openInputStream(file);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open file " + file, e);
+    }
+  }
+
+  private <MSG extends Message> MSG readComponentMessage(FileStructure.Domain domain, int componentRef, Parser<MSG> parser) {
+    if (componentData != null && componentData.contains(domain, componentRef)) {
+      return Protobuf.read(componentData.open(domain, componentRef), parser);
+    }
+    return Protobuf.read(fileStructure.fileFor(domain, componentRef), parser);
+  }
+
+  private <MSG extends Message> CloseableIterator<MSG> readComponentStream(FileStructure.Domain domain, int componentRef, Parser<MSG> parser) {
+    if (componentData != null && componentData.contains(domain, componentRef)) {
+      return Protobuf.readStream(componentData.open(domain, componentRef), parser);
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    if (fileExists(file)) {
+      return Protobuf.readStream(file, parser);
+    }
+    return emptyCloseableIterator();
+  }
+
   private static boolean fileExists(File file) {
     return file.exists() && file.isFile();
   }
@@ -177,4 +226,16 @@ public class ScannerReportReader {
   public FileStructure getFileStructure() {
     return fileStructure;
   }
+
+  /**
+   * Releases the packed component data, if any
+   *
+   * @since 6.2
+   */
+  @Override
+  public void close() {
+    if (componentData != null) {
+      componentData.close();
+    }
+  }
 }
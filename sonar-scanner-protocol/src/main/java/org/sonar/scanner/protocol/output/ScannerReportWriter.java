@@ -144,4 +144,15 @@ public class ScannerReportWriter {
     return fileStructure.fileFor(FileStructure.Domain.SOURCE, componentRef);
   }
 
+  /**
+   * Moves the data of all components into the single file {@link FileStructure#componentDataFile()}, so that
+   * the report does not contain one file per component and domain. Component data must not be written afterwards.
+   *
+   * @return the number of packed files
+   * @since 6.2
+   */
+  public int packComponentData() {
+    return ComponentDataFile.pack(fileStructure);
+  }
+
 }
@@ -175,6 +175,9 @@ public class ScannerReportViewerApp {
   }
 
   private void loadReport(File file) {
+    if (reader != null) {
+      reader.close();
+    }
     reader = new ScannerReportReader(file);
     metadata = reader.readMetadata();
     updateTitle();
@@ -279,11 +282,10 @@ public class ScannerReportViewerApp {
   
   private void updateTests(Component component) {
     testsEditor.setText("");
-    File tests = reader.readTests(component.getRef());
-    if(tests == null) {
+    if (!reader.hasComponentData(Domain.TESTS, component.getRef())) {
       return;
     }
-    try (InputStream inputStream = FileUtils.openInputStream(tests)) {
+    try (InputStream inputStream = reader.openComponentData(Domain.TESTS, component.getRef())) {
       ScannerReport.Test test = ScannerReport.Test.parser().parseDelimitedFrom(inputStream);
       while (test != null) {
         testsEditor.getDocument().insertString(testsEditor.getDocument().getEndPosition().getOffset(), test.toString() + "\n", null);
@@ -295,11 +297,11 @@ public class ScannerReportViewerApp {
   }
 
   private void updateSource(Component component) {
-    File sourceFile = reader.getFileStructure().fileFor(Domain.SOURCE, component.getRef());
     sourceEditor.setText("");
 
-    if (sourceFile.exists()) {
-      try (Scanner s = new Scanner(sourceFile, StandardCharsets.UTF_8.name()).useDelimiter("\\Z")) {
+    if (reader.hasComponentData(Domain.SOURCE, component.getRef())) {
+      try (InputStream source = reader.openComponentData(Domain.SOURCE, component.getRef());
+        Scanner s = new Scanner(source, StandardCharsets.UTF_8.name()).useDelimiter("\\Z")) {
         if (s.hasNext()) {
           sourceEditor.setText(s.next());
         }
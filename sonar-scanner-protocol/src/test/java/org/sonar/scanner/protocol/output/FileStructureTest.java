@@ -80,4 +80,19 @@ public class FileStructureTest {
     FileStructure structure = new FileStructure(dir);
     assertThat(structure.contextProperties()).exists().isFile().isEqualTo(file);
   }
+
+  @Test
+  public void componentRef_of_domain_files() {
+    assertThat(FileStructure.Domain.ISSUES.componentRefOf("issues-3.pb")).isEqualTo(3);
+    assertThat(FileStructure.Domain.COVERAGES.componentRefOf("coverages-12.pb")).isEqualTo(12);
+    assertThat(FileStructure.Domain.COVERAGE_DETAILS.componentRefOf("coverage-details-12.pb")).isEqualTo(12);
+    assertThat(FileStructure.Domain.SOURCE.componentRefOf("source-5.txt")).isEqualTo(5);
+
+    assertThat(FileStructure.Domain.COVERAGES.componentRefOf("coverage-details-12.pb")).isNull();
+    assertThat(FileStructure.Domain.SOURCE.componentRefOf("source-5.pb")).isNull();
+    assertThat(FileStructure.Domain.ISSUES.componentRefOf("issues-.pb")).isNull();
+    assertThat(FileStructure.Domain.ISSUES.componentRefOf("issues--1.pb")).isNull();
+    assertThat(FileStructure.Domain.ISSUES.componentRefOf("issues-99999999999.pb")).isNull();
+    assertThat(FileStructure.Domain.ISSUES.componentRefOf("metadata.pb")).isNull();
+  }
 }
@@ -377,4 +377,54 @@ public class ScannerReportReaderTest {
   public void return_null_when_no_file_source() throws Exception {
     assertThat(underTest.readFileSource(UNKNOWN_COMPONENT_REF)).isNull();
   }
+
+  @Test
+  public void read_packed_component_data() throws Exception {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).setPath("src/Foo.java").build());
+    writer.writeComponentIssues(1, asList(
+      ScannerReport.Issue.newBuilder().setMsg("issue 1").build(),
+      ScannerReport.Issue.newBuilder().setMsg("issue 2").build()));
+    writer.writeComponentCoverage(1, singletonList(ScannerReport.LineCoverage.newBuilder().setLine(2).setHits(true).build()));
+    FileUtils.write(writer.getSourceFile(1), "line1\nline2");
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(2).setPath("src/Bar.java").build());
+    writer.packComponentData();
+
+    try (ScannerReportReader reader = new ScannerReportReader(dir)) {
+      assertThat(reader.readComponent(1).getPath()).isEqualTo("src/Foo.java");
+      assertThat(reader.readComponent(2).getPath()).isEqualTo("src/Bar.java");
+      try (CloseableIterator<ScannerReport.Issue> issues = reader.readComponentIssues(1)) {
+        assertThat(issues.next().getMsg()).isEqualTo("issue 1");
+        assertThat(issues.next().getMsg()).isEqualTo("issue 2");
+        assertThat(issues.hasNext()).isFalse();
+      }
+      assertThat(reader.readComponentIssues(2)).isEmpty();
+      assertThat(reader.hasCoverage(1)).isTrue();
+      assertThat(reader.hasCoverage(2)).isFalse();
+      try (InputStream source = reader.openComponentData(FileStructure.Domain.SOURCE, 1)) {
+        assertThat(IOUtils.readLines(source)).containsExactly("line1", "line2");
+      }
+      assertThat(reader.openComponentData(FileStructure.Domain.SOURCE, 2)).isNull();
+      assertThat(reader.hasComponentData(FileStructure.Domain.SOURCE, 1)).isTrue();
+      assertThat(reader.hasComponentData(FileStructure.Domain.SOURCE, 2)).isFalse();
+    }
+  }
+
+  @Test
+  public void open_component_data_of_unpacked_report() throws Exception {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    FileUtils.write(writer.getSourceFile(1), "line1\nline2");
+
+    try (InputStream source = underTest.openComponentData(FileStructure.Domain.SOURCE, 1)) {
+      assertThat(IOUtils.readLines(source)).containsExactly("line1", "line2");
+    }
+    assertThat(underTest.openComponentData(FileStructure.Domain.SOURCE, UNKNOWN_COMPONENT_REF)).isNull();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void fail_if_packed_component_data_is_corrupted() throws Exception {
+    FileUtils.write(new FileStructure(dir).componentDataFile(), "not a report");
+
+    new ScannerReportReader(dir);
+  }
 }
@@ -299,4 +299,27 @@ public class ScannerReportWriterTest {
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.COVERAGE_DETAILS, 1)).isTrue();
   }
+
+  @Test
+  public void pack_component_data() throws Exception {
+    underTest.writeMetadata(ScannerReport.Metadata.newBuilder().setRootComponentRef(1).build());
+    underTest.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+    underTest.writeComponentIssues(1, asList(ScannerReport.Issue.newBuilder().setMsg("the message").build()));
+    FileUtils.write(underTest.getSourceFile(1), "line1\nline2");
+
+    assertThat(underTest.packComponentData()).isEqualTo(3);
+
+    assertThat(underTest.getFileStructure().componentDataFile()).isFile();
+    assertThat(underTest.getFileStructure().metadataFile()).isFile();
+    assertThat(underTest.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isFalse();
+    assertThat(underTest.hasComponentData(FileStructure.Domain.ISSUES, 1)).isFalse();
+    assertThat(underTest.getSourceFile(1)).doesNotExist();
+  }
+
+  @Test
+  public void pack_empty_report() {
+    assertThat(underTest.packComponentData()).isEqualTo(0);
+
+    assertThat(underTest.getFileStructure().componentDataFile()).isFile();
+  }
 }
@@ -21,9 +21,13 @@ package org.sonarsource.sonarqube.perf.scanner.suite;
 
 import com.sonar.orchestrator.Orchestrator;
 import com.sonar.orchestrator.build.MavenBuild;
+import com.sonar.orchestrator.build.SonarScanner;
 import com.sonar.orchestrator.locator.FileLocation;
 import org.sonarsource.sonarqube.perf.PerfTestCase;
+import java.io.File;
 import java.io.IOException;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
@@ -72,6 +76,60 @@ public class DuplicationTest extends PerfTestCase {
     assertThat(file.getMeasureValue("duplicated_lines")).isGreaterThan(50000.0);
   }
 
+  /**
+   * Throughput of CPD detection on a project with many duplications, executed by one and by several threads
+   */
+  @Test
+  public void detectDuplicationsWithSeveralThreads() throws IOException {
+    File baseDir = prepareDuplicatedProject(500, 2000);
+
+    long singleThread = analyzeWithThreads(baseDir, 1);
+    orchestrator.resetData();
+    long multiThreads = analyzeWithThreads(baseDir, 4);
+
+    System.out.printf("CPD throughput on 500 files: %.1f files/s with 1 thread, %.1f files/s with 4 threads\n",
+      500 * 1000.0 / singleThread, 500 * 1000.0 / multiThreads);
+    assertDurationLessThan(collector, multiThreads, singleThread);
+    Resource project = getResource("cpdThreads");
+    assertThat(project.getMeasureValue("duplicated_files")).isEqualTo(500.0);
+  }
+
+  private long analyzeWithThreads(File baseDir, int threads) {
+    SonarScanner scanner = SonarScanner.create()
+      .setProperties(
+        "sonar.projectKey", "cpdThreads",
+        "sonar.projectName", "CPD threads",
+        "sonar.projectVersion", "1.0",
+        "sonar.sources", "src",
+        "sonar.scm.disabled", "true",
+        "sonar.xoo.useNewCpdTokenizerApi", "true",
+        "sonar.cpd.xoo.minimumTokens", "20",
+        "sonar.cpd.threads", String.valueOf(threads))
+      .setEnvironmentVariable("SONAR_RUNNER_OPTS", "-Xmx512m -server")
+      .setProjectDir(baseDir);
+    long start = System.currentTimeMillis();
+    orchestrator.executeBuild(scanner);
+    return System.currentTimeMillis() - start;
+  }
+
+  /**
+   * Each file is made of lines picked from a small set, so that all files share many duplicated blocks
+   */
+  private File prepareDuplicatedProject(int nbFiles, int nbLines) throws IOException {
+    File baseDir = temp.newFolder();
+    File srcDir = new File(baseDir, "src");
+    srcDir.mkdir();
+    Random random = new Random(42L);
+    for (int nb = 1; nb <= nbFiles; nb++) {
+      StringBuilder sb = new StringBuilder();
+      for (int line = 0; line < nbLines; line++) {
+        sb.append("statement").append(random.nextInt(50)).append(" with some tokens ;\n");
+      }
+      FileUtils.write(new File(srcDir, "sample" + nb + ".xoo"), sb.toString());
+    }
+    return baseDir;
+  }
+
   private Resource getResource(String key) {
     return orchestrator.getServer().getWsClient()
       .find(ResourceQuery.createForMetrics(key, "duplicated_lines", "duplicated_blocks", "duplicated_files", "duplicated_lines_density", "useless-duplicated-lines"));